@@ -0,0 +1,158 @@
+/**
+ * Copyright (C) 2016 Robinhood Markets, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.robinhood.spark;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Renders many series in parallel, with a {@link SparkImageRenderer} per worker thread. Each call
+ * splits its series into one contiguous chunk per thread, so the cost of handing out work stays
+ * the same however many series there are. Close the batch to stop its threads.
+ */
+public final class SparkImageBatch implements Closeable {
+    private final SparkImageStyle style;
+    private final int threadCount;
+    private final ExecutorService executor;
+    private final ThreadLocal<SparkImageRenderer> renderers = new ThreadLocal<SparkImageRenderer>() {
+        @Override
+        protected SparkImageRenderer initialValue() {
+            return new SparkImageRenderer(style);
+        }
+    };
+
+    /**
+     * Creates a batch with a thread per available processor.
+     */
+    public SparkImageBatch(SparkImageStyle style) {
+        this(style, Runtime.getRuntime().availableProcessors());
+    }
+
+    public SparkImageBatch(SparkImageStyle style, int threadCount) {
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("threadCount must be at least 1");
+        }
+        this.style = style;
+        this.threadCount = threadCount;
+        executor = Executors.newFixedThreadPool(threadCount, new ThreadFactory() {
+            private int count;
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                final Thread thread = new Thread(runnable, "SparkImageBatch-" + count++);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Renders each series into a new image of the given size.
+     *
+     * @return the images, in the same order as the series
+     */
+    public List<BufferedImage> render(List<SparkImageSeries> series, final int width,
+            final int height) throws IOException, InterruptedException {
+        final BufferedImage[] images = new BufferedImage[series.size()];
+        run(series, new Chunk() {
+            @Override
+            public void render(SparkImageRenderer renderer, SparkImageSeries series, int index) {
+                images[index] = renderer.render(series, width, height);
+            }
+        });
+        return Arrays.asList(images);
+    }
+
+    /**
+     * Renders each series as a PNG of the given size.
+     *
+     * @return the encoded images, in the same order as the series
+     */
+    public List<byte[]> renderPng(List<SparkImageSeries> series, final int width,
+            final int height) throws IOException, InterruptedException {
+        final byte[][] pngs = new byte[series.size()][];
+        run(series, new Chunk() {
+            @Override
+            public void render(SparkImageRenderer renderer, SparkImageSeries series, int index)
+                    throws IOException {
+                final ByteArrayOutputStream out = new ByteArrayOutputStream();
+                renderer.writePng(series, width, height, out);
+                pngs[index] = out.toByteArray();
+            }
+        });
+        return Arrays.asList(pngs);
+    }
+
+    /**
+     * Stops the worker threads. Calls in progress finish first.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    private interface Chunk {
+        void render(SparkImageRenderer renderer, SparkImageSeries series, int index)
+                throws IOException;
+    }
+
+    private void run(final List<SparkImageSeries> series, final Chunk chunk)
+            throws IOException, InterruptedException {
+        final int size = series.size();
+        final int chunks = Math.min(threadCount, size);
+        final List<Future<Void>> futures = new ArrayList<>(chunks);
+        for (int c = 0; c < chunks; c++) {
+            final int start = (int) ((long) c * size / chunks);
+            final int end = (int) ((long) (c + 1) * size / chunks);
+            futures.add(executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws IOException {
+                    final SparkImageRenderer renderer = renderers.get();
+                    for (int i = start; i < end; i++) {
+                        chunk.render(renderer, series.get(i), i);
+                    }
+                    return null;
+                }
+            }));
+        }
+
+        try {
+            for (int c = 0; c < chunks; c++) {
+                futures.get(c).get();
+            }
+        } catch (ExecutionException e) {
+            for (int c = 0; c < chunks; c++) {
+                futures.get(c).cancel(true);
+            }
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) throw (IOException) cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new RuntimeException(cause);
+        }
+    }
+}
@@ -0,0 +1,240 @@
+/**
+ * Copyright (C) 2016 Robinhood Markets, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.robinhood.spark;
+
+import java.awt.AlphaComposite;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.Line2D;
+import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Rasterizes sparklines with Java2D, for pre-rendering images on a server. Points are scaled,
+ * decimated and smoothed by the same code as {@code SparkView}, so an image matches a view of
+ * the same size and style.
+ *
+ * <p>A renderer reuses its buffers between calls and is not thread safe; use one per thread, or a
+ * {@link SparkImageBatch} to render many series in parallel.
+ */
+public final class SparkImageRenderer {
+    private final SparkImageStyle style;
+    private final LinearScale scale = new LinearScale();
+    private final Path2D.Float path = new Path2D.Float();
+    private final Line2D.Float baseLine = new Line2D.Float();
+    private BasicStroke lineStroke;
+    private BasicStroke baseLineStroke;
+
+    // prepared and bounded by the same code as SparkRenderer
+    private final SeriesPoints points = new SeriesPoints();
+    private final float[] bounds = new float[4];
+    private final float[] minMax = new float[2];
+    // the points to draw, from points.prepare()
+    private float[] xs;
+    private float[] ys;
+    private final SmoothingHelper.Curve curve = new SmoothingHelper.Curve();
+    // reused by writePng
+    private BufferedImage pngImage;
+
+    public SparkImageRenderer(SparkImageStyle style) {
+        this.style = style;
+    }
+
+    /**
+     * Renders the series into a new ARGB image of the given size.
+     */
+    public BufferedImage render(SparkImageSeries series, int width, int height) {
+        final BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        render(series, image);
+        return image;
+    }
+
+    /**
+     * Renders the series as a PNG of the given size into the stream, reusing the same image
+     * between calls of the same size.
+     */
+    public void writePng(SparkImageSeries series, int width, int height, OutputStream out)
+            throws IOException {
+        if (pngImage == null || pngImage.getWidth() != width || pngImage.getHeight() != height) {
+            pngImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        }
+        render(series, pngImage);
+        if (!ImageIO.write(pngImage, "png", out)) {
+            throw new IOException("No PNG writer available");
+        }
+    }
+
+    /**
+     * Renders the series into the given image, replacing its contents. Series with more points
+     * than the image has pixel columns are reduced to the min and max of each column first, so
+     * the cost of drawing depends on the image's width.
+     */
+    public void render(SparkImageSeries series, BufferedImage image) {
+        final int width = image.getWidth();
+        final int height = image.getHeight();
+        final Graphics2D g = image.createGraphics();
+        try {
+            g.setComposite(AlphaComposite.Src);
+            g.setColor(new Color(style.getBackgroundColor(), true));
+            g.fillRect(0, 0, width, height);
+            g.setComposite(AlphaComposite.SrcOver);
+
+            final float left = style.getPaddingLeft();
+            final float top = style.getPaddingTop();
+            final float right = width - style.getPaddingRight();
+            final float bottom = height - style.getPaddingBottom();
+            if (series.getCount() < 2 || right <= left || bottom <= top) return;
+
+            updateScale(series, left, top, right, bottom);
+            final int count = preparePoints(series, (int) (right - left));
+            buildPath(count, bottom);
+
+            updateStrokes();
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+                    RenderingHints.VALUE_ANTIALIAS_ON);
+            g.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL,
+                    RenderingHints.VALUE_STROKE_PURE);
+            if (series.hasBaseLine()) {
+                final float y = scale.getY(series.getBaseLine());
+                baseLine.setLine(0, y, width, y);
+                g.setColor(new Color(style.getBaseLineColor(), true));
+                g.setStroke(baseLineStroke);
+                g.draw(baseLine);
+            }
+            g.setColor(new Color(style.getLineColor(), true));
+            if (style.isFill()) {
+                g.fill(path);
+            } else {
+                g.setStroke(lineStroke);
+                g.draw(path);
+            }
+        } finally {
+            g.dispose();
+        }
+    }
+
+    /**
+     * Fits the series' bounds, including its base line, into the content area, the same way as
+     * {@code ArraySparkAdapter.getDataBounds()}.
+     */
+    private void updateScale(SparkImageSeries series, float left, float top, float right,
+            float bottom) {
+        final int count = series.getCount();
+        // a renderer is used by one thread, so the arrays are always scanned on it
+        SeriesPoints.bounds(series.getXData(), series.getYData(), count, Integer.MAX_VALUE,
+                series.hasBaseLine(), series.getBaseLine(), minMax, bounds);
+        scale.set(bounds[SeriesPoints.MIN_X], bounds[SeriesPoints.MIN_Y],
+                bounds[SeriesPoints.MAX_X], bounds[SeriesPoints.MAX_Y], count,
+                left, top, right, bottom, style.getLineWidth(), style.isFill());
+    }
+
+    /**
+     * Prepares the series' points in {@linkplain #xs} and {@linkplain #ys}, decimated to two
+     * points per pixel column when there are more.
+     *
+     * @return the number of points to draw
+     */
+    private int preparePoints(SparkImageSeries series, int columns) {
+        final int count = points.prepare(series.getXData(), series.getYData(), series.getCount(),
+                columns);
+        xs = points.xs;
+        ys = points.ys;
+        return count;
+    }
+
+    /**
+     * Populates the {@linkplain #path} in pixels from the prepared points, closing it down to the
+     * content's bottom edge when filling.
+     */
+    private void buildPath(int count, float bottom) {
+        path.reset();
+        path.moveTo(scale.getX(xs[0]), scale.getY(ys[0]));
+        final int smoothing = style.getLineSmoothing();
+        if (smoothing != SparkImageStyle.SMOOTHING_NONE) {
+            curve.update(xs, ys, count, smoothing == SparkImageStyle.SMOOTHING_MONOTONE_CUBIC);
+            final float[] controlPoints = curve.controlPoints;
+            for (int i = 1, j = 0; i < count; i++, j += 4) {
+                path.curveTo(scale.getX(controlPoints[j]), scale.getY(controlPoints[j + 1]),
+                        scale.getX(controlPoints[j + 2]), scale.getY(controlPoints[j + 3]),
+                        scale.getX(xs[i]), scale.getY(ys[i]));
+            }
+        } else if (style.getCornerRadius() > 0) {
+            addRoundedCorners(count, style.getCornerRadius());
+        } else {
+            for (int i = 1; i < count; i++) {
+                path.lineTo(scale.getX(xs[i]), scale.getY(ys[i]));
+            }
+        }
+
+        if (style.isFill()) {
+            path.lineTo(scale.getX(xs[count - 1]), bottom);
+            path.lineTo(scale.getX(xs[0]), bottom);
+            path.closePath();
+        }
+    }
+
+    /**
+     * Adds the segments after the first point with each corner rounded off by a quadratic curve,
+     * the same way as Android's {@code CornerPathEffect}: the curve starts and ends the radius away
+     * from the corner, or halfway along a segment shorter than twice the radius.
+     */
+    private void addRoundedCorners(int count, float radius) {
+        float prevX = scale.getX(xs[0]);
+        float prevY = scale.getY(ys[0]);
+        float x = scale.getX(xs[1]);
+        float y = scale.getY(ys[1]);
+        for (int i = 2; i < count; i++) {
+            final float nextX = scale.getX(xs[i]);
+            final float nextY = scale.getY(ys[i]);
+            final float inStep = cornerStep(x - prevX, y - prevY, radius);
+            final float outStep = cornerStep(nextX - x, nextY - y, radius);
+            path.lineTo(x - (x - prevX) * inStep, y - (y - prevY) * inStep);
+            path.quadTo(x, y, x + (nextX - x) * outStep, y + (nextY - y) * outStep);
+            prevX = x;
+            prevY = y;
+            x = nextX;
+            y = nextY;
+        }
+        path.lineTo(x, y);
+    }
+
+    /**
+     * @return the fraction of the given segment that the rounding at one of its ends covers.
+     */
+    static float cornerStep(float dx, float dy, float radius) {
+        final float length = (float) Math.hypot(dx, dy);
+        return length <= radius * 2 ? 0.5f : radius / length;
+    }
+
+    /**
+     * Rebuilds the strokes if the style's widths changed since the last render.
+     */
+    private void updateStrokes() {
+        if (lineStroke == null || lineStroke.getLineWidth() != style.getLineWidth()) {
+            lineStroke = new BasicStroke(style.getLineWidth(), BasicStroke.CAP_ROUND,
+                    BasicStroke.JOIN_MITER);
+        }
+        if (baseLineStroke == null || baseLineStroke.getLineWidth() != style.getBaseLineWidth()) {
+            baseLineStroke = new BasicStroke(style.getBaseLineWidth());
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/**
+ * Copyright (C) 2016 Robinhood Markets, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.robinhood.spark;
+
+/**
+ * The points of one sparkline for {@link SparkImageRenderer}, backed by primitive arrays like an
+ * {@code ArraySparkAdapter}. The arrays aren't copied, so don't change them while rendering.
+ */
+public final class SparkImageSeries {
+    private final float[] xData;
+    private final float[] yData;
+    private final int count;
+    private boolean hasBaseLine;
+    private float baseLine;
+
+    /**
+     * Creates a series whose points are evenly distributed by their index.
+     */
+    public SparkImageSeries(float[] yData) {
+        this(null, yData, yData.length);
+    }
+
+    /**
+     * Creates a series from the first {@code count} values of the given arrays.
+     *
+     * @param xData the X values, or null to evenly distribute the points by their index
+     */
+    public SparkImageSeries(float[] xData, float[] yData, int count) {
+        if (count > yData.length || (xData != null && count > xData.length)) {
+            throw new IllegalArgumentException("count " + count + " exceeds the data");
+        }
+        this.xData = xData;
+        this.yData = yData;
+        this.count = count;
+    }
+
+    /**
+     * @return the X values, or null if the points are evenly distributed by their index.
+     */
+    public float[] getXData() {
+        return xData;
+    }
+
+    /**
+     * @return the Y values. Only the first {@link #getCount()} are used.
+     */
+    public float[] getYData() {
+        return yData;
+    }
+
+    /**
+     * @return the number of points.
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * @return the X value of the point at the given index.
+     */
+    public float getX(int index) {
+        return xData == null ? index : xData[index];
+    }
+
+    /**
+     * @return true if a base line is drawn.
+     */
+    public boolean hasBaseLine() {
+        return hasBaseLine;
+    }
+
+    /**
+     * @return the Y value of the base line.
+     */
+    public float getBaseLine() {
+        return baseLine;
+    }
+
+    /**
+     * Draws a base line at the given Y value, included in the series' bounds just like
+     * {@code SparkAdapter.getBaseLine()}.
+     */
+    public void setBaseLine(float baseLine) {
+        this.baseLine = baseLine;
+        hasBaseLine = true;
+    }
+
+    /**
+     * Removes the base line.
+     */
+    public void clearBaseLine() {
+        baseLine = 0;
+        hasBaseLine = false;
+    }
+}
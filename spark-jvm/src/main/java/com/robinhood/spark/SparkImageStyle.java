@@ -0,0 +1,202 @@
+/**
+ * Copyright (C) 2016 Robinhood Markets, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.robinhood.spark;
+
+/**
+ * The styling rules of a {@link SparkImageRenderer}, with the same meaning and defaults as the
+ * matching {@code SparkView} attributes. Sizes are in pixels and colors are ARGB.
+ *
+ * <p>A style may be shared by any number of renderers, but shouldn't be changed while they are
+ * rendering.
+ */
+public final class SparkImageStyle {
+    /** Draw straight segments, optionally rounded by the corner radius. */
+    public static final int SMOOTHING_NONE = 0;
+    /** Draw a monotone cubic curve through the points, which never overshoots the data. */
+    public static final int SMOOTHING_MONOTONE_CUBIC = 1;
+    /** Draw a Catmull-Rom spline through the points. */
+    public static final int SMOOTHING_CATMULL_ROM = 2;
+
+    private int lineColor = 0xFF000000;
+    private float lineWidth = 2;
+    private float cornerRadius = 3;
+    private int lineSmoothing = SMOOTHING_NONE;
+    private boolean fill;
+    private int baseLineColor = 0xFF757577;
+    private float baseLineWidth = 1;
+    private int backgroundColor;
+    private int paddingLeft;
+    private int paddingTop;
+    private int paddingRight;
+    private int paddingBottom;
+
+    /**
+     * Get the color of the sparkline
+     */
+    public int getLineColor() {
+        return lineColor;
+    }
+
+    /**
+     * Set the color of the sparkline
+     */
+    public void setLineColor(int lineColor) {
+        this.lineColor = lineColor;
+    }
+
+    /**
+     * Get the width of the sparkline's stroke
+     */
+    public float getLineWidth() {
+        return lineWidth;
+    }
+
+    /**
+     * Set the width of the sparkline's stroke
+     */
+    public void setLineWidth(float lineWidth) {
+        this.lineWidth = lineWidth;
+    }
+
+    /**
+     * Get the corner radius used when rounding the sparkline's segments.
+     */
+    public float getCornerRadius() {
+        return cornerRadius;
+    }
+
+    /**
+     * Set the corner radius used when rounding the sparkline's segments. Passing 0 indicates that
+     * corners should not be rounded. Ignored while smoothing.
+     */
+    public void setCornerRadius(float cornerRadius) {
+        this.cornerRadius = cornerRadius;
+    }
+
+    /**
+     * Get the smoothing applied to the sparkline.
+     */
+    public int getLineSmoothing() {
+        return lineSmoothing;
+    }
+
+    /**
+     * Set the smoothing applied to the sparkline.
+     *
+     * @param lineSmoothing one of {@link #SMOOTHING_NONE}, {@link #SMOOTHING_MONOTONE_CUBIC} or
+     *                      {@link #SMOOTHING_CATMULL_ROM}
+     */
+    public void setLineSmoothing(int lineSmoothing) {
+        if (lineSmoothing < SMOOTHING_NONE || lineSmoothing > SMOOTHING_CATMULL_ROM) {
+            throw new IllegalArgumentException("Unknown line smoothing " + lineSmoothing);
+        }
+        this.lineSmoothing = lineSmoothing;
+    }
+
+    /**
+     * Whether or not to fill the area under the sparkline.
+     */
+    public boolean isFill() {
+        return fill;
+    }
+
+    /**
+     * Set whether or not to fill the area under the sparkline with the line color.
+     */
+    public void setFill(boolean fill) {
+        this.fill = fill;
+    }
+
+    /**
+     * Get the color of the base line
+     */
+    public int getBaseLineColor() {
+        return baseLineColor;
+    }
+
+    /**
+     * Set the color of the base line
+     */
+    public void setBaseLineColor(int baseLineColor) {
+        this.baseLineColor = baseLineColor;
+    }
+
+    /**
+     * Get the width of the base line's stroke
+     */
+    public float getBaseLineWidth() {
+        return baseLineWidth;
+    }
+
+    /**
+     * Set the width of the base line's stroke
+     */
+    public void setBaseLineWidth(float baseLineWidth) {
+        this.baseLineWidth = baseLineWidth;
+    }
+
+    /**
+     * Get the color images are cleared to before drawing.
+     */
+    public int getBackgroundColor() {
+        return backgroundColor;
+    }
+
+    /**
+     * Set the color images are cleared to before drawing. Transparent by default.
+     */
+    public void setBackgroundColor(int backgroundColor) {
+        this.backgroundColor = backgroundColor;
+    }
+
+    /**
+     * Get the padding between the image's left edge and the sparkline.
+     */
+    public int getPaddingLeft() {
+        return paddingLeft;
+    }
+
+    /**
+     * Get the padding between the image's top edge and the sparkline.
+     */
+    public int getPaddingTop() {
+        return paddingTop;
+    }
+
+    /**
+     * Get the padding between the image's right edge and the sparkline.
+     */
+    public int getPaddingRight() {
+        return paddingRight;
+    }
+
+    /**
+     * Get the padding between the image's bottom edge and the sparkline.
+     */
+    public int getPaddingBottom() {
+        return paddingBottom;
+    }
+
+    /**
+     * Set the padding between the image's edges and the sparkline.
+     */
+    public void setPadding(int left, int top, int right, int bottom) {
+        paddingLeft = left;
+        paddingTop = top;
+        paddingRight = right;
+        paddingBottom = bottom;
+    }
+}
@@ -0,0 +1,59 @@
+package com.robinhood.spark;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures how many series per second {@link SparkImageRenderer} and {@link SparkImageBatch} can
+ * render, both as raw images and encoded as PNGs. Not a unit test; run its main method on the
+ * target hardware.
+ */
+public class SparkImageBenchmark {
+    private static final int SERIES = 2000;
+    // a trading day of minutes
+    private static final int POINTS = 390;
+    private static final int WIDTH = 120;
+    private static final int HEIGHT = 40;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        final Random random = new Random(0);
+        final List<SparkImageSeries> series = new ArrayList<>(SERIES);
+        for (int s = 0; s < SERIES; s++) {
+            final float[] ys = new float[POINTS];
+            float price = 100;
+            for (int i = 0; i < POINTS; i++) {
+                price += random.nextGaussian() * 0.1f;
+                ys[i] = price;
+            }
+            final SparkImageSeries item = new SparkImageSeries(ys);
+            item.setBaseLine(100);
+            series.add(item);
+        }
+
+        final SparkImageStyle style = new SparkImageStyle();
+        final int cores = Runtime.getRuntime().availableProcessors();
+        System.out.println("cores: " + cores + ", " + SERIES + " series of " + POINTS
+                + " points at " + WIDTH + "x" + HEIGHT);
+        System.out.println(String.format("%10s %14s %14s", "threads", "images/s", "pngs/s"));
+        for (int threads = 1; threads <= cores; threads *= 2) {
+            final SparkImageBatch batch = new SparkImageBatch(style, threads);
+            try {
+                // warm up
+                batch.render(series, WIDTH, HEIGHT);
+                batch.renderPng(series, WIDTH, HEIGHT);
+
+                long start = System.nanoTime();
+                batch.render(series, WIDTH, HEIGHT);
+                final double images = SERIES / ((System.nanoTime() - start) / 1e9);
+                start = System.nanoTime();
+                batch.renderPng(series, WIDTH, HEIGHT);
+                final double pngs = SERIES / ((System.nanoTime() - start) / 1e9);
+                System.out.println(String.format("%10d %14.0f %14.0f", threads, images, pngs));
+            } finally {
+                batch.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.robinhood.spark;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+
+public class SparkImageRendererTest {
+    private static final int RED = 0xFFFF0000;
+    private static final int BLUE = 0xFF0000FF;
+
+    private SparkImageStyle style;
+
+    @Before
+    public void setup() {
+        style = new SparkImageStyle();
+        style.setLineColor(RED);
+        style.setLineWidth(2);
+        style.setCornerRadius(0);
+    }
+
+    @Test
+    public void test_render_tooFewPoints_clearsToBackground() {
+        style.setBackgroundColor(BLUE);
+        BufferedImage image = new SparkImageRenderer(style)
+                .render(new SparkImageSeries(new float[] {1}), 20, 20);
+
+        assertEquals(BLUE, image.getRGB(0, 0));
+        assertEquals(BLUE, image.getRGB(10, 10));
+    }
+
+    @Test
+    public void test_render_flatLine_centered() {
+        BufferedImage image = new SparkImageRenderer(style)
+                .render(new SparkImageSeries(new float[] {5, 5, 5}), 100, 100);
+
+        // a line without height is centered, like in SparkView
+        assertEquals(RED, image.getRGB(50, 49));
+        assertEquals(RED, image.getRGB(50, 50));
+        assertEquals(0, image.getRGB(50, 10));
+        assertEquals(0, image.getRGB(50, 90));
+    }
+
+    @Test
+    public void test_render_fill() {
+        style.setFill(true);
+        BufferedImage image = new SparkImageRenderer(style)
+                .render(new SparkImageSeries(new float[] {0, 10, 0}), 100, 100);
+
+        // the peak is at the top center, everything under the triangle is filled
+        assertEquals(RED, image.getRGB(50, 90));
+        assertEquals(0, image.getRGB(5, 10));
+        assertEquals(0, image.getRGB(95, 10));
+    }
+
+    @Test
+    public void test_render_baseLine() {
+        style.setBaseLineColor(BLUE);
+        style.setBaseLineWidth(2);
+        SparkImageSeries series = new SparkImageSeries(new float[] {10, 10});
+        series.setBaseLine(0);
+        BufferedImage image = new SparkImageRenderer(style).render(series, 100, 100);
+
+        // the base line is included in the bounds, so it sits at the bottom and the data at the top
+        assertEquals(BLUE, image.getRGB(50, 98));
+        assertEquals(RED, image.getRGB(50, 1));
+    }
+
+    @Test
+    public void test_render_decimatesLargeSeries() {
+        float[] ys = new float[100000];
+        for (int i = 0; i < ys.length; i++) {
+            ys[i] = i % 2;
+        }
+        BufferedImage image = new SparkImageRenderer(style)
+                .render(new SparkImageSeries(ys), 50, 50);
+
+        // alternating points fill the whole band however they are reduced
+        assertEquals(RED, image.getRGB(25, 25));
+    }
+
+    @Test
+    public void test_cornerStep() {
+        assertEquals(0.5f, SparkImageRenderer.cornerStep(3, 4, 3));
+        assertEquals(0.2f, SparkImageRenderer.cornerStep(6, 8, 2));
+    }
+
+    @Test
+    public void test_writePng_roundTrips() throws Exception {
+        SparkImageSeries series = new SparkImageSeries(new float[] {0, 3, 1, 4});
+        SparkImageRenderer renderer = new SparkImageRenderer(style);
+        BufferedImage expected = renderer.render(series, 40, 30);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        renderer.writePng(series, 40, 30, out);
+        BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(out.toByteArray()));
+        assertImagesEqual(expected, decoded);
+    }
+
+    @Test
+    public void test_batch_matchesRenderer() throws Exception {
+        style.setLineSmoothing(SparkImageStyle.SMOOTHING_MONOTONE_CUBIC);
+        Random random = new Random(0);
+        List<SparkImageSeries> series = new ArrayList<>();
+        for (int s = 0; s < 23; s++) {
+            float[] ys = new float[50 + s];
+            for (int i = 0; i < ys.length; i++) {
+                ys[i] = random.nextFloat();
+            }
+            series.add(new SparkImageSeries(ys));
+        }
+
+        SparkImageRenderer renderer = new SparkImageRenderer(style);
+        SparkImageBatch batch = new SparkImageBatch(style, 4);
+        try {
+            List<BufferedImage> images = batch.render(series, 60, 20);
+            assertEquals(series.size(), images.size());
+            for (int s = 0; s < series.size(); s++) {
+                assertImagesEqual(renderer.render(series.get(s), 60, 20), images.get(s));
+            }
+        } finally {
+            batch.close();
+        }
+    }
+
+    private static void assertImagesEqual(BufferedImage expected, BufferedImage actual) {
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        boolean drawn = false;
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                assertEquals(expected.getRGB(x, y), actual.getRGB(x, y));
+                drawn |= expected.getRGB(x, y) != 0;
+            }
+        }
+        assertTrue(drawn);
+    }
+}
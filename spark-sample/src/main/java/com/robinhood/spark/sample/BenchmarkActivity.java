@@ -0,0 +1,252 @@
+/**
+ * Copyright (C) 2016 Robinhood Markets, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.robinhood.spark.sample;
+
+import android.os.Bundle;
+import android.os.Handler;
+import android.support.v4.content.ContextCompat;
+import android.support.v7.app.AppCompatActivity;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.view.LayoutInflater;
+import android.view.Menu;
+import android.view.MenuItem;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+import android.widget.TextView;
+
+import com.robinhood.spark.SparkView;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Puts {@link SparkView} under load and reports how the frames hold up, so rendering modes can
+ * be compared on the same data: toggle them from the menu and the stats start over.
+ */
+public class BenchmarkActivity extends AppCompatActivity {
+    public static final String EXTRA_SCENARIO = "scenario";
+    /** hundreds of live charts in a scrolling list */
+    public static final int SCENARIO_LIST = 0;
+    /** a single chart of a million points */
+    public static final int SCENARIO_LARGE = 1;
+    /** a single chart streaming a thousand ticks per second */
+    public static final int SCENARIO_STREAM = 2;
+
+    private static final int LIST_SIZE = 300;
+    private static final int LIST_POINTS = 120;
+    private static final float LIST_TICK_RATE = 2;
+    private static final int LARGE_POINTS = 1000000;
+    private static final int STREAM_POINTS = 2000;
+    private static final float STREAM_TICK_RATE = 1000;
+    private static final float VOLATILITY = 0.01f;
+
+    private static final long TICK_INTERVAL_MS = 16;
+    private static final long REPORT_INTERVAL_MS = 1000;
+    private static final long FRAME_BUDGET_NANOS = 1000000000L / 60;
+    private static final int KEPT_FRAMES = 600;
+    private static final float TILE_WIDTH = 256;
+
+    private final Handler handler = new Handler();
+    // adapters fed by the ticker; the large data set stays put, rebuilding it would dominate
+    private final List<MarketDataAdapter> liveAdapters = new ArrayList<>();
+    // views outside the list, the list applies the modes as it binds
+    private final List<SparkView> sparkViews = new ArrayList<>();
+    private final FrameStats stats = new FrameStats(KEPT_FRAMES, FRAME_BUDGET_NANOS);
+    private FrameMonitor monitor;
+    private TextView statsTextView;
+    private RecyclerView recyclerView;
+
+    // rendering modes
+    private boolean adaptiveQuality;
+    private boolean smoothing;
+    private boolean fill;
+    private boolean tiles;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_benchmark);
+        statsTextView = (TextView) findViewById(R.id.stats_textview);
+        final FrameLayout container = (FrameLayout) findViewById(R.id.benchmark_container);
+
+        final int scenario = getIntent().getIntExtra(EXTRA_SCENARIO, SCENARIO_LIST);
+        switch (scenario) {
+            case SCENARIO_LARGE:
+                setTitle(R.string.benchmark_large);
+                final MarketDataAdapter largeAdapter = new MarketDataAdapter(
+                        new MarketDataGenerator(0, 100, 1, VOLATILITY), LARGE_POINTS, true);
+                largeAdapter.fill();
+                addSparkView(container, largeAdapter);
+                break;
+            case SCENARIO_STREAM:
+                setTitle(R.string.benchmark_stream);
+                final MarketDataAdapter streamAdapter = new MarketDataAdapter(
+                        new MarketDataGenerator(0, 100, STREAM_TICK_RATE, VOLATILITY),
+                        STREAM_POINTS, false);
+                liveAdapters.add(streamAdapter);
+                addSparkView(container, streamAdapter);
+                break;
+            default:
+                setTitle(R.string.benchmark_list);
+                for (int i = 0; i < LIST_SIZE; i++) {
+                    final MarketDataAdapter adapter = new MarketDataAdapter(
+                            new MarketDataGenerator(i, 100, LIST_TICK_RATE, VOLATILITY),
+                            LIST_POINTS, false);
+                    adapter.fill();
+                    liveAdapters.add(adapter);
+                }
+                recyclerView = new RecyclerView(this);
+                recyclerView.setLayoutManager(new LinearLayoutManager(this));
+                recyclerView.setAdapter(new SparkListAdapter());
+                container.addView(recyclerView);
+                break;
+        }
+
+        if (FrameMonitor.isSupported()) {
+            monitor = new FrameMonitor(stats);
+        } else {
+            statsTextView.setText(R.string.benchmark_unsupported);
+        }
+    }
+
+    private void addSparkView(FrameLayout container, MarketDataAdapter adapter) {
+        final SparkView sparkView = new SparkView(this);
+        sparkView.setLineColor(ContextCompat.getColor(this, R.color.colorAccent));
+        sparkView.setScrubEnabled(true);
+        sparkView.setAdapter(adapter);
+        applyModes(sparkView);
+        container.addView(sparkView);
+        sparkViews.add(sparkView);
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        if (monitor != null) {
+            stats.reset();
+            monitor.start();
+            handler.postDelayed(reportRunnable, REPORT_INTERVAL_MS);
+        }
+        handler.post(tickRunnable);
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        if (monitor != null) {
+            monitor.stop();
+        }
+        handler.removeCallbacks(reportRunnable);
+        handler.removeCallbacks(tickRunnable);
+    }
+
+    private final Runnable tickRunnable = new Runnable() {
+        @Override
+        public void run() {
+            final long now = System.nanoTime();
+            for (int i = 0, size = liveAdapters.size(); i < size; i++) {
+                liveAdapters.get(i).tick(now);
+            }
+            handler.postDelayed(this, TICK_INTERVAL_MS);
+        }
+    };
+
+    private final Runnable reportRunnable = new Runnable() {
+        @Override
+        public void run() {
+            statsTextView.setText(getString(R.string.benchmark_stats,
+                    stats.getFrameCount(),
+                    stats.getJankPercent(),
+                    stats.getPercentile(50) / 1e6f,
+                    stats.getPercentile(90) / 1e6f,
+                    stats.getPercentile(99) / 1e6f,
+                    stats.getAllocationsPerFrame()));
+            handler.postDelayed(this, REPORT_INTERVAL_MS);
+        }
+    };
+
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        getMenuInflater().inflate(R.menu.benchmark, menu);
+        return true;
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        final int id = item.getItemId();
+        if (id == R.id.mode_adaptive_quality) {
+            adaptiveQuality = !adaptiveQuality;
+        } else if (id == R.id.mode_smoothing) {
+            smoothing = !smoothing;
+        } else if (id == R.id.mode_fill) {
+            fill = !fill;
+        } else if (id == R.id.mode_tiles) {
+            tiles = !tiles;
+        } else if (id != R.id.reset_stats) {
+            return super.onOptionsItemSelected(item);
+        }
+        if (item.isCheckable()) {
+            item.setChecked(!item.isChecked());
+            for (int i = 0, size = sparkViews.size(); i < size; i++) {
+                applyModes(sparkViews.get(i));
+            }
+            if (recyclerView != null) {
+                recyclerView.getAdapter().notifyDataSetChanged();
+            }
+        }
+        stats.reset();
+        return true;
+    }
+
+    private void applyModes(SparkView sparkView) {
+        sparkView.setAdaptiveQuality(adaptiveQuality);
+        sparkView.setLineSmoothing(smoothing
+                ? SparkView.SMOOTHING_MONOTONE_CUBIC : SparkView.SMOOTHING_NONE);
+        sparkView.setFill(fill);
+        sparkView.setTileWidth(tiles ? TILE_WIDTH : 0);
+    }
+
+    private class SparkListAdapter extends RecyclerView.Adapter<SparkViewHolder> {
+        @Override
+        public SparkViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+            final View view = LayoutInflater.from(parent.getContext())
+                    .inflate(R.layout.item_benchmark, parent, false);
+            return new SparkViewHolder(view);
+        }
+
+        @Override
+        public void onBindViewHolder(SparkViewHolder holder, int position) {
+            applyModes(holder.sparkView);
+            holder.sparkView.setAdapter(liveAdapters.get(position));
+        }
+
+        @Override
+        public int getItemCount() {
+            return liveAdapters.size();
+        }
+    }
+
+    private static class SparkViewHolder extends RecyclerView.ViewHolder {
+        final SparkView sparkView;
+
+        SparkViewHolder(View itemView) {
+            super(itemView);
+            sparkView = (SparkView) itemView.findViewById(R.id.sparkview);
+        }
+    }
+}
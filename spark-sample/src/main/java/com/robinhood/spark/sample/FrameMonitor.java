@@ -0,0 +1,74 @@
+/**
+ * Copyright (C) 2016 Robinhood Markets, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.robinhood.spark.sample;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Debug;
+import android.view.Choreographer;
+
+/**
+ * Feeds {@link FrameStats} from {@link Choreographer} frame callbacks: each frame's duration is
+ * the time between consecutive vsyncs, and allocations are counted on the main thread. The
+ * FrameMetrics API would also split out the draw time, but it needs API 24.
+ */
+@TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+public class FrameMonitor implements Choreographer.FrameCallback {
+    private final FrameStats stats;
+    private boolean running;
+    private long lastFrameNanos;
+    private int lastAllocCount;
+
+    public FrameMonitor(FrameStats stats) {
+        this.stats = stats;
+    }
+
+    public static boolean isSupported() {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN;
+    }
+
+    @SuppressWarnings("deprecation")
+    public void start() {
+        if (running) return;
+        running = true;
+        lastFrameNanos = 0;
+        Debug.startAllocCounting();
+        lastAllocCount = Debug.getThreadAllocCount();
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    @SuppressWarnings("deprecation")
+    public void stop() {
+        if (!running) return;
+        running = false;
+        Choreographer.getInstance().removeFrameCallback(this);
+        Debug.stopAllocCounting();
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public void doFrame(long frameTimeNanos) {
+        if (!running) return;
+        if (lastFrameNanos != 0) {
+            stats.addFrame(frameTimeNanos - lastFrameNanos);
+        }
+        lastFrameNanos = frameTimeNanos;
+        final int allocCount = Debug.getThreadAllocCount();
+        stats.addAllocations(allocCount - lastAllocCount);
+        lastAllocCount = allocCount;
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+}
@@ -0,0 +1,111 @@
+/**
+ * Copyright (C) 2016 Robinhood Markets, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.robinhood.spark.sample;
+
+import java.util.Arrays;
+
+/**
+ * Collects frame durations and summarizes them as a jank percentage and frame time percentiles.
+ * The durations are kept in a preallocated buffer, so recording a frame never allocates.
+ */
+public class FrameStats {
+    /** a frame is janky if it took longer than this many frame budgets, i.e. missed a vsync */
+    static final float JANK_FACTOR = 1.5f;
+
+    private final long[] durations;
+    private final long[] sorted;
+    private final long budgetNanos;
+    private int count;
+    private int jankCount;
+    private long allocations;
+
+    /**
+     * @param capacity    the most frames kept; once full, new frames replace the oldest ones
+     * @param budgetNanos the target frame duration, 16.7ms at 60fps
+     */
+    public FrameStats(int capacity, long budgetNanos) {
+        this.durations = new long[capacity];
+        this.sorted = new long[capacity];
+        this.budgetNanos = budgetNanos;
+    }
+
+    /**
+     * Records one frame that took the given time.
+     */
+    public void addFrame(long durationNanos) {
+        final int index = count % durations.length;
+        if (count >= durations.length && isJank(durations[index])) {
+            jankCount--;
+        }
+        durations[index] = durationNanos;
+        if (isJank(durationNanos)) {
+            jankCount++;
+        }
+        count++;
+    }
+
+    /**
+     * Records objects allocated while the frames were recorded.
+     */
+    public void addAllocations(long allocations) {
+        this.allocations += allocations;
+    }
+
+    public void reset() {
+        count = 0;
+        jankCount = 0;
+        allocations = 0;
+    }
+
+    /**
+     * @return the number of frames currently kept.
+     */
+    public int getFrameCount() {
+        return Math.min(count, durations.length);
+    }
+
+    /**
+     * @return the percentage of kept frames that missed a vsync.
+     */
+    public float getJankPercent() {
+        final int frames = getFrameCount();
+        return frames == 0 ? 0 : 100f * jankCount / frames;
+    }
+
+    /**
+     * @return the frame duration that the given percentage of the kept frames didn't exceed, in
+     * nanoseconds.
+     */
+    public long getPercentile(float percent) {
+        final int frames = getFrameCount();
+        if (frames == 0) return 0;
+        System.arraycopy(durations, 0, sorted, 0, frames);
+        Arrays.sort(sorted, 0, frames);
+        final int rank = (int) Math.ceil(percent / 100 * frames) - 1;
+        return sorted[Math.max(0, Math.min(frames - 1, rank))];
+    }
+
+    /**
+     * @return the average number of objects allocated per recorded frame.
+     */
+    public float getAllocationsPerFrame() {
+        return count == 0 ? 0 : (float) allocations / count;
+    }
+
+    private boolean isJank(long durationNanos) {
+        return durationNanos > budgetNanos * JANK_FACTOR;
+    }
+}
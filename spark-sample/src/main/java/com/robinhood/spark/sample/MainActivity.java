@@ -16,8 +16,11 @@
 
 package com.robinhood.spark.sample;
 
+import android.content.Intent;
 import android.os.Bundle;
 import android.support.v7.app.AppCompatActivity;
+import android.view.Menu;
+import android.view.MenuItem;
 import android.view.View;
 import android.widget.TextView;
 
@@ -61,6 +64,30 @@ public class MainActivity extends AppCompatActivity {
         scrubInfoTextView = (TextView) findViewById(R.id.scrub_info_textview);
     }
 
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        getMenuInflater().inflate(R.menu.main, menu);
+        return true;
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        final int id = item.getItemId();
+        final int scenario;
+        if (id == R.id.benchmark_list) {
+            scenario = BenchmarkActivity.SCENARIO_LIST;
+        } else if (id == R.id.benchmark_large) {
+            scenario = BenchmarkActivity.SCENARIO_LARGE;
+        } else if (id == R.id.benchmark_stream) {
+            scenario = BenchmarkActivity.SCENARIO_STREAM;
+        } else {
+            return super.onOptionsItemSelected(item);
+        }
+        startActivity(new Intent(this, BenchmarkActivity.class)
+                .putExtra(BenchmarkActivity.EXTRA_SCENARIO, scenario));
+        return true;
+    }
+
     public static class RandomizedAdapter extends SparkAdapter {
         private final float[] yData;
         private final Random random;
@@ -0,0 +1,92 @@
+/**
+ * Copyright (C) 2016 Robinhood Markets, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.robinhood.spark.sample;
+
+import com.robinhood.spark.ArraySparkAdapter;
+import com.robinhood.spark.LodPyramid;
+
+/**
+ * Holds the most recent prices from a {@link MarketDataGenerator}, up to a fixed capacity. Once
+ * full, the oldest prices scroll off as new ones arrive. Optionally summarizes its prices in a
+ * {@link LodPyramid}, for series too large to draw point by point.
+ */
+public class MarketDataAdapter extends ArraySparkAdapter {
+    private final MarketDataGenerator generator;
+    private final float[] yData;
+    private final LodPyramid pyramid;
+    private int count;
+
+    public MarketDataAdapter(MarketDataGenerator generator, int capacity, boolean usePyramid) {
+        this.generator = generator;
+        this.yData = new float[capacity];
+        this.pyramid = usePyramid ? new LodPyramid() : null;
+    }
+
+    /**
+     * Fills the adapter to capacity with new prices.
+     */
+    public void fill() {
+        generator.fill(yData, 0, yData.length);
+        count = yData.length;
+        notifyDataSetChanged();
+    }
+
+    /**
+     * Appends any ticks that are due at the given time, notifying once for all of them.
+     *
+     * @return the number of ticks appended
+     */
+    public int tick(long nowNanos) {
+        final int due = Math.min(generator.ticksDue(nowNanos), yData.length);
+        if (due == 0) return 0;
+
+        final int overflow = count + due - yData.length;
+        if (overflow > 0) {
+            System.arraycopy(yData, overflow, yData, 0, count - overflow);
+            count -= overflow;
+        }
+        generator.fill(yData, count, due);
+        count += due;
+        if (overflow > 0) {
+            // scrolling changes every point
+            notifyDataSetChanged();
+        } else {
+            // only the appended points need summarizing
+            notifyDataRangeChanged(count - due, count);
+        }
+        return due;
+    }
+
+    @Override
+    public int getCount() {
+        return count;
+    }
+
+    @Override
+    public Object getItem(int index) {
+        return yData[index];
+    }
+
+    @Override
+    public float[] getYData() {
+        return yData;
+    }
+
+    @Override
+    public LodPyramid getLodPyramid() {
+        return pyramid;
+    }
+}
@@ -0,0 +1,98 @@
+/**
+ * Copyright (C) 2016 Robinhood Markets, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.robinhood.spark.sample;
+
+import java.util.Random;
+
+/**
+ * Synthetic market data: a random walk of prices with a configurable tick rate and volatility.
+ * The volatility is the standard deviation of the relative price change over one second, so the
+ * walk looks alike at any tick rate. Seeded, so every run of a benchmark sees the same data.
+ */
+public class MarketDataGenerator {
+    private final Random random;
+    private final float tickRate;
+    private final float volatility;
+    private final double tickVolatility;
+    private double price;
+    private long startNanos = -1;
+    private long ticks;
+
+    /**
+     * @param seed       seed for the random walk
+     * @param startPrice the price before the first tick
+     * @param tickRate   ticks per second
+     * @param volatility standard deviation of the relative price change per second
+     */
+    public MarketDataGenerator(long seed, float startPrice, float tickRate, float volatility) {
+        if (tickRate <= 0) {
+            throw new IllegalArgumentException("tickRate must be > 0: " + tickRate);
+        }
+        this.random = new Random(seed);
+        this.price = startPrice;
+        this.tickRate = tickRate;
+        this.volatility = volatility;
+        this.tickVolatility = volatility / Math.sqrt(tickRate);
+    }
+
+    public float getTickRate() {
+        return tickRate;
+    }
+
+    public float getVolatility() {
+        return volatility;
+    }
+
+    /**
+     * @return the price after the last tick.
+     */
+    public float getPrice() {
+        return (float) price;
+    }
+
+    /**
+     * Advances the walk by one tick.
+     *
+     * @return the new price
+     */
+    public float next() {
+        price *= 1 + tickVolatility * random.nextGaussian();
+        ticks++;
+        return (float) price;
+    }
+
+    /**
+     * Writes the next {@code count} ticks into {@code out}, starting at {@code offset}.
+     */
+    public void fill(float[] out, int offset, int count) {
+        for (int i = 0; i < count; i++) {
+            out[offset + i] = next();
+        }
+    }
+
+    /**
+     * @return the number of ticks that are due at the given time but haven't been generated yet.
+     * The first call starts the clock, so it returns 0.
+     */
+    public int ticksDue(long nowNanos) {
+        if (startNanos < 0) {
+            startNanos = nowNanos;
+            ticks = 0;
+        }
+        final long due = (long) ((nowNanos - startNanos) / 1e9 * tickRate);
+        return (int) Math.max(0, Math.min(Integer.MAX_VALUE, due - ticks));
+    }
+}
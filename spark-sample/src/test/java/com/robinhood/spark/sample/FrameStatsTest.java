@@ -0,0 +1,47 @@
+package com.robinhood.spark.sample;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class FrameStatsTest {
+    private static final long BUDGET = 16000000;
+
+    @Test
+    public void test_percentilesAndJank() {
+        FrameStats stats = new FrameStats(100, BUDGET);
+        for (int i = 1; i <= 100; i++) {
+            stats.addFrame(i * 1000000L);
+        }
+        assertEquals(100, stats.getFrameCount());
+        assertEquals(50000000L, stats.getPercentile(50));
+        assertEquals(99000000L, stats.getPercentile(99));
+        // frames over 24ms missed a vsync
+        assertEquals(76f, stats.getJankPercent(), 0.01f);
+    }
+
+    @Test
+    public void test_full_replacesOldestFrames() {
+        FrameStats stats = new FrameStats(4, BUDGET);
+        stats.addFrame(100000000L);
+        for (int i = 0; i < 4; i++) {
+            stats.addFrame(BUDGET);
+        }
+        assertEquals(4, stats.getFrameCount());
+        assertEquals(0f, stats.getJankPercent(), 0);
+        assertEquals(BUDGET, stats.getPercentile(100));
+    }
+
+    @Test
+    public void test_allocationsPerFrame() {
+        FrameStats stats = new FrameStats(10, BUDGET);
+        stats.addFrame(BUDGET);
+        stats.addFrame(BUDGET);
+        stats.addAllocations(5);
+        assertEquals(2.5f, stats.getAllocationsPerFrame(), 0);
+
+        stats.reset();
+        assertEquals(0, stats.getFrameCount());
+        assertEquals(0f, stats.getAllocationsPerFrame(), 0);
+    }
+}
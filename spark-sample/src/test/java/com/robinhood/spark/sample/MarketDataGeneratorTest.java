@@ -0,0 +1,53 @@
+package com.robinhood.spark.sample;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MarketDataGeneratorTest {
+    @Test
+    public void test_fill_isRepeatable() {
+        float[] first = new float[100];
+        float[] second = new float[100];
+        new MarketDataGenerator(42, 100, 10, 0.01f).fill(first, 0, 100);
+        new MarketDataGenerator(42, 100, 10, 0.01f).fill(second, 0, 100);
+        assertArrayEquals(first, second, 0);
+    }
+
+    @Test
+    public void test_volatility_scalesWithTickRate() {
+        // one second of ticks moves the price about as much at any tick rate
+        assertEquals(0.01, stdDevPerSecond(10), 0.002);
+        assertEquals(0.01, stdDevPerSecond(1000), 0.002);
+    }
+
+    @Test
+    public void test_ticksDue() {
+        MarketDataGenerator generator = new MarketDataGenerator(0, 100, 1000, 0.01f);
+        assertEquals(0, generator.ticksDue(0));
+        assertEquals(16, generator.ticksDue(16000000));
+
+        generator.fill(new float[16], 0, 16);
+        assertEquals(0, generator.ticksDue(16000000));
+        assertEquals(1, generator.ticksDue(17000000));
+    }
+
+    private static double stdDevPerSecond(float tickRate) {
+        final int seconds = 2000;
+        final int ticksPerSecond = (int) tickRate;
+        MarketDataGenerator generator = new MarketDataGenerator(0, 100, tickRate, 0.01f);
+        double sumSquares = 0;
+        for (int s = 0; s < seconds; s++) {
+            final float start = generator.getPrice();
+            for (int t = 0; t < ticksPerSecond; t++) {
+                generator.next();
+            }
+            final double change = generator.getPrice() / start - 1;
+            sumSquares += change * change;
+        }
+        assertTrue(generator.getPrice() > 0);
+        return Math.sqrt(sumSquares / seconds);
+    }
+}
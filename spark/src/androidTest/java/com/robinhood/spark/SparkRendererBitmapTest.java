@@ -0,0 +1,54 @@
+package com.robinhood.spark;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.test.AndroidTestCase;
+
+public class SparkRendererBitmapTest extends AndroidTestCase {
+    private static final int SIZE = 100;
+
+    public void test_fill_withBelowBaseLineColor_closesToBaseLine() {
+        final SparkRenderer renderer = new SparkRenderer(getContext());
+        renderer.setFill(true);
+        renderer.setLineColor(Color.GREEN);
+        renderer.setBelowBaseLineColor(Color.RED);
+        final Bitmap bitmap = renderer.obtainBitmap(SIZE, SIZE);
+
+        // above the base line at 0, then below it, filling the bitmap from y 10 down to y -10
+        renderer.render(new BaseLineAdapter(new float[] {10, 10, 10, -10, -10, -10}), bitmap);
+
+        // the base line runs across the middle, at y 50
+        assertEquals(Color.GREEN, bitmap.getPixel(10, 25));
+        assertEquals(Color.TRANSPARENT, bitmap.getPixel(10, 75));
+        assertEquals(Color.RED, bitmap.getPixel(90, 75));
+        assertEquals(Color.TRANSPARENT, bitmap.getPixel(90, 25));
+    }
+
+    private static class BaseLineAdapter extends ArraySparkAdapter {
+        private final float[] yData;
+
+        BaseLineAdapter(float[] yData) {
+            this.yData = yData;
+        }
+
+        @Override
+        public float[] getYData() {
+            return yData;
+        }
+
+        @Override
+        public int getCount() {
+            return yData.length;
+        }
+
+        @Override
+        public Object getItem(int index) {
+            return yData[index];
+        }
+
+        @Override
+        public boolean hasBaseLine() {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.robinhood.spark;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.os.Debug;
+import android.test.AndroidTestCase;
+import android.view.View;
+
+/**
+ * Asserts that a live tick through a real {@link SparkView} doesn't allocate: the adapter notifies,
+ * and the next draw runs the whole geometry update, from the snapshot or pyramid through the
+ * bounds and scale to the paths or tiles. Everything is warmed up first, so that buffers have
+ * grown to size and lazily resolved state has been created. Each case also asserts that the
+ * measured ticks changed what is drawn, so that it can't pass by measuring a no-op.
+ */
+public class SparkViewAllocationTest extends AndroidTestCase {
+    private static final int WIDTH = 500;
+    private static final int HEIGHT = 200;
+    private static final int WARM_UP = 2000;
+    private static final int ITERATIONS = 200;
+
+    public void test_plainUpdate_doesNotAllocate() {
+        final TickAdapter adapter = new TickAdapter(2000, null, false);
+        final SparkView sparkView = createSparkView(adapter);
+
+        assertEquals(0, countTickAllocations(sparkView, adapter));
+    }
+
+    public void test_plainAppend_doesNotAllocate() {
+        final TickAdapter adapter = new TickAdapter(2000, null, true);
+        final SparkView sparkView = createSparkView(adapter);
+
+        assertEquals(0, countTickAllocations(sparkView, adapter));
+    }
+
+    public void test_pyramidAppend_doesNotAllocate() {
+        // the pyramid only summarizes the appended points
+        final TickAdapter adapter = new TickAdapter(100000, new LodPyramid(), true);
+        final SparkView sparkView = createSparkView(adapter);
+
+        assertEquals(0, countTickAllocations(sparkView, adapter));
+    }
+
+    public void test_tiledUpdate_doesNotAllocate() {
+        final TickAdapter adapter = new TickAdapter(2000, null, false);
+        final SparkView sparkView = createSparkView(adapter);
+        sparkView.setTileWidth(250);
+
+        assertEquals(0, countTickAllocations(sparkView, adapter));
+    }
+
+    private SparkView createSparkView(SparkAdapter adapter) {
+        final SparkView sparkView = new SparkView(getContext());
+        // the animator allocates per run, and only matters while someone watches
+        sparkView.setAnimateChanges(false);
+        sparkView.setAdapter(adapter);
+        // registers the view with the adapter, as if it had been added to a window
+        sparkView.onAttachedToWindow();
+        sparkView.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        sparkView.layout(0, 0, WIDTH, HEIGHT);
+        return sparkView;
+    }
+
+    @SuppressWarnings("deprecation")
+    private int countTickAllocations(SparkView sparkView, TickAdapter adapter) {
+        final Canvas canvas = new Canvas(Bitmap.createBitmap(WIDTH, HEIGHT,
+                Bitmap.Config.ARGB_8888));
+        for (int i = 0; i < WARM_UP; i++) {
+            adapter.tick(i);
+            sparkView.onDraw(canvas);
+        }
+        final Bitmap before = draw(sparkView);
+
+        final int allocations;
+        // the only allocation counter available on device, deprecated without a replacement
+        Debug.startAllocCounting();
+        try {
+            final int start = Debug.getThreadAllocCount();
+            for (int i = 0; i < ITERATIONS; i++) {
+                adapter.tick(WARM_UP + i);
+                sparkView.onDraw(canvas);
+            }
+            allocations = Debug.getThreadAllocCount() - start;
+        } finally {
+            Debug.stopAllocCounting();
+        }
+
+        assertFalse("the ticks didn't change the line", before.sameAs(draw(sparkView)));
+        return allocations;
+    }
+
+    private static Bitmap draw(SparkView sparkView) {
+        final Bitmap bitmap = Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888);
+        sparkView.onDraw(new Canvas(bitmap));
+        return bitmap;
+    }
+
+    /**
+     * Either rewrites an existing point or appends a new one on each tick. Appended points go
+     * into spare capacity, so the adapter itself doesn't allocate.
+     */
+    private static class TickAdapter extends ArraySparkAdapter {
+        private final float[] yData;
+        private final LodPyramid pyramid;
+        private final boolean append;
+        private int count;
+
+        TickAdapter(int count, LodPyramid pyramid, boolean append) {
+            this.yData = new float[count + WARM_UP + ITERATIONS];
+            this.pyramid = pyramid;
+            this.append = append;
+            this.count = count;
+            for (int i = 0; i < count; i++) {
+                yData[i] = i % 89;
+            }
+        }
+
+        void tick(int tick) {
+            if (append) {
+                // a rising trend, so the appended points visibly move the line
+                yData[count++] = 89 + tick;
+                notifyDataRangeChanged(count - 1, count);
+            } else {
+                yData[tick % count] = tick % 97;
+                notifyDataSetChanged();
+            }
+        }
+
+        @Override
+        public float[] getYData() {
+            return yData;
+        }
+
+        @Override
+        public int getCount() {
+            return count;
+        }
+
+        @Override
+        public Object getItem(int index) {
+            return yData[index];
+        }
+
+        @Override
+        public LodPyramid getLodPyramid() {
+            return pyramid;
+        }
+    }
+}
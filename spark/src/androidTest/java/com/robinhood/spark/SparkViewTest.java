@@ -0,0 +1,165 @@
+package com.robinhood.spark;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.RectF;
+import android.os.Parcelable;
+import android.test.AndroidTestCase;
+import android.view.View;
+
+public class SparkViewTest extends AndroidTestCase {
+    private static final int WIDTH = 500;
+    private static final int HEIGHT = 200;
+
+    public void test_trimMemory_withPyramid_redraws() {
+        final float[] yData = new float[100000];
+        for (int i = 0; i < yData.length; i++) {
+            yData[i] = i % 89;
+        }
+        final SparkView sparkView = createSparkView(new TestArrayAdapter(yData, new LodPyramid()));
+        final Canvas canvas = new Canvas(Bitmap.createBitmap(WIDTH, HEIGHT,
+                Bitmap.Config.ARGB_8888));
+        sparkView.onDraw(canvas);
+        assertFalse(sparkView.getSparkLinePath().isEmpty());
+
+        sparkView.trimMemory();
+        // the pyramid is unchanged, but the trimmed snapshot must be sampled again
+        sparkView.onDraw(canvas);
+        assertFalse(sparkView.getSparkLinePath().isEmpty());
+    }
+
+    public void test_restoreInstanceState_withOtherInteriorPoints_readsAdapter() {
+        // the same count and end points, but a recreated adapter with a peak in the middle
+        final float[] saved = {0, 1, 1, 1, 0};
+        final float[] recreated = {0, 1, 10, 1, 0};
+        final SparkView savingView = createSparkView(new TestArrayAdapter(saved, null));
+        savingView.getSparkLinePath();
+        final Parcelable state = savingView.onSaveInstanceState();
+
+        final SparkView restoredView = createSparkView(new TestArrayAdapter(recreated, null));
+        restoredView.onRestoreInstanceState(state);
+        final SparkView freshView = createSparkView(new TestArrayAdapter(recreated, null));
+
+        final RectF restoredBounds = new RectF();
+        restoredView.getSparkLinePath().computeBounds(restoredBounds, true);
+        final RectF freshBounds = new RectF();
+        freshView.getSparkLinePath().computeBounds(freshBounds, true);
+        assertEquals(freshBounds, restoredBounds);
+    }
+
+    public void test_fill_withBelowBaseLineColor_closesToBaseLine() {
+        // above the base line, then below it
+        final TestArrayAdapter adapter = new TestArrayAdapter(new float[] {5, 5, 5, -5, -5, -5},
+                null);
+        adapter.setBaseLine(0);
+        final SparkView sparkView = createSparkView(adapter);
+        sparkView.setFill(true);
+        sparkView.setLineColor(Color.GREEN);
+        sparkView.setBelowBaseLineColor(Color.RED);
+
+        final Bitmap bitmap = draw(sparkView);
+        final int x = (int) sparkView.getScaledX(0.5f);
+        final int belowX = (int) sparkView.getScaledX(4.5f);
+        assertEquals(Color.GREEN, bitmap.getPixel(x, (int) sparkView.getScaledY(2.5f)));
+        // under the gains, below the base line, is left empty
+        assertEquals(Color.TRANSPARENT, bitmap.getPixel(x, (int) sparkView.getScaledY(-2.5f)));
+        assertEquals(Color.RED, bitmap.getPixel(belowX, (int) sparkView.getScaledY(-2.5f)));
+        assertEquals(Color.TRANSPARENT,
+                bitmap.getPixel(belowX, (int) sparkView.getScaledY(2.5f)));
+    }
+
+    public void test_clearBelowBaseLineColor_fillsToBottom() {
+        final TestArrayAdapter adapter = new TestArrayAdapter(new float[] {5, 5, 5, -5, -5, -5},
+                null);
+        adapter.setBaseLine(0);
+        final SparkView sparkView = createSparkView(adapter);
+        sparkView.setFill(true);
+        sparkView.setLineColor(Color.GREEN);
+        sparkView.setBelowBaseLineColor(Color.RED);
+        draw(sparkView);
+
+        sparkView.clearBelowBaseLineColor();
+        assertEquals(Color.GREEN, sparkView.getBelowBaseLineColor());
+        final Bitmap bitmap = draw(sparkView);
+        final int x = (int) sparkView.getScaledX(0.5f);
+        assertEquals(Color.GREEN, bitmap.getPixel(x, (int) sparkView.getScaledY(-2.5f)));
+    }
+
+    public void test_scrubGroup_onlyHoldsAttachedViews() {
+        final SparkView sparkView = createSparkView(new TestArrayAdapter(new float[] {1, 2}, null));
+        final SparkScrubGroup group = new SparkScrubGroup();
+        sparkView.setScrubGroup(group);
+        assertTrue(group.getMembers().isEmpty());
+
+        sparkView.onAttachedToWindow();
+        assertEquals(1, group.getMembers().size());
+
+        sparkView.onDetachedFromWindow();
+        assertTrue(group.getMembers().isEmpty());
+        assertSame(group, sparkView.getScrubGroup());
+    }
+
+    private static Bitmap draw(SparkView sparkView) {
+        final Bitmap bitmap = Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888);
+        sparkView.onDraw(new Canvas(bitmap));
+        return bitmap;
+    }
+
+    private SparkView createSparkView(SparkAdapter adapter) {
+        final SparkView sparkView = new SparkView(getContext());
+        sparkView.setAnimateChanges(false);
+        sparkView.setAdapter(adapter);
+        sparkView.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        sparkView.layout(0, 0, WIDTH, HEIGHT);
+        return sparkView;
+    }
+
+    private static class TestArrayAdapter extends ArraySparkAdapter {
+        private final float[] yData;
+        private final LodPyramid pyramid;
+        private boolean hasBaseLine;
+        private float baseLine;
+
+        TestArrayAdapter(float[] yData, LodPyramid pyramid) {
+            this.yData = yData;
+            this.pyramid = pyramid;
+        }
+
+        void setBaseLine(float baseLine) {
+            this.baseLine = baseLine;
+            hasBaseLine = true;
+        }
+
+        @Override
+        public boolean hasBaseLine() {
+            return hasBaseLine;
+        }
+
+        @Override
+        public float getBaseLine() {
+            return baseLine;
+        }
+
+        @Override
+        public float[] getYData() {
+            return yData;
+        }
+
+        @Override
+        public int getCount() {
+            return yData.length;
+        }
+
+        @Override
+        public Object getItem(int index) {
+            return yData[index];
+        }
+
+        @Override
+        public LodPyramid getLodPyramid() {
+            return pyramid;
+        }
+    }
+}
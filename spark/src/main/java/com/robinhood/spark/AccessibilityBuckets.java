@@ -0,0 +1,52 @@
+/**
+ * Copyright (C) 2016 Robinhood Markets, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.robinhood.spark;
+
+/**
+ * Splits a series into a bounded number of consecutive buckets of nearly equal size, one per
+ * virtual accessibility node. Bucket boundaries are computed rather than stored, so nothing needs
+ * rebuilding when the series changes.
+ */
+final class AccessibilityBuckets {
+
+    private AccessibilityBuckets() {}
+
+    /**
+     * @return the number of buckets to split {@code count} points into, at most
+     * {@code maxBuckets} and never more than the points.
+     */
+    static int getBucketCount(int count, int maxBuckets) {
+        return Math.max(0, Math.min(count, maxBuckets));
+    }
+
+    /**
+     * @return the index of the first point in the given bucket, or {@code count} for
+     * {@code bucket == buckets}, so bucket {@code b} covers {@code [start(b), start(b + 1))}.
+     */
+    static int getStart(int bucket, int buckets, int count) {
+        return (int) ((long) bucket * count / buckets);
+    }
+
+    /**
+     * @return the bucket containing the point at the given index.
+     */
+    static int getBucket(int index, int buckets, int count) {
+        // the last bucket whose start is <= index, i.e. bucket * count / buckets < index + 1
+        final int bucket = (int) (((long) (index + 1) * buckets + count - 1) / count) - 1;
+        return Math.max(0, Math.min(bucket, buckets - 1));
+    }
+}
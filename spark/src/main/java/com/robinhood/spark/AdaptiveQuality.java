@@ -0,0 +1,160 @@
+/**
+ * Copyright (C) 2016 Robinhood Markets, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.robinhood.spark;
+
+/**
+ * Decides how much rendering quality {@link SparkView} gives up during an interaction, such as a
+ * scrub or a path animation, based on the time between frames. Quality only ever drops while an
+ * interaction lasts, so that it doesn't flip back and forth as frames speed up, and is restored
+ * in full once the interaction ends.
+ */
+final class AdaptiveQuality {
+    /** everything is drawn as configured */
+    static final int LEVEL_FULL = 0;
+    /** the sparkline is drawn without anti-aliasing or path effects */
+    static final int LEVEL_FAST_PAINT = 1;
+    /** additionally, the sparkline is drawn from a coarse min/max decimation of the points */
+    static final int LEVEL_COARSE = 2;
+
+    static final float DEFAULT_FRAME_BUDGET_MS = 1000f / 60;
+    /** frames to average before (re)considering the level */
+    static final int SAMPLE_FRAMES = 4;
+    /** the pixels each bucket of the coarse geometry covers */
+    static final int COARSE_PIXELS_PER_BUCKET = 4;
+
+    // an average frame this much over budget drops a level, allowing for some jitter
+    private static final float TOLERANCE = 1.25f;
+    // gaps this much longer than the budget mean nothing was drawing, not that drawing was slow
+    private static final float IDLE_FACTOR = 4;
+
+    private long budgetNanos;
+    private int level = LEVEL_FULL;
+    private long lastFrameNanos;
+    private long totalNanos;
+    private int frames;
+
+    AdaptiveQuality(float budgetMillis) {
+        setBudget(budgetMillis);
+    }
+
+    void setBudget(float budgetMillis) {
+        this.budgetNanos = (long) (budgetMillis * 1000000);
+    }
+
+    float getBudget() {
+        return budgetNanos / 1000000f;
+    }
+
+    int getLevel() {
+        return level;
+    }
+
+    /**
+     * Records a frame drawn during an interaction.
+     *
+     * @return true if the level changed
+     */
+    boolean onFrame(long frameNanos) {
+        final long last = lastFrameNanos;
+        lastFrameNanos = frameNanos;
+        if (last == 0 || level == LEVEL_COARSE) return false;
+
+        final long interval = frameNanos - last;
+        if (interval > budgetNanos * IDLE_FACTOR) return false;
+
+        totalNanos += interval;
+        frames++;
+        if (frames < SAMPLE_FRAMES) return false;
+
+        final boolean slow = totalNanos > budgetNanos * TOLERANCE * frames;
+        totalNanos = 0;
+        frames = 0;
+        if (slow) {
+            level++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Ends the interaction, restoring full quality.
+     *
+     * @return true if the level changed
+     */
+    boolean end() {
+        lastFrameNanos = 0;
+        totalNanos = 0;
+        frames = 0;
+        final boolean changed = level != LEVEL_FULL;
+        level = LEVEL_FULL;
+        return changed;
+    }
+
+    /**
+     * Decimates the points into {@code buckets} buckets of consecutive points, keeping each
+     * bucket's min and max Y in index order, plus the very first and last points so the line
+     * spans the same range. Writes x, y pairs to {@code out}, which must hold
+     * {@code 4 * buckets + 4} floats.
+     *
+     * @return the number of points written
+     */
+    static int decimate(float[] xs, float[] ys, int count, int buckets, float[] out) {
+        if (count <= buckets * 2) {
+            for (int i = 0; i < count; i++) {
+                out[i * 2] = xs[i];
+                out[i * 2 + 1] = ys[i];
+            }
+            return count;
+        }
+
+        out[0] = xs[0];
+        out[1] = ys[0];
+        int points = 1;
+        int previous = 0;
+        for (int b = 0; b < buckets; b++) {
+            final int start = (int) ((long) b * count / buckets);
+            final int end = (int) ((long) (b + 1) * count / buckets);
+            int minIndex = start;
+            int maxIndex = start;
+            for (int i = start + 1; i < end; i++) {
+                if (ys[i] < ys[minIndex]) minIndex = i;
+                if (ys[i] > ys[maxIndex]) maxIndex = i;
+            }
+
+            final int low = Math.min(minIndex, maxIndex);
+            final int high = Math.max(minIndex, maxIndex);
+            if (low != previous) {
+                out[points * 2] = xs[low];
+                out[points * 2 + 1] = ys[low];
+                points++;
+            }
+            if (high != low && high != previous) {
+                out[points * 2] = xs[high];
+                out[points * 2 + 1] = ys[high];
+                points++;
+            }
+            previous = Math.max(previous, high);
+        }
+
+        if (previous != count - 1) {
+            out[points * 2] = xs[count - 1];
+            out[points * 2 + 1] = ys[count - 1];
+            points++;
+        }
+        return points;
+    }
+}
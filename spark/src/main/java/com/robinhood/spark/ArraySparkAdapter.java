@@ -0,0 +1,88 @@
+/**
+ * Copyright (C) 2016 Robinhood Markets, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.robinhood.spark;
+
+import android.graphics.RectF;
+
+/**
+ * A {@link SparkAdapter} backed by primitive arrays. Exposing the arrays lets {@link SparkView}
+ * copy and bound the data in bulk, and split those passes across cores for very large series.
+ */
+public abstract class ArraySparkAdapter extends SparkAdapter {
+    private int parallelThreshold = ParallelArrays.DEFAULT_THRESHOLD;
+    private final float[] minMax = new float[2];
+    private final float[] bounds = new float[4];
+
+    /**
+     * @return the Y values to be drawn. Only the first {@link #getCount()} values are used.
+     */
+    public abstract float[] getYData();
+
+    /**
+     * @return the X values of the points, or null (the default) to evenly distribute the points
+     * by using their index. Only the first {@link #getCount()} values are used.
+     */
+    public float[] getXData() {
+        return null;
+    }
+
+    @Override
+    public float getX(int index) {
+        final float[] xData = getXData();
+        return xData == null ? index : xData[index];
+    }
+
+    @Override
+    public float getY(int index) {
+        return getYData()[index];
+    }
+
+    /**
+     * Get the number of points at which per-point passes are split across cores.
+     */
+    public int getParallelThreshold() {
+        return parallelThreshold;
+    }
+
+    /**
+     * Set the number of points at which per-point passes over this adapter's data, such as
+     * computing its bounds, are split across cores. Smaller series use a single loop, since
+     * handing work to other threads costs more than it saves. Passes are never split by default;
+     * measure with {@code ParallelArraysBenchmark} on your target devices before setting one.
+     */
+    public void setParallelThreshold(int parallelThreshold) {
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    /**
+     * Computes the bounds from the arrays directly, in parallel for series above the
+     * {@linkplain #getParallelThreshold() parallel threshold}.
+     */
+    @Override
+    public void getDataBounds(RectF outBounds) {
+        final int count = getCount();
+        if (count == 0 || getLodPyramid() != null) {
+            computeDataBounds(outBounds);
+            return;
+        }
+
+        SeriesPoints.bounds(getXData(), getYData(), count, parallelThreshold, hasBaseLine(),
+                getBaseLine(), minMax, bounds);
+        setRect(outBounds, bounds[SeriesPoints.MIN_X], bounds[SeriesPoints.MIN_Y],
+                bounds[SeriesPoints.MAX_X], bounds[SeriesPoints.MAX_Y]);
+    }
+}
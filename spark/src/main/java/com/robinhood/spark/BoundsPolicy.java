@@ -0,0 +1,264 @@
+/**
+ * Copyright (C) 2016 Robinhood Markets, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.robinhood.spark;
+
+import android.graphics.RectF;
+import android.support.annotation.Nullable;
+
+/**
+ * Decides the bounds {@link SparkView} scales its data to, starting from the adapter's
+ * {@link SparkAdapter#getDataBounds(RectF) data bounds}. Every change to the bounds moves every
+ * point on screen, so for live data a policy that keeps the bounds steady between ticks avoids
+ * rescaling the whole sparkline when a new high or low comes in.
+ *
+ * <p>Policies don't keep per-view state and may be shared between views, apart from
+ * {@link #percentile(float)} which keeps a scratch buffer and must only be used on one thread.
+ */
+public abstract class BoundsPolicy {
+
+    /**
+     * Computes the bounds to scale to.
+     *
+     * @param adapter       the adapter being drawn
+     * @param dataBounds    the adapter's data bounds
+     * @param previous      the bounds returned by the last call for this view, or null after the
+     *                      view's data was reset
+     * @param outBounds     the rect to fill with the bounds to scale to
+     */
+    public abstract void getBounds(SparkAdapter adapter, RectF dataBounds,
+            @Nullable RectF previous, RectF outBounds);
+
+    /**
+     * Computes the bounds to scale to when the adapter's points are transformed before they are
+     * drawn, as by a {@link TransformPipeline}. Policies that look at Y values must read the
+     * transformed ones, as the adapter's are in other units. By default they are ignored.
+     *
+     * @param transformed the points that get drawn, or null if they are the adapter's own
+     */
+    void getBounds(SparkAdapter adapter, @Nullable DataSnapshot transformed, RectF dataBounds,
+            @Nullable RectF previous, RectF outBounds) {
+        getBounds(adapter, dataBounds, previous, outBounds);
+    }
+
+    /**
+     * @return a policy that uses the adapter's data bounds as they are. This is the default.
+     */
+    public static BoundsPolicy exact() {
+        return EXACT;
+    }
+
+    /**
+     * @return a policy that pads the data bounds by {@code margin}, a fraction of the data's range,
+     * on every side and then keeps them until the data leaves the band. When it does, only the
+     * crossed edge moves, again by the margin. An axis is fitted afresh once its data spans less
+     * than half of the band, so a sliding window doesn't shrink into a corner.
+     */
+    public static BoundsPolicy sticky(float margin) {
+        if (margin < 0) throw new IllegalArgumentException("margin must be >= 0: " + margin);
+        return new Sticky(margin);
+    }
+
+    /**
+     * @return a policy that clips the Y bounds to the given fraction of points at either extreme,
+     * so that single outliers don't squash the rest of the line. For instance 0.01 fits the 1st to
+     * the 99th percentile. The base line is always kept in bounds. Series longer than
+     * {@value Percentile#MAX_SAMPLES} points are estimated from that many evenly spaced Y values,
+     * so updates don't grow with the series.
+     */
+    public static BoundsPolicy percentile(float clipFraction) {
+        if (clipFraction < 0 || clipFraction >= 0.5f) {
+            throw new IllegalArgumentException("clipFraction must be in [0, 0.5): " + clipFraction);
+        }
+        return new Percentile(clipFraction);
+    }
+
+    /**
+     * @return a policy with a fixed Y range, for instance 0 to 100 for percentages. The X bounds
+     * follow the data.
+     */
+    public static BoundsPolicy fixed(float minY, float maxY) {
+        return new Fixed(minY, maxY);
+    }
+
+    private static final BoundsPolicy EXACT = new BoundsPolicy() {
+        @Override
+        public void getBounds(SparkAdapter adapter, RectF dataBounds, RectF previous,
+                RectF outBounds) {
+            SparkAdapter.setRect(outBounds,
+                    dataBounds.left, dataBounds.top, dataBounds.right, dataBounds.bottom);
+        }
+    };
+
+    private static final class Sticky extends BoundsPolicy {
+        private final float margin;
+
+        Sticky(float margin) {
+            this.margin = margin;
+        }
+
+        @Override
+        public void getBounds(SparkAdapter adapter, RectF dataBounds, RectF previous,
+                RectF outBounds) {
+            final float xMargin = (dataBounds.right - dataBounds.left) * margin;
+            final float yMargin = (dataBounds.bottom - dataBounds.top) * margin;
+            float left = dataBounds.left - xMargin;
+            float right = dataBounds.right + xMargin;
+            float top = dataBounds.top - yMargin;
+            float bottom = dataBounds.bottom + yMargin;
+
+            if (previous != null) {
+                // only the edges the data crossed move
+                if (!refit(dataBounds.left, dataBounds.right, previous.left, previous.right)) {
+                    if (dataBounds.left >= previous.left) left = previous.left;
+                    if (dataBounds.right <= previous.right) right = previous.right;
+                }
+                if (!refit(dataBounds.top, dataBounds.bottom, previous.top, previous.bottom)) {
+                    if (dataBounds.top >= previous.top) top = previous.top;
+                    if (dataBounds.bottom <= previous.bottom) bottom = previous.bottom;
+                }
+            }
+            SparkAdapter.setRect(outBounds, left, top, right, bottom);
+        }
+
+        /**
+         * @return true if the data spans less than half of the band it is drawn in
+         */
+        private static boolean refit(float dataMin, float dataMax, float bandMin, float bandMax) {
+            return (dataMax - dataMin) * 2 < bandMax - bandMin;
+        }
+    }
+
+    private static final class Percentile extends BoundsPolicy {
+        static final int MAX_SAMPLES = 4096;
+
+        private final float clipFraction;
+        private float[] values = new float[0];
+
+        Percentile(float clipFraction) {
+            this.clipFraction = clipFraction;
+        }
+
+        @Override
+        public void getBounds(SparkAdapter adapter, RectF dataBounds, RectF previous,
+                RectF outBounds) {
+            final int count = adapter.getCount();
+            if (count == 0) {
+                EXACT.getBounds(adapter, dataBounds, previous, outBounds);
+                return;
+            }
+
+            // evenly spaced samples, which are all of the points for short series
+            final int samples = ensureSamples(count);
+            for (int i = 0; i < samples; i++) {
+                values[i] = adapter.getY((int) ((long) i * count / samples));
+            }
+            clip(samples, adapter.hasBaseLine(), adapter.getBaseLine(), dataBounds, outBounds);
+        }
+
+        @Override
+        void getBounds(SparkAdapter adapter, DataSnapshot transformed, RectF dataBounds,
+                RectF previous, RectF outBounds) {
+            if (transformed == null) {
+                getBounds(adapter, dataBounds, previous, outBounds);
+                return;
+            }
+            final int count = transformed.count;
+            if (count == 0) {
+                EXACT.getBounds(adapter, dataBounds, previous, outBounds);
+                return;
+            }
+
+            final int samples = ensureSamples(count);
+            for (int i = 0; i < samples; i++) {
+                values[i] = transformed.ys[(int) ((long) i * count / samples)];
+            }
+            clip(samples, transformed.hasBaseLine, transformed.baseLine, dataBounds, outBounds);
+        }
+
+        /**
+         * @return the number of values to sample from a series of the given length
+         */
+        private int ensureSamples(int count) {
+            final int samples = Math.min(count, MAX_SAMPLES);
+            if (values.length < samples) {
+                values = new float[samples];
+            }
+            return samples;
+        }
+
+        private void clip(int samples, boolean hasBaseLine, float baseLine, RectF dataBounds,
+                RectF outBounds) {
+            final int clipped = (int) (samples * clipFraction);
+            float minY = select(values, samples, clipped);
+            float maxY = select(values, samples, samples - 1 - clipped);
+            if (hasBaseLine) {
+                minY = Math.min(minY, baseLine);
+                maxY = Math.max(maxY, baseLine);
+            }
+            SparkAdapter.setRect(outBounds, dataBounds.left, minY, dataBounds.right, maxY);
+        }
+    }
+
+    private static final class Fixed extends BoundsPolicy {
+        private final float minY;
+        private final float maxY;
+
+        Fixed(float minY, float maxY) {
+            this.minY = minY;
+            this.maxY = maxY;
+        }
+
+        @Override
+        public void getBounds(SparkAdapter adapter, RectF dataBounds, RectF previous,
+                RectF outBounds) {
+            SparkAdapter.setRect(outBounds, dataBounds.left, minY, dataBounds.right, maxY);
+        }
+    }
+
+    /**
+     * @return the k-th smallest of the first {@code count} values, partially reordering them.
+     * Quickselect, so linear on average.
+     */
+    static float select(float[] values, int count, int k) {
+        int low = 0;
+        int high = count - 1;
+        while (low < high) {
+            final float pivot = values[(low + high) >>> 1];
+            int i = low;
+            int j = high;
+            while (i <= j) {
+                while (values[i] < pivot) i++;
+                while (values[j] > pivot) j--;
+                if (i <= j) {
+                    final float swap = values[i];
+                    values[i] = values[j];
+                    values[j] = swap;
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) {
+                high = j;
+            } else if (k >= i) {
+                low = i;
+            } else {
+                break;
+            }
+        }
+        return values[k];
+    }
+}
@@ -0,0 +1,268 @@
+/**
+ * Copyright (C) 2016 Robinhood Markets, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.robinhood.spark;
+
+import android.graphics.RectF;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * A series saved to disk by {@link #write}, so a {@link SparkView} can draw the last known chart
+ * on the first frame after launch instead of waiting for the network. Set the adapter returned by
+ * {@link #read} right away, then replace it with your own adapter once fresh data arrives; the
+ * view compares the new points with the cached ones, so only what changed is rebuilt.
+ *
+ * <p>The file holds a fixed size header followed by the raw little-endian floats, so reading it is
+ * one sequential read and a bulk copy per array. The header stores the series' bounds, so the
+ * first frame doesn't need a pass over the points either. Files are small enough to read on the
+ * main thread; write them from a background thread.
+ */
+public final class CachedSparkAdapter extends ArraySparkAdapter {
+    // "SPRK"
+    static final int MAGIC = 0x5350524B;
+    static final int FORMAT_VERSION = 1;
+    static final int HEADER_BYTES = 44;
+    private static final int FLAG_X_DATA = 1;
+    private static final int FLAG_BASE_LINE = 1 << 1;
+
+    private final float[] xData;
+    private final float[] yData;
+    private final boolean hasBaseLine;
+    private final float baseLine;
+    private final long dataVersion;
+    private final float boundsLeft, boundsTop, boundsRight, boundsBottom;
+
+    private CachedSparkAdapter(float[] xData, float[] yData, boolean hasBaseLine, float baseLine,
+            long dataVersion, float boundsLeft, float boundsTop, float boundsRight,
+            float boundsBottom) {
+        this.xData = xData;
+        this.yData = yData;
+        this.hasBaseLine = hasBaseLine;
+        this.baseLine = baseLine;
+        this.dataVersion = dataVersion;
+        this.boundsLeft = boundsLeft;
+        this.boundsTop = boundsTop;
+        this.boundsRight = boundsRight;
+        this.boundsBottom = boundsBottom;
+    }
+
+    @Override
+    public int getCount() {
+        return yData.length;
+    }
+
+    /**
+     * @return the cached Y value, as a {@link Float}.
+     */
+    @Override
+    public Object getItem(int index) {
+        return yData[index];
+    }
+
+    @Override
+    public float[] getYData() {
+        return yData;
+    }
+
+    @Override
+    public float[] getXData() {
+        return xData;
+    }
+
+    @Override
+    public boolean hasBaseLine() {
+        return hasBaseLine;
+    }
+
+    @Override
+    public float getBaseLine() {
+        return baseLine;
+    }
+
+    /**
+     * @return the {@link SparkAdapter#getDataVersion()} of the adapter the series was written
+     * from, so you can tell whether fresh data differs from what is cached.
+     */
+    @Override
+    public long getDataVersion() {
+        return dataVersion;
+    }
+
+    /**
+     * Returns the bounds stored in the file, which are those of the original series even if it
+     * was downsampled, without a pass over the points.
+     */
+    @Override
+    public void getDataBounds(RectF outBounds) {
+        setRect(outBounds, boundsLeft, boundsTop, boundsRight, boundsBottom);
+    }
+
+    /**
+     * Saves the adapter's points, bounds, base line and data version to the given file. Series
+     * with more than {@code maxPoints} points are reduced to the min and max of evenly sized
+     * buckets, the same way {@link SparkView} reduces them when frames run slow, so the cached
+     * chart keeps its peaks. The file is replaced atomically, so a reader never sees a partially
+     * written series.
+     */
+    public static void write(SparkAdapter adapter, int maxPoints, File file) throws IOException {
+        if (maxPoints < 4) {
+            throw new IllegalArgumentException("maxPoints must be at least 4");
+        }
+        final int count = adapter.getCount();
+        float[] xs = new float[count];
+        float[] ys = new float[count];
+        for (int i = 0; i < count; i++) {
+            xs[i] = adapter.getX(i);
+            ys[i] = adapter.getY(i);
+        }
+        int points = count;
+        if (count > maxPoints) {
+            // every bucket contributes at most 2 points, plus the first and last
+            final int buckets = (maxPoints - 2) / 2;
+            final float[] decimated = new float[buckets * 4 + 4];
+            points = AdaptiveQuality.decimate(xs, ys, count, buckets, decimated);
+            for (int i = 0; i < points; i++) {
+                xs[i] = decimated[i * 2];
+                ys[i] = decimated[i * 2 + 1];
+            }
+        }
+
+        final RectF bounds = adapter.getDataBounds();
+        final boolean evenX = isEvenlyDistributed(xs, points, count);
+        final boolean hasBaseLine = adapter.hasBaseLine();
+
+        final ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + (evenX ? 1 : 2) * points * 4)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC);
+        buffer.putInt(FORMAT_VERSION);
+        buffer.putInt((evenX ? 0 : FLAG_X_DATA) | (hasBaseLine ? FLAG_BASE_LINE : 0));
+        buffer.putInt(points);
+        buffer.putLong(adapter.getDataVersion());
+        buffer.putFloat(bounds.left);
+        buffer.putFloat(bounds.top);
+        buffer.putFloat(bounds.right);
+        buffer.putFloat(bounds.bottom);
+        buffer.putFloat(hasBaseLine ? adapter.getBaseLine() : 0);
+        if (!evenX) {
+            buffer.asFloatBuffer().put(xs, 0, points);
+            buffer.position(buffer.position() + points * 4);
+        }
+        buffer.asFloatBuffer().put(ys, 0, points);
+        buffer.rewind();
+
+        final File temp = new File(file.getPath() + ".tmp");
+        final FileOutputStream out = new FileOutputStream(temp);
+        try {
+            final FileChannel channel = out.getChannel();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            out.getFD().sync();
+        } finally {
+            out.close();
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("Couldn't replace " + file);
+        }
+    }
+
+    /**
+     * Reads a series written by {@link #write}.
+     *
+     * @throws IOException if the file can't be read or isn't a complete series of this format,
+     * in which case it should be deleted
+     */
+    public static CachedSparkAdapter read(File file) throws IOException {
+        final FileInputStream in = new FileInputStream(file);
+        try {
+            final FileChannel channel = in.getChannel();
+            final long size = channel.size();
+            if (size < HEADER_BYTES) {
+                throw new IOException(file + " is too short for a series header");
+            }
+            final ByteBuffer header = readFully(channel, HEADER_BYTES, file);
+            if (header.getInt() != MAGIC) {
+                throw new IOException(file + " isn't a cached series");
+            }
+            final int version = header.getInt();
+            if (version != FORMAT_VERSION) {
+                throw new IOException(file + " has unsupported format version " + version);
+            }
+            final int flags = header.getInt();
+            final int count = header.getInt();
+            final long dataVersion = header.getLong();
+            final float left = header.getFloat();
+            final float top = header.getFloat();
+            final float right = header.getFloat();
+            final float bottom = header.getFloat();
+            final float baseLine = header.getFloat();
+            final boolean hasXData = (flags & FLAG_X_DATA) != 0;
+            if (count < 0 || size != HEADER_BYTES + (hasXData ? 2L : 1L) * count * 4) {
+                throw new IOException(file + " is truncated or corrupt");
+            }
+
+            // the points are read straight into one buffer, then bulk copied into the arrays
+            final ByteBuffer points = readFully(channel, (int) (size - HEADER_BYTES), file);
+            float[] xData = null;
+            if (hasXData) {
+                xData = new float[count];
+                points.asFloatBuffer().get(xData);
+                points.position(count * 4);
+            }
+            final float[] yData = new float[count];
+            points.asFloatBuffer().get(yData);
+            return new CachedSparkAdapter(xData, yData, (flags & FLAG_BASE_LINE) != 0, baseLine,
+                    dataVersion, left, top, right, bottom);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Reads the next {@code length} bytes of the channel into a little-endian heap buffer.
+     */
+    private static ByteBuffer readFully(FileChannel channel, int length, File file)
+            throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new IOException(file + " ended early");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * @return true if the points are the adapter's default X values, their indices, so the X
+     * array doesn't need to be stored.
+     */
+    private static boolean isEvenlyDistributed(float[] xs, int points, int count) {
+        if (points != count) return false;
+        for (int i = 0; i < points; i++) {
+            if (xs[i] != i) return false;
+        }
+        return true;
+    }
+}
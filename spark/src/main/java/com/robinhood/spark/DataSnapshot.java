@@ -0,0 +1,342 @@
+/**
+ * Copyright (C) 2016 Robinhood Markets, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.robinhood.spark;
+
+/**
+ * A copy of a {@link SparkAdapter}'s raw points, so that {@link SparkView} can rescale its data
+ * without reading the adapter again. The snapshot holds either a consecutive range of the
+ * adapter's points or a downsampled selection of them taken from a {@link LodPyramid}.
+ */
+class DataSnapshot {
+    float[] xs = new float[0];
+    float[] ys = new float[0];
+    int count;
+    boolean hasBaseLine;
+    float baseLine;
+    // the range of indices [changeStart, changeEnd) that differed on the last update
+    int changeStart;
+    int changeEnd;
+    // the adapter index of xs[0] when holding a consecutive range
+    int offset;
+    // the adapter index of each point when holding a downsampled selection, otherwise null
+    int[] indices;
+    // whether xs holds each point's adapter index, as copied from an adapter without X data
+    private boolean indexXs;
+    private int[] sampleIndices;
+    private int oldCount;
+    private final int[] changedRange = new int[2];
+
+    /**
+     * Copies the adapter's current points into this snapshot.
+     *
+     * @return true if anything differs from the previously copied points
+     */
+    boolean update(SparkAdapter adapter) {
+        return update(adapter, 0, adapter.getCount());
+    }
+
+    /**
+     * Copies the adapter's points in [start, end) into this snapshot.
+     *
+     * @return true if anything differs from the previously copied points
+     */
+    boolean update(SparkAdapter adapter, int start, int end) {
+        final int newCount = end - start;
+        // points are only comparable if they came from the same adapter indices
+        final int oldCount = indices == null && offset == start ? count : 0;
+        final int previousCount = count;
+        int first = newCount;
+        int last = 0;
+        ensureCapacity(newCount);
+
+        if (adapter instanceof ArraySparkAdapter) {
+            updateFromArrays((ArraySparkAdapter) adapter, start, newCount, oldCount);
+            first = changedRange[0];
+            last = changedRange[1];
+        } else {
+            indexXs = false;
+            for (int i = 0; i < newCount; i++) {
+                final float x = adapter.getX(start + i);
+                final float y = adapter.getY(start + i);
+                if (i >= oldCount || xs[i] != x || ys[i] != y) {
+                    first = Math.min(first, i);
+                    last = i + 1;
+                }
+                xs[i] = x;
+                ys[i] = y;
+            }
+        }
+        count = newCount;
+        offset = start;
+        indices = null;
+        if (newCount < previousCount) {
+            // points were removed from the end
+            first = Math.min(first, newCount);
+            last = previousCount;
+        }
+        changeStart = first;
+        changeEnd = Math.max(first, last);
+
+        return updateBaseLine(adapter) | changeEnd > changeStart;
+    }
+
+    /**
+     * @return true if this snapshot holds all of the adapter's points, so that
+     * {@link #updateRange} can re-read some of them in place.
+     */
+    boolean holdsAllOf(SparkAdapter adapter) {
+        return indices == null && offset == 0 && count == adapter.getCount();
+    }
+
+    /**
+     * Re-reads the adapter's points in [start, end), keeping the others. Only valid while
+     * {@link #holdsAllOf} the adapter.
+     *
+     * @return true if anything differs from the previously copied points
+     */
+    boolean updateRange(SparkAdapter adapter, int start, int end) {
+        indexXs = false;
+        start = Math.max(start, 0);
+        end = Math.min(end, count);
+        int first = end;
+        int last = start;
+        for (int i = start; i < end; i++) {
+            final float x = adapter.getX(i);
+            final float y = adapter.getY(i);
+            if (xs[i] != x || ys[i] != y) {
+                first = Math.min(first, i);
+                last = i + 1;
+            }
+            xs[i] = x;
+            ys[i] = y;
+        }
+        changeStart = first;
+        changeEnd = Math.max(first, last);
+
+        return updateBaseLine(adapter) | changeEnd > changeStart;
+    }
+
+    /**
+     * Bulk copies an array backed adapter's points, splitting the work across cores for large
+     * series. The changed range is left in {@linkplain #changedRange}.
+     */
+    private void updateFromArrays(ArraySparkAdapter adapter, int start, int newCount,
+            int oldCount) {
+        final int threshold = adapter.getParallelThreshold();
+        // appended points always count as changed
+        int first = oldCount < newCount ? oldCount : Integer.MAX_VALUE;
+        int last = oldCount < newCount ? newCount : Integer.MIN_VALUE;
+
+        final float[] xData = adapter.getXData();
+        if (xData == null) {
+            // indices are unchanged from a previous copy of indices, so only new points need
+            // filling in. Otherwise the old X values, such as another adapter's, are replaced.
+            final int filled = indexXs ? oldCount : 0;
+            for (int i = filled; i < newCount; i++) {
+                final float x = start + i;
+                if (i < oldCount && xs[i] != x) {
+                    first = Math.min(first, i);
+                    last = Math.max(last, i + 1);
+                }
+                xs[i] = x;
+            }
+            indexXs = true;
+        } else {
+            indexXs = false;
+            ParallelArrays.copyAndDiff(xData, start, xs, newCount, threshold, changedRange);
+            first = Math.min(first, changedRange[0]);
+            last = Math.max(last, changedRange[1]);
+        }
+
+        ParallelArrays.copyAndDiff(adapter.getYData(), start, ys, newCount, threshold,
+                changedRange);
+        first = Math.min(first, changedRange[0]);
+        last = Math.max(last, changedRange[1]);
+
+        if (first > last) {
+            // nothing changed
+            first = newCount;
+            last = 0;
+        }
+        changedRange[0] = first;
+        changedRange[1] = last;
+    }
+
+    /**
+     * Starts replacing this snapshot's points with a selection of at most {@code capacity}
+     * adapter points, added with {@link #addSample} and completed with {@link #endSample}.
+     */
+    void beginSample(int capacity) {
+        ensureCapacity(capacity);
+        if (sampleIndices == null || sampleIndices.length < capacity) {
+            sampleIndices = new int[Math.max(capacity, xs.length)];
+        }
+        oldCount = count;
+        count = 0;
+        offset = 0;
+        indices = sampleIndices;
+        indexXs = false;
+    }
+
+    /**
+     * Adds the adapter point at the given index, whose Y value is already known.
+     */
+    void addSample(SparkAdapter adapter, int index, float y) {
+        xs[count] = adapter.getX(index);
+        ys[count] = y;
+        indices[count] = index;
+        count++;
+    }
+
+    /**
+     * Completes a selection started by {@link #beginSample}. Every point is reported as changed.
+     */
+    void endSample(SparkAdapter adapter) {
+        changeStart = 0;
+        changeEnd = Math.max(count, oldCount);
+        updateBaseLine(adapter);
+    }
+
+    /**
+     * Starts appending to a selection of adapter points, keeping its first {@code keepCount}
+     * points. Points are added with {@link #appendSample} and completed with {@link #endAppend}.
+     * If the snapshot doesn't currently hold a selection, it starts out empty.
+     */
+    void beginAppend(int keepCount) {
+        if (indices == null || indices != sampleIndices) {
+            if (sampleIndices == null) {
+                sampleIndices = new int[xs.length];
+            }
+            indices = sampleIndices;
+            count = 0;
+            offset = 0;
+        }
+        indexXs = false;
+        oldCount = count;
+        count = Math.min(keepCount, count);
+    }
+
+    /**
+     * Appends a point that was derived from the adapter point at the given index, growing the
+     * buffers as needed.
+     */
+    void appendSample(int index, float x, float y) {
+        if (count == xs.length) {
+            ensureCapacity(Math.max(count * 2, 16));
+        }
+        if (count == indices.length) {
+            final int[] newIndices = new int[xs.length];
+            System.arraycopy(indices, 0, newIndices, 0, count);
+            indices = sampleIndices = newIndices;
+        }
+        xs[count] = x;
+        ys[count] = y;
+        indices[count] = index;
+        count++;
+    }
+
+    /**
+     * Completes appending started by {@link #beginAppend}. The points from {@code changeStart}
+     * on are reported as changed, along with any that were dropped.
+     */
+    void endAppend(int changeStart, boolean hasBaseLine, float baseLine) {
+        this.changeStart = changeStart;
+        this.changeEnd = Math.max(count, oldCount);
+        this.hasBaseLine = hasBaseLine;
+        this.baseLine = baseLine;
+    }
+
+    /**
+     * Replaces this snapshot's points with the first {@code count} of the given ones, read from
+     * the adapter's consecutive range starting at {@code offset}, such as points saved with a
+     * view's instance state. Every point is reported as changed.
+     */
+    void restore(float[] xs, float[] ys, int count, int offset, boolean hasBaseLine,
+            float baseLine) {
+        ensureCapacity(count);
+        System.arraycopy(xs, 0, this.xs, 0, count);
+        System.arraycopy(ys, 0, this.ys, 0, count);
+        changeStart = 0;
+        changeEnd = Math.max(count, this.count);
+        this.count = count;
+        this.offset = offset;
+        indices = null;
+        indexXs = false;
+        this.hasBaseLine = hasBaseLine;
+        this.baseLine = baseLine;
+    }
+
+    /**
+     * @return the adapter index of the point at the given index of this snapshot.
+     */
+    int getAdapterIndex(int index) {
+        return indices != null ? indices[index] : offset + index;
+    }
+
+    /**
+     * Forgets the copied points, so the next {@link #update} always reports a change.
+     */
+    void clear() {
+        count = 0;
+        changeStart = 0;
+        changeEnd = 0;
+        offset = 0;
+        indices = null;
+        indexXs = false;
+        hasBaseLine = false;
+        baseLine = 0;
+    }
+
+    /**
+     * Clears the snapshot and releases its buffers. They are grown again by the next update.
+     */
+    void trim() {
+        clear();
+        xs = new float[0];
+        ys = new float[0];
+        sampleIndices = null;
+    }
+
+    /**
+     * @return the approximate heap bytes held by this snapshot's buffers.
+     */
+    long getApproximateBytes() {
+        return SparkMemoryUsage.arrayBytes(xs) + SparkMemoryUsage.arrayBytes(ys)
+                + SparkMemoryUsage.arrayBytes(sampleIndices);
+    }
+
+    private boolean updateBaseLine(SparkAdapter adapter) {
+        final boolean newHasBaseLine = adapter.hasBaseLine();
+        final float newBaseLine = newHasBaseLine ? adapter.getBaseLine() : 0;
+        final boolean changed = newHasBaseLine != hasBaseLine || newBaseLine != baseLine;
+        hasBaseLine = newHasBaseLine;
+        baseLine = newBaseLine;
+        return changed;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (xs.length >= capacity) return;
+        // grown with headroom, so that a slowly growing series doesn't reallocate on every tick
+        final int size = Math.max(capacity, xs.length + (xs.length >> 1));
+        final float[] newXs = new float[size];
+        final float[] newYs = new float[size];
+        System.arraycopy(xs, 0, newXs, 0, count);
+        System.arraycopy(ys, 0, newYs, 0, count);
+        xs = newXs;
+        ys = newYs;
+    }
+}
@@ -0,0 +1,139 @@
+/**
+ * Copyright (C) 2016 Robinhood Markets, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.robinhood.spark;
+
+import java.util.Arrays;
+
+/**
+ * Bins points into a grid with a cell per pixel and maps each cell's count to an alpha, for
+ * drawing series far denser than the view's pixels as a heatmap. Binning is a single pass over
+ * the points and the mapping a single pass over the cells, so the cost doesn't depend on how
+ * many points land in a column. The buffers are reused across updates.
+ */
+final class DensityMap {
+    // counts up to this are mapped through a lookup table rather than Math.log
+    private static final int ALPHA_TABLE_SIZE = 1024;
+
+    int width;
+    int height;
+    // bytes per row of alphas, at least the width, to match the bitmap it is copied into
+    int stride;
+    int[] counts = new int[0];
+    byte[] alphas = new byte[0];
+    private int maxCount;
+    private final int[] alphaTable = new int[ALPHA_TABLE_SIZE];
+    private int alphaTableMax = -1;
+
+    /**
+     * Sets the size of the grid, growing the buffers if needed.
+     */
+    void resize(int width, int height, int stride) {
+        this.width = width;
+        this.height = height;
+        this.stride = stride;
+        if (counts.length < width * height) {
+            counts = new int[width * height];
+        }
+        if (alphas.length < stride * height) {
+            alphas = new byte[stride * height];
+        }
+    }
+
+    /**
+     * Replaces the counts with the given points, mapped to pixels by
+     * {@code x * scaleX + translateX} and {@code y * scaleY + translateY} and relative to the
+     * grid's top left corner at ({@code left}, {@code top}). Points outside the grid are skipped.
+     */
+    void bin(float[] xs, float[] ys, int count, float scaleX, float translateX, float scaleY,
+            float translateY, float left, float top) {
+        final int[] counts = this.counts;
+        final int width = this.width;
+        final int height = this.height;
+        Arrays.fill(counts, 0, width * height, 0);
+
+        // fold the grid's origin into the translation
+        final float tx = translateX - left;
+        final float ty = translateY - top;
+        int max = 0;
+        for (int i = 0; i < count; i++) {
+            final float px = xs[i] * scaleX + tx;
+            final float py = ys[i] * scaleY + ty;
+            // compare as floats first, casting NaN or huge values to int isn't meaningful
+            if (!(px >= 0 && px < width && py >= 0 && py < height)) continue;
+            final int cell = (int) py * width + (int) px;
+            final int cellCount = ++counts[cell];
+            if (cellCount > max) max = cellCount;
+        }
+        maxCount = max;
+    }
+
+    /**
+     * @return the highest count of any cell after the last {@link #bin}.
+     */
+    int getMaxCount() {
+        return maxCount;
+    }
+
+    /**
+     * Maps the counts to alphas on a log scale, so sparse cells stay visible next to dense ones:
+     * an empty cell is transparent and the densest cell opaque.
+     */
+    void updateAlphas() {
+        final int max = maxCount;
+        final double logMax = Math.log1p(max);
+        if (alphaTableMax != max) {
+            for (int c = 0; c < ALPHA_TABLE_SIZE; c++) {
+                alphaTable[c] = max == 0 ? 0 : (int) Math.round(255 * Math.log1p(c) / logMax);
+            }
+            alphaTableMax = max;
+        }
+
+        final int[] counts = this.counts;
+        final byte[] alphas = this.alphas;
+        for (int row = 0; row < height; row++) {
+            final int cellRow = row * width;
+            final int alphaRow = row * stride;
+            for (int column = 0; column < width; column++) {
+                final int count = counts[cellRow + column];
+                final int alpha = count < ALPHA_TABLE_SIZE
+                        ? alphaTable[count]
+                        : (int) Math.round(255 * Math.log1p(count) / logMax);
+                alphas[alphaRow + column] = (byte) alpha;
+            }
+        }
+    }
+
+    /**
+     * Releases the buffers. They are grown again by the next {@link #resize}.
+     */
+    void trim() {
+        width = 0;
+        height = 0;
+        stride = 0;
+        maxCount = 0;
+        counts = new int[0];
+        alphas = new byte[0];
+    }
+
+    /**
+     * @return the approximate heap bytes held by the buffers.
+     */
+    long getApproximateBytes() {
+        return SparkMemoryUsage.arrayBytes(counts) + SparkMemoryUsage.ARRAY_HEADER_BYTES
+                + alphas.length + SparkMemoryUsage.arrayBytes(alphaTable);
+    }
+}
@@ -0,0 +1,82 @@
+/**
+ * Copyright (C) 2016 Robinhood Markets, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.robinhood.spark;
+
+/**
+ * The linear mapping from data space to pixels shared by everything that draws a sparkline. Kept
+ * free of platform classes so it can also be compiled for the JVM.
+ */
+class LinearScale {
+    // the width and height of the content area, less the line's bleed
+    float width, height;
+    int size;
+    // the scale factor for the Y values
+    float xScale, yScale;
+    // translates the Y values back into the bounding rect after being scaled
+    float xTranslation, yTranslation;
+
+    /**
+     * Recomputes the scale to fit the given data bounds into the given content area.
+     *
+     * @param size the number of points
+     */
+    void set(float minX, float minY, float maxX, float maxY, int size,
+            float left, float top, float right, float bottom, float lineWidth, boolean fill) {
+        // subtract lineWidth to offset for 1/2 of the line bleeding out of the content box on
+        // either side of the view
+        final float lineWidthOffset = fill ? 0 : lineWidth;
+        this.width = right - left - lineWidthOffset;
+        this.height = bottom - top - lineWidthOffset;
+
+        this.size = size;
+
+        // if data is a line (which technically has no size), expand bounds to center the data.
+        // The bounds themselves are left untouched, since they are cached between scales.
+        if (maxX == minX) {
+            minX--;
+            maxX++;
+        }
+        if (maxY == minY) {
+            minY--;
+            maxY++;
+        }
+
+        // xScale will compress or expand the min and max x values to be just inside the view
+        this.xScale = width / (maxX - minX);
+        // xTranslation will move the x points back between 0 - width
+        this.xTranslation = left - (minX * xScale) + (lineWidthOffset / 2);
+        // yScale will compress or expand the min and max y values to be just inside the view
+        this.yScale = height / (maxY - minY);
+        // yTranslation will move the y points back between 0 - height
+        this.yTranslation = minY * yScale + top + (lineWidthOffset / 2);
+    }
+
+    /**
+     * Given the 'raw' X value, scale it to fit within our view.
+     */
+    public float getX(float rawX) {
+        return rawX * xScale + xTranslation;
+    }
+
+    /**
+     * Given the 'raw' Y value, scale it to fit within our view. This method also 'flips' the
+     * value to be ready for drawing.
+     */
+    public float getY(float rawY) {
+        return height - (rawY * yScale) + yTranslation;
+    }
+}
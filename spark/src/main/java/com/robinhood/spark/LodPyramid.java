@@ -0,0 +1,327 @@
+/**
+ * Copyright (C) 2016 Robinhood Markets, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.robinhood.spark;
+
+/**
+ * A level-of-detail pyramid over a {@link SparkAdapter}'s points, for drawing very large series.
+ * Each level splits the points into buckets of a fixed number of consecutive points and stores
+ * each bucket's first, last, min and max Y value. Level 0 has {@value #BASE_BUCKET_SIZE} points
+ * per bucket and every following level has {@value #BRANCHING} times as many.
+ *
+ * <p>Return a pyramid from {@link SparkAdapter#getLodPyramid()} to opt in. {@link SparkView} keeps
+ * it in sync with the adapter. Points notified with
+ * {@link SparkAdapter#notifyDataRangeChanged(int, int)}, appended or not, only recompute the
+ * buckets from the first of them on, while {@link SparkAdapter#notifyDataSetChanged()} rebuilds
+ * the whole pyramid. Points must be sorted by X.
+ */
+public class LodPyramid {
+    static final int BASE_BUCKET_SIZE = 16;
+    static final int BRANCHING = 4;
+
+    private Level[] levels = new Level[0];
+    private int levelCount;
+    private int count;
+    // the adapter last synced with, and its change count at the time
+    private SparkAdapter source;
+    private long sourceChanges;
+
+    /**
+     * Per-bucket summaries of one level, stored in primitive arrays.
+     */
+    static class Level {
+        final int bucketSize;
+        int bucketCount;
+        int[] minIndex = new int[16];
+        int[] maxIndex = new int[16];
+        float[] first = new float[16];
+        float[] last = new float[16];
+        float[] min = new float[16];
+        float[] max = new float[16];
+
+        Level(int bucketSize) {
+            this.bucketSize = bucketSize;
+        }
+
+        void ensureCapacity(int buckets) {
+            if (minIndex.length >= buckets) return;
+            final int size = Math.max(buckets, minIndex.length * 2);
+            minIndex = grow(minIndex, size);
+            maxIndex = grow(maxIndex, size);
+            first = grow(first, size);
+            last = grow(last, size);
+            min = grow(min, size);
+            max = grow(max, size);
+        }
+    }
+
+    /**
+     * @return the number of adapter points summarized by this pyramid.
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Forgets all summaries, so that the next sync rebuilds the pyramid from scratch. Only needed
+     * when points change without the adapter notifying.
+     */
+    public void invalidate() {
+        count = 0;
+        levelCount = 0;
+    }
+
+    /**
+     * Brings the pyramid up to date with the adapter. Points beyond {@link #getCount()} are read
+     * and folded into the buckets; only the last, partially filled bucket of each level is
+     * recomputed. Points the adapter notified as changed are summarized again from the first of
+     * them on. If the adapter has fewer points than the pyramid or is a different adapter, it is
+     * rebuilt.
+     *
+     * @return true if anything changed
+     */
+    public boolean sync(SparkAdapter adapter) {
+        final int newCount = adapter.getCount();
+        if (newCount < count || adapter != source) {
+            invalidate();
+        } else {
+            // summarizing again from the first changed point recomputes every bucket containing it
+            count = Math.min(count, adapter.getFirstChangedIndex(sourceChanges));
+        }
+        source = adapter;
+        sourceChanges = adapter.getChangeCount();
+        if (newCount == count) return false;
+
+        // the first point that needs summarizing on the current level
+        int start = count;
+        int size = BASE_BUCKET_SIZE;
+        for (int l = 0; size < newCount; l++, size *= BRANCHING) {
+            if (l == levelCount) {
+                addLevel(size);
+                start = 0;
+            }
+
+            final Level level = levels[l];
+            final int firstBucket = start / size;
+            final int bucketCount = (newCount + size - 1) / size;
+            level.ensureCapacity(bucketCount);
+            for (int b = firstBucket; b < bucketCount; b++) {
+                if (l == 0) {
+                    summarizePoints(adapter, level, b, Math.min((b + 1) * size, newCount));
+                } else {
+                    summarizeBuckets(levels[l - 1], level, b);
+                }
+            }
+            level.bucketCount = bucketCount;
+            start = firstBucket * size;
+        }
+        count = newCount;
+        return true;
+    }
+
+    private void addLevel(int bucketSize) {
+        if (levelCount == levels.length) {
+            final Level[] newLevels = new Level[levelCount + 4];
+            System.arraycopy(levels, 0, newLevels, 0, levelCount);
+            levels = newLevels;
+        }
+        if (levels[levelCount] == null) {
+            levels[levelCount] = new Level(bucketSize);
+        }
+        levels[levelCount].bucketCount = 0;
+        levelCount++;
+    }
+
+    private static void summarizePoints(SparkAdapter adapter, Level level, int bucket, int end) {
+        final int start = bucket * level.bucketSize;
+        int minIndex = start;
+        int maxIndex = start;
+        float min = adapter.getY(start);
+        float max = min;
+        final float first = min;
+        float last = min;
+        for (int i = start + 1; i < end; i++) {
+            final float y = adapter.getY(i);
+            if (y < min) {
+                min = y;
+                minIndex = i;
+            }
+            if (y > max) {
+                max = y;
+                maxIndex = i;
+            }
+            last = y;
+        }
+        level.minIndex[bucket] = minIndex;
+        level.maxIndex[bucket] = maxIndex;
+        level.first[bucket] = first;
+        level.last[bucket] = last;
+        level.min[bucket] = min;
+        level.max[bucket] = max;
+    }
+
+    private static void summarizeBuckets(Level children, Level level, int bucket) {
+        final int start = bucket * BRANCHING;
+        final int end = Math.min(start + BRANCHING, children.bucketCount);
+        int minIndex = children.minIndex[start];
+        int maxIndex = children.maxIndex[start];
+        float min = children.min[start];
+        float max = children.max[start];
+        for (int c = start + 1; c < end; c++) {
+            if (children.min[c] < min) {
+                min = children.min[c];
+                minIndex = children.minIndex[c];
+            }
+            if (children.max[c] > max) {
+                max = children.max[c];
+                maxIndex = children.maxIndex[c];
+            }
+        }
+        level.minIndex[bucket] = minIndex;
+        level.maxIndex[bucket] = maxIndex;
+        level.first[bucket] = children.first[start];
+        level.last[bucket] = children.last[end - 1];
+        level.min[bucket] = min;
+        level.max[bucket] = max;
+    }
+
+    /**
+     * @return the approximate heap bytes held by this pyramid's summaries.
+     */
+    public long getApproximateBytes() {
+        long bytes = 0;
+        for (int l = 0; l < levels.length; l++) {
+            final Level level = levels[l];
+            if (level == null) continue;
+            bytes += SparkMemoryUsage.arrayBytes(level.minIndex)
+                    + SparkMemoryUsage.arrayBytes(level.maxIndex)
+                    + SparkMemoryUsage.arrayBytes(level.first)
+                    + SparkMemoryUsage.arrayBytes(level.last)
+                    + SparkMemoryUsage.arrayBytes(level.min)
+                    + SparkMemoryUsage.arrayBytes(level.max);
+        }
+        return bytes;
+    }
+
+    int getLevelCount() {
+        return levelCount;
+    }
+
+    Level getLevel(int level) {
+        return levels[level];
+    }
+
+    /**
+     * @return the coarsest level that has at least {@code minBuckets} buckets over the given
+     * number of points, or -1 if even the finest level has fewer and the raw points should be used.
+     */
+    int selectLevel(int pointCount, int minBuckets) {
+        for (int l = levelCount - 1; l >= 0; l--) {
+            if (pointCount / levels[l].bucketSize >= minBuckets) {
+                return l;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the minimum Y value of all points, using the coarsest level.
+     */
+    float getMinY() {
+        final Level level = levels[levelCount - 1];
+        float min = Float.MAX_VALUE;
+        for (int b = 0; b < level.bucketCount; b++) {
+            min = Math.min(min, level.min[b]);
+        }
+        return min;
+    }
+
+    /**
+     * @return the maximum Y value of all points, using the coarsest level.
+     */
+    float getMaxY() {
+        final Level level = levels[levelCount - 1];
+        float max = -Float.MAX_VALUE;
+        for (int b = 0; b < level.bucketCount; b++) {
+            max = Math.max(max, level.max[b]);
+        }
+        return max;
+    }
+
+    /**
+     * Fills the snapshot with the buckets of the given level that cover the adapter points in
+     * [start, end). Each bucket contributes its first, min, max and last point in index order, so
+     * the sampled line keeps every peak the full data would draw within a bucket's width.
+     */
+    void sample(SparkAdapter adapter, int level, int start, int end, DataSnapshot snapshot) {
+        final Level lod = levels[level];
+        final int firstBucket = start / lod.bucketSize;
+        final int lastBucket = Math.min((end - 1) / lod.bucketSize, lod.bucketCount - 1);
+        snapshot.beginSample((lastBucket - firstBucket + 1) * 4);
+        for (int b = firstBucket; b <= lastBucket; b++) {
+            final int first = b * lod.bucketSize;
+            final int last = Math.min(first + lod.bucketSize, count) - 1;
+            final int minIndex = lod.minIndex[b];
+            final int maxIndex = lod.maxIndex[b];
+            final int lowIndex = Math.min(minIndex, maxIndex);
+            final int highIndex = Math.max(minIndex, maxIndex);
+
+            snapshot.addSample(adapter, first, lod.first[b]);
+            if (lowIndex != first && lowIndex != last) {
+                snapshot.addSample(adapter, lowIndex,
+                        lowIndex == minIndex ? lod.min[b] : lod.max[b]);
+            }
+            if (highIndex != lowIndex && highIndex != last) {
+                snapshot.addSample(adapter, highIndex,
+                        highIndex == maxIndex ? lod.max[b] : lod.min[b]);
+            }
+            if (last != first) {
+                snapshot.addSample(adapter, last, lod.last[b]);
+            }
+        }
+        snapshot.endSample(adapter);
+    }
+
+    /**
+     * @return the first index whose X value is {@code >= x}, or the adapter's count if there is
+     * none. The adapter's points must be sorted by X.
+     */
+    static int lowerBound(SparkAdapter adapter, int count, float x) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (adapter.getX(mid) < x) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static int[] grow(int[] array, int size) {
+        final int[] grown = new int[size];
+        System.arraycopy(array, 0, grown, 0, array.length);
+        return grown;
+    }
+
+    private static float[] grow(float[] array, int size) {
+        final float[] grown = new float[size];
+        System.arraycopy(array, 0, grown, 0, array.length);
+        return grown;
+    }
+}
@@ -0,0 +1,139 @@
+/**
+ * Copyright (C) 2016 Robinhood Markets, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.robinhood.spark;
+
+import java.util.Arrays;
+
+/**
+ * Finds the value nearest to a given one among unsorted values in constant expected time. The
+ * values' range is split into as many equal buckets as there are values, and the values are
+ * grouped by bucket. Each bucket also knows the nearest non-empty bucket on either side, so a
+ * query looks at the query's own bucket and at most one value from each of those neighbors, no
+ * matter how far apart the values are.
+ */
+final class MarkerIndex {
+    private float min;
+    private float bucketWidth;
+    private int buckets;
+    // the indices of the values, grouped by bucket: bucket b holds order[start[b]..start[b + 1])
+    private int[] start = new int[1];
+    private int[] order = new int[0];
+    // the index of the smallest and largest value in each bucket, -1 if the bucket is empty
+    private int[] lowest = new int[0];
+    private int[] highest = new int[0];
+    // the nearest non-empty bucket at or before and at or after each bucket, -1 if none
+    private int[] previous = new int[0];
+    private int[] next = new int[0];
+
+    /**
+     * Indexes the first {@code count} values.
+     */
+    void build(float[] values, int count) {
+        buckets = count;
+        if (count == 0) return;
+
+        float min = Float.MAX_VALUE;
+        float max = -Float.MAX_VALUE;
+        for (int i = 0; i < count; i++) {
+            min = Math.min(min, values[i]);
+            max = Math.max(max, values[i]);
+        }
+        this.min = min;
+        bucketWidth = max > min ? (max - min) / count : 1;
+        ensureCapacity(count);
+
+        // counting sort by bucket
+        Arrays.fill(start, 0, count + 1, 0);
+        Arrays.fill(lowest, 0, count, -1);
+        Arrays.fill(highest, 0, count, -1);
+        for (int i = 0; i < count; i++) {
+            final int b = bucket(values[i]);
+            start[b + 1]++;
+            if (lowest[b] < 0 || values[i] < values[lowest[b]]) lowest[b] = i;
+            if (highest[b] < 0 || values[i] > values[highest[b]]) highest[b] = i;
+        }
+        for (int b = 0; b < count; b++) {
+            start[b + 1] += start[b];
+            // next is only filled in below, borrow it for each bucket's fill position
+            next[b] = start[b];
+        }
+        for (int i = 0; i < count; i++) {
+            order[next[bucket(values[i])]++] = i;
+        }
+
+        int last = -1;
+        for (int b = 0; b < count; b++) {
+            if (lowest[b] >= 0) last = b;
+            previous[b] = last;
+        }
+        last = -1;
+        for (int b = count - 1; b >= 0; b--) {
+            if (lowest[b] >= 0) last = b;
+            next[b] = last;
+        }
+    }
+
+    /**
+     * @return the index of the value nearest to {@code x}, or -1 if there are no values.
+     */
+    int nearest(float[] values, float x) {
+        if (buckets == 0) return -1;
+        final int b = bucket(x);
+
+        int best = -1;
+        float bestDistance = Float.MAX_VALUE;
+        for (int i = start[b]; i < start[b + 1]; i++) {
+            final float distance = Math.abs(values[order[i]] - x);
+            if (distance < bestDistance) {
+                best = order[i];
+                bestDistance = distance;
+            }
+        }
+        // anything beyond the neighboring buckets' nearest edges is farther away
+        final int before = b > 0 ? previous[b - 1] : -1;
+        if (before >= 0 && x - values[highest[before]] < bestDistance) {
+            best = highest[before];
+            bestDistance = x - values[best];
+        }
+        final int after = b < buckets - 1 ? next[b + 1] : -1;
+        if (after >= 0 && values[lowest[after]] - x < bestDistance) {
+            best = lowest[after];
+        }
+        return best;
+    }
+
+    long getApproximateBytes() {
+        return SparkMemoryUsage.arrayBytes(start) + SparkMemoryUsage.arrayBytes(order)
+                + SparkMemoryUsage.arrayBytes(lowest) + SparkMemoryUsage.arrayBytes(highest)
+                + SparkMemoryUsage.arrayBytes(previous) + SparkMemoryUsage.arrayBytes(next);
+    }
+
+    private int bucket(float x) {
+        final int b = (int) ((x - min) / bucketWidth);
+        return Math.max(0, Math.min(buckets - 1, b));
+    }
+
+    private void ensureCapacity(int count) {
+        if (order.length >= count) return;
+        start = new int[count + 1];
+        order = new int[count];
+        lowest = new int[count];
+        highest = new int[count];
+        previous = new int[count];
+        next = new int[count];
+    }
+}
@@ -0,0 +1,425 @@
+/**
+ * Copyright (C) 2016 Robinhood Markets, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.robinhood.spark;
+
+import android.graphics.RectF;
+import android.os.Handler;
+import android.os.Looper;
+
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * A {@link SparkAdapter} over a history that is loaded a page of points at a time, so a chart can
+ * be shown before the whole history has been read. Pages come from a {@link PageSource} on a
+ * background executor and only a bounded number are kept, least recently requested first out.
+ * Until a page is loaded, and after it is evicted, its points follow a coarse summary of the
+ * history with one value per page, which is loaded first.
+ *
+ * <p>{@link SparkView} requests the pages around its visible range whenever it rescales or pans,
+ * and redraws as each page arrives. It only reads the points that shape the visible line, every
+ * loaded point but just a few per page that follows the summary, so neither the work per change
+ * nor the view's memory grows with the length of the history. Reading the adapter never waits for
+ * I/O. Points are evenly distributed along the x axis by their index. All methods must be called
+ * on the main thread.
+ */
+public class PagedSparkAdapter extends SparkAdapter {
+    public static final int DEFAULT_PAGE_SIZE = 256;
+    public static final int DEFAULT_MAX_PAGES = 64;
+
+    /**
+     * Loads points for a {@link PagedSparkAdapter}. Every method is called on the adapter's
+     * background executor and may block.
+     */
+    public interface PageSource {
+        /**
+         * @return the total number of points in the history.
+         */
+        int loadCount() throws IOException;
+
+        /**
+         * Fills {@code out} with one representative Y value per page of {@code pageSize} points,
+         * such as each page's last value, to stand in for pages that aren't loaded.
+         */
+        void loadSummary(int pageSize, float[] out) throws IOException;
+
+        /**
+         * Fills the first {@code count} values of {@code out} with the Y values of the points
+         * starting at {@code start}.
+         */
+        void loadPage(int start, int count, float[] out) throws IOException;
+    }
+
+    private static ExecutorService defaultExecutor;
+
+    private final PageSource source;
+    private final int pageSize;
+    private final int maxPages;
+    private final Executor executor;
+    private final Executor mainExecutor;
+
+    private int count;
+    private float[] summary = new float[0];
+    private float summaryMin;
+    private float summaryMax;
+    // the loaded pages by page index, null if not resident, and their extremes
+    private float[][] pages = new float[0][];
+    private float[] pageMin = new float[0];
+    private float[] pageMax = new float[0];
+    // when each page was last requested, for evicting the least recently requested
+    private long[] lastRequested = new long[0];
+    private boolean[] loading = new boolean[0];
+    private long requestClock;
+    private int residentPages;
+    // bumped by reload(), so loads started before it are dropped
+    private int generation;
+
+    public PagedSparkAdapter(PageSource source) {
+        this(source, DEFAULT_PAGE_SIZE, DEFAULT_MAX_PAGES, getDefaultExecutor(),
+                new MainThreadExecutor());
+    }
+
+    /**
+     * @param source       where the points are loaded from
+     * @param pageSize     the number of points loaded at a time
+     * @param maxPages     the most pages kept in memory
+     * @param executor     runs the loads
+     * @param mainExecutor delivers loaded points back to the thread the adapter is used on
+     */
+    public PagedSparkAdapter(PageSource source, int pageSize, int maxPages, Executor executor,
+            Executor mainExecutor) {
+        if (pageSize <= 0 || maxPages <= 0) {
+            throw new IllegalArgumentException("pageSize and maxPages must be > 0");
+        }
+        this.source = source;
+        this.pageSize = pageSize;
+        this.maxPages = maxPages;
+        this.executor = executor;
+        this.mainExecutor = mainExecutor;
+        loadSummary();
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * @return the number of pages currently held in memory.
+     */
+    public int getResidentPageCount() {
+        return residentPages;
+    }
+
+    /**
+     * @return true if the given point has been loaded, rather than following the summary.
+     */
+    public boolean isLoaded(int index) {
+        final int page = index / pageSize;
+        return page < pages.length && pages[page] != null;
+    }
+
+    /**
+     * Drops every page and loads the history again, for instance when it has changed at the
+     * source. Loads still running are discarded.
+     */
+    public void reload() {
+        generation++;
+        count = 0;
+        summary = new float[0];
+        pages = new float[0][];
+        pageMin = new float[0];
+        pageMax = new float[0];
+        lastRequested = new long[0];
+        loading = new boolean[0];
+        residentPages = 0;
+        notifyDataSetChanged();
+        loadSummary();
+    }
+
+    /**
+     * Requests the pages covering the points [start, end), plus one page on either side so small
+     * pans find their points loaded. Pages already loaded count as used, the others are loaded
+     * in the background. If that is more pages than can be kept, only the ones around the middle
+     * of the range are requested, so that loads don't keep evicting each other.
+     */
+    public void requestRange(int start, int end) {
+        if (count == 0) return;
+        int firstPage = Math.max(start / pageSize - 1, 0);
+        int lastPage = Math.min((Math.max(end, start + 1) - 1) / pageSize + 1,
+                pages.length - 1);
+        if (lastPage - firstPage + 1 > maxPages) {
+            firstPage = (firstPage + lastPage) / 2 - maxPages / 2;
+            lastPage = firstPage + maxPages - 1;
+        }
+        final long clock = ++requestClock;
+        for (int page = firstPage; page <= lastPage; page++) {
+            lastRequested[page] = clock;
+            if (pages[page] == null && !loading[page]) {
+                loadPage(page);
+            }
+        }
+    }
+
+    /**
+     * Fills the snapshot with the points in [start, end) that shape the drawn line: every point
+     * of a loaded page, but only the first, middle and last point of a page that follows the
+     * summary, as the interpolated points between them lie on straight lines. The work is
+     * proportional to the loaded points in the range plus its number of pages.
+     */
+    void sample(int start, int end, DataSnapshot snapshot) {
+        final int firstPage = start / pageSize;
+        final int lastPage = end > start ? (end - 1) / pageSize : firstPage - 1;
+        int capacity = 0;
+        for (int page = firstPage; page <= lastPage; page++) {
+            capacity += pages[page] != null ? pageSize : 3;
+        }
+
+        snapshot.beginSample(capacity);
+        for (int page = firstPage; page <= lastPage; page++) {
+            final int pageStart = page * pageSize;
+            final int first = Math.max(pageStart, start);
+            final int last = Math.min(pageStart + pageSize, end) - 1;
+            final float[] values = pages[page];
+            if (values != null) {
+                for (int i = first; i <= last; i++) {
+                    snapshot.addSample(this, i, values[i - pageStart]);
+                }
+            } else {
+                final int middle = pageStart + pageSize / 2;
+                snapshot.addSample(this, first, getY(first));
+                if (middle > first && middle < last) {
+                    snapshot.addSample(this, middle, getY(middle));
+                }
+                if (last > first) {
+                    snapshot.addSample(this, last, getY(last));
+                }
+            }
+        }
+        snapshot.endSample(this);
+    }
+
+    /**
+     * Fills {@code outBounds} from the summary and the extremes of the loaded pages, without
+     * reading every point.
+     */
+    @Override
+    public void getDataBounds(RectF outBounds) {
+        computeDataBounds(outBounds);
+    }
+
+    @Override
+    protected void computeDataBounds(RectF outBounds) {
+        if (count == 0) {
+            super.computeDataBounds(outBounds);
+            return;
+        }
+        // interpolated points lie between summary values
+        float minY = summaryMin;
+        float maxY = summaryMax;
+        for (int page = 0; page < pages.length; page++) {
+            if (pages[page] != null) {
+                minY = Math.min(minY, pageMin[page]);
+                maxY = Math.max(maxY, pageMax[page]);
+            }
+        }
+        if (hasBaseLine()) {
+            minY = Math.min(minY, getBaseLine());
+            maxY = Math.max(maxY, getBaseLine());
+        }
+        setRect(outBounds, getX(0), minY, getX(count - 1), maxY);
+    }
+
+    /**
+     * @return the approximate heap bytes held by the resident pages and the summary.
+     */
+    long getApproximateBytes() {
+        // the page and loading flag arrays hold a reference and a byte per page
+        long bytes = SparkMemoryUsage.arrayBytes(summary)
+                + SparkMemoryUsage.arrayBytes(lastRequested)
+                + SparkMemoryUsage.arrayBytes(pageMin) + SparkMemoryUsage.arrayBytes(pageMax)
+                + SparkMemoryUsage.ARRAY_HEADER_BYTES * 2 + pages.length * 5L;
+        for (int page = 0; page < pages.length; page++) {
+            bytes += pages[page] == null ? 0 : SparkMemoryUsage.arrayBytes(pages[page]);
+        }
+        return bytes;
+    }
+
+    @Override
+    public int getCount() {
+        return count;
+    }
+
+    @Override
+    public Object getItem(int index) {
+        return getY(index);
+    }
+
+    @Override
+    public float getY(int index) {
+        final int page = index / pageSize;
+        final float[] values = pages[page];
+        if (values != null) {
+            return values[index - page * pageSize];
+        }
+
+        // interpolate between the summaries, each taken to sit in the middle of its page
+        final float position = (float) index / pageSize - 0.5f;
+        if (position <= 0) return summary[0];
+        if (position >= summary.length - 1) return summary[summary.length - 1];
+        final int before = (int) position;
+        final float fraction = position - before;
+        return summary[before] + (summary[before + 1] - summary[before]) * fraction;
+    }
+
+    private void loadSummary() {
+        final int loadGeneration = generation;
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    final int newCount = source.loadCount();
+                    final float[] newSummary = new float[(newCount + pageSize - 1) / pageSize];
+                    source.loadSummary(pageSize, newSummary);
+                    mainExecutor.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            onSummaryLoaded(loadGeneration, newCount, newSummary);
+                        }
+                    });
+                } catch (IOException e) {
+                    // the adapter stays empty until the next reload()
+                }
+            }
+        });
+    }
+
+    private void onSummaryLoaded(int loadGeneration, int newCount, float[] newSummary) {
+        if (loadGeneration != generation) return;
+        count = newCount;
+        summary = newSummary;
+        summaryMin = Float.MAX_VALUE;
+        summaryMax = -Float.MAX_VALUE;
+        for (float value : newSummary) {
+            summaryMin = Math.min(summaryMin, value);
+            summaryMax = Math.max(summaryMax, value);
+        }
+        pages = new float[newSummary.length][];
+        pageMin = new float[newSummary.length];
+        pageMax = new float[newSummary.length];
+        lastRequested = new long[newSummary.length];
+        loading = new boolean[newSummary.length];
+        notifyDataSetChanged();
+    }
+
+    private void loadPage(final int page) {
+        loading[page] = true;
+        final int loadGeneration = generation;
+        final int start = page * pageSize;
+        final int pageCount = Math.min(pageSize, count - start);
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                float[] values = new float[pageCount];
+                try {
+                    source.loadPage(start, pageCount, values);
+                } catch (IOException e) {
+                    // keep following the summary, the page is requested again on the next pan
+                    values = null;
+                }
+                final float[] loaded = values;
+                mainExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        onPageLoaded(loadGeneration, page, loaded);
+                    }
+                });
+            }
+        });
+    }
+
+    private void onPageLoaded(int loadGeneration, int page, float[] values) {
+        if (loadGeneration != generation) return;
+        loading[page] = false;
+        if (values == null) return;
+
+        if (residentPages == maxPages) {
+            final int oldest = findLeastRecentlyRequested();
+            if (lastRequested[oldest] > lastRequested[page]) {
+                // every resident page was requested since, this one is no longer wanted
+                return;
+            }
+            pages[oldest] = null;
+            residentPages--;
+            // the evicted points follow the summary again
+            notifyPageChanged(oldest);
+        }
+        pages[page] = values;
+        float min = Float.MAX_VALUE;
+        float max = -Float.MAX_VALUE;
+        for (float value : values) {
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+        pageMin[page] = min;
+        pageMax[page] = max;
+        residentPages++;
+        notifyPageChanged(page);
+    }
+
+    private int findLeastRecentlyRequested() {
+        int oldest = -1;
+        for (int page = 0; page < pages.length; page++) {
+            if (pages[page] != null
+                    && (oldest < 0 || lastRequested[page] < lastRequested[oldest])) {
+                oldest = page;
+            }
+        }
+        return oldest;
+    }
+
+    private void notifyPageChanged(int page) {
+        final int start = page * pageSize;
+        notifyDataRangeChanged(start, Math.min(start + pageSize, count));
+    }
+
+    private static synchronized ExecutorService getDefaultExecutor() {
+        if (defaultExecutor == null) {
+            // a single thread, page sources are usually backed by a disk or a connection
+            defaultExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    final Thread thread = new Thread(r, "Spark-pages");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return defaultExecutor;
+    }
+
+    private static class MainThreadExecutor implements Executor {
+        private final Handler handler = new Handler(Looper.getMainLooper());
+
+        @Override
+        public void execute(Runnable command) {
+            handler.post(command);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+/**
+ * Copyright (C) 2016 Robinhood Markets, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.robinhood.spark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Per-point passes over primitive arrays, split into chunks that run on a shared pool when the
+ * arrays are large enough for it to pay off. ForkJoinPool is only available from API 21, so the
+ * chunks are plain tasks on a fixed pool, with the calling thread taking the first chunk itself.
+ */
+final class ParallelArrays {
+    /**
+     * Passes are never split unless a threshold is set. Where splitting starts to pay off, if at
+     * all, depends on the device's cores and memory bandwidth, so run
+     * {@code ParallelArraysBenchmark} on the target hardware to pick one.
+     */
+    static final int DEFAULT_THRESHOLD = Integer.MAX_VALUE;
+
+    private static final int PARALLELISM = Runtime.getRuntime().availableProcessors();
+    private static ExecutorService executor;
+
+    private ParallelArrays() {}
+
+    /**
+     * Finds the min and max of the first {@code count} values, writing them to {@code out[0]} and
+     * {@code out[1]}.
+     */
+    static void minMax(final float[] values, int count, int threshold, float[] out) {
+        if (!shouldSplit(count, threshold)) {
+            minMaxRange(values, 0, count, out);
+            return;
+        }
+
+        final int chunks = PARALLELISM;
+        final int chunkSize = (count + chunks - 1) / chunks;
+        final List<Future<float[]>> futures = new ArrayList<>(chunks - 1);
+        for (int c = 1; c < chunks; c++) {
+            final int start = c * chunkSize;
+            final int end = Math.min(start + chunkSize, count);
+            futures.add(getExecutor().submit(new Callable<float[]>() {
+                @Override
+                public float[] call() {
+                    final float[] result = new float[2];
+                    minMaxRange(values, start, end, result);
+                    return result;
+                }
+            }));
+        }
+
+        minMaxRange(values, 0, Math.min(chunkSize, count), out);
+        for (int c = 0; c < chunks - 1; c++) {
+            final float[] result = get(futures.get(c));
+            out[0] = Math.min(out[0], result[0]);
+            out[1] = Math.max(out[1], result[1]);
+        }
+    }
+
+    private static void minMaxRange(float[] values, int start, int end, float[] out) {
+        float min = Float.MAX_VALUE;
+        float max = -Float.MAX_VALUE;
+        for (int i = start; i < end; i++) {
+            final float value = values[i];
+            if (value < min) min = value;
+            if (value > max) max = value;
+        }
+        out[0] = min;
+        out[1] = max;
+    }
+
+    /**
+     * Copies {@code count} values from {@code src}, starting at {@code srcStart}, into the start of
+     * {@code dst}, and records the range of indices that differed in {@code changed[0]} (first,
+     * inclusive) and {@code changed[1]} (last, exclusive). If nothing differed, the range is empty.
+     */
+    static void copyAndDiff(final float[] src, final int srcStart, final float[] dst, int count,
+            int threshold, int[] changed) {
+        if (!shouldSplit(count, threshold)) {
+            copyAndDiffRange(src, srcStart, dst, 0, count, changed);
+            return;
+        }
+
+        final int chunks = PARALLELISM;
+        final int chunkSize = (count + chunks - 1) / chunks;
+        final List<Future<int[]>> futures = new ArrayList<>(chunks - 1);
+        for (int c = 1; c < chunks; c++) {
+            final int start = c * chunkSize;
+            final int end = Math.min(start + chunkSize, count);
+            futures.add(getExecutor().submit(new Callable<int[]>() {
+                @Override
+                public int[] call() {
+                    final int[] result = new int[2];
+                    copyAndDiffRange(src, srcStart, dst, start, end, result);
+                    return result;
+                }
+            }));
+        }
+
+        copyAndDiffRange(src, srcStart, dst, 0, Math.min(chunkSize, count), changed);
+        for (int c = 0; c < chunks - 1; c++) {
+            final int[] result = get(futures.get(c));
+            if (result[1] > result[0]) {
+                changed[0] = Math.min(changed[0], result[0]);
+                changed[1] = Math.max(changed[1], result[1]);
+            }
+        }
+    }
+
+    private static void copyAndDiffRange(float[] src, int srcStart, float[] dst, int start,
+            int end, int[] changed) {
+        int first = end;
+        int last = start;
+        for (int i = start; i < end; i++) {
+            final float value = src[srcStart + i];
+            if (dst[i] != value) {
+                if (first == end) first = i;
+                last = i + 1;
+                dst[i] = value;
+            }
+        }
+        changed[0] = first == end ? Integer.MAX_VALUE : first;
+        changed[1] = first == end ? Integer.MIN_VALUE : last;
+    }
+
+    private static boolean shouldSplit(int count, int threshold) {
+        return PARALLELISM > 1 && count >= threshold;
+    }
+
+    private static synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(PARALLELISM - 1, new ThreadFactory() {
+                private int count;
+
+                @Override
+                public Thread newThread(Runnable r) {
+                    final Thread thread = new Thread(r, "Spark-parallel-" + count++);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return executor;
+    }
+
+    private static <T> T get(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,251 @@
+/**
+ * Copyright (C) 2016 Robinhood Markets, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.robinhood.spark;
+
+import android.graphics.Path;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits a series into tiles of a fixed width along the x axis and caches a data space
+ * {@link Path} per tile. Tiles are built lazily the first time they are visible and evicted least
+ * recently used, so panning over a long series only builds the tiles that scroll into view.
+ *
+ * <p>A tile owns the segments that start inside it, including the one bridging to the first
+ * point of the next tile, so adjacent tiles join up without gaps.
+ *
+ * <p>There are few resident tiles, so they are kept in parallel arrays and searched linearly.
+ * Unlike a map, this doesn't allocate an entry or a boxed key when a tile is rebuilt, and evicted
+ * paths are reused, so a live tick that rebuilds its tile doesn't allocate.
+ */
+class PathTileCache {
+    static final int DEFAULT_MAX_TILES = 64;
+
+    private final float tileWidth;
+    // the resident tiles, in the first tileCount slots
+    private final int[] tileIndices;
+    private final Path[] tilePaths;
+    // when each resident tile was last used, to evict the least recently used one
+    private final long[] lastUsed;
+    private int tileCount;
+    private long useCount;
+    // evicted paths, reset and reused for new tiles
+    private final List<Path> recycled = new ArrayList<>();
+
+    PathTileCache(float tileWidth, int maxTiles) {
+        if (tileWidth <= 0) throw new IllegalArgumentException("tileWidth must be positive");
+        if (maxTiles <= 0) throw new IllegalArgumentException("maxTiles must be positive");
+        this.tileWidth = tileWidth;
+        this.tileIndices = new int[maxTiles];
+        this.tilePaths = new Path[maxTiles];
+        this.lastUsed = new long[maxTiles];
+    }
+
+    float getTileWidth() {
+        return tileWidth;
+    }
+
+    /**
+     * @return the tile containing the given data space x value.
+     */
+    int getTileIndex(float x) {
+        return tileIndex(x, tileWidth);
+    }
+
+    /**
+     * Gets the cached path for the given tile, building it from the snapshot if necessary.
+     *
+     * @param controlPoints the smoothed curve's control points in the layout produced by
+     *                      {@link SmoothingHelper}, or null for straight segments
+     */
+    Path getTile(int tile, DataSnapshot snapshot, float[] controlPoints) {
+        int slot = findSlot(tile);
+        if (slot < 0) {
+            if (tileCount == tilePaths.length) {
+                evict(leastRecentlyUsedSlot());
+            }
+            final Path path = recycled.isEmpty()
+                    ? new Path()
+                    : recycled.remove(recycled.size() - 1);
+            buildTile(path, tile, snapshot, controlPoints);
+            slot = tileCount++;
+            tileIndices[slot] = tile;
+            tilePaths[slot] = path;
+        }
+        lastUsed[slot] = ++useCount;
+        return tilePaths[slot];
+    }
+
+    /**
+     * @return the number of resident tiles.
+     */
+    int getTileCount() {
+        return tileCount;
+    }
+
+    private int findSlot(int tile) {
+        for (int i = 0; i < tileCount; i++) {
+            if (tileIndices[i] == tile) return i;
+        }
+        return -1;
+    }
+
+    private int leastRecentlyUsedSlot() {
+        int slot = 0;
+        for (int i = 1; i < tileCount; i++) {
+            if (lastUsed[i] < lastUsed[slot]) slot = i;
+        }
+        return slot;
+    }
+
+    /**
+     * Recycles the tile in the given slot, moving the last resident tile into its place.
+     */
+    private void evict(int slot) {
+        recycled.add(tilePaths[slot]);
+        final int last = --tileCount;
+        tileIndices[slot] = tileIndices[last];
+        tilePaths[slot] = tilePaths[last];
+        lastUsed[slot] = lastUsed[last];
+        tilePaths[last] = null;
+    }
+
+    private void buildTile(Path path, int tile, DataSnapshot snapshot, float[] controlPoints) {
+        final float[] xs = snapshot.xs;
+        final float[] ys = snapshot.ys;
+        final int count = snapshot.count;
+        final int first = firstIndexInTile(xs, count, tile);
+        // bridge to the first point of the next tile
+        final int last = Math.min(firstIndexInTile(xs, count, tile + 1), count - 1);
+
+        path.reset();
+        if (first >= count) return;
+        path.moveTo(xs[first], ys[first]);
+        for (int i = first + 1; i <= last; i++) {
+            if (controlPoints == null) {
+                path.lineTo(xs[i], ys[i]);
+            } else {
+                final int j = (i - 1) * 4;
+                path.cubicTo(controlPoints[j], controlPoints[j + 1],
+                        controlPoints[j + 2], controlPoints[j + 3], xs[i], ys[i]);
+            }
+        }
+    }
+
+    /**
+     * Evicts every tile that contains a segment touching the points in [start, end) of the
+     * snapshot. {@code padding} extra points are invalidated on each side, for curves whose
+     * control points depend on their neighbors.
+     */
+    void invalidate(DataSnapshot snapshot, int start, int end, int padding) {
+        if (end <= start) return;
+        final int count = snapshot.count;
+        // the segment ending at start is owned by the previous point's tile
+        final int firstTile = start - 1 - padding < 0
+                ? Integer.MIN_VALUE
+                : getTileIndex(snapshot.xs[Math.min(start - 1 - padding, count - 1)]);
+        // removed or appended points may extend past the end of the new data
+        final int lastTile = end + padding >= count
+                ? Integer.MAX_VALUE
+                : getTileIndex(snapshot.xs[end + padding]);
+
+        // backwards, as evicting moves the last tile into the evicted slot
+        for (int i = tileCount - 1; i >= 0; i--) {
+            if (tileIndices[i] >= firstTile && tileIndices[i] <= lastTile) {
+                evict(i);
+            }
+        }
+    }
+
+    void invalidateAll() {
+        while (tileCount > 0) {
+            evict(tileCount - 1);
+        }
+    }
+
+    /**
+     * Evicts every tile and releases the native memory of the recycled paths.
+     */
+    void trim() {
+        invalidateAll();
+        for (int i = 0, size = recycled.size(); i < size; i++) {
+            recycled.get(i).reset();
+        }
+        recycled.clear();
+    }
+
+    /**
+     * @return the approximate native bytes held by the cached tiles, built from the given
+     * snapshot with {@code pointsPerSegment} points per segment.
+     */
+    long getApproximateNativeBytes(DataSnapshot snapshot, int pointsPerSegment) {
+        long bytes = 0;
+        for (int i = 0; i < tileCount; i++) {
+            final int tile = tileIndices[i];
+            final int first = firstIndexInTile(snapshot.xs, snapshot.count, tile);
+            final int last = Math.min(
+                    firstIndexInTile(snapshot.xs, snapshot.count, tile + 1), snapshot.count - 1);
+            bytes += SparkMemoryUsage.pathBytes(Math.max(last - first, 0) * pointsPerSegment + 1);
+        }
+        return bytes + recycled.size() * SparkMemoryUsage.pathBytes(0);
+    }
+
+    static int tileIndex(float x, float tileWidth) {
+        return (int) Math.floor(x / tileWidth);
+    }
+
+    /**
+     * @return the first index in the sorted {@code xs} that lies in the given tile or a later
+     * one, or {@code count} if there is none.
+     */
+    int firstIndexInTile(float[] xs, int count, int tile) {
+        return firstIndexInTile(xs, count, tile, tileWidth);
+    }
+
+    static int firstIndexInTile(float[] xs, int count, int tile, float tileWidth) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (tileIndex(xs[mid], tileWidth) < tile) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return the first index in the sorted {@code xs} whose value is {@code >= x}, or
+     * {@code count} if there is none.
+     */
+    static int lowerBound(float[] xs, int count, float x) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (xs[mid] < x) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,162 @@
+/**
+ * Copyright (C) 2016 Robinhood Markets, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.robinhood.spark;
+
+/**
+ * Answers sum, min and max queries over any range of a series in constant time, so range
+ * scrubbing costs the same on every move no matter how many points lie between the fingers.
+ * Sums come from prefix sums and extremes from sparse tables: level {@code k} holds the min and
+ * max of every run of {@code 2^k} points, and any range is covered by two overlapping runs.
+ * Appending points only extends the tables.
+ */
+final class RangeIndex {
+    // sums[i] is the sum of the first i values, in double so long series don't lose precision
+    private double[] sums = new double[1];
+    // mins[k][i] and maxs[k][i] cover the values [i, i + 2^k)
+    private float[][] mins = new float[0][];
+    private float[][] maxs = new float[0][];
+    private int count;
+
+    /**
+     * Updates the index for the first {@code count} values, of which only those from
+     * {@code changeStart} on differ from the last update.
+     */
+    void update(float[] values, int count, int changeStart) {
+        final int start = Math.max(0, Math.min(changeStart, Math.min(count, this.count)));
+        ensureCapacity(count);
+        this.count = count;
+
+        final double[] sums = this.sums;
+        for (int i = start; i < count; i++) {
+            sums[i + 1] = sums[i] + values[i];
+        }
+
+        System.arraycopy(values, start, mins[0], start, count - start);
+        System.arraycopy(values, start, maxs[0], start, count - start);
+        for (int k = 1; k < levels(count); k++) {
+            final int half = 1 << (k - 1);
+            final float[] prevMins = mins[k - 1];
+            final float[] prevMaxs = maxs[k - 1];
+            final float[] levelMins = mins[k];
+            final float[] levelMaxs = maxs[k];
+            // runs that end before the first changed value are still correct
+            final int end = count - (1 << k);
+            for (int i = Math.max(0, start - (1 << k) + 1); i <= end; i++) {
+                levelMins[i] = Math.min(prevMins[i], prevMins[i + half]);
+                levelMaxs[i] = Math.max(prevMaxs[i], prevMaxs[i + half]);
+            }
+        }
+    }
+
+    /**
+     * @return the number of values indexed.
+     */
+    int size() {
+        return count;
+    }
+
+    /**
+     * @return the sum of the values [start, end).
+     */
+    double sum(int start, int end) {
+        return sums[end] - sums[start];
+    }
+
+    /**
+     * @return the smallest of the values [start, end), which must not be empty.
+     */
+    float min(int start, int end) {
+        final int k = level(end - start);
+        return Math.min(mins[k][start], mins[k][end - (1 << k)]);
+    }
+
+    /**
+     * @return the largest of the values [start, end), which must not be empty.
+     */
+    float max(int start, int end) {
+        final int k = level(end - start);
+        return Math.max(maxs[k][start], maxs[k][end - (1 << k)]);
+    }
+
+    /**
+     * Releases the tables. They are rebuilt in full by the next update.
+     */
+    void trim() {
+        count = 0;
+        sums = new double[1];
+        mins = new float[0][];
+        maxs = new float[0][];
+    }
+
+    /**
+     * @return the approximate heap bytes held by the tables.
+     */
+    long getApproximateBytes() {
+        long bytes = 16 + 8L * sums.length;
+        for (int k = 0; k < mins.length; k++) {
+            bytes += SparkMemoryUsage.arrayBytes(mins[k]) + SparkMemoryUsage.arrayBytes(maxs[k]);
+        }
+        return bytes;
+    }
+
+    /**
+     * @return the highest level whose runs fit in the given length.
+     */
+    private static int level(int length) {
+        return 31 - Integer.numberOfLeadingZeros(length);
+    }
+
+    private static int levels(int count) {
+        return count == 0 ? 0 : level(count) + 1;
+    }
+
+    private void ensureCapacity(int count) {
+        if (sums.length <= count) {
+            // grow geometrically, so appending a point at a time stays cheap
+            final int capacity = Math.max(count, 2 * (sums.length - 1));
+            final double[] newSums = new double[capacity + 1];
+            System.arraycopy(sums, 0, newSums, 0, this.count + 1);
+            sums = newSums;
+        }
+
+        final int capacity = sums.length - 1;
+        final int levels = levels(capacity);
+        if (mins.length < levels) {
+            final float[][] newMins = new float[levels][];
+            final float[][] newMaxs = new float[levels][];
+            System.arraycopy(mins, 0, newMins, 0, mins.length);
+            System.arraycopy(maxs, 0, newMaxs, 0, maxs.length);
+            mins = newMins;
+            maxs = newMaxs;
+        }
+        for (int k = 0; k < levels; k++) {
+            final int length = capacity - (1 << k) + 1;
+            if (mins[k] == null || mins[k].length < length) {
+                mins[k] = grow(mins[k], length, this.count - (1 << k) + 1);
+                maxs[k] = grow(maxs[k], length, this.count - (1 << k) + 1);
+            }
+        }
+    }
+
+    private static float[] grow(float[] values, int length, int keep) {
+        final float[] newValues = new float[length];
+        if (values != null && keep > 0) {
+            System.arraycopy(values, 0, newValues, 0, keep);
+        }
+        return newValues;
+    }
+}
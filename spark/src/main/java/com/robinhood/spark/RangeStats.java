@@ -0,0 +1,109 @@
+/**
+ * Copyright (C) 2016 Robinhood Markets, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.robinhood.spark;
+
+/**
+ * Summarizes the points between the two fingers of a range scrub, see
+ * {@link SparkView#setRangeScrubEnabled(boolean)}. The same instance is refilled on every move,
+ * so copy out anything you need to keep after {@link SparkView.OnRangeScrubListener} returns.
+ */
+public final class RangeStats {
+    private int startIndex;
+    private int endIndex;
+    private float startValue;
+    private float endValue;
+    private float high;
+    private float low;
+    private float average;
+    private int count;
+
+    void set(int startIndex, int endIndex, float startValue, float endValue, float high,
+            float low, float average, int count) {
+        this.startIndex = startIndex;
+        this.endIndex = endIndex;
+        this.startValue = startValue;
+        this.endValue = endValue;
+        this.high = high;
+        this.low = low;
+        this.average = average;
+        this.count = count;
+    }
+
+    /**
+     * @return the adapter index of the first point in the range.
+     */
+    public int getStartIndex() {
+        return startIndex;
+    }
+
+    /**
+     * @return the adapter index of the last point in the range.
+     */
+    public int getEndIndex() {
+        return endIndex;
+    }
+
+    /**
+     * @return the Y value of the first point in the range.
+     */
+    public float getStartValue() {
+        return startValue;
+    }
+
+    /**
+     * @return the Y value of the last point in the range.
+     */
+    public float getEndValue() {
+        return endValue;
+    }
+
+    /**
+     * @return the change in Y from the first to the last point in the range.
+     */
+    public float getChange() {
+        return endValue - startValue;
+    }
+
+    /**
+     * @return the highest Y value in the range.
+     */
+    public float getHigh() {
+        return high;
+    }
+
+    /**
+     * @return the lowest Y value in the range.
+     */
+    public float getLow() {
+        return low;
+    }
+
+    /**
+     * @return the mean Y value of the points in the range.
+     */
+    public float getAverage() {
+        return average;
+    }
+
+    /**
+     * @return the number of points in the range, counting both ends. With a {@link LodPyramid}
+     * or a downsampling {@link TransformStage}, only the drawn points are counted.
+     */
+    public int getCount() {
+        return count;
+    }
+}
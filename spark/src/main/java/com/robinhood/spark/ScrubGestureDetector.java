@@ -31,7 +31,12 @@ class ScrubGestureDetector implements View.OnTouchListener {
     private final Handler handler;
 
     private boolean enabled;
+    private boolean rangeEnabled;
     private float downX, downY;
+    // a second pointer turned the gesture into a range scrub
+    private boolean rangeScrubbing;
+    // the range scrub ended, the rest of the gesture is ignored
+    private boolean rangeEnded;
 
     public ScrubGestureDetector(ScrubListener scrubListener, Handler handler, float touchSlop) {
         if (scrubListener == null || handler == null) {
@@ -53,6 +58,20 @@ class ScrubGestureDetector implements View.OnTouchListener {
         this.enabled = enabled;
     }
 
+    /**
+     * Set whether a second pointer starts a range scrub between the two pointers.
+     */
+    public void setRangeEnabled(boolean rangeEnabled) {
+        this.rangeEnabled = rangeEnabled;
+    }
+
+    /**
+     * Drops a pending long press, for instance when the view is detached mid-gesture.
+     */
+    public void cancel() {
+        handler.removeCallbacks(longPressRunnable);
+    }
+
     @Override
     public boolean onTouch(View v, MotionEvent event) {
         if (!enabled) return false;
@@ -64,10 +83,32 @@ class ScrubGestureDetector implements View.OnTouchListener {
                 // store the time to compute whether future events are 'long presses'
                 downX = x;
                 downY = y;
+                rangeScrubbing = false;
+                rangeEnded = false;
 
                 handler.postDelayed(longPressRunnable, LONG_PRESS_TIMEOUT_MS);
                 return true;
+            case MotionEvent.ACTION_POINTER_DOWN:
+                if (!rangeEnabled || rangeScrubbing || rangeEnded) return false;
+                // a second finger ranges straight away, there is no tap to tell it apart from
+                handler.removeCallbacks(longPressRunnable);
+                rangeScrubbing = true;
+                scrubListener.onRangeScrubbed(event.getX(0), event.getX(1));
+                return true;
+            case MotionEvent.ACTION_POINTER_UP:
+                if (!rangeScrubbing) return false;
+                // lifting either finger ends the range, the other one doesn't fall back to a scrub
+                rangeScrubbing = false;
+                rangeEnded = true;
+                scrubListener.onScrubEnded();
+                return true;
             case MotionEvent.ACTION_MOVE:
+                if (rangeScrubbing) {
+                    scrubListener.onRangeScrubbed(event.getX(0), event.getX(1));
+                    return true;
+                }
+                if (rangeEnded) return true;
+
                 // calculate the elapsed time since the down event
                 float timeDelta = event.getEventTime() - event.getDownTime();
 
@@ -91,7 +132,11 @@ class ScrubGestureDetector implements View.OnTouchListener {
             case MotionEvent.ACTION_UP:
             case MotionEvent.ACTION_CANCEL:
                 handler.removeCallbacks(longPressRunnable);
-                scrubListener.onScrubEnded();
+                rangeScrubbing = false;
+                if (!rangeEnded) {
+                    scrubListener.onScrubEnded();
+                }
+                rangeEnded = false;
                 return true;
             default:
                 return false;
@@ -100,6 +145,7 @@ class ScrubGestureDetector implements View.OnTouchListener {
 
     interface ScrubListener {
         void onScrubbed(float x, float y);
+        void onRangeScrubbed(float x1, float x2);
         void onScrubEnded();
     }
 }
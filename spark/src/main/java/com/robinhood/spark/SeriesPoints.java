@@ -0,0 +1,108 @@
+/**
+ * Copyright (C) 2016 Robinhood Markets, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.robinhood.spark;
+
+/**
+ * The bounds and drawable points of a series held in arrays, shared by {@link SparkRenderer} and
+ * the Java2D {@code SparkImageRenderer} so that both draw the same geometry for the same data.
+ * Free of Android classes, as it's also compiled into the {@code spark-jvm} module.
+ *
+ * <p>Reuses its buffers between calls and is not thread safe.
+ */
+final class SeriesPoints {
+    static final int MIN_X = 0;
+    static final int MIN_Y = 1;
+    static final int MAX_X = 2;
+    static final int MAX_Y = 3;
+
+    /** the prepared points, valid up to the count returned by {@link #prepare} */
+    float[] xs = new float[0];
+    float[] ys = new float[0];
+    // the decimated points, when the data has more points than pixels
+    private float[] decimated;
+
+    /**
+     * Computes the bounds of the first {@code count} points, including the base line if there is
+     * one, writing them to {@code out} at {@link #MIN_X}, {@link #MIN_Y}, {@link #MAX_X} and
+     * {@link #MAX_Y}. A null {@code xData} spans the indices, from 0 to {@code count - 1}.
+     *
+     * @param parallelThreshold the count from which the arrays are scanned in parallel, see
+     *                          {@link ParallelArrays}
+     * @param minMax            scratch space for two floats, so that no call allocates
+     */
+    static void bounds(float[] xData, float[] yData, int count, int parallelThreshold,
+            boolean hasBaseLine, float baseLine, float[] minMax, float[] out) {
+        if (xData == null) {
+            out[MIN_X] = 0;
+            out[MAX_X] = count - 1;
+        } else {
+            ParallelArrays.minMax(xData, count, parallelThreshold, minMax);
+            out[MIN_X] = minMax[0];
+            out[MAX_X] = minMax[1];
+        }
+
+        ParallelArrays.minMax(yData, count, parallelThreshold, minMax);
+        out[MIN_Y] = minMax[0];
+        out[MAX_Y] = minMax[1];
+        if (hasBaseLine) {
+            out[MIN_Y] = Math.min(out[MIN_Y], baseLine);
+            out[MAX_Y] = Math.max(out[MAX_Y], baseLine);
+        }
+    }
+
+    /**
+     * Copies the first {@code count} points into {@linkplain #xs} and {@linkplain #ys}, decimated
+     * to two points per pixel column when there are more. A null {@code xData} uses the indices.
+     *
+     * @return the number of points to draw
+     */
+    int prepare(float[] xData, float[] yData, int count, int columns) {
+        final int buckets = Math.max(columns, 1);
+        if (xData == null || count <= buckets * 2) {
+            ensureCapacity(count);
+            if (xData == null) {
+                for (int i = 0; i < count; i++) {
+                    xs[i] = i;
+                }
+            } else {
+                System.arraycopy(xData, 0, xs, 0, count);
+            }
+            System.arraycopy(yData, 0, ys, 0, count);
+            if (count <= buckets * 2) return count;
+            xData = xs;
+            yData = ys;
+        }
+
+        final int size = buckets * 4 + 4;
+        if (decimated == null || decimated.length < size) {
+            decimated = new float[size];
+        }
+        final int points = AdaptiveQuality.decimate(xData, yData, count, buckets, decimated);
+        ensureCapacity(points);
+        for (int i = 0; i < points; i++) {
+            xs[i] = decimated[i * 2];
+            ys[i] = decimated[i * 2 + 1];
+        }
+        return points;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (xs.length >= capacity) return;
+        xs = new float[capacity];
+        ys = new float[capacity];
+    }
+}
@@ -0,0 +1,128 @@
+/**
+ * Copyright (C) 2016 Robinhood Markets, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.robinhood.spark;
+
+/**
+ * Computes cubic bezier control points for smoothing a sparkline. The control points are computed
+ * once per data change so the resulting path can be drawn without a {@code PathEffect}.
+ */
+final class SmoothingHelper {
+
+    private SmoothingHelper() {}
+
+    /**
+     * The control points of a smoothed line, and the buffers they are computed in, grown as needed
+     * and reused across updates. Every renderer smooths through this, so they all draw the same
+     * curve for the same points.
+     */
+    static final class Curve {
+        // the layout produced by monotoneCubic and catmullRom, null until first computed
+        float[] controlPoints;
+        // scratch space for the monotone cubic's tangents
+        float[] tangents;
+
+        /**
+         * Computes the control points for the first {@code count} points.
+         *
+         * @param monotone true for a {@linkplain #monotoneCubic monotone cubic}, false for a
+         *                 {@linkplain #catmullRom Catmull-Rom spline}
+         */
+        void update(float[] xs, float[] ys, int count, boolean monotone) {
+            final int controlCount = Math.max(count - 1, 0) * 4;
+            if (controlPoints == null || controlPoints.length < controlCount) {
+                controlPoints = new float[controlCount];
+            }
+            if (monotone) {
+                if (tangents == null || tangents.length < count) {
+                    tangents = new float[count];
+                }
+                monotoneCubic(xs, ys, count, tangents, controlPoints);
+            } else {
+                catmullRom(xs, ys, count, controlPoints);
+            }
+        }
+
+        /**
+         * Releases the buffers. They are grown again by the next update.
+         */
+        void trim() {
+            controlPoints = null;
+            tangents = null;
+        }
+    }
+
+    /**
+     * Fills {@code out} with the control points of a monotone cubic (Fritsch-Butland) curve through
+     * the given points. The curve never overshoots the data, so local highs and lows stay where
+     * they are. Each of the {@code count - 1} segments writes 4 values to {@code out}: the first
+     * control point's x, y then the second control point's x, y.
+     *
+     * @param tangents scratch space of at least {@code count} floats
+     */
+    static void monotoneCubic(float[] xs, float[] ys, int count, float[] tangents, float[] out) {
+        if (count < 2) return;
+
+        // tangents at the interior points are the weighted harmonic mean of the two neighboring
+        // secants, or 0 at local extrema (where the secants change sign)
+        tangents[0] = secant(xs, ys, 0);
+        tangents[count - 1] = secant(xs, ys, count - 2);
+        for (int i = 1; i < count - 1; i++) {
+            final float h0 = xs[i] - xs[i - 1];
+            final float h1 = xs[i + 1] - xs[i];
+            final float d0 = secant(xs, ys, i - 1);
+            final float d1 = secant(xs, ys, i);
+            if (d0 * d1 <= 0) {
+                tangents[i] = 0;
+            } else {
+                tangents[i] = 3 * (h0 + h1) / ((2 * h1 + h0) / d0 + (h1 + 2 * h0) / d1);
+            }
+        }
+
+        for (int i = 0, j = 0; i < count - 1; i++, j += 4) {
+            final float third = (xs[i + 1] - xs[i]) / 3;
+            out[j] = xs[i] + third;
+            out[j + 1] = ys[i] + tangents[i] * third;
+            out[j + 2] = xs[i + 1] - third;
+            out[j + 3] = ys[i + 1] - tangents[i + 1] * third;
+        }
+    }
+
+    /**
+     * Fills {@code out} with the control points of a uniform Catmull-Rom spline through the given
+     * points, using the same layout as {@link #monotoneCubic}. Catmull-Rom curves are rounder than
+     * monotone cubics but may overshoot around sharp changes.
+     */
+    static void catmullRom(float[] xs, float[] ys, int count, float[] out) {
+        for (int i = 0, j = 0; i < count - 1; i++, j += 4) {
+            // the end points are duplicated to give the first and last segments a neighbor
+            final int prev = Math.max(i - 1, 0);
+            final int next = Math.min(i + 2, count - 1);
+            out[j] = xs[i] + (xs[i + 1] - xs[prev]) / 6;
+            out[j + 1] = ys[i] + (ys[i + 1] - ys[prev]) / 6;
+            out[j + 2] = xs[i + 1] - (xs[next] - xs[i]) / 6;
+            out[j + 3] = ys[i + 1] - (ys[next] - ys[i]) / 6;
+        }
+    }
+
+    /**
+     * @return the slope between point {@code i} and {@code i + 1}, or 0 for a vertical segment.
+     */
+    private static float secant(float[] xs, float[] ys, int i) {
+        final float dx = xs[i + 1] - xs[i];
+        return dx == 0 ? 0 : (ys[i + 1] - ys[i]) / dx;
+    }
+}
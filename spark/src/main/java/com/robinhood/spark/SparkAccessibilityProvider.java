@@ -0,0 +1,212 @@
+/**
+ * Copyright (C) 2016 Robinhood Markets, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.robinhood.spark;
+
+import android.annotation.TargetApi;
+import android.graphics.Rect;
+import android.os.Build;
+import android.os.Bundle;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.accessibility.AccessibilityEvent;
+import android.view.accessibility.AccessibilityNodeInfo;
+import android.view.accessibility.AccessibilityNodeProvider;
+
+/**
+ * Exposes a {@link SparkView} to accessibility services as a bounded number of virtual nodes, each
+ * describing the open, high, low and close of a consecutive range of points, so that exploring a
+ * series by touch costs the same whether it has 50 points or 50,000. Nodes are built on request
+ * from the view's range index, and the view only creates this provider once an accessibility
+ * service asks for it.
+ */
+@TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+class SparkAccessibilityProvider extends AccessibilityNodeProvider {
+    // View.NO_ID is the host itself
+    private static final int INVALID_ID = Integer.MIN_VALUE;
+    // data can change on every frame, content changes are announced at most this often
+    private static final long CONTENT_CHANGED_DELAY_MS = 100;
+
+    private final SparkView host;
+    private final Rect bounds = new Rect();
+    private final int[] location = new int[2];
+    private int focusedBucket = INVALID_ID;
+    private int hoveredBucket = INVALID_ID;
+    private boolean contentChangePending;
+    private final Runnable sendContentChanged = new Runnable() {
+        @Override
+        public void run() {
+            contentChangePending = false;
+            host.sendAccessibilityEvent(AccessibilityEvent.TYPE_WINDOW_CONTENT_CHANGED);
+        }
+    };
+
+    SparkAccessibilityProvider(SparkView host) {
+        this.host = host;
+    }
+
+    @Override
+    public AccessibilityNodeInfo createAccessibilityNodeInfo(int virtualViewId) {
+        if (virtualViewId == View.NO_ID) {
+            final AccessibilityNodeInfo info = AccessibilityNodeInfo.obtain(host);
+            host.onInitializeAccessibilityNodeInfo(info);
+            final int buckets = host.prepareAccessibilityBuckets();
+            for (int i = 0; i < buckets; i++) {
+                info.addChild(host, i);
+            }
+            return info;
+        }
+
+        final int buckets = host.prepareAccessibilityBuckets();
+        if (virtualViewId < 0 || virtualViewId >= buckets) return null;
+        final AccessibilityNodeInfo info = AccessibilityNodeInfo.obtain(host, virtualViewId);
+        info.setPackageName(host.getContext().getPackageName());
+        info.setClassName(SparkView.class.getName());
+        info.setParent(host);
+        info.setSource(host, virtualViewId);
+        info.setEnabled(true);
+        info.setVisibleToUser(true);
+        info.setContentDescription(host.describeAccessibilityBucket(virtualViewId));
+
+        host.getAccessibilityBucketBounds(virtualViewId, bounds);
+        info.setBoundsInParent(bounds);
+        host.getLocationOnScreen(location);
+        bounds.offset(location[0], location[1]);
+        info.setBoundsInScreen(bounds);
+
+        final boolean focused = focusedBucket == virtualViewId;
+        info.setAccessibilityFocused(focused);
+        addFocusAction(info, focused);
+        return info;
+    }
+
+    private static void addFocusAction(AccessibilityNodeInfo info, boolean focused) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            info.addAction(focused
+                    ? AccessibilityNodeInfo.AccessibilityAction.ACTION_CLEAR_ACCESSIBILITY_FOCUS
+                    : AccessibilityNodeInfo.AccessibilityAction.ACTION_ACCESSIBILITY_FOCUS);
+        } else {
+            addLegacyAction(info, focused
+                    ? AccessibilityNodeInfo.ACTION_CLEAR_ACCESSIBILITY_FOCUS
+                    : AccessibilityNodeInfo.ACTION_ACCESSIBILITY_FOCUS);
+        }
+    }
+
+    /**
+     * Deprecated in API 21 in favor of {@link AccessibilityNodeInfo.AccessibilityAction}, which
+     * doesn't exist on older versions.
+     */
+    @SuppressWarnings("deprecation")
+    private static void addLegacyAction(AccessibilityNodeInfo info, int action) {
+        info.addAction(action);
+    }
+
+    @Override
+    public boolean performAction(int virtualViewId, int action, Bundle arguments) {
+        if (virtualViewId == View.NO_ID) {
+            return host.performAccessibilityAction(action, arguments);
+        }
+        switch (action) {
+            case AccessibilityNodeInfo.ACTION_ACCESSIBILITY_FOCUS:
+                if (focusedBucket == virtualViewId) return false;
+                if (focusedBucket != INVALID_ID) {
+                    sendEvent(focusedBucket,
+                            AccessibilityEvent.TYPE_VIEW_ACCESSIBILITY_FOCUS_CLEARED);
+                }
+                focusedBucket = virtualViewId;
+                host.invalidate();
+                sendEvent(virtualViewId, AccessibilityEvent.TYPE_VIEW_ACCESSIBILITY_FOCUSED);
+                return true;
+            case AccessibilityNodeInfo.ACTION_CLEAR_ACCESSIBILITY_FOCUS:
+                if (focusedBucket != virtualViewId) return false;
+                focusedBucket = INVALID_ID;
+                host.invalidate();
+                sendEvent(virtualViewId, AccessibilityEvent.TYPE_VIEW_ACCESSIBILITY_FOCUS_CLEARED);
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Moves the hovered node to the bucket under a touch exploration pointer.
+     *
+     * @return true if the event was over a bucket
+     */
+    boolean onHoverEvent(MotionEvent event) {
+        switch (event.getAction()) {
+            case MotionEvent.ACTION_HOVER_ENTER:
+            case MotionEvent.ACTION_HOVER_MOVE:
+                final int bucket = host.getAccessibilityBucketAt(event.getX());
+                setHoveredBucket(bucket < 0 ? INVALID_ID : bucket);
+                return bucket >= 0;
+            case MotionEvent.ACTION_HOVER_EXIT:
+                if (hoveredBucket == INVALID_ID) return false;
+                setHoveredBucket(INVALID_ID);
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Tells accessibility services that the buckets changed, after the data or scale did. Live
+     * data changes far more often than a service can re-read the nodes, so changes are coalesced
+     * into at most one event per {@value #CONTENT_CHANGED_DELAY_MS}ms.
+     */
+    void onContentChanged() {
+        if (focusedBucket >= host.prepareAccessibilityBuckets()) {
+            focusedBucket = INVALID_ID;
+        }
+        if (contentChangePending) return;
+        contentChangePending = true;
+        host.postDelayed(sendContentChanged, CONTENT_CHANGED_DELAY_MS);
+    }
+
+    /**
+     * Drops a pending content change event, once the host is detached and there is no one to
+     * tell.
+     */
+    void cancelPendingEvents() {
+        if (!contentChangePending) return;
+        contentChangePending = false;
+        host.removeCallbacks(sendContentChanged);
+    }
+
+    private void setHoveredBucket(int bucket) {
+        if (bucket == hoveredBucket) return;
+        final int previous = hoveredBucket;
+        hoveredBucket = bucket;
+        // the new bucket is announced before the old one is left, like ExploreByTouchHelper
+        if (bucket != INVALID_ID) {
+            sendEvent(bucket, AccessibilityEvent.TYPE_VIEW_HOVER_ENTER);
+        }
+        if (previous != INVALID_ID) {
+            sendEvent(previous, AccessibilityEvent.TYPE_VIEW_HOVER_EXIT);
+        }
+    }
+
+    private void sendEvent(int virtualViewId, int eventType) {
+        if (host.getParent() == null) return;
+        final AccessibilityEvent event = AccessibilityEvent.obtain(eventType);
+        event.setPackageName(host.getContext().getPackageName());
+        event.setClassName(SparkView.class.getName());
+        event.setSource(host, virtualViewId);
+        event.setEnabled(true);
+        event.setContentDescription(host.describeAccessibilityBucket(virtualViewId));
+        host.getParent().requestSendAccessibilityEvent(host, event);
+    }
+}
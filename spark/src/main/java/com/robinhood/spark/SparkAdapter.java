@@ -21,12 +21,24 @@ import android.database.DataSetObserver;
 import android.graphics.RectF;
 import android.support.annotation.VisibleForTesting;
 
+import java.util.Random;
+
 /**
  * A simple adapter class - evenly distributes your points along the x axis, does not draw a base
  * line, and has support for registering/notifying {@link DataSetObserver}s when data is changed.
  */
 public abstract class SparkAdapter {
+    // seeds each adapter's data version, so a recreated adapter never matches an old one
+    private static final Random VERSION_SEED = new Random();
+
     private final DataSetObservable observable = new DataSetObservable();
+    private long dataVersion = VERSION_SEED.nextLong();
+    // counts notifications, so observers can tell which points changed since they last read
+    private long changeCount;
+    // the union of the ranges notified since changeCount was rangeBase, or -1 if unknown
+    private long rangeBase = -1;
+    private int rangeStart;
+    private int rangeEnd;
 
     /**
      * @return the number of points to be drawn
@@ -62,9 +74,38 @@ public abstract class SparkAdapter {
      *     <li>bottom = the maximum Y value</li>
      * </ul>
      *
+     * <p>{@link SparkView} reads the bounds through {@link #getDataBounds(RectF)}, which calls
+     * this method unless it is overridden as well.
+     *
      * @return a RectF of the bounds desired around this adapter's data.
      */
     public RectF getDataBounds() {
+        final RectF bounds = createRectF(0, 0, 0, 0);
+        computeDataBounds(bounds);
+        return bounds;
+    }
+
+    /**
+     * Fills {@code outBounds} with the boundaries of the entire dataset, following the same rules
+     * as {@link #getDataBounds()}. By default the bounds are copied from {@link #getDataBounds()},
+     * so adapters overriding that method keep working, at the cost of a RectF per call. Adapters
+     * whose data changes often should override this method instead, calling
+     * {@link #computeDataBounds(RectF)} for the default bounds, so updates don't allocate.
+     *
+     * @param outBounds    the rect to fill
+     */
+    public void getDataBounds(RectF outBounds) {
+        final RectF bounds = getDataBounds();
+        setRect(outBounds, bounds.left, bounds.top, bounds.right, bounds.bottom);
+    }
+
+    /**
+     * Fills {@code outBounds} with the min and max of the adapter's points and its base line,
+     * the default bounds described in {@link #getDataBounds()}. Doesn't allocate.
+     *
+     * @param outBounds    the rect to fill
+     */
+    protected void computeDataBounds(RectF outBounds) {
         final int count = getCount();
         final boolean hasBaseLine = hasBaseLine();
 
@@ -72,6 +113,18 @@ public abstract class SparkAdapter {
         float maxY = hasBaseLine ? minY : -Float.MAX_VALUE;
         float minX = Float.MAX_VALUE;
         float maxX = -Float.MAX_VALUE;
+
+        // an up to date pyramid already knows the extremes, and requires sorted x values
+        final LodPyramid pyramid = getLodPyramid();
+        if (pyramid != null && pyramid.getLevelCount() > 0 && pyramid.getCount() == count) {
+            minX = getX(0);
+            maxX = getX(count - 1);
+            minY = Math.min(minY, pyramid.getMinY());
+            maxY = Math.max(maxY, pyramid.getMaxY());
+            setRect(outBounds, minX, minY, maxX, maxY);
+            return;
+        }
+
         for (int i = 0; i < count; i++) {
             final float x = getX(i);
             minX = Math.min(minX, x);
@@ -82,8 +135,54 @@ public abstract class SparkAdapter {
             maxY = Math.max(maxY, y);
         }
 
-        // set values on the return object
-        return createRectF(minX, minY, maxX, maxY);
+        // set values on the given object
+        setRect(outBounds, minX, minY, maxX, maxY);
+    }
+
+    /**
+     * Sets the rect's fields directly rather than through {@link RectF#set}, which is a stub in
+     * unit tests.
+     */
+    static void setRect(RectF rect, float left, float top, float right, float bottom) {
+        rect.left = left;
+        rect.top = top;
+        rect.right = right;
+        rect.bottom = bottom;
+    }
+
+    /**
+     * @return the number of notifications so far, to pass to {@link #getChangedRange} later.
+     */
+    long getChangeCount() {
+        return changeCount;
+    }
+
+    /**
+     * Fills {@code outRange} with a range [start, end) covering every point that changed since
+     * {@link #getChangeCount()} returned {@code sinceChangeCount}.
+     *
+     * @return false if that isn't known, because a notification since then didn't give a range
+     */
+    boolean getChangedRange(long sinceChangeCount, int[] outRange) {
+        if (rangeBase < 0 || sinceChangeCount < rangeBase || sinceChangeCount > changeCount) {
+            return false;
+        }
+        outRange[0] = rangeStart;
+        outRange[1] = rangeEnd;
+        return true;
+    }
+
+    /**
+     * @return the index of the first point that may have changed since {@link #getChangeCount()}
+     * returned {@code sinceChangeCount}: the start of the notified range, 0 if a notification
+     * since then didn't give a range, or {@link Integer#MAX_VALUE} if there were none.
+     */
+    int getFirstChangedIndex(long sinceChangeCount) {
+        if (sinceChangeCount == changeCount) return Integer.MAX_VALUE;
+        if (rangeBase < 0 || sinceChangeCount < rangeBase || sinceChangeCount > changeCount) {
+            return 0;
+        }
+        return rangeStart;
     }
 
     /**
@@ -94,6 +193,15 @@ public abstract class SparkAdapter {
         return new RectF(left, top, right, bottom);
     }
 
+    /**
+     * @return a {@link LodPyramid} summarizing this adapter's points, or null (the default) to
+     * always draw every point. Adapters with very large data sets can return a pyramid so that
+     * {@link SparkView} only reads about as many points as it has pixels across.
+     */
+    public LodPyramid getLodPyramid() {
+        return null;
+    }
+
     /**
      * @return true if you wish to draw a "base line" - a horizontal line across the graph used
      * to compare the rest of the graph's points against.
@@ -109,11 +217,52 @@ public abstract class SparkAdapter {
         return 0;
     }
 
+    /**
+     * @return a number that changes whenever this adapter's data changes. {@link SparkView} saves
+     * it with its instance state and only reuses the saved points if the version still matches,
+     * so a recreated view doesn't have to read the adapter again. By default this counts the
+     * calls to {@link #notifyDataSetChanged()} from a random start, which suits adapters retained
+     * across configuration changes: a recreated adapter starts elsewhere, so its points are read
+     * again even if it holds different data behind the same count and end points. Adapters that
+     * are recreated with their data can return a version that survives that, such as the time the
+     * data was loaded, and must change it whenever any point changes.
+     */
+    public long getDataVersion() {
+        return dataVersion;
+    }
+
     /**
      * Notifies the attached observers that the underlying data has been changed and any View
      * reflecting the data set should refresh itself.
      */
     public final void notifyDataSetChanged() {
+        dataVersion++;
+        changeCount++;
+        rangeBase = -1;
+        observable.notifyChanged();
+    }
+
+    /**
+     * Notifies the attached observers that only the points in [start, end) have changed, or were
+     * appended when {@code start} is the previous count. {@link SparkView} then reads just those
+     * points again, which saves a pass over large adapters that change a little at a time, and
+     * a {@link TransformPipeline} or {@link LodPyramid} only processes appended points rather
+     * than everything. After {@link #notifyDataSetChanged()}, they process every point again.
+     *
+     * @param start    the index of the first changed point
+     * @param end      one past the index of the last changed point
+     */
+    public final void notifyDataRangeChanged(int start, int end) {
+        if (rangeBase < 0) {
+            rangeBase = changeCount;
+            rangeStart = start;
+            rangeEnd = end;
+        } else {
+            rangeStart = Math.min(rangeStart, start);
+            rangeEnd = Math.max(rangeEnd, end);
+        }
+        dataVersion++;
+        changeCount++;
         observable.notifyChanged();
     }
 
@@ -123,6 +272,9 @@ public abstract class SparkAdapter {
      * changes.
      */
     public final void notifyDataSetInvalidated() {
+        dataVersion++;
+        changeCount++;
+        rangeBase = -1;
         observable.notifyInvalidated();
     }
 
@@ -0,0 +1,193 @@
+/**
+ * Copyright (C) 2016 Robinhood Markets, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.robinhood.spark;
+
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.support.annotation.ColorInt;
+
+/**
+ * A layer of point markers, such as trades or dividends, drawn on top of a {@link SparkView}'s
+ * sparkline at the same scale. Markers are kept in primitive arrays and drawn with a single
+ * {@link android.graphics.Canvas#drawPoints} call, so thousands of them cost little more than
+ * one. While scrubbing, the view reports the nearest marker through a
+ * {@link SparkView.OnMarkerScrubListener}, found with a bucketed index over the markers' X values:
+ *
+ * <pre>{@code
+ * SparkMarkers trades = new SparkMarkers(Color.GREEN, markerSize);
+ * for (Trade trade : trades) {
+ *     trades.add(trade.time, trade.price);
+ * }
+ * sparkView.addMarkers(trades);
+ * }</pre>
+ *
+ * <p>Markers are identified by the order they were added in. They don't affect the view's bounds.
+ */
+public final class SparkMarkers {
+    private final Paint paint;
+
+    // data space positions
+    float[] xs = new float[16];
+    float[] ys = new float[16];
+    int count;
+    final MarkerIndex index = new MarkerIndex();
+    private boolean indexed;
+
+    // owned by the view the markers are added to: interleaved pixel positions, and a callback
+    // that schedules their update
+    float[] points = new float[0];
+    int mappedCount;
+    Runnable changeListener;
+
+    /**
+     * @param paint the paint to draw the markers with; its stroke width and cap set the size and
+     *              shape of each marker
+     */
+    public SparkMarkers(Paint paint) {
+        if (paint == null) {
+            throw new NullPointerException("Arguments cannot be null");
+        }
+        this.paint = paint;
+    }
+
+    /**
+     * Creates a layer of anti-aliased round markers of the given color and diameter in pixels.
+     */
+    public SparkMarkers(@ColorInt int color, float size) {
+        this(createPaint(color, size));
+    }
+
+    /**
+     * Get the {@link Paint} used to draw the markers. Any custom modifications to this
+     * {@link Paint} will not reflect until the view is next invalidated.
+     */
+    public Paint getPaint() {
+        return paint;
+    }
+
+    /**
+     * Adds a marker at the given data space position.
+     *
+     * @return the marker's index
+     */
+    public int add(float x, float y) {
+        if (count == xs.length) {
+            xs = grow(xs, count * 2);
+            ys = grow(ys, count * 2);
+        }
+        xs[count] = x;
+        ys[count] = y;
+        onChanged();
+        return count++;
+    }
+
+    /**
+     * Replaces all markers with the first {@code count} of the given positions.
+     */
+    public void set(float[] xs, float[] ys, int count) {
+        if (this.xs.length < count) {
+            this.xs = new float[count];
+            this.ys = new float[count];
+        }
+        System.arraycopy(xs, 0, this.xs, 0, count);
+        System.arraycopy(ys, 0, this.ys, 0, count);
+        this.count = count;
+        onChanged();
+    }
+
+    public void clear() {
+        count = 0;
+        onChanged();
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public float getX(int index) {
+        return xs[index];
+    }
+
+    public float getY(int index) {
+        return ys[index];
+    }
+
+    /**
+     * @return the index of the marker whose X value is nearest to the given one, or -1 if there
+     * are no markers.
+     */
+    public int getNearestIndex(float x) {
+        if (!indexed) {
+            index.build(xs, count);
+            indexed = true;
+        }
+        return index.nearest(xs, x);
+    }
+
+    /**
+     * Maps the markers to pixels with the given matrix, into {@link #points}.
+     */
+    void map(Matrix matrix) {
+        if (points.length < count * 2) {
+            points = new float[count * 2];
+        }
+        for (int i = 0; i < count; i++) {
+            points[i * 2] = xs[i];
+            points[i * 2 + 1] = ys[i];
+        }
+        matrix.mapPoints(points, 0, points, 0, count);
+        mappedCount = count;
+    }
+
+    /**
+     * Releases the pixel positions. They are mapped again on the view's next update.
+     */
+    void trim() {
+        points = new float[0];
+        mappedCount = 0;
+    }
+
+    /**
+     * @return the approximate heap bytes held by the markers and their index.
+     */
+    long getApproximateBytes() {
+        return SparkMemoryUsage.arrayBytes(xs) + SparkMemoryUsage.arrayBytes(ys)
+                + SparkMemoryUsage.arrayBytes(points) + index.getApproximateBytes();
+    }
+
+    private void onChanged() {
+        indexed = false;
+        if (changeListener != null) {
+            changeListener.run();
+        }
+    }
+
+    private static float[] grow(float[] values, int size) {
+        final float[] newValues = new float[size];
+        System.arraycopy(values, 0, newValues, 0, values.length);
+        return newValues;
+    }
+
+    private static Paint createPaint(@ColorInt int color, float size) {
+        final Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        paint.setStyle(Paint.Style.STROKE);
+        paint.setStrokeCap(Paint.Cap.ROUND);
+        paint.setColor(color);
+        paint.setStrokeWidth(size);
+        return paint;
+    }
+}
@@ -0,0 +1,98 @@
+/**
+ * Copyright (C) 2016 Robinhood Markets, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.robinhood.spark;
+
+/**
+ * An estimate of the memory held by a {@link SparkView}, split into the Java heap and the native
+ * heap that backs its {@link android.graphics.Path}s. Native sizes are estimated from the number of
+ * points in each path, as the platform doesn't expose them.
+ */
+public final class SparkMemoryUsage {
+    // SkPath keeps a point (2 floats) and a verb byte per point, plus a fixed sized header
+    private static final int PATH_BYTES = 64;
+    private static final int PATH_BYTES_PER_POINT = 9;
+    static final int ARRAY_HEADER_BYTES = 16;
+
+    private final long javaBytes;
+    private final long nativeBytes;
+    private final long sharedJavaBytes;
+
+    SparkMemoryUsage(long javaBytes, long nativeBytes, long sharedJavaBytes) {
+        this.javaBytes = javaBytes;
+        this.nativeBytes = nativeBytes;
+        this.sharedJavaBytes = sharedJavaBytes;
+    }
+
+    /**
+     * @return the approximate Java heap bytes held by the view's own buffers: its copy of the
+     * adapter's points, the smoothing control points and other scratch arrays.
+     */
+    public long getJavaBytes() {
+        return javaBytes;
+    }
+
+    /**
+     * @return the approximate native heap bytes held by the view's paths and tiles.
+     */
+    public long getNativeBytes() {
+        return nativeBytes;
+    }
+
+    /**
+     * @return the approximate Java heap bytes held by caches owned by the adapter, such as its
+     * {@link LodPyramid}. These may be shared with other views using the same adapter, so they
+     * aren't included in {@link #getJavaBytes()}.
+     */
+    public long getSharedJavaBytes() {
+        return sharedJavaBytes;
+    }
+
+    /**
+     * @return the sum of the view's Java and native bytes, excluding shared caches.
+     */
+    public long getTotalBytes() {
+        return javaBytes + nativeBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "SparkMemoryUsage{java=" + javaBytes + ", native=" + nativeBytes
+                + ", shared=" + sharedJavaBytes + "}";
+    }
+
+    /**
+     * @return the approximate native size of a path holding the given number of points.
+     */
+    static long pathBytes(int points) {
+        return PATH_BYTES + (long) points * PATH_BYTES_PER_POINT;
+    }
+
+    /**
+     * @return the approximate heap size of an array, or 0 if it is null.
+     */
+    static long arrayBytes(float[] array) {
+        return array == null ? 0 : ARRAY_HEADER_BYTES + (long) array.length * 4;
+    }
+
+    static long arrayBytes(int[] array) {
+        return array == null ? 0 : ARRAY_HEADER_BYTES + (long) array.length * 4;
+    }
+
+    static long arrayBytes(long[] array) {
+        return array == null ? 0 : ARRAY_HEADER_BYTES + (long) array.length * 8;
+    }
+}
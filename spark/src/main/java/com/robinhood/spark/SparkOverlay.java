@@ -0,0 +1,131 @@
+/**
+ * Copyright (C) 2016 Robinhood Markets, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.robinhood.spark;
+
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.support.annotation.ColorInt;
+
+/**
+ * A line derived from a {@link SparkView}'s adapter, such as a moving average, drawn in the same
+ * view and at the same scale as the sparkline itself. The derived values are computed by a
+ * {@link TransformPipeline}, so new points announced with
+ * {@link SparkAdapter#notifyDataRangeChanged(int, int)} only cost the work for themselves:
+ *
+ * <pre>{@code
+ * sparkView.addOverlay(new SparkOverlay(
+ *         new TransformPipeline(TransformStage.movingAverage(20)), Color.BLUE, lineWidth));
+ * }</pre>
+ *
+ * <p>Overlays don't affect the view's bounds, so derived values should stay within the range of
+ * the source data, as averages and rolling extremes do.
+ */
+public final class SparkOverlay {
+    private final TransformPipeline pipeline;
+    private final Paint paint;
+
+    // owned by the view the overlay is added to
+    final DataSnapshot snapshot = new DataSnapshot();
+    final Path dataPath = new Path();
+    final Path path = new Path();
+    // the number of snapshot points in dataPath
+    int pathCount;
+
+    /**
+     * @param pipeline  computes the overlay's points from the adapter's points
+     * @param paint     the paint to stroke the overlay with
+     */
+    public SparkOverlay(TransformPipeline pipeline, Paint paint) {
+        if (pipeline == null || paint == null) {
+            throw new NullPointerException("Arguments cannot be null");
+        }
+        this.pipeline = pipeline;
+        this.paint = paint;
+    }
+
+    /**
+     * Creates an overlay stroked with an anti-aliased line of the given color and width.
+     */
+    public SparkOverlay(TransformPipeline pipeline, @ColorInt int color, float lineWidth) {
+        this(pipeline, createPaint(color, lineWidth));
+    }
+
+    public TransformPipeline getPipeline() {
+        return pipeline;
+    }
+
+    /**
+     * Get the {@link Paint} used to draw the overlay. Any custom modifications to this
+     * {@link Paint} will not reflect until the view is next invalidated.
+     */
+    public Paint getPaint() {
+        return paint;
+    }
+
+    /**
+     * Brings the overlay's points up to date with the adapter, and its data space path with them.
+     * Appended points are added to the end of the path; anything else rebuilds it.
+     *
+     * @return true if anything changed
+     */
+    boolean update(SparkAdapter adapter) {
+        if (!pipeline.update(adapter, snapshot)) return false;
+
+        final int count = snapshot.count;
+        int start = pathCount;
+        if (snapshot.changeStart < pathCount || pathCount == 0) {
+            dataPath.reset();
+            start = 0;
+        }
+        for (int i = start; i < count; i++) {
+            if (i == 0) {
+                dataPath.moveTo(snapshot.xs[0], snapshot.ys[0]);
+            } else {
+                dataPath.lineTo(snapshot.xs[i], snapshot.ys[i]);
+            }
+        }
+        pathCount = count;
+        return true;
+    }
+
+    /**
+     * Forgets the overlay's points and paths, so the next update rebuilds them.
+     */
+    void clear() {
+        snapshot.clear();
+        dataPath.reset();
+        path.reset();
+        pathCount = 0;
+    }
+
+    /**
+     * Clears the overlay and releases its buffers.
+     */
+    void trim() {
+        clear();
+        snapshot.trim();
+    }
+
+    private static Paint createPaint(@ColorInt int color, float lineWidth) {
+        final Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        paint.setStyle(Paint.Style.STROKE);
+        paint.setStrokeCap(Paint.Cap.ROUND);
+        paint.setColor(color);
+        paint.setStrokeWidth(lineWidth);
+        return paint;
+    }
+}
@@ -0,0 +1,475 @@
+/**
+ * Copyright (C) 2016 Robinhood Markets, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.robinhood.spark;
+
+import android.content.Context;
+import android.content.res.TypedArray;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.RectF;
+import android.support.annotation.ColorInt;
+import android.support.annotation.VisibleForTesting;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Draws sparklines straight into {@link Bitmap}s, without a {@link SparkView}, for home screen
+ * widgets, notifications and other places a view can't go. The geometry is built the same way as
+ * {@link SparkView}'s, so an image matches a view of the same size and style.
+ *
+ * <p>A renderer reuses its paths, buffers and canvas between calls and may be used from any
+ * thread, but only from one thread at a time; create one per worker thread to render in parallel.
+ * Bitmaps are pooled by size, so rendering a list of symbols over and over doesn't allocate:
+ * <pre>{@code
+ * List<Bitmap> thumbnails = renderer.render(adapters, width, height);
+ * ...
+ * renderer.releaseBitmaps(thumbnails);
+ * }</pre>
+ */
+public final class SparkRenderer {
+    private static final int DEFAULT_MAX_POOL_SIZE = 32;
+
+    @ColorInt private int backgroundColor = Color.TRANSPARENT;
+    private float lineWidth;
+    private float cornerRadius;
+    @SparkView.LineSmoothing private int lineSmoothing;
+    private boolean fill;
+    @ColorInt private int belowBaseLineColor;
+    private boolean hasBelowBaseLineColor;
+    private int paddingLeft;
+    private int paddingTop;
+    private int paddingRight;
+    private int paddingBottom;
+
+    private final Paint sparkLinePaint;
+    private final Paint baseLinePaint;
+    private final Canvas canvas;
+    final DataSnapshot snapshot = new DataSnapshot();
+    private final SparkView.ScaleHelper scaleHelper = new SparkView.ScaleHelper();
+    private final RectF dataBounds = new RectF();
+    private final RectF contentRect = new RectF();
+    private final Matrix scaleMatrix;
+    private final Path dataPath;
+    private final Path sparkPath;
+    private final ArraysAdapter arraysAdapter = new ArraysAdapter();
+    private final List<Bitmap> pool = new ArrayList<>();
+    private int maxPoolSize = DEFAULT_MAX_POOL_SIZE;
+
+    // the points to draw, prepared the same way as by the image renderer
+    final SeriesPoints points = new SeriesPoints();
+    private final SmoothingHelper.Curve curve = new SmoothingHelper.Curve();
+
+    /**
+     * Creates a renderer styled like a {@link SparkView} in the given context's theme, including
+     * any {@code spark_SparkViewStyle} it sets.
+     */
+    public SparkRenderer(Context context) {
+        this(new Paint(Paint.ANTI_ALIAS_FLAG), new Paint(Paint.ANTI_ALIAS_FLAG), new Canvas(),
+                new Matrix(), new Path(), new Path());
+        TypedArray a = context.obtainStyledAttributes(null, R.styleable.spark_SparkView,
+                R.attr.spark_SparkViewStyle, R.style.spark_SparkView);
+        final int lineColor = a.getColor(R.styleable.spark_SparkView_spark_lineColor, 0);
+        lineWidth = a.getDimension(R.styleable.spark_SparkView_spark_lineWidth, 0);
+        cornerRadius = a.getDimension(R.styleable.spark_SparkView_spark_cornerRadius, 0);
+        //noinspection WrongConstant
+        lineSmoothing = a.getInt(R.styleable.spark_SparkView_spark_lineSmoothing,
+                SparkView.SMOOTHING_NONE);
+        fill = a.getBoolean(R.styleable.spark_SparkView_spark_fill, false);
+        final int baseLineColor = a.getColor(R.styleable.spark_SparkView_spark_baseLineColor, 0);
+        final float baseLineWidth =
+                a.getDimension(R.styleable.spark_SparkView_spark_baseLineWidth, 0);
+        hasBelowBaseLineColor = a.hasValue(R.styleable.spark_SparkView_spark_belowBaseLineColor);
+        belowBaseLineColor = a.getColor(R.styleable.spark_SparkView_spark_belowBaseLineColor, 0);
+        a.recycle();
+
+        SparkView.initSparkLinePaint(sparkLinePaint, lineColor, lineWidth, fill);
+        updatePathEffect();
+        SparkView.initBaseLinePaint(baseLinePaint, baseLineColor, baseLineWidth);
+    }
+
+    /**
+     * Hook for unit tests, which can't create the framework's drawing objects
+     */
+    @VisibleForTesting
+    SparkRenderer(Paint sparkLinePaint, Paint baseLinePaint, Canvas canvas, Matrix scaleMatrix,
+            Path dataPath, Path sparkPath) {
+        this.sparkLinePaint = sparkLinePaint;
+        this.baseLinePaint = baseLinePaint;
+        this.canvas = canvas;
+        this.scaleMatrix = scaleMatrix;
+        this.dataPath = dataPath;
+        this.sparkPath = sparkPath;
+    }
+
+    /**
+     * Get the color bitmaps are cleared to before drawing.
+     */
+    @ColorInt public int getBackgroundColor() {
+        return backgroundColor;
+    }
+
+    /**
+     * Set the color bitmaps are cleared to before drawing. Transparent by default.
+     */
+    public void setBackgroundColor(@ColorInt int backgroundColor) {
+        this.backgroundColor = backgroundColor;
+    }
+
+    /**
+     * Get the color of the sparkline
+     */
+    @ColorInt public int getLineColor() {
+        return sparkLinePaint.getColor();
+    }
+
+    /**
+     * Set the color of the sparkline
+     */
+    public void setLineColor(@ColorInt int lineColor) {
+        sparkLinePaint.setColor(lineColor);
+    }
+
+    /**
+     * Get the color of the parts of the sparkline below the base line. Unless set, the whole
+     * sparkline is drawn in the line color.
+     */
+    @ColorInt public int getBelowBaseLineColor() {
+        return hasBelowBaseLineColor ? belowBaseLineColor : sparkLinePaint.getColor();
+    }
+
+    /**
+     * Set the color of the parts of the sparkline, or its fill, below the base line, as with
+     * {@link SparkView#setBelowBaseLineColor(int)}.
+     */
+    public void setBelowBaseLineColor(@ColorInt int belowBaseLineColor) {
+        this.belowBaseLineColor = belowBaseLineColor;
+        hasBelowBaseLineColor = true;
+    }
+
+    /**
+     * Draw the whole sparkline in the line color again, undoing
+     * {@link #setBelowBaseLineColor(int)}.
+     */
+    public void clearBelowBaseLineColor() {
+        hasBelowBaseLineColor = false;
+    }
+
+    /**
+     * Get the width in pixels of the sparkline's stroke
+     */
+    public float getLineWidth() {
+        return lineWidth;
+    }
+
+    /**
+     * Set the width in pixels of the sparkline's stroke
+     */
+    public void setLineWidth(float lineWidth) {
+        this.lineWidth = lineWidth;
+        sparkLinePaint.setStrokeWidth(lineWidth);
+    }
+
+    /**
+     * Get the corner radius in pixels used when rounding the sparkline's segments.
+     */
+    public float getCornerRadius() {
+        return cornerRadius;
+    }
+
+    /**
+     * Set the corner radius in pixels to use when rounding the sparkline's segments. Passing 0
+     * indicates that corners should not be rounded. Ignored while smoothing.
+     */
+    public void setCornerRadius(float cornerRadius) {
+        this.cornerRadius = cornerRadius;
+        updatePathEffect();
+    }
+
+    /**
+     * Get the smoothing applied to the sparkline, one of {@link SparkView#SMOOTHING_NONE},
+     * {@link SparkView#SMOOTHING_MONOTONE_CUBIC} or {@link SparkView#SMOOTHING_CATMULL_ROM}.
+     */
+    @SparkView.LineSmoothing public int getLineSmoothing() {
+        return lineSmoothing;
+    }
+
+    /**
+     * Set the smoothing applied to the sparkline, as with
+     * {@link SparkView#setLineSmoothing(int)}.
+     */
+    public void setLineSmoothing(@SparkView.LineSmoothing int lineSmoothing) {
+        this.lineSmoothing = lineSmoothing;
+        updatePathEffect();
+    }
+
+    /**
+     * Whether or not to fill the area under the sparkline.
+     */
+    public boolean isFill() {
+        return fill;
+    }
+
+    /**
+     * Set whether or not to fill the area under the sparkline.
+     */
+    public void setFill(boolean fill) {
+        this.fill = fill;
+        sparkLinePaint.setStyle(SparkView.getSparkLineStyle(fill));
+    }
+
+    /**
+     * Get the color of the base line
+     */
+    @ColorInt public int getBaseLineColor() {
+        return baseLinePaint.getColor();
+    }
+
+    /**
+     * Set the color of the base line
+     */
+    public void setBaseLineColor(@ColorInt int baseLineColor) {
+        baseLinePaint.setColor(baseLineColor);
+    }
+
+    /**
+     * Get the width in pixels of the base line's stroke
+     */
+    public float getBaseLineWidth() {
+        return baseLinePaint.getStrokeWidth();
+    }
+
+    /**
+     * Set the width in pixels of the base line's stroke
+     */
+    public void setBaseLineWidth(float baseLineWidth) {
+        baseLinePaint.setStrokeWidth(baseLineWidth);
+    }
+
+    /**
+     * Set the padding in pixels between the bitmap's edges and the sparkline.
+     */
+    public void setPadding(int left, int top, int right, int bottom) {
+        paddingLeft = left;
+        paddingTop = top;
+        paddingRight = right;
+        paddingBottom = bottom;
+    }
+
+    /**
+     * Set the maximum number of released bitmaps kept for reuse. Bitmaps released beyond it are
+     * recycled.
+     */
+    public void setMaxPoolSize(int maxPoolSize) {
+        this.maxPoolSize = maxPoolSize;
+        while (pool.size() > maxPoolSize) {
+            pool.remove(pool.size() - 1).recycle();
+        }
+    }
+
+    /**
+     * Gets a mutable bitmap of the given size, reusing a released one if the pool has one.
+     */
+    public Bitmap obtainBitmap(int width, int height) {
+        for (int i = pool.size() - 1; i >= 0; i--) {
+            final Bitmap bitmap = pool.get(i);
+            if (bitmap.getWidth() == width && bitmap.getHeight() == height) {
+                pool.remove(i);
+                return bitmap;
+            }
+        }
+        return Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+    }
+
+    /**
+     * Returns a bitmap to the pool, once it is no longer displayed or written anywhere.
+     */
+    public void releaseBitmap(Bitmap bitmap) {
+        if (bitmap.isRecycled()) return;
+        if (pool.size() < maxPoolSize && bitmap.isMutable()) {
+            pool.add(bitmap);
+        } else {
+            bitmap.recycle();
+        }
+    }
+
+    /**
+     * Returns all of the given bitmaps to the pool, such as those from
+     * {@link #render(List, int, int)}.
+     */
+    public void releaseBitmaps(List<Bitmap> bitmaps) {
+        for (int i = 0, size = bitmaps.size(); i < size; i++) {
+            releaseBitmap(bitmaps.get(i));
+        }
+    }
+
+    /**
+     * Recycles every pooled bitmap.
+     */
+    public void clearPool() {
+        for (int i = 0, size = pool.size(); i < size; i++) {
+            pool.get(i).recycle();
+        }
+        pool.clear();
+    }
+
+    /**
+     * Renders each adapter into a bitmap of the given size obtained from the pool, in order.
+     * Release them with {@link #releaseBitmaps(List)} when they are no longer used.
+     */
+    public List<Bitmap> render(List<? extends SparkAdapter> adapters, int width, int height) {
+        final List<Bitmap> bitmaps = new ArrayList<>(adapters.size());
+        for (int i = 0, size = adapters.size(); i < size; i++) {
+            final Bitmap bitmap = obtainBitmap(width, height);
+            render(adapters.get(i), bitmap);
+            bitmaps.add(bitmap);
+        }
+        return bitmaps;
+    }
+
+    /**
+     * Renders the first {@code count} points into the given mutable bitmap.
+     *
+     * @param xData the X values, or null to evenly distribute the points by index
+     */
+    public void render(float[] xData, float[] yData, int count, Bitmap bitmap) {
+        arraysAdapter.set(xData, yData, count);
+        try {
+            render(arraysAdapter, bitmap);
+        } finally {
+            arraysAdapter.set(null, null, 0);
+        }
+    }
+
+    /**
+     * Renders the adapter's points into the given mutable bitmap, replacing its contents. Series
+     * with more points than the bitmap has pixels are reduced to the min and max of each pixel
+     * column first, so the cost of drawing depends on the bitmap's width.
+     */
+    public void render(SparkAdapter adapter, Bitmap bitmap) {
+        final int width = bitmap.getWidth();
+        final int height = bitmap.getHeight();
+        bitmap.eraseColor(backgroundColor);
+
+        snapshot.update(adapter);
+        if (snapshot.count < 2) return;
+
+        adapter.getDataBounds(dataBounds);
+        final int contentWidth = width - paddingLeft - paddingRight;
+        final int contentHeight = height - paddingTop - paddingBottom;
+        if (contentWidth <= 0 || contentHeight <= 0) return;
+        SparkAdapter.setRect(contentRect,
+                paddingLeft, paddingTop, width - paddingRight, height - paddingBottom);
+        scaleHelper.set(dataBounds, snapshot.count, contentRect, lineWidth, fill);
+        scaleHelper.toMatrix(scaleMatrix);
+
+        final int count = preparePoints(contentWidth);
+        final float[] xs = points.xs;
+        final float[] ys = points.ys;
+        final boolean smooth = lineSmoothing != SparkView.SMOOTHING_NONE;
+        if (smooth) {
+            curve.update(xs, ys, count, lineSmoothing == SparkView.SMOOTHING_MONOTONE_CUBIC);
+        }
+        SparkView.populatePath(dataPath, xs, ys, count, smooth ? curve.controlPoints : null);
+        dataPath.transform(scaleMatrix, sparkPath);
+        final boolean splitAtBaseLine = hasBelowBaseLineColor && snapshot.hasBaseLine;
+        final float baseLine = scaleHelper.getY(snapshot.baseLine);
+        if (fill) {
+            SparkView.closeFill(sparkPath, scaleHelper.getX(xs[0]),
+                    scaleHelper.getX(xs[count - 1]),
+                    splitAtBaseLine ? baseLine : height - paddingBottom);
+        }
+
+        canvas.setBitmap(bitmap);
+        if (snapshot.hasBaseLine) {
+            canvas.drawLine(0, baseLine, width, baseLine, baseLinePaint);
+        }
+        if (splitAtBaseLine) {
+            // clipped on either side of the base line, as SparkView draws it
+            final int color = sparkLinePaint.getColor();
+            canvas.save();
+            canvas.clipRect(0, 0, width, baseLine);
+            canvas.drawPath(sparkPath, sparkLinePaint);
+            canvas.restore();
+
+            canvas.save();
+            canvas.clipRect(0, baseLine, width, height);
+            sparkLinePaint.setColor(belowBaseLineColor);
+            canvas.drawPath(sparkPath, sparkLinePaint);
+            sparkLinePaint.setColor(color);
+            canvas.restore();
+        } else {
+            canvas.drawPath(sparkPath, sparkLinePaint);
+        }
+        canvas.setBitmap(null);
+    }
+
+    /**
+     * Prepares the snapshot's points in {@linkplain #points}, decimated to two points per pixel
+     * column when there are more.
+     *
+     * @return the number of points to draw
+     */
+    @VisibleForTesting
+    int preparePoints(int columns) {
+        return points.prepare(snapshot.xs, snapshot.ys, snapshot.count, columns);
+    }
+
+    private void updatePathEffect() {
+        SparkView.updatePathEffect(sparkLinePaint, cornerRadius, lineSmoothing);
+    }
+
+    /**
+     * Exposes the arrays passed to {@link #render(float[], float[], int, Bitmap)} as an adapter,
+     * so they take the same bulk copy as any {@link ArraySparkAdapter}.
+     */
+    private static class ArraysAdapter extends ArraySparkAdapter {
+        private float[] xData;
+        private float[] yData;
+        private int count;
+
+        void set(float[] xData, float[] yData, int count) {
+            this.xData = xData;
+            this.yData = yData;
+            this.count = count;
+        }
+
+        @Override
+        public int getCount() {
+            return count;
+        }
+
+        @Override
+        public Object getItem(int index) {
+            return yData[index];
+        }
+
+        @Override
+        public float[] getYData() {
+            return yData;
+        }
+
+        @Override
+        public float[] getXData() {
+            return xData;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/**
+ * Copyright (C) 2016 Robinhood Markets, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.robinhood.spark;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Links the scrubbing of several {@link SparkView}s that share a time axis, such as stacked
+ * price, volume and P/L charts: scrubbing any member moves the scrub line on every member, and
+ * each member's {@link SparkView.OnScrubListener} is told about its own point at that time.
+ *
+ * <p>The group keeps a copy of its first member's X values as the shared timeline, so each scrub
+ * event costs one search no matter how many charts are linked. Members whose X values match the
+ * timeline use the found index directly; others fall back to searching their own points. Each
+ * member only invalidates the strip its scrub line moved across, which limits the redrawn area in
+ * software rendering; hardware accelerated views redraw in full on API 21 and later regardless.
+ *
+ * <p>Views only belong to the group while attached to a window, so a group can outlive the
+ * screens it links without leaking their views.
+ *
+ * <pre>{@code
+ * SparkScrubGroup group = new SparkScrubGroup();
+ * priceView.setScrubGroup(group);
+ * volumeView.setScrubGroup(group);
+ * }</pre>
+ */
+public final class SparkScrubGroup {
+    private final List<SparkView> members = new ArrayList<>();
+    float[] timeline = new float[0];
+    int timelineCount;
+
+    /**
+     * Get the views in this group, the first of which provides the timeline.
+     */
+    public List<SparkView> getMembers() {
+        return new ArrayList<>(members);
+    }
+
+    void add(SparkView view) {
+        if (members.contains(view)) return;
+        members.add(view);
+        if (members.size() == 1) {
+            view.updateScrubGroupTimeline();
+        }
+    }
+
+    void remove(SparkView view) {
+        final int index = members.indexOf(view);
+        if (index < 0) return;
+        members.remove(index);
+        if (index == 0) {
+            timelineCount = 0;
+            if (!members.isEmpty()) {
+                members.get(0).updateScrubGroupTimeline();
+            }
+        }
+    }
+
+    /**
+     * Called by members whose points changed. Only the first member's points form the timeline.
+     */
+    void onDataChanged(SparkView view, float[] xs, int count) {
+        if (members.isEmpty() || members.get(0) != view) return;
+        setTimeline(xs, count);
+    }
+
+    void setTimeline(float[] xs, int count) {
+        if (timeline.length < count) {
+            timeline = new float[count];
+        }
+        System.arraycopy(xs, 0, timeline, 0, count);
+        timelineCount = count;
+    }
+
+    /**
+     * @return the index of the timeline point nearest to the given X, or -1 if the timeline is
+     * empty.
+     */
+    int findIndex(float x) {
+        return timelineCount == 0 ? -1 : SparkView.getNearestIndex(timeline, timelineCount, x);
+    }
+
+    /**
+     * Moves every member's scrub line to the point nearest the given data space X.
+     */
+    void scrub(float x) {
+        final int index = findIndex(x);
+        // members snap to the timeline point, so all scrub lines land on the same time
+        final float snappedX = index < 0 ? x : timeline[index];
+        for (int i = 0, size = members.size(); i < size; i++) {
+            members.get(i).showGroupScrub(snappedX, index);
+        }
+    }
+
+    /**
+     * Removes every member's scrub line.
+     */
+    void endScrub() {
+        for (int i = 0, size = members.size(); i < size; i++) {
+            members.get(i).endGroupScrub();
+        }
+    }
+}
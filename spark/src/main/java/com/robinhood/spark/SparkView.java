@@ -16,27 +16,44 @@
 
 package com.robinhood.spark;
 
+import android.animation.Animator;
+import android.animation.AnimatorListenerAdapter;
 import android.animation.ValueAnimator;
 import android.annotation.TargetApi;
+import android.content.ComponentCallbacks2;
 import android.content.Context;
+import android.content.res.Configuration;
 import android.content.res.TypedArray;
 import android.database.DataSetObserver;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.CornerPathEffect;
+import android.graphics.Matrix;
 import android.graphics.Paint;
 import android.graphics.Path;
 import android.graphics.PathMeasure;
+import android.graphics.Rect;
 import android.graphics.RectF;
 import android.os.Build;
 import android.os.Handler;
+import android.os.Parcel;
+import android.os.Parcelable;
 import android.support.annotation.ColorInt;
+import android.support.annotation.IntDef;
 import android.util.AttributeSet;
 import android.util.Log;
+import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewConfiguration;
+import android.view.accessibility.AccessibilityManager;
+import android.view.accessibility.AccessibilityNodeProvider;
 
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.nio.ByteBuffer;
+import java.text.NumberFormat;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -44,38 +61,175 @@ import java.util.List;
  */
 public class SparkView extends View implements ScrubGestureDetector.ScrubListener {
     private static final String TAG = "Spark";
+    private static final int DEFAULT_ACCESSIBILITY_BUCKETS = 20;
+
+    /**
+     * Draw straight segments between points, optionally rounded by the corner radius.
+     */
+    public static final int SMOOTHING_NONE = 0;
+    /**
+     * Draw a monotone cubic curve through the points. The curve never overshoots the data.
+     */
+    public static final int SMOOTHING_MONOTONE_CUBIC = 1;
+    /**
+     * Draw a Catmull-Rom spline through the points. Rounder than
+     * {@link #SMOOTHING_MONOTONE_CUBIC}, but may overshoot around sharp changes.
+     */
+    public static final int SMOOTHING_CATMULL_ROM = 2;
+
+    @Retention(RetentionPolicy.SOURCE)
+    @IntDef({SMOOTHING_NONE, SMOOTHING_MONOTONE_CUBIC, SMOOTHING_CATMULL_ROM})
+    public @interface LineSmoothing {}
+
+    /**
+     * Draw the data as a line through its points.
+     */
+    public static final int RENDER_LINE = 0;
+    /**
+     * Draw the data as a heatmap of how many points fall on each pixel, for series so dense that
+     * a line would only show a solid band. Points aren't connected.
+     */
+    public static final int RENDER_DENSITY = 1;
+
+    @Retention(RetentionPolicy.SOURCE)
+    @IntDef({RENDER_LINE, RENDER_DENSITY})
+    public @interface RenderMode {}
+
+    // geometry stages, in the order they are updated. A stage is re-run when it is marked dirty or
+    // when an earlier stage it depends on produced a change.
+    /** the adapter's points must be copied into {@link #snapshot} */
+    private static final int STAGE_DATA = 1;
+    /** the data bounds must be read from the adapter */
+    private static final int STAGE_BOUNDS = 1 << 1;
+    /** {@link #scaleHelper} must be rebuilt for the content rect */
+    private static final int STAGE_SCALE = 1 << 2;
+    /** the data space {@link #dataPath} must be rebuilt from the snapshot */
+    private static final int STAGE_VERTICES = 1 << 3;
+    /** the pixel space paths must be transformed from {@link #dataPath} */
+    private static final int STAGE_PATHS = 1 << 4;
+
+    /**
+     * Saved instance state shares the binder transaction limit with every other view, so only
+     * series up to this many points (32KB) are saved; longer ones are read from the adapter again.
+     */
+    private static final int MAX_SAVED_POINTS = 4096;
 
     // styleable values
     @ColorInt private int lineColor;
+    @ColorInt private int belowBaseLineColor;
+    private boolean hasBelowBaseLineColor;
     private float lineWidth;
     private float cornerRadius;
+    @LineSmoothing private int lineSmoothing;
+    @RenderMode private int renderMode;
     private boolean fill;
     @ColorInt private int baseLineColor;
     private float baseLineWidth;
     @ColorInt private int scrubLineColor;
     private float scrubLineWidth;
     private boolean scrubEnabled;
+    private boolean rangeScrubEnabled;
+    @ColorInt private int rangeHighlightColor;
     private boolean animateChanges;
+    private boolean adaptiveQuality;
+
+    // the sparkline in data space, only rebuilt when the data itself changes
+    private final Path dataPath = new Path();
+    // the number of snapshot points in dataPath, which appended points can continue from
+    private int dataPathCount;
+    // replaces dataPath when the sparkline is split into tiles
+    private PathTileCache tileCache;
+    private final Path tilePath = new Path();
+    // maps data space to pixels: the scale from scaleHelper, then the user's viewport
+    private final Matrix scaleMatrix = new Matrix();
+    private final Matrix viewportMatrix = new Matrix();
+    private final Matrix drawMatrix = new Matrix();
+    private final Matrix inverseDrawMatrix = new Matrix();
+    private final float[] drawValues = new float[9];
+    private final float[] mappedPoint = new float[2];
 
     // the onDraw data
     private final Path renderPath = new Path();
     private final Path sparkPath = new Path();
     private final Path baseLinePath = new Path();
     private final Path scrubLinePath = new Path();
+    // the pixel x of the scrub line while it follows a scrub group, otherwise NaN
+    private float scrubLineX = Float.NaN;
+    // the base line's pixel y, where the sparkline switches to belowBaseLineColor
+    private float scaledBaseLine;
+    private final RectF rangeHighlight = new RectF();
+    private boolean hasRangeHighlight;
 
     // adapter
     private SparkAdapter adapter;
+    private final DataSnapshot snapshot = new DataSnapshot();
+    private final RectF dataBounds = new RectF();
+    // filled by the adapter, then adjusted by the bounds policy and compared against dataBounds
+    private final RectF newDataBounds = new RectF();
+    private final RectF policyBounds = new RectF();
+    private BoundsPolicy boundsPolicy = BoundsPolicy.exact();
+    private TransformPipeline transformPipeline;
+    private final List<SparkOverlay> overlays = new ArrayList<>();
+    private final List<SparkMarkers> markers = new ArrayList<>();
+    private boolean hasDataBounds;
+    // the level and adapter range last sampled into the snapshot from the adapter's LodPyramid
+    private int sampledLevel;
+    private int sampledStart;
+    private int sampledEnd;
+    private int dirtyStages;
+    // the adapter's data version when the snapshot was last copied from it
+    private long snapshotVersion;
+    // the adapter's change count when the snapshot was read, or -1 for another adapter
+    private long snapshotChanges = -1;
+    private final int[] changedRange = new int[2];
+    // points saved before a configuration change, used instead of the adapter if still current
+    private SavedState restoredState;
+    // whether the view is attached and visible, and whether changes arrived while it wasn't
+    private boolean attached;
+    private boolean visible;
+    private boolean pendingAnimation;
 
     // misc fields
-    private ScaleHelper scaleHelper;
+    private final ScaleHelper scaleHelper = new ScaleHelper();
+    private boolean hasScale;
     private Paint sparkLinePaint;
     private Paint baseLinePaint;
     private Paint scrubLinePaint;
     private OnScrubListener scrubListener;
     private ScrubGestureDetector scrubGestureDetector;
-    private List<Float> xPoints;
+    private Paint rangeHighlightPaint;
+    private OnRangeScrubListener rangeScrubListener;
+    private OnMarkerScrubListener markerScrubListener;
+    private SparkScrubGroup scrubGroup;
+    // only maintained while range scrubbing is enabled or an accessibility service is running
+    private final RangeIndex rangeIndex = new RangeIndex();
+    private final RangeStats rangeStats = new RangeStats();
+    // bezier control points used when smoothing, reused across updates
+    private final SmoothingHelper.Curve curve = new SmoothingHelper.Curve();
     private ValueAnimator pathAnimator;
+    private final PathMeasure pathMeasure = new PathMeasure();
+    // quality given up while scrubbing or animating, see setAdaptiveQuality
+    private final AdaptiveQuality quality =
+            new AdaptiveQuality(AdaptiveQuality.DEFAULT_FRAME_BUDGET_MS);
+    private boolean scrubbing;
+    private final Paint fastLinePaint = new Paint();
+    private final Path coarsePath = new Path();
+    private float[] coarsePoints;
+    // the heatmap drawn instead of the sparkline in RENDER_DENSITY, created on first use
+    private DensityMap densityMap;
+    private Bitmap densityBitmap;
+    private ByteBuffer densityBuffer;
+    private final Paint densityPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    // caches are released when the app is trimmed at or above this level
+    private int trimMemoryLevel = ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN;
     private final RectF contentRect = new RectF();
+    // created the first time an accessibility service asks for the view's nodes
+    private SparkAccessibilityProvider accessibilityProvider;
+    private AccessibilityManager accessibilityManager;
+    private int accessibilityBucketCount = DEFAULT_ACCESSIBILITY_BUCKETS;
+    private AccessibilityFormatter accessibilityFormatter;
+    private final RangeStats accessibilityStats = new RangeStats();
+    private NumberFormat accessibilityNumberFormat;
 
     private static int shortAnimationTime;
 
@@ -106,28 +260,31 @@ public class SparkView extends View implements ScrubGestureDetector.ScrubListene
         lineColor = a.getColor(R.styleable.spark_SparkView_spark_lineColor, 0);
         lineWidth = a.getDimension(R.styleable.spark_SparkView_spark_lineWidth, 0);
         cornerRadius = a.getDimension(R.styleable.spark_SparkView_spark_cornerRadius, 0);
+        //noinspection WrongConstant
+        lineSmoothing = a.getInt(R.styleable.spark_SparkView_spark_lineSmoothing, SMOOTHING_NONE);
+        //noinspection WrongConstant
+        renderMode = a.getInt(R.styleable.spark_SparkView_spark_renderMode, RENDER_LINE);
         fill = a.getBoolean(R.styleable.spark_SparkView_spark_fill, false);
         baseLineColor = a.getColor(R.styleable.spark_SparkView_spark_baseLineColor, 0);
+        hasBelowBaseLineColor = a.hasValue(R.styleable.spark_SparkView_spark_belowBaseLineColor);
+        belowBaseLineColor = a.getColor(R.styleable.spark_SparkView_spark_belowBaseLineColor, 0);
         baseLineWidth = a.getDimension(R.styleable.spark_SparkView_spark_baseLineWidth, 0);
         scrubEnabled = a.getBoolean(R.styleable.spark_SparkView_spark_scrubEnabled, true);
         scrubLineColor = a.getColor(R.styleable.spark_SparkView_spark_scrubLineColor, baseLineColor);
         scrubLineWidth = a.getDimension(R.styleable.spark_SparkView_spark_scrubLineWidth, lineWidth);
+        rangeScrubEnabled = a.getBoolean(R.styleable.spark_SparkView_spark_rangeScrubEnabled, false);
+        rangeHighlightColor = a.getColor(R.styleable.spark_SparkView_spark_rangeHighlightColor, 0);
         animateChanges = a.getBoolean(R.styleable.spark_SparkView_spark_animateChanges, false);
+        adaptiveQuality = a.getBoolean(R.styleable.spark_SparkView_spark_adaptiveQuality, false);
         a.recycle();
 
         sparkLinePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-        sparkLinePaint.setColor(lineColor);
-        sparkLinePaint.setStrokeWidth(lineWidth);
-        sparkLinePaint.setStyle(fill ? Paint.Style.FILL : Paint.Style.STROKE);
-        sparkLinePaint.setStrokeCap(Paint.Cap.ROUND);
-        if (cornerRadius != 0) {
-            sparkLinePaint.setPathEffect(new CornerPathEffect(cornerRadius));
-        }
+        initSparkLinePaint(sparkLinePaint, lineColor, lineWidth, fill);
+        updatePathEffect();
+        densityPaint.setColor(lineColor);
 
         baseLinePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-        baseLinePaint.setStyle(Paint.Style.STROKE);
-        baseLinePaint.setColor(baseLineColor);
-        baseLinePaint.setStrokeWidth(baseLineWidth);
+        initBaseLinePaint(baseLinePaint, baseLineColor, baseLineWidth);
 
         scrubLinePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
         scrubLinePaint.setStyle(Paint.Style.STROKE);
@@ -135,10 +292,15 @@ public class SparkView extends View implements ScrubGestureDetector.ScrubListene
         scrubLinePaint.setColor(scrubLineColor);
         scrubLinePaint.setStrokeCap(Paint.Cap.ROUND);
 
+        rangeHighlightPaint = new Paint();
+        rangeHighlightPaint.setStyle(Paint.Style.FILL);
+        rangeHighlightPaint.setColor(rangeHighlightColor);
+
         final Handler handler = new Handler();
         final float touchSlop = ViewConfiguration.get(context).getScaledTouchSlop();
         scrubGestureDetector = new ScrubGestureDetector(this, handler, touchSlop);
         scrubGestureDetector.setEnabled(scrubEnabled);
+        scrubGestureDetector.setRangeEnabled(rangeScrubEnabled);
         setOnTouchListener(scrubGestureDetector);
     }
 
@@ -146,343 +308,1215 @@ public class SparkView extends View implements ScrubGestureDetector.ScrubListene
     protected void onSizeChanged(int w, int h, int oldW, int oldH) {
         super.onSizeChanged(w, h, oldW, oldH);
         updateContentRect();
-        populatePath();
+        requestGeometryUpdate(STAGE_SCALE);
     }
 
     /**
-     * Populates the {@linkplain #sparkPath} with points
+     * Marks the given geometry stage as dirty. The stage, and any later stages affected by it, are
+     * re-run on the next {@link #updateGeometry()}, at the latest before the next draw.
      */
-    private void populatePath() {
-        if (adapter == null) return;
-        if (getWidth() == 0 || getHeight() == 0) return;
+    private void requestGeometryUpdate(int stage) {
+        dirtyStages |= stage;
+        if (visible) {
+            invalidate();
+        }
+    }
 
-        final int adapterCount = adapter.getCount();
+    /**
+     * Runs any dirty geometry stages: data snapshot, bounds, scale, vertices and finally the paths.
+     * Stages whose inputs did not change are skipped, so a size change only rescales the cached
+     * snapshot and re-setting identical data does nothing at all.
+     *
+     * @return true if the paths were rebuilt
+     */
+    private boolean updateGeometry() {
+        if (dirtyStages == 0) return false;
+        if (adapter == null) return false;
+        if (getWidth() == 0 || getHeight() == 0) return false;
+
+        final int stages = dirtyStages;
+        dirtyStages = 0;
+
+        // with a pyramid or pages, only the visible range is sampled into the snapshot once it is
+        // scaled. A transform pipeline replaces them, its output is already what gets drawn.
+        final TransformPipeline pipeline = transformPipeline;
+        final LodPyramid pyramid = pipeline == null ? adapter.getLodPyramid() : null;
+        final PagedSparkAdapter pagedAdapter = pipeline == null && pyramid == null
+                && adapter instanceof PagedSparkAdapter ? (PagedSparkAdapter) adapter : null;
+        final boolean sampled = pyramid != null || pagedAdapter != null;
+        boolean dataChanged = false;
+        boolean restored = false;
+        if ((stages & STAGE_DATA) != 0) {
+            if (pipeline != null) {
+                dataChanged = pipeline.update(adapter, snapshot);
+            } else if (pyramid != null) {
+                dataChanged = pyramid.sync(adapter);
+            } else if (pagedAdapter != null) {
+                // the pages hold the data, the snapshot is sampled from them below
+                dataChanged = adapter.getChangeCount() != snapshotChanges;
+                snapshotChanges = adapter.getChangeCount();
+            } else {
+                restored = restoreSnapshot();
+                if (restored) {
+                    dataChanged = true;
+                } else if (snapshot.holdsAllOf(adapter)
+                        && adapter.getChangedRange(snapshotChanges, changedRange)) {
+                    // only the notified points need reading again
+                    dataChanged = snapshot.updateRange(adapter, changedRange[0], changedRange[1]);
+                } else {
+                    dataChanged = snapshot.update(adapter);
+                }
+                snapshotVersion = adapter.getDataVersion();
+                snapshotChanges = adapter.getChangeCount();
+            }
+        }
+        restoredState = null;
 
         // to draw anything, we need 2 or more points
-        if (adapterCount < 2) {
+        if ((sampled ? adapter.getCount() : snapshot.count) < 2) {
             clearData();
-            return;
+            return false;
         }
 
-        scaleHelper = new ScaleHelper(adapter, contentRect, lineWidth, fill);
+        boolean overlaysChanged = false;
+        if ((stages & STAGE_DATA) != 0) {
+            for (int i = 0, size = overlays.size(); i < size; i++) {
+                overlaysChanged |= overlays.get(i).update(adapter);
+            }
+        }
 
-        // xPoints is only used in scrubbing, skip if disabled
-        if (scrubEnabled) {
-            if (xPoints == null) {
-                xPoints = new ArrayList<>(adapterCount);
+        // restored bounds were saved after the bounds policy, so they only need rescaling
+        boolean scaleChanged = restored;
+        if (!restored && (dataChanged || (stages & STAGE_BOUNDS) != 0)) {
+            if (pipeline != null) {
+                pipeline.getBounds(newDataBounds);
             } else {
-                xPoints.clear();
+                adapter.getDataBounds(newDataBounds);
             }
+            final RectF bounds = policyBounds;
+            // a pipeline's output is in the snapshot, in the units that get drawn
+            boundsPolicy.getBounds(adapter, pipeline != null ? snapshot : null, newDataBounds,
+                    hasDataBounds ? dataBounds : null, bounds);
+            scaleChanged = !hasDataBounds
+                    || bounds.left != dataBounds.left || bounds.top != dataBounds.top
+                    || bounds.right != dataBounds.right || bounds.bottom != dataBounds.bottom;
+            dataBounds.set(bounds);
+            hasDataBounds = true;
         }
 
-        // make our main graph path
-        sparkPath.reset();
-        for (int i = 0; i < adapterCount; i++) {
-            final float x = scaleHelper.getX(adapter.getX(i));
-            final float y = scaleHelper.getY(adapter.getY(i));
+        if (scaleChanged || !hasScale || (stages & STAGE_SCALE) != 0) {
+            scaleHelper.set(dataBounds, snapshot.count, contentRect, lineWidth, fill);
+            scaleHelper.toMatrix(scaleMatrix);
+            hasScale = true;
+            scaleChanged = true;
+        }
 
-            if (i == 0) {
-                sparkPath.moveTo(x, y);
-            } else {
-                sparkPath.lineTo(x, y);
+        if (sampled) {
+            updateDrawMatrix();
+            // an empty snapshot was trimmed or cleared, and must be sampled again
+            if (dataChanged || scaleChanged || (stages & STAGE_PATHS) != 0
+                    || snapshot.count == 0) {
+                dataChanged = sampleVisibleRange(pyramid, dataChanged || snapshot.count == 0);
             }
+        }
 
-            if (scrubEnabled) {
-                xPoints.add(x);
-            }
+        if (adapter instanceof PagedSparkAdapter
+                && (dataChanged || scaleChanged || (stages & STAGE_PATHS) != 0)) {
+            requestVisiblePages((PagedSparkAdapter) adapter);
         }
 
-        // if we're filling the graph in, close the path's circuit
-        if (fill) {
-            float lastX = scaleHelper.getX(adapter.getCount() - 1);
-            float bottom = getHeight() - getPaddingBottom();
-            // line straight down to the bottom of the view
-            sparkPath.lineTo(lastX, bottom);
-            // line straight left to far edge of the view
-            sparkPath.lineTo(getPaddingStart(), bottom);
-            // line straight up to meet the first point
-            sparkPath.close();
+        if (dataChanged && scrubGroup != null) {
+            scrubGroup.onDataChanged(this, snapshot.xs, snapshot.count);
         }
 
-        // make our base line path
-        baseLinePath.reset();
-        if (adapter.hasBaseLine()) {
-            float scaledBaseLine = scaleHelper.getY(adapter.getBaseLine());
-            baseLinePath.moveTo(0, scaledBaseLine);
-            baseLinePath.lineTo(getWidth(), scaledBaseLine);
+        if ((rangeScrubEnabled || accessibilityProvider != null)
+                && (dataChanged || rangeIndex.size() != snapshot.count)) {
+            rangeIndex.update(snapshot.ys, snapshot.count, dataChanged ? snapshot.changeStart : 0);
         }
 
-        renderPath.reset();
-        renderPath.addPath(sparkPath);
+        if (accessibilityProvider != null && (dataChanged || scaleChanged)) {
+            accessibilityProvider.onContentChanged();
+        }
 
-        invalidate();
+        // the data space path doesn't depend on the scale, so rescaling only needs a new transform
+        final boolean verticesChanged = dataChanged || (stages & STAGE_VERTICES) != 0;
+        if (verticesChanged && renderMode == RENDER_LINE) {
+            updateDataPath((stages & STAGE_VERTICES) != 0);
+        } else if (verticesChanged) {
+            // the path no longer follows the snapshot, so it can't be extended later
+            dataPathCount = 0;
+        }
+
+        if (verticesChanged || scaleChanged || overlaysChanged || (stages & STAGE_PATHS) != 0) {
+            updatePaths();
+            return true;
+        }
+        return false;
     }
 
     /**
-     * Get the scaled (pixel) coordinate of your given x value. If no scale is currently computed
-     * (for instance {@link SparkAdapter} has not been set or has less than 2 points of data). This
-     * method will return the unscaled value.
+     * Fills the {@linkplain #snapshot} and bounds from the state saved before a configuration
+     * change, if the adapter's data is still the data that was saved. Only the version, the count
+     * and the end points are checked, so this costs nothing no matter how large the series is.
      *
-     * @param x    the value to scale (should be the same units as your graph's data points)
-     * @return the pixel coordinates of where this point is located in SparkView's bounds
+     * @return true if the saved points were used
      */
-    public float getScaledX(float x) {
-        if (scaleHelper == null) {
-            Log.w(TAG, "getScaledX() - no scale available yet.");
-            return x;
+    private boolean restoreSnapshot() {
+        final SavedState state = restoredState;
+        if (state == null || state.xs == null) return false;
+        final int count = state.xs.length;
+        final int last = state.offset + count - 1;
+        if (adapter.getDataVersion() != state.dataVersion
+                || adapter.getCount() != state.offset + count
+                || adapter.getX(state.offset) != state.xs[0]
+                || adapter.getY(state.offset) != state.ys[0]
+                || adapter.getX(last) != state.xs[count - 1]
+                || adapter.getY(last) != state.ys[count - 1]) {
+            return false;
         }
-        return scaleHelper.getX(x);
+
+        snapshot.restore(state.xs, state.ys, count, state.offset, state.hasBaseLine,
+                state.baseLine);
+        dataBounds.set(state.boundsLeft, state.boundsTop, state.boundsRight, state.boundsBottom);
+        hasDataBounds = true;
+        return true;
     }
 
     /**
-     * Get the scaled (pixel) coordinate of your given y value. If no scale is currently computed
-     * (for instance {@link SparkAdapter} has not been set or has less than 2 points of data). This
-     * method will return the unscaled value.
+     * Asks a paged adapter for the pages under the visible range. They load in the background and
+     * the adapter notifies as each one arrives, so this never waits.
+     */
+    private void requestVisiblePages(PagedSparkAdapter pagedAdapter) {
+        updateDrawMatrix();
+        final int count = pagedAdapter.getCount();
+        final int start = LodPyramid.lowerBound(pagedAdapter, count, unmapX(contentRect.left));
+        final int end = LodPyramid.lowerBound(pagedAdapter, count, unmapX(contentRect.right)) + 1;
+        pagedAdapter.requestRange(Math.max(start - 1, 0), Math.min(end, count));
+    }
+
+    /**
+     * Samples the visible part of the adapter's data into the {@linkplain #snapshot}. With a
+     * pyramid, this uses the coarsest level that still has a bucket per pixel, so the work is
+     * proportional to the view's width rather than to the number of points. Without one, the
+     * adapter is a {@link PagedSparkAdapter}, which only yields the points that shape its loaded
+     * and summarized pages. A margin around the visible range is sampled too, so small pans can
+     * reuse the snapshot.
      *
-     * @param y    the value to scale (should be the same units as your graph's data points)
-     * @return the pixel coordinates of where this point is located in SparkView's bounds
+     * @param pyramid the adapter's pyramid, or null for a paged adapter
+     * @param force true to resample even if the last sample still covers the visible range
+     * @return true if the snapshot was resampled
      */
-    public float getScaledY(float y) {
-        if (scaleHelper == null) {
-            Log.w(TAG, "getScaledX() - no scale available yet.");
-            return y;
+    private boolean sampleVisibleRange(LodPyramid pyramid, boolean force) {
+        final int count = adapter.getCount();
+        final int start = Math.max(
+                LodPyramid.lowerBound(adapter, count, unmapX(contentRect.left)) - 1, 0);
+        final int end = Math.min(
+                LodPyramid.lowerBound(adapter, count, unmapX(contentRect.right)) + 1, count);
+        final int level = pyramid == null
+                ? -1
+                : pyramid.selectLevel(end - start, Math.max((int) contentRect.width(), 1));
+        if (!force && level == sampledLevel && start >= sampledStart && end <= sampledEnd) {
+            return false;
+        }
+
+        final int margin = (end - start) / 2;
+        sampledLevel = level;
+        sampledStart = Math.max(start - margin, 0);
+        sampledEnd = Math.min(end + margin, count);
+        if (pyramid == null) {
+            ((PagedSparkAdapter) adapter).sample(sampledStart, sampledEnd, snapshot);
+        } else if (level < 0) {
+            // too few points to be worth summarizing, take them all
+            snapshot.update(adapter, sampledStart, sampledEnd);
+        } else {
+            pyramid.sample(adapter, level, sampledStart, sampledEnd, snapshot);
         }
-        return scaleHelper.getY(y);
+        return true;
     }
 
     /**
-     * Gets a copy of the sparkline path
+     * Populates the {@linkplain #dataPath} with the snapshot's points, in data space. If points
+     * were only appended since the last build, the path is extended rather than rebuilt. When
+     * tiling, only the tiles touched by the snapshot's last change are evicted instead.
+     *
+     * @param rebuildAll true if every point must be rebuilt, regardless of what changed
      */
-    public Path getSparkLinePath() {
-        return new Path(sparkPath);
-    }
+    private void updateDataPath(boolean rebuildAll) {
+        final int count = snapshot.count;
+        final float[] xs = snapshot.xs;
+        final float[] ys = snapshot.ys;
 
-    private void setScrubLine(float x) {
-        scrubLinePath.reset();
-        scrubLinePath.moveTo(x, getPaddingTop());
-        scrubLinePath.lineTo(x, getHeight() - getPaddingBottom());
-        invalidate();
-    }
+        // to draw anything, we need 2 or more points
+        if (count < 2) {
+            dataPath.reset();
+            dataPathCount = 0;
+            return;
+        }
 
-    @Override
-    public void setPadding(int left, int top, int right, int bottom) {
-        super.setPadding(left, top, right, bottom);
-        updateContentRect();
-        populatePath();
-    }
+        if (lineSmoothing != SMOOTHING_NONE) {
+            updateControlPoints(count);
+        }
 
-    @Override
-    protected void onDraw(Canvas canvas) {
-        super.onDraw(canvas);
-        canvas.drawPath(baseLinePath, baseLinePaint);
-        canvas.drawPath(renderPath, sparkLinePaint);
-        canvas.drawPath(scrubLinePath, scrubLinePaint);
+        if (tileCache != null) {
+            if (rebuildAll) {
+                tileCache.invalidateAll();
+            } else {
+                // a smoothed point's control points also depend on its 2 neighbors on each side
+                tileCache.invalidate(snapshot, snapshot.changeStart, snapshot.changeEnd,
+                        lineSmoothing == SMOOTHING_NONE ? 0 : 2);
+            }
+            return;
+        }
+
+        final int builtCount = dataPathCount;
+        dataPathCount = count;
+        // smoothed curves aren't extended, appending moves the last point's control points
+        if (!rebuildAll && lineSmoothing == SMOOTHING_NONE && builtCount >= 2
+                && snapshot.changeStart >= builtCount && count >= builtCount) {
+            for (int i = builtCount; i < count; i++) {
+                dataPath.lineTo(xs[i], ys[i]);
+            }
+            return;
+        }
+
+        populatePath(dataPath, xs, ys, count,
+                lineSmoothing == SMOOTHING_NONE ? null : curve.controlPoints);
     }
 
     /**
-     * Get the color of the sparkline
+     * Replaces the given path's contents with a line through the first {@code count} points, in
+     * data space. Shared with {@link SparkRenderer}, so off-screen images match the view.
+     *
+     * @param controlPoints bezier control points from {@link SmoothingHelper}, or null to draw
+     *                      straight segments
      */
-    @ColorInt public int getLineColor() {
-        return lineColor;
+    static void populatePath(Path path, float[] xs, float[] ys, int count,
+            float[] controlPoints) {
+        path.reset();
+        path.moveTo(xs[0], ys[0]);
+        if (controlPoints == null) {
+            for (int i = 1; i < count; i++) {
+                path.lineTo(xs[i], ys[i]);
+            }
+        } else {
+            for (int i = 1, j = 0; i < count; i++, j += 4) {
+                path.cubicTo(controlPoints[j], controlPoints[j + 1],
+                        controlPoints[j + 2], controlPoints[j + 3],
+                        xs[i], ys[i]);
+            }
+        }
     }
 
     /**
-     * Set the color of the sparkline
+     * Populates the {@linkplain #sparkPath} and {@linkplain #baseLinePath} by transforming the
+     * {@linkplain #dataPath} to pixels. The stroke is applied afterwards when drawing, so its
+     * width stays constant whatever the scale.
      */
-    public void setLineColor(@ColorInt int lineColor) {
-        this.lineColor = lineColor;
-        sparkLinePaint.setColor(lineColor);
-        invalidate();
+    private void updatePaths() {
+        updateDrawMatrix();
+
+        if (snapshot.count < 2) {
+            sparkPath.reset();
+            renderPath.reset();
+            return;
+        }
+
+        // the base line comes first, a fill split at it is closed to it
+        baseLinePath.reset();
+        if (snapshot.hasBaseLine) {
+            scaledBaseLine = mapY(snapshot.baseLine);
+            baseLinePath.moveTo(0, scaledBaseLine);
+            baseLinePath.lineTo(getWidth(), scaledBaseLine);
+        }
+
+        if (renderMode == RENDER_DENSITY) {
+            updateDensity();
+            sparkPath.reset();
+        } else if (tileCache != null) {
+            updateTiledSparkPath();
+        } else {
+            dataPath.transform(drawMatrix, sparkPath);
+            // if we're filling the graph in, close the path's circuit
+            if (fill) {
+                closeFill(sparkPath, snapshot.xs[0], snapshot.xs[snapshot.count - 1]);
+            }
+        }
+
+        for (int i = 0, size = overlays.size(); i < size; i++) {
+            final SparkOverlay overlay = overlays.get(i);
+            overlay.dataPath.transform(drawMatrix, overlay.path);
+        }
+        for (int i = 0, size = markers.size(); i < size; i++) {
+            markers.get(i).map(drawMatrix);
+        }
+
+        renderPath.reset();
+        if (renderMode == RENDER_DENSITY) {
+            return;
+        }
+        if (quality.getLevel() == AdaptiveQuality.LEVEL_COARSE) {
+            updateCoarsePath();
+            renderPath.addPath(coarsePath);
+        } else {
+            renderPath.addPath(sparkPath);
+        }
     }
 
     /**
-     * Get the width in pixels of the sparkline's stroke
+     * Bins the snapshot's points into the {@linkplain #densityMap} at the current draw matrix and
+     * uploads the resulting alphas into the {@linkplain #densityBitmap}, which covers the content
+     * rect. The map, bitmap and buffer are only reallocated when the content size changes.
      */
-    public float getLineWidth() {
-        return lineWidth;
+    private void updateDensity() {
+        final int width = (int) contentRect.width();
+        final int height = (int) contentRect.height();
+        if (width <= 0 || height <= 0) return;
+
+        if (densityMap == null) {
+            densityMap = new DensityMap();
+        }
+        if (densityBitmap == null
+                || densityBitmap.getWidth() != width || densityBitmap.getHeight() != height) {
+            if (densityBitmap != null) {
+                densityBitmap.recycle();
+            }
+            densityBitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ALPHA_8);
+        }
+        densityMap.resize(width, height, densityBitmap.getRowBytes());
+        densityMap.bin(snapshot.xs, snapshot.ys, snapshot.count,
+                drawValues[Matrix.MSCALE_X], drawValues[Matrix.MTRANS_X],
+                drawValues[Matrix.MSCALE_Y], drawValues[Matrix.MTRANS_Y],
+                contentRect.left, contentRect.top);
+        densityMap.updateAlphas();
+
+        if (densityBuffer == null || densityBuffer.array() != densityMap.alphas) {
+            densityBuffer = ByteBuffer.wrap(densityMap.alphas);
+        }
+        densityBuffer.rewind();
+        densityBitmap.copyPixelsFromBuffer(densityBuffer);
     }
 
     /**
-     * Set the width in pixels of the sparkline's stroke
+     * Builds the {@linkplain #coarsePath} drawn at {@link AdaptiveQuality#LEVEL_COARSE}: a min/max
+     * decimation of the snapshot with a bucket every few pixels, without smoothing or tiles.
      */
-    public void setLineWidth(float lineWidth) {
-        this.lineWidth = lineWidth;
-        sparkLinePaint.setStrokeWidth(lineWidth);
-        invalidate();
+    private void updateCoarsePath() {
+        final int count = snapshot.count;
+        final float firstX = snapshot.xs[0];
+        final float lastX = snapshot.xs[count - 1];
+        final float width = Math.abs(mapX(lastX) - mapX(firstX));
+        final int buckets = Math.min(Math.max(
+                (int) (width / AdaptiveQuality.COARSE_PIXELS_PER_BUCKET), 1), count);
+        final int size = buckets * 4 + 4;
+        if (coarsePoints == null || coarsePoints.length < size) {
+            coarsePoints = new float[size];
+        }
+
+        final int points = AdaptiveQuality.decimate(
+                snapshot.xs, snapshot.ys, count, buckets, coarsePoints);
+        drawMatrix.mapPoints(coarsePoints, 0, coarsePoints, 0, points);
+        coarsePath.reset();
+        coarsePath.moveTo(coarsePoints[0], coarsePoints[1]);
+        for (int i = 1; i < points; i++) {
+            coarsePath.lineTo(coarsePoints[i * 2], coarsePoints[i * 2 + 1]);
+        }
+        if (fill) {
+            closeFill(coarsePath, firstX, lastX);
+        }
     }
 
     /**
-     * Get the corner radius in pixels used when rounding the sparkline's segments.
+     * Combines the scale and viewport into the {@linkplain #drawMatrix}.
      */
-    public float getCornerRadius() {
-        return cornerRadius;
+    private void updateDrawMatrix() {
+        drawMatrix.set(scaleMatrix);
+        drawMatrix.postConcat(viewportMatrix);
+        drawMatrix.invert(inverseDrawMatrix);
+        drawMatrix.getValues(drawValues);
     }
 
     /**
-     * Set the corner radius in pixels to use when rounding the sparkline's segments. Passing 0
-     * indicates that corners should not be rounded.
+     * Populates the {@linkplain #sparkPath} from the cached tiles that are currently visible,
+     * building any that aren't cached yet.
      */
-    public void setCornerRadius(float cornerRadius) {
-        this.cornerRadius = cornerRadius;
-        if (cornerRadius != 0) {
-            sparkLinePaint.setPathEffect(new CornerPathEffect(cornerRadius));
-        } else {
-            sparkLinePaint.setPathEffect(null);
+    private void updateTiledSparkPath() {
+        final float[] xs = snapshot.xs;
+        final int count = snapshot.count;
+        final float[] tileControlPoints =
+                lineSmoothing == SMOOTHING_NONE ? null : curve.controlPoints;
+
+        // the visible data range, widened by the line width to include the stroke's bleed
+        final float minX = unmapX(contentRect.left - lineWidth);
+        final float maxX = unmapX(contentRect.right + lineWidth);
+
+        sparkPath.reset();
+        // start from the point before the visible range, its segment may cross into view
+        int i = Math.max(PathTileCache.lowerBound(xs, count, minX) - 1, 0);
+        while (i < count && xs[i] <= maxX) {
+            final int tile = tileCache.getTileIndex(xs[i]);
+            final Path path = tileCache.getTile(tile, snapshot, tileControlPoints);
+            final int next = tileCache.firstIndexInTile(xs, count, tile + 1);
+            if (fill) {
+                // each tile is closed on its own, so they can't share one transformed path
+                path.transform(drawMatrix, tilePath);
+                final int first = tileCache.firstIndexInTile(xs, count, tile);
+                closeFill(tilePath, xs[first], xs[Math.min(next, count - 1)]);
+                sparkPath.addPath(tilePath);
+            } else {
+                sparkPath.addPath(path, drawMatrix);
+            }
+            i = next;
         }
-        invalidate();
     }
 
     /**
-     * Whether or not this view animates changes to its data.
+     * Closes the given pixel space path down to the bottom of the content area between the given
+     * data space x values, or to the base line when the parts below it have their own color.
      */
-    public boolean getAnimateChanges() {
-        return animateChanges;
+    private void closeFill(Path path, float firstX, float lastX) {
+        final float fillY = hasBelowBaseLineColor && snapshot.hasBaseLine
+                ? scaledBaseLine
+                : getHeight() - getPaddingBottom();
+        closeFill(path, mapX(firstX), mapX(lastX), fillY);
     }
 
     /**
-     * Whether or not this view should animate changes to its data.
+     * Closes the given pixel space path down to {@code fillY} between the given pixel x values.
+     * Shared with {@link SparkRenderer}.
      */
-    public void setAnimateChanges(boolean animate) {
-        this.animateChanges = animate;
+    static void closeFill(Path path, float left, float right, float fillY) {
+        // line straight down to the fill's edge
+        path.lineTo(right, fillY);
+        // line straight left to the first point
+        path.lineTo(left, fillY);
+        // line straight up to meet the first point
+        path.close();
     }
 
     /**
-     * Get the {@link Paint} used to draw the scrub line. Any custom modifications to this
-     * {@link Paint} will not reflect until the next call to {@link #invalidate()}
+     * Maps a data space x value to pixels using the current {@linkplain #drawMatrix}.
      */
-    public Paint getScrubLinePaint() {
-        return scrubLinePaint;
+    private float mapX(float x) {
+        return x * drawValues[Matrix.MSCALE_X] + drawValues[Matrix.MTRANS_X];
     }
 
     /**
-     * Set the {@link Paint} to be used to draw the scrub line. Warning: setting a paint other than
-     * the instance returned by {@link #getScrubLinePaint()} may result in loss of style attributes
-     * specified on this view.
+     * Maps a data space y value to pixels using the current {@linkplain #drawMatrix}.
      */
-    public void setScrubLinePaint(Paint scrubLinePaint) {
-        this.scrubLinePaint = scrubLinePaint;
-        invalidate();
+    private float mapY(float y) {
+        return y * drawValues[Matrix.MSCALE_Y] + drawValues[Matrix.MTRANS_Y];
     }
 
     /**
-     * Return whether or not this sparkline should fill the area underneath.
+     * Maps a pixel x coordinate back to data space.
      */
-    public boolean isFill() {
-        return fill;
+    private float unmapX(float x) {
+        mappedPoint[0] = x;
+        mappedPoint[1] = 0;
+        inverseDrawMatrix.mapPoints(mappedPoint);
+        return mappedPoint[0];
     }
 
     /**
-     * Set whether or not this sparkline should fill the area underneath.
+     * Computes the bezier control points for the snapshot's points. The curve is baked into the
+     * paths so drawing it costs the same as drawing straight segments. Both curves are affine
+     * invariant, so they hold up when the path is rescaled.
      */
-    public void setFill(boolean fill) {
-        if (this.fill != fill) {
-            this.fill = fill;
-            sparkLinePaint.setStyle(fill ? Paint.Style.FILL : Paint.Style.STROKE);
-            populatePath();
-        }
+    private void updateControlPoints(int count) {
+        curve.update(snapshot.xs, snapshot.ys, count,
+                lineSmoothing == SMOOTHING_MONOTONE_CUBIC);
     }
 
     /**
-     * Get the {@link Paint} used to draw the sparkline. Any modifications to this {@link Paint}
-     * will not reflect until the next call to {@link #invalidate()}
+     * Get the width, in x units of your data, of the tiles the sparkline is cached in, or 0 if
+     * tiling is disabled.
      */
-    public Paint getSparkLinePaint() {
-        return sparkLinePaint;
+    public float getTileWidth() {
+        return tileCache == null ? 0 : tileCache.getTileWidth();
     }
 
     /**
-     * Set the {@link Paint} to be used to draw the sparkline. Warning: setting a paint other than
-     * the instance returned by {@link #getSparkLinePaint()} may result in loss of style attributes
-     * specified on this view.
+     * Set the width, in x units of your data, of the tiles the sparkline is cached in. Tiles are
+     * built the first time they are visible and evicted least recently used, so panning a long
+     * series with {@link #setViewportMatrix(Matrix)} only builds the newly exposed tiles, and data
+     * changes only rebuild the tiles they touch. Points must be sorted by x while tiling.
+     *
+     * @param tileWidth the tile width, or 0 to draw the whole series as one path
      */
-    public void setSparkLinePaint(Paint pathPaint) {
-        this.sparkLinePaint = pathPaint;
-        invalidate();
+    public void setTileWidth(float tileWidth) {
+        if (tileWidth == getTileWidth()) return;
+        tileCache = tileWidth > 0
+                ? new PathTileCache(tileWidth, PathTileCache.DEFAULT_MAX_TILES)
+                : null;
+        dataPath.reset();
+        dataPathCount = 0;
+        requestGeometryUpdate(STAGE_VERTICES);
     }
 
     /**
-     * Get the color of the base line
+     * Get the {@link BoundsPolicy} that decides the bounds the data is scaled to.
      */
-    @ColorInt public int getBaseLineColor() {
-        return baseLineColor;
+    public BoundsPolicy getBoundsPolicy() {
+        return boundsPolicy;
     }
 
     /**
-     * Set the color of the base line
+     * Set the {@link BoundsPolicy} that decides the bounds the data is scaled to. With live data, a
+     * policy such as {@link BoundsPolicy#sticky(float)} keeps the scale steady between ticks, so
+     * most updates leave the existing points where they are.
+     *
+     * @param boundsPolicy the policy, or null for {@link BoundsPolicy#exact()}
      */
-    public void setBaseLineColor(@ColorInt int baseLineColor) {
-        this.baseLineColor = baseLineColor;
-        baseLinePaint.setColor(baseLineColor);
-        invalidate();
+    public void setBoundsPolicy(BoundsPolicy boundsPolicy) {
+        this.boundsPolicy = boundsPolicy == null ? BoundsPolicy.exact() : boundsPolicy;
+        // start over rather than carrying the previous policy's bounds along
+        hasDataBounds = false;
+        requestGeometryUpdate(STAGE_BOUNDS);
     }
 
     /**
-     * Get the width in pixels of the base line's stroke
+     * Get the {@link TransformPipeline} the adapter's points are run through before drawing, or
+     * null if they are drawn as they are.
      */
-    public float getBaseLineWidth() {
-        return baseLineWidth;
+    public TransformPipeline getTransformPipeline() {
+        return transformPipeline;
     }
 
     /**
-     * Set the width in pixels of the base line's stroke
+     * Set a {@link TransformPipeline} to run the adapter's points through before drawing, in a
+     * single pass that only processes appended points when they are notified with
+     * {@link SparkAdapter#notifyDataRangeChanged(int, int)}. The bounds are then those of the
+     * transformed points, and the adapter's {@link LodPyramid} is not used.
+     *
+     * @param transformPipeline the pipeline, or null to draw the adapter's points as they are
      */
-    public void setBaseLineWidth(float baseLineWidth) {
-        this.baseLineWidth = baseLineWidth;
-        baseLinePaint.setStrokeWidth(baseLineWidth);
-        invalidate();
+    public void setTransformPipeline(TransformPipeline transformPipeline) {
+        if (transformPipeline == this.transformPipeline) return;
+        this.transformPipeline = transformPipeline;
+        if (transformPipeline != null) {
+            transformPipeline.invalidate();
+        }
+        snapshot.clear();
+        sampledEnd = 0;
+        requestGeometryUpdate(STAGE_DATA | STAGE_BOUNDS);
     }
 
     /**
-     * Get the {@link Paint} used to draw the base line. Any modifications to this {@link Paint}
-     * will not reflect until the next call to {@link #invalidate()}
+     * Adds a {@link SparkOverlay}, drawn beneath the sparkline at the same scale. Overlays are
+     * drawn in the order they were added.
      */
-    public Paint getBaseLinePaint() {
-        return baseLinePaint;
+    public void addOverlay(SparkOverlay overlay) {
+        if (overlays.contains(overlay)) return;
+        overlay.getPipeline().invalidate();
+        overlay.clear();
+        overlays.add(overlay);
+        requestGeometryUpdate(STAGE_DATA);
     }
 
     /**
-     * Set the {@link Paint} to be used to draw the base line. Warning: setting a paint other than
-     * the instance returned by {@link #getBaseLinePaint()} ()} may result in loss of style
-     * attributes specified on this view.
+     * Removes a {@link SparkOverlay} added with {@link #addOverlay(SparkOverlay)}.
      */
-    public void setBaseLinePaint(Paint baseLinePaint) {
-        this.baseLinePaint = baseLinePaint;
-        invalidate();
+    public void removeOverlay(SparkOverlay overlay) {
+        if (overlays.remove(overlay)) {
+            overlay.clear();
+            invalidate();
+        }
     }
 
     /**
-     * Get the color of the scrub line
+     * Get the overlays drawn by this view, in drawing order.
      */
-    @ColorInt public int getScrubLineColor() {
-        return scrubLineColor;
+    public List<SparkOverlay> getOverlays() {
+        return new ArrayList<>(overlays);
     }
 
     /**
-     * Set the color of the scrub line
+     * Adds a layer of {@link SparkMarkers}, drawn above the sparkline at the same scale. The view
+     * redraws whenever markers are added to or removed from the layer. A layer can only be added
+     * to one view at a time.
      */
-    public void setScrubLineColor(@ColorInt int scrubLineColor) {
-        this.scrubLineColor = scrubLineColor;
-        scrubLinePaint.setColor(scrubLineColor);
-        invalidate();
+    public void addMarkers(SparkMarkers layer) {
+        if (markers.contains(layer)) return;
+        if (layer.changeListener != null) {
+            throw new IllegalStateException("SparkMarkers already added to another SparkView");
+        }
+        layer.changeListener = markersChangedListener;
+        markers.add(layer);
+        requestGeometryUpdate(STAGE_PATHS);
     }
 
     /**
-     * Get the width in pixels of the scrub line's stroke
+     * Removes a layer of {@link SparkMarkers} added with {@link #addMarkers(SparkMarkers)}.
      */
-    public float getScrubLineWidth() {
-        return scrubLineWidth;
+    public void removeMarkers(SparkMarkers layer) {
+        if (markers.remove(layer)) {
+            layer.changeListener = null;
+            layer.trim();
+            invalidate();
+        }
     }
 
     /**
-     * Set the width in pixels of the scrub line's stroke
+     * Get the marker layers drawn by this view, in drawing order.
      */
-    public void setScrubLineWidth(float scrubLineWidth) {
-        this.scrubLineWidth = scrubLineWidth;
-        scrubLinePaint.setStrokeWidth(scrubLineWidth);
-        invalidate();
+    public List<SparkMarkers> getMarkers() {
+        return new ArrayList<>(markers);
     }
 
-    /**
+    private final Runnable markersChangedListener = new Runnable() {
+        @Override
+        public void run() {
+            requestGeometryUpdate(STAGE_PATHS);
+        }
+    };
+
+    /**
+     * Get the viewport {@link Matrix}, applied in pixels after the data has been scaled to fit the
+     * view.
+     */
+    public Matrix getViewportMatrix() {
+        return new Matrix(viewportMatrix);
+    }
+
+    /**
+     * Set a {@link Matrix} to apply in pixels after the data has been scaled to fit the view, for
+     * instance to zoom and pan in response to gestures. Only scale and translation are supported.
+     * Changing the viewport only re-transforms the existing geometry; the adapter is not read
+     * again and the line width stays constant.
+     *
+     * @param matrix the viewport matrix, or null to reset to identity
+     */
+    public void setViewportMatrix(Matrix matrix) {
+        if (matrix == null) {
+            viewportMatrix.reset();
+        } else {
+            viewportMatrix.set(matrix);
+        }
+        requestGeometryUpdate(STAGE_PATHS);
+    }
+
+    /**
+     * Get the scaled (pixel) coordinate of your given x value. If no scale is currently computed
+     * (for instance {@link SparkAdapter} has not been set or has less than 2 points of data). This
+     * method will return the unscaled value.
+     *
+     * @param x    the value to scale (should be the same units as your graph's data points)
+     * @return the pixel coordinates of where this point is located in SparkView's bounds
+     */
+    public float getScaledX(float x) {
+        updateGeometry();
+        if (!hasScale) {
+            Log.w(TAG, "getScaledX() - no scale available yet.");
+            return x;
+        }
+        return mapX(x);
+    }
+
+    /**
+     * Get the scaled (pixel) coordinate of your given y value. If no scale is currently computed
+     * (for instance {@link SparkAdapter} has not been set or has less than 2 points of data). This
+     * method will return the unscaled value.
+     *
+     * @param y    the value to scale (should be the same units as your graph's data points)
+     * @return the pixel coordinates of where this point is located in SparkView's bounds
+     */
+    public float getScaledY(float y) {
+        updateGeometry();
+        if (!hasScale) {
+            Log.w(TAG, "getScaledX() - no scale available yet.");
+            return y;
+        }
+        return mapY(y);
+    }
+
+    /**
+     * Gets a copy of the sparkline path
+     */
+    public Path getSparkLinePath() {
+        updateGeometry();
+        return new Path(sparkPath);
+    }
+
+    private void setScrubLine(float x) {
+        scrubLinePath.reset();
+        scrubLinePath.moveTo(x, getPaddingTop());
+        scrubLinePath.lineTo(x, getHeight() - getPaddingBottom());
+        invalidate();
+    }
+
+    @Override
+    public void setPadding(int left, int top, int right, int bottom) {
+        if (left == getPaddingLeft() && top == getPaddingTop()
+                && right == getPaddingRight() && bottom == getPaddingBottom()) {
+            return;
+        }
+        super.setPadding(left, top, right, bottom);
+        updateContentRect();
+        requestGeometryUpdate(STAGE_SCALE);
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        updateGeometry();
+        if (adaptiveQuality && isInteracting() && quality.onFrame(System.nanoTime())) {
+            onQualityChanged();
+        }
+        if (hasRangeHighlight) {
+            canvas.drawRect(rangeHighlight, rangeHighlightPaint);
+        }
+        canvas.drawPath(baseLinePath, baseLinePaint);
+        for (int i = 0, size = overlays.size(); i < size; i++) {
+            final SparkOverlay overlay = overlays.get(i);
+            canvas.drawPath(overlay.path, overlay.getPaint());
+        }
+        final Paint paint;
+        if (renderMode == RENDER_DENSITY) {
+            paint = densityPaint;
+        } else {
+            paint = quality.getLevel() == AdaptiveQuality.LEVEL_FULL
+                    ? sparkLinePaint : fastLinePaint;
+        }
+        if (hasBelowBaseLineColor && snapshot.hasBaseLine) {
+            // the same geometry twice, clipped on either side of the base line, so crossings
+            // never split the path
+            final int color = paint.getColor();
+            canvas.save();
+            canvas.clipRect(0, 0, getWidth(), scaledBaseLine);
+            drawSparkLine(canvas, paint);
+            canvas.restore();
+
+            canvas.save();
+            canvas.clipRect(0, scaledBaseLine, getWidth(), getHeight());
+            paint.setColor(belowBaseLineColor);
+            drawSparkLine(canvas, paint);
+            paint.setColor(color);
+            canvas.restore();
+        } else {
+            drawSparkLine(canvas, paint);
+        }
+        for (int i = 0, size = markers.size(); i < size; i++) {
+            final SparkMarkers layer = markers.get(i);
+            canvas.drawPoints(layer.points, 0, layer.mappedCount * 2, layer.getPaint());
+        }
+        canvas.drawPath(scrubLinePath, scrubLinePaint);
+    }
+
+    private void drawSparkLine(Canvas canvas, Paint paint) {
+        if (renderMode == RENDER_DENSITY) {
+            if (densityBitmap != null && snapshot.count > 0) {
+                canvas.drawBitmap(densityBitmap, contentRect.left, contentRect.top, paint);
+            }
+        } else {
+            canvas.drawPath(renderPath, paint);
+        }
+    }
+
+    /**
+     * Get the color of the sparkline
+     */
+    @ColorInt public int getLineColor() {
+        return lineColor;
+    }
+
+    /**
+     * Set the color of the sparkline
+     */
+    public void setLineColor(@ColorInt int lineColor) {
+        this.lineColor = lineColor;
+        sparkLinePaint.setColor(lineColor);
+        densityPaint.setColor(lineColor);
+        invalidate();
+    }
+
+    /**
+     * Get the color of the parts of the sparkline below the base line. Unless set, the whole
+     * sparkline is drawn in the line color.
+     */
+    @ColorInt public int getBelowBaseLineColor() {
+        return hasBelowBaseLineColor ? belowBaseLineColor : lineColor;
+    }
+
+    /**
+     * Set the color of the parts of the sparkline, or its fill, below the
+     * {@linkplain SparkAdapter#getBaseLine() base line}, for instance to show losses in a
+     * different color than gains. The sparkline is drawn twice, clipped above and below the base
+     * line, so it costs no extra geometry and works with animations. A fill is closed to the base
+     * line rather than the bottom, so it shades the area between the line and the base line.
+     */
+    public void setBelowBaseLineColor(@ColorInt int belowBaseLineColor) {
+        this.belowBaseLineColor = belowBaseLineColor;
+        if (!hasBelowBaseLineColor) {
+            hasBelowBaseLineColor = true;
+            onBelowBaseLineColorToggled();
+        }
+        invalidate();
+    }
+
+    /**
+     * Draw the whole sparkline in the line color again, undoing
+     * {@link #setBelowBaseLineColor(int)}.
+     */
+    public void clearBelowBaseLineColor() {
+        if (!hasBelowBaseLineColor) return;
+        hasBelowBaseLineColor = false;
+        onBelowBaseLineColorToggled();
+        invalidate();
+    }
+
+    private void onBelowBaseLineColorToggled() {
+        // the fill closes to a different edge
+        if (fill) {
+            requestGeometryUpdate(STAGE_PATHS);
+        }
+    }
+
+    /**
+     * Get the width in pixels of the sparkline's stroke
+     */
+    public float getLineWidth() {
+        return lineWidth;
+    }
+
+    /**
+     * Set the width in pixels of the sparkline's stroke
+     */
+    public void setLineWidth(float lineWidth) {
+        this.lineWidth = lineWidth;
+        sparkLinePaint.setStrokeWidth(lineWidth);
+        invalidate();
+    }
+
+    /**
+     * Get the corner radius in pixels used when rounding the sparkline's segments.
+     */
+    public float getCornerRadius() {
+        return cornerRadius;
+    }
+
+    /**
+     * Set the corner radius in pixels to use when rounding the sparkline's segments. Passing 0
+     * indicates that corners should not be rounded.
+     */
+    public void setCornerRadius(float cornerRadius) {
+        this.cornerRadius = cornerRadius;
+        updatePathEffect();
+        invalidate();
+    }
+
+    /**
+     * Get the smoothing mode used to draw the sparkline.
+     */
+    @LineSmoothing public int getLineSmoothing() {
+        return lineSmoothing;
+    }
+
+    /**
+     * Set the smoothing mode used to draw the sparkline. Smoothed lines are computed once when the
+     * data changes rather than on every draw, and ignore the corner radius.
+     *
+     * @param lineSmoothing one of {@link #SMOOTHING_NONE}, {@link #SMOOTHING_MONOTONE_CUBIC} or
+     *                      {@link #SMOOTHING_CATMULL_ROM}
+     */
+    public void setLineSmoothing(@LineSmoothing int lineSmoothing) {
+        if (this.lineSmoothing != lineSmoothing) {
+            this.lineSmoothing = lineSmoothing;
+            updatePathEffect();
+            requestGeometryUpdate(STAGE_VERTICES);
+        }
+    }
+
+    /**
+     * Get the way the data is drawn, one of {@link #RENDER_LINE} or {@link #RENDER_DENSITY}
+     */
+    @RenderMode public int getRenderMode() {
+        return renderMode;
+    }
+
+    /**
+     * Set the way the data is drawn. {@link #RENDER_DENSITY} bins every point into a per-pixel
+     * intensity buffer drawn as a bitmap in the line color, so it costs one pass over the points
+     * and one fixed size bitmap upload however many points land on a pixel. It draws the points
+     * from the adapter's {@link LodPyramid} sample when there is one, so leave that out to see the
+     * full distribution.
+     */
+    public void setRenderMode(@RenderMode int renderMode) {
+        if (this.renderMode != renderMode) {
+            this.renderMode = renderMode;
+            requestGeometryUpdate(STAGE_VERTICES);
+        }
+    }
+
+    private void updatePathEffect() {
+        updatePathEffect(sparkLinePaint, cornerRadius, lineSmoothing);
+    }
+
+    /**
+     * Only straight segments need a {@link CornerPathEffect}; smoothed paths are already rounded.
+     * Shared with {@link SparkRenderer}.
+     */
+    static void updatePathEffect(Paint paint, float cornerRadius,
+            @LineSmoothing int lineSmoothing) {
+        if (cornerRadius != 0 && lineSmoothing == SMOOTHING_NONE) {
+            paint.setPathEffect(new CornerPathEffect(cornerRadius));
+        } else {
+            paint.setPathEffect(null);
+        }
+    }
+
+    /**
+     * Styles a paint to draw the sparkline with. Shared with {@link SparkRenderer}, so that
+     * bitmaps match views of the same style.
+     */
+    static void initSparkLinePaint(Paint paint, @ColorInt int color, float width, boolean fill) {
+        paint.setColor(color);
+        paint.setStrokeWidth(width);
+        paint.setStyle(getSparkLineStyle(fill));
+        paint.setStrokeCap(Paint.Cap.ROUND);
+    }
+
+    /**
+     * Styles a paint to draw the base line with. Shared with {@link SparkRenderer}.
+     */
+    static void initBaseLinePaint(Paint paint, @ColorInt int color, float width) {
+        paint.setStyle(Paint.Style.STROKE);
+        paint.setColor(color);
+        paint.setStrokeWidth(width);
+    }
+
+    static Paint.Style getSparkLineStyle(boolean fill) {
+        return fill ? Paint.Style.FILL : Paint.Style.STROKE;
+    }
+
+    /**
+     * Whether or not this view animates changes to its data.
+     */
+    public boolean getAnimateChanges() {
+        return animateChanges;
+    }
+
+    /**
+     * Whether or not this view should animate changes to its data.
+     */
+    public void setAnimateChanges(boolean animate) {
+        this.animateChanges = animate;
+    }
+
+    /**
+     * Whether or not this view trades rendering quality for frame rate during interactions.
+     */
+    public boolean getAdaptiveQuality() {
+        return adaptiveQuality;
+    }
+
+    /**
+     * Set whether this view trades rendering quality for frame rate while the user is scrubbing
+     * or a change is animating. If frames take longer than the
+     * {@linkplain #setFrameTimeBudget(float) frame time budget}, the sparkline is first drawn
+     * without anti-aliasing or corner effects, and then from a coarse decimation of the points.
+     * Full quality is restored when the interaction ends. Fast devices never leave full quality.
+     */
+    public void setAdaptiveQuality(boolean adaptiveQuality) {
+        this.adaptiveQuality = adaptiveQuality;
+        if (!adaptiveQuality) {
+            endInteraction();
+        }
+    }
+
+    /**
+     * Get the time, in milliseconds, that frames may take during an interaction before quality
+     * is reduced.
+     */
+    public float getFrameTimeBudget() {
+        return quality.getBudget();
+    }
+
+    /**
+     * Set the time, in milliseconds, that frames may take during an interaction before quality
+     * is reduced, when {@linkplain #setAdaptiveQuality(boolean) adaptive quality} is enabled.
+     * Defaults to a 60fps frame.
+     */
+    public void setFrameTimeBudget(float budgetMillis) {
+        quality.setBudget(budgetMillis);
+    }
+
+    private boolean isInteracting() {
+        return scrubbing || (pathAnimator != null && pathAnimator.isRunning());
+    }
+
+    /**
+     * Switches the sparkline to the geometry and paint of the current quality level.
+     */
+    private void onQualityChanged() {
+        final int level = quality.getLevel();
+        if (level != AdaptiveQuality.LEVEL_FULL) {
+            fastLinePaint.set(sparkLinePaint);
+            fastLinePaint.setAntiAlias(false);
+            fastLinePaint.setPathEffect(null);
+        }
+
+        final Path path;
+        if (level == AdaptiveQuality.LEVEL_COARSE && hasScale && snapshot.count >= 2) {
+            updateCoarsePath();
+            path = coarsePath;
+        } else {
+            path = sparkPath;
+        }
+
+        if (pathAnimator != null && pathAnimator.isRunning()) {
+            // the animation picks up the new path at the same fraction on its next frame
+            pathMeasure.setPath(path, false);
+        } else {
+            renderPath.reset();
+            renderPath.addPath(path);
+        }
+        invalidate();
+    }
+
+    private void endInteraction() {
+        if (quality.end()) {
+            onQualityChanged();
+        }
+    }
+
+    /**
+     * Get the {@link Paint} used to draw the scrub line. Any custom modifications to this
+     * {@link Paint} will not reflect until the next call to {@link #invalidate()}
+     */
+    public Paint getScrubLinePaint() {
+        return scrubLinePaint;
+    }
+
+    /**
+     * Set the {@link Paint} to be used to draw the scrub line. Warning: setting a paint other than
+     * the instance returned by {@link #getScrubLinePaint()} may result in loss of style attributes
+     * specified on this view.
+     */
+    public void setScrubLinePaint(Paint scrubLinePaint) {
+        this.scrubLinePaint = scrubLinePaint;
+        invalidate();
+    }
+
+    /**
+     * Return whether or not this sparkline should fill the area underneath.
+     */
+    public boolean isFill() {
+        return fill;
+    }
+
+    /**
+     * Set whether or not this sparkline should fill the area underneath.
+     */
+    public void setFill(boolean fill) {
+        if (this.fill != fill) {
+            this.fill = fill;
+            sparkLinePaint.setStyle(getSparkLineStyle(fill));
+            // fill changes the line width offset, so the data needs rescaling
+            requestGeometryUpdate(STAGE_SCALE);
+        }
+    }
+
+    /**
+     * Get the {@link Paint} used to draw the sparkline. Any modifications to this {@link Paint}
+     * will not reflect until the next call to {@link #invalidate()}
+     */
+    public Paint getSparkLinePaint() {
+        return sparkLinePaint;
+    }
+
+    /**
+     * Set the {@link Paint} to be used to draw the sparkline. Warning: setting a paint other than
+     * the instance returned by {@link #getSparkLinePaint()} may result in loss of style attributes
+     * specified on this view.
+     */
+    public void setSparkLinePaint(Paint pathPaint) {
+        this.sparkLinePaint = pathPaint;
+        invalidate();
+    }
+
+    /**
+     * Get the color of the base line
+     */
+    @ColorInt public int getBaseLineColor() {
+        return baseLineColor;
+    }
+
+    /**
+     * Set the color of the base line
+     */
+    public void setBaseLineColor(@ColorInt int baseLineColor) {
+        this.baseLineColor = baseLineColor;
+        baseLinePaint.setColor(baseLineColor);
+        invalidate();
+    }
+
+    /**
+     * Get the width in pixels of the base line's stroke
+     */
+    public float getBaseLineWidth() {
+        return baseLineWidth;
+    }
+
+    /**
+     * Set the width in pixels of the base line's stroke
+     */
+    public void setBaseLineWidth(float baseLineWidth) {
+        this.baseLineWidth = baseLineWidth;
+        baseLinePaint.setStrokeWidth(baseLineWidth);
+        invalidate();
+    }
+
+    /**
+     * Get the {@link Paint} used to draw the base line. Any modifications to this {@link Paint}
+     * will not reflect until the next call to {@link #invalidate()}
+     */
+    public Paint getBaseLinePaint() {
+        return baseLinePaint;
+    }
+
+    /**
+     * Set the {@link Paint} to be used to draw the base line. Warning: setting a paint other than
+     * the instance returned by {@link #getBaseLinePaint()} ()} may result in loss of style
+     * attributes specified on this view.
+     */
+    public void setBaseLinePaint(Paint baseLinePaint) {
+        this.baseLinePaint = baseLinePaint;
+        invalidate();
+    }
+
+    /**
+     * Get the color of the scrub line
+     */
+    @ColorInt public int getScrubLineColor() {
+        return scrubLineColor;
+    }
+
+    /**
+     * Set the color of the scrub line
+     */
+    public void setScrubLineColor(@ColorInt int scrubLineColor) {
+        this.scrubLineColor = scrubLineColor;
+        scrubLinePaint.setColor(scrubLineColor);
+        invalidate();
+    }
+
+    /**
+     * Get the width in pixels of the scrub line's stroke
+     */
+    public float getScrubLineWidth() {
+        return scrubLineWidth;
+    }
+
+    /**
+     * Set the width in pixels of the scrub line's stroke
+     */
+    public void setScrubLineWidth(float scrubLineWidth) {
+        this.scrubLineWidth = scrubLineWidth;
+        scrubLinePaint.setStrokeWidth(scrubLineWidth);
+        invalidate();
+    }
+
+    /**
      * Return true if scrubbing is enabled on this view
      */
     public boolean isScrubEnabled() {
@@ -499,17 +1533,84 @@ public class SparkView extends View implements ScrubGestureDetector.ScrubListene
     }
 
     /**
-     * Get the current {@link OnScrubListener}
+     * Get the current {@link OnScrubListener}
+     */
+    public OnScrubListener getScrubListener() {
+        return scrubListener;
+    }
+
+    /**
+     * Set a {@link OnScrubListener} to be notified of the user's scrubbing gestures.
+     */
+    public void setScrubListener(OnScrubListener scrubListener) {
+        this.scrubListener = scrubListener;
+    }
+
+    /**
+     * Get the current {@link OnMarkerScrubListener}
+     */
+    public OnMarkerScrubListener getMarkerScrubListener() {
+        return markerScrubListener;
+    }
+
+    /**
+     * Set a {@link OnMarkerScrubListener} to be notified of the marker nearest to the user's
+     * scrubbing finger, alongside the {@link OnScrubListener}.
+     */
+    public void setMarkerScrubListener(OnMarkerScrubListener markerScrubListener) {
+        this.markerScrubListener = markerScrubListener;
+    }
+
+    /**
+     * Return true if range scrubbing is enabled on this view
+     */
+    public boolean isRangeScrubEnabled() {
+        return rangeScrubEnabled;
+    }
+
+    /**
+     * Set whether placing a second finger on the chart while scrubbing is enabled highlights the
+     * range between the two fingers and reports its {@link RangeStats} to the
+     * {@link OnRangeScrubListener}. The stats are backed by an index built along with the paths,
+     * so every move costs the same regardless of how many points the range spans.
+     */
+    public void setRangeScrubEnabled(boolean rangeScrubEnabled) {
+        this.rangeScrubEnabled = rangeScrubEnabled;
+        scrubGestureDetector.setRangeEnabled(rangeScrubEnabled);
+        if (!rangeScrubEnabled && accessibilityProvider == null) {
+            rangeIndex.trim();
+        }
+        requestGeometryUpdate(STAGE_PATHS);
+    }
+
+    /**
+     * Get the color of the range scrub highlight
+     */
+    @ColorInt public int getRangeHighlightColor() {
+        return rangeHighlightColor;
+    }
+
+    /**
+     * Set the color of the range scrub highlight, usually a translucent one
+     */
+    public void setRangeHighlightColor(@ColorInt int rangeHighlightColor) {
+        this.rangeHighlightColor = rangeHighlightColor;
+        rangeHighlightPaint.setColor(rangeHighlightColor);
+        invalidate();
+    }
+
+    /**
+     * Get the current {@link OnRangeScrubListener}
      */
-    public OnScrubListener getScrubListener() {
-        return scrubListener;
+    public OnRangeScrubListener getRangeScrubListener() {
+        return rangeScrubListener;
     }
 
     /**
-     * Set a {@link OnScrubListener} to be notified of the user's scrubbing gestures.
+     * Set a {@link OnRangeScrubListener} to be notified of the user's range scrubbing gestures.
      */
-    public void setScrubListener(OnScrubListener scrubListener) {
-        this.scrubListener = scrubListener;
+    public void setRangeScrubListener(OnRangeScrubListener rangeScrubListener) {
+        this.rangeScrubListener = rangeScrubListener;
     }
 
     /**
@@ -523,14 +1624,133 @@ public class SparkView extends View implements ScrubGestureDetector.ScrubListene
      * Sets the backing {@link SparkAdapter} to generate the points to be graphed
      */
     public void setAdapter(SparkAdapter adapter) {
-        if (this.adapter != null) {
+        // only observe while attached, so the adapter never keeps a detached view alive
+        if (this.adapter != null && attached) {
             this.adapter.unregisterDataSetObserver(dataSetObserver);
         }
         this.adapter = adapter;
-        if (this.adapter != null) {
+        if (this.adapter != null && attached) {
             this.adapter.registerDataSetObserver(dataSetObserver);
         }
-        populatePath();
+        // derived points belong to the previous adapter
+        snapshotChanges = -1;
+        if (transformPipeline != null) {
+            transformPipeline.invalidate();
+        }
+        for (int i = 0, size = overlays.size(); i < size; i++) {
+            overlays.get(i).getPipeline().invalidate();
+        }
+        requestGeometryUpdate(STAGE_DATA | STAGE_BOUNDS);
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        attached = true;
+        if (adapter != null) {
+            adapter.registerDataSetObserver(dataSetObserver);
+        }
+        getContext().getApplicationContext().registerComponentCallbacks(componentCallbacks);
+        if (scrubGroup != null) {
+            scrubGroup.add(this);
+        }
+        // changes made while detached weren't observed
+        dirtyStages |= STAGE_DATA | STAGE_BOUNDS;
+        updateVisibleState();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        attached = false;
+        if (adapter != null) {
+            adapter.unregisterDataSetObserver(dataSetObserver);
+        }
+        getContext().getApplicationContext().unregisterComponentCallbacks(componentCallbacks);
+        scrubGestureDetector.cancel();
+        if (accessibilityProvider != null) {
+            accessibilityProvider.cancelPendingEvents();
+        }
+        // rejoined once attached again
+        if (scrubGroup != null) {
+            scrubGroup.remove(this);
+            endGroupScrub();
+        }
+        updateVisibleState();
+    }
+
+    @Override
+    protected Parcelable onSaveInstanceState() {
+        final Parcelable superState = super.onSaveInstanceState();
+        final SavedState state = new SavedState(superState);
+        // derived, sampled or out of date points can't be checked against the adapter on restore
+        final boolean current = adapter != null && (dirtyStages & STAGE_DATA) == 0
+                && adapter.getDataVersion() == snapshotVersion;
+        if (current && transformPipeline == null && snapshot.indices == null
+                && snapshot.count >= 2 && snapshot.count <= MAX_SAVED_POINTS && hasDataBounds) {
+            state.dataVersion = snapshotVersion;
+            state.offset = snapshot.offset;
+            state.xs = Arrays.copyOf(snapshot.xs, snapshot.count);
+            state.ys = Arrays.copyOf(snapshot.ys, snapshot.count);
+            state.hasBaseLine = snapshot.hasBaseLine;
+            state.baseLine = snapshot.baseLine;
+            state.boundsLeft = dataBounds.left;
+            state.boundsTop = dataBounds.top;
+            state.boundsRight = dataBounds.right;
+            state.boundsBottom = dataBounds.bottom;
+        }
+        return state;
+    }
+
+    @Override
+    protected void onRestoreInstanceState(Parcelable state) {
+        if (!(state instanceof SavedState)) {
+            super.onRestoreInstanceState(state);
+            return;
+        }
+        final SavedState savedState = (SavedState) state;
+        super.onRestoreInstanceState(savedState.getSuperState());
+        // applied on the next data update, whether the adapter was set before or after this
+        restoredState = savedState;
+        requestGeometryUpdate(STAGE_DATA | STAGE_BOUNDS);
+    }
+
+    @Override
+    protected void onVisibilityChanged(View changedView, int visibility) {
+        super.onVisibilityChanged(changedView, visibility);
+        updateVisibleState();
+    }
+
+    @Override
+    protected void onWindowVisibilityChanged(int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+        updateVisibleState();
+    }
+
+    /**
+     * Tracks whether the view can currently be seen. While it can't, data changes are only
+     * recorded in the dirty stages and applied as one update once it becomes visible again.
+     */
+    private void updateVisibleState() {
+        // may be called from View's constructor, before our fields are initialized
+        final boolean visible = attached && getWindowVisibility() == VISIBLE && isShown();
+        if (visible == this.visible) return;
+        this.visible = visible;
+
+        if (!visible) {
+            // jump to the end, there is no one to watch it and the animator would keep us alive
+            if (pathAnimator != null && pathAnimator.isRunning()) {
+                pathAnimator.end();
+            }
+        } else if (pendingAnimation) {
+            pendingAnimation = false;
+            if (animateChanges && updateGeometry()) {
+                doPathAnimation();
+            }
+            invalidate();
+        } else if (dirtyStages != 0) {
+            invalidate();
+        }
     }
 
     private void doPathAnimation() {
@@ -542,28 +1762,167 @@ public class SparkView extends View implements ScrubGestureDetector.ScrubListene
             shortAnimationTime = getResources().getInteger(android.R.integer.config_shortAnimTime);
         }
 
-        final PathMeasure pathMeasure = new PathMeasure(sparkPath, false);
+        pathMeasure.setPath(
+                quality.getLevel() == AdaptiveQuality.LEVEL_COARSE ? coarsePath : sparkPath, false);
 
         float endLength = pathMeasure.getLength();
         if (endLength == 0) return;
 
-        pathAnimator = ValueAnimator.ofFloat(0, endLength);
+        // the animator and its listeners are reused, so live data doesn't churn through them
+        if (pathAnimator == null) {
+            pathAnimator = ValueAnimator.ofFloat(0, 1);
+            pathAnimator.addUpdateListener(pathAnimatorListener);
+            pathAnimator.addListener(pathAnimatorEndListener);
+        }
         pathAnimator.setDuration(shortAnimationTime);
-        pathAnimator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
-            @Override
-            public void onAnimationUpdate(ValueAnimator animation) {
-                float animatedPathLength = (Float) animation.getAnimatedValue();
-                renderPath.reset();
-                pathMeasure.getSegment(0, animatedPathLength, renderPath, true);
-                renderPath.rLineTo(0, 0);
-                invalidate();
-            }
-        });
         pathAnimator.start();
     }
 
+    private final ValueAnimator.AnimatorUpdateListener pathAnimatorListener =
+            new ValueAnimator.AnimatorUpdateListener() {
+        @Override
+        public void onAnimationUpdate(ValueAnimator animation) {
+            // by fraction, since adaptive quality may swap the measured path mid-animation
+            float animatedPathLength = animation.getAnimatedFraction() * pathMeasure.getLength();
+            renderPath.reset();
+            pathMeasure.getSegment(0, animatedPathLength, renderPath, true);
+            renderPath.rLineTo(0, 0);
+            invalidate();
+        }
+    };
+
+    private final AnimatorListenerAdapter pathAnimatorEndListener = new AnimatorListenerAdapter() {
+        @Override
+        public void onAnimationEnd(Animator animation) {
+            if (!scrubbing) {
+                endInteraction();
+            }
+        }
+    };
+
+    /**
+     * Get the {@link ComponentCallbacks2} trim level at or above which this view releases its
+     * cached geometry.
+     */
+    public int getTrimMemoryLevel() {
+        return trimMemoryLevel;
+    }
+
+    /**
+     * Set the {@link ComponentCallbacks2} trim level at or above which this view releases its
+     * cached geometry, see {@link #trimMemory()}. Defaults to
+     * {@link ComponentCallbacks2#TRIM_MEMORY_UI_HIDDEN}, so visible charts are left alone. Use
+     * {@link Integer#MAX_VALUE} to never trim.
+     */
+    public void setTrimMemoryLevel(int trimMemoryLevel) {
+        this.trimMemoryLevel = trimMemoryLevel;
+    }
+
+    /**
+     * Releases this view's cached geometry: its copy of the adapter's points, which is also used
+     * to look up scrubbed points, its paths and tiles, and the buffers used for smoothing and
+     * animating. Everything is rebuilt from the adapter the next time it is needed. The current
+     * scale and bounds are kept.
+     */
+    public void trimMemory() {
+        if (pathAnimator != null && pathAnimator.isRunning()) {
+            pathAnimator.end();
+        }
+        snapshot.trim();
+        rangeIndex.trim();
+        sampledEnd = 0;
+        for (int i = 0, size = overlays.size(); i < size; i++) {
+            overlays.get(i).trim();
+        }
+        for (int i = 0, size = markers.size(); i < size; i++) {
+            markers.get(i).trim();
+        }
+        if (tileCache != null) {
+            tileCache.trim();
+        }
+        curve.trim();
+        coarsePoints = null;
+        if (densityBitmap != null) {
+            densityBitmap.recycle();
+            densityBitmap = null;
+            densityBuffer = null;
+            densityMap.trim();
+        }
+        pathMeasure.setPath(null, false);
+        dataPath.reset();
+        dataPathCount = 0;
+        tilePath.reset();
+        coarsePath.reset();
+        sparkPath.reset();
+        renderPath.reset();
+        requestGeometryUpdate(STAGE_DATA | STAGE_VERTICES);
+    }
+
+    /**
+     * Estimates the memory currently held by this view, and by any caches it shares through its
+     * adapter.
+     */
+    public SparkMemoryUsage getMemoryUsage() {
+        long javaBytes = snapshot.getApproximateBytes()
+                + SparkMemoryUsage.arrayBytes(curve.controlPoints)
+                + SparkMemoryUsage.arrayBytes(curve.tangents)
+                + SparkMemoryUsage.arrayBytes(coarsePoints)
+                + (rangeScrubEnabled || accessibilityProvider != null
+                        ? rangeIndex.getApproximateBytes() : 0)
+                + (densityMap != null ? densityMap.getApproximateBytes() : 0);
+
+        // every segment is a line, or a cubic with 2 control points
+        final int pointsPerSegment = lineSmoothing == SMOOTHING_NONE ? 1 : 3;
+        final int pathPoints = snapshot.count == 0
+                ? 0 : (snapshot.count - 1) * pointsPerSegment + 1 + (fill ? 2 : 0);
+        long nativeBytes = SparkMemoryUsage.pathBytes(pathPoints) * 2 // sparkPath and renderPath
+                + SparkMemoryUsage.pathBytes(2) * 2 // baseLinePath and scrubLinePath
+                + SparkMemoryUsage.pathBytes(coarsePoints == null ? 0 : coarsePoints.length / 2);
+        if (densityBitmap != null) {
+            nativeBytes += (long) densityBitmap.getRowBytes() * densityBitmap.getHeight();
+        }
+        if (tileCache != null) {
+            nativeBytes += tileCache.getApproximateNativeBytes(snapshot, pointsPerSegment)
+                    + SparkMemoryUsage.pathBytes(fill ? pathPoints : 0);
+        } else {
+            nativeBytes += SparkMemoryUsage.pathBytes(pathPoints);
+        }
+
+        for (int i = 0, size = overlays.size(); i < size; i++) {
+            final SparkOverlay overlay = overlays.get(i);
+            javaBytes += overlay.snapshot.getApproximateBytes();
+            nativeBytes += SparkMemoryUsage.pathBytes(overlay.pathCount) * 2;
+        }
+        for (int i = 0, size = markers.size(); i < size; i++) {
+            javaBytes += markers.get(i).getApproximateBytes();
+        }
+
+        final LodPyramid pyramid = adapter == null ? null : adapter.getLodPyramid();
+        long sharedBytes = pyramid == null ? 0 : pyramid.getApproximateBytes();
+        if (adapter instanceof PagedSparkAdapter) {
+            sharedBytes += ((PagedSparkAdapter) adapter).getApproximateBytes();
+        }
+        return new SparkMemoryUsage(javaBytes, nativeBytes, sharedBytes);
+    }
+
     private void clearData() {
-        scaleHelper = null;
+        hasScale = false;
+        hasDataBounds = false;
+        sampledEnd = 0;
+        snapshot.clear();
+        if (tileCache != null) {
+            tileCache.invalidateAll();
+        }
+        for (int i = 0, size = overlays.size(); i < size; i++) {
+            overlays.get(i).clear();
+        }
+        for (int i = 0, size = markers.size(); i < size; i++) {
+            // nothing to place them against
+            markers.get(i).mappedCount = 0;
+        }
+        if (scrubGroup != null) {
+            scrubGroup.onDataChanged(this, snapshot.xs, 0);
+        }
         renderPath.reset();
         sparkPath.reset();
         baseLinePath.reset();
@@ -571,64 +1930,106 @@ public class SparkView extends View implements ScrubGestureDetector.ScrubListene
     }
 
     /**
-     * Helper class for handling scaling logic.
+     * The points and bounds last drawn, so a view recreated by a configuration change can rescale
+     * them to its new size instead of reading the adapter and fitting its bounds again.
      */
-    static class ScaleHelper {
-        // the width and height of the view
-        final float width, height;
-        final int size;
-        // the scale factor for the Y values
-        final float xScale, yScale;
-        // translates the Y values back into the bounding rect after being scaled
-        final float xTranslation, yTranslation;
+    static class SavedState extends BaseSavedState {
+        long dataVersion;
+        int offset;
+        // null if the points weren't saved
+        float[] xs;
+        float[] ys;
+        boolean hasBaseLine;
+        float baseLine;
+        float boundsLeft;
+        float boundsTop;
+        float boundsRight;
+        float boundsBottom;
+
+        SavedState(Parcelable superState) {
+            super(superState);
+        }
 
-        public ScaleHelper(SparkAdapter adapter, RectF contentRect, float lineWidth, boolean fill) {
-            final float leftPadding = contentRect.left;
-            final float topPadding = contentRect.top;
+        private SavedState(Parcel in) {
+            super(in);
+            if (in.readInt() == 0) return;
+            dataVersion = in.readLong();
+            offset = in.readInt();
+            xs = in.createFloatArray();
+            ys = in.createFloatArray();
+            hasBaseLine = in.readInt() != 0;
+            baseLine = in.readFloat();
+            boundsLeft = in.readFloat();
+            boundsTop = in.readFloat();
+            boundsRight = in.readFloat();
+            boundsBottom = in.readFloat();
+        }
+
+        @Override
+        public void writeToParcel(Parcel out, int flags) {
+            super.writeToParcel(out, flags);
+            out.writeInt(xs != null ? 1 : 0);
+            if (xs == null) return;
+            out.writeLong(dataVersion);
+            out.writeInt(offset);
+            out.writeFloatArray(xs);
+            out.writeFloatArray(ys);
+            out.writeInt(hasBaseLine ? 1 : 0);
+            out.writeFloat(baseLine);
+            out.writeFloat(boundsLeft);
+            out.writeFloat(boundsTop);
+            out.writeFloat(boundsRight);
+            out.writeFloat(boundsBottom);
+        }
 
-            // subtract lineWidth to offset for 1/2 of the line bleeding out of the content box on
-            // either side of the view
-            final float lineWidthOffset = fill ? 0 : lineWidth;
-            this.width = contentRect.width() - lineWidthOffset;
-            this.height = contentRect.height() - lineWidthOffset;
+        public static final Parcelable.Creator<SavedState> CREATOR =
+                new Parcelable.Creator<SavedState>() {
+            @Override
+            public SavedState createFromParcel(Parcel in) {
+                return new SavedState(in);
+            }
 
-            this.size = adapter.getCount();
+            @Override
+            public SavedState[] newArray(int size) {
+                return new SavedState[size];
+            }
+        };
+    }
 
-            // get data bounds from adapter
-            RectF bounds = adapter.getDataBounds();
+    /**
+     * Helper class for handling scaling logic.
+     */
+    static class ScaleHelper extends LinearScale {
 
-            // if data is a line (which technically has no size), expand bounds to center the data
-            bounds.inset(bounds.width() == 0 ? -1 : 0, bounds.height() == 0 ? -1 : 0);
+        ScaleHelper() {}
 
-            final float minX = bounds.left;
-            final float maxX = bounds.right;
-            final float minY = bounds.top;
-            final float maxY = bounds.bottom;
+        public ScaleHelper(SparkAdapter adapter, RectF contentRect, float lineWidth, boolean fill) {
+            this(adapter.getDataBounds(), adapter.getCount(), contentRect, lineWidth, fill);
+        }
 
-            // xScale will compress or expand the min and max x values to be just inside the view
-            this.xScale = width / (maxX - minX);
-            // xTranslation will move the x points back between 0 - width
-            this.xTranslation = leftPadding - (minX * xScale) + (lineWidthOffset / 2);
-            // yScale will compress or expand the min and max y values to be just inside the view
-            this.yScale = height / (maxY - minY);
-            // yTranslation will move the y points back between 0 - height
-            this.yTranslation = minY * yScale + topPadding + (lineWidthOffset / 2);
+        public ScaleHelper(RectF bounds, int size, RectF contentRect, float lineWidth,
+                boolean fill) {
+            set(bounds, size, contentRect, lineWidth, fill);
         }
 
         /**
-         * Given the 'raw' X value, scale it to fit within our view.
+         * Recomputes the scale in place, so a single helper can be reused across updates.
          */
-        public float getX(float rawX) {
-            return rawX * xScale + xTranslation;
+        void set(RectF bounds, int size, RectF contentRect, float lineWidth, boolean fill) {
+            set(bounds.left, bounds.top, bounds.right, bounds.bottom, size,
+                    contentRect.left, contentRect.top, contentRect.right, contentRect.bottom,
+                    lineWidth, fill);
         }
 
         /**
-         * Given the 'raw' Y value, scale it to fit within our view. This method also 'flips' the
-         * value to be ready for drawing.
+         * Sets the given {@link Matrix} to map 'raw' values the same way as {@link #getX(float)}
+         * and {@link #getY(float)}.
          */
-        public float getY(float rawY) {
-            return height - (rawY * yScale) + yTranslation;
+        public void toMatrix(Matrix matrix) {
+            matrix.setScale(xScale, -yScale);
+            matrix.postTranslate(xTranslation, height + yTranslation);
         }
+
     }
 
     @Override
@@ -662,9 +2063,11 @@ public class SparkView extends View implements ScrubGestureDetector.ScrubListene
 
     /**
      * returns the nearest index (into {@link #adapter}'s data) for the given x coordinate.
+     *
+     * @param points sorted x coordinates, of which only the first {@code count} are used
      */
-    static int getNearestIndex(List<Float> points, float x) {
-        int index = Collections.binarySearch(points, x);
+    static int getNearestIndex(float[] points, int count, float x) {
+        int index = Arrays.binarySearch(points, 0, count, x);
 
         // if binary search returns positive, we had an exact match, return that index
         if (index >= 0) return index;
@@ -676,11 +2079,11 @@ public class SparkView extends View implements ScrubGestureDetector.ScrubListene
         if (index == 0) return index;
 
         // if we're inserting at the very end, then our guaranteed nearest index is the final one
-        if (index == points.size()) return --index;
+        if (index == count) return --index;
 
         // otherwise we need to check which of our two neighbors we're closer to
-        final float deltaUp = points.get(index) - x;
-        final float deltaDown = x - points.get(index - 1);
+        final float deltaUp = points[index] - x;
+        final float deltaDown = x - points[index - 1];
         if (deltaUp > deltaDown) {
             // if the below neighbor is closer, decrement our index
             index--;
@@ -692,24 +2095,347 @@ public class SparkView extends View implements ScrubGestureDetector.ScrubListene
     @Override
     public void onScrubbed(float x, float y) {
         if (adapter == null || adapter.getCount() == 0) return;
-        if (scrubListener != null) {
+        scrubbing = true;
+        updateGeometry();
+        if (scrubGroup != null) {
+            if (!hasScale) return;
+            getParent().requestDisallowInterceptTouchEvent(true);
+            // one search on the shared timeline moves every member, this view included
+            scrubGroup.scrub(unmapX(x));
+            return;
+        }
+        if (scrubListener != null && hasScale) {
             getParent().requestDisallowInterceptTouchEvent(true);
-            int index = getNearestIndex(xPoints, x);
+            // search in data space rather than keeping a scaled copy of every x
+            int index = getNearestIndex(snapshot.xs, snapshot.count, unmapX(x));
             if (scrubListener != null) {
-                scrubListener.onScrubbed(adapter.getItem(index));
+                scrubListener.onScrubbed(adapter.getItem(snapshot.getAdapterIndex(index)));
             }
         }
+        if (markerScrubListener != null && hasScale) {
+            getParent().requestDisallowInterceptTouchEvent(true);
+            reportNearestMarker(unmapX(x));
+        }
 
         setScrubLine(x);
     }
 
+    /**
+     * Get the {@link SparkScrubGroup} this view scrubs with, if any
+     */
+    public SparkScrubGroup getScrubGroup() {
+        return scrubGroup;
+    }
+
+    /**
+     * Set a {@link SparkScrubGroup} to link this view's scrubbing with other views on the same
+     * time axis, or null to scrub on its own again. The view only takes part in the group while
+     * it is attached to a window, so the group never keeps a detached view alive.
+     */
+    public void setScrubGroup(SparkScrubGroup scrubGroup) {
+        if (this.scrubGroup == scrubGroup) return;
+        if (this.scrubGroup != null) {
+            this.scrubGroup.remove(this);
+            endGroupScrub();
+        }
+        this.scrubGroup = scrubGroup;
+        if (scrubGroup != null && attached) {
+            scrubGroup.add(this);
+        }
+    }
+
+    /**
+     * Offers this view's points to its scrub group as the shared timeline.
+     */
+    void updateScrubGroupTimeline() {
+        if (scrubGroup != null) {
+            scrubGroup.onDataChanged(this, snapshot.xs, snapshot.count);
+        }
+    }
+
+    /**
+     * Shows the scrub line and notifies the listeners for the point at the given data space X,
+     * scrubbed on any member of this view's group. The timeline index is used as is if this
+     * view's points line up with the timeline, so the group's one search covers every member.
+     */
+    void showGroupScrub(float x, int timelineIndex) {
+        updateGeometry();
+        if (!hasScale || snapshot.count == 0) return;
+        final int index = timelineIndex >= 0 && timelineIndex < snapshot.count
+                && snapshot.xs[timelineIndex] == x
+                ? timelineIndex
+                : getNearestIndex(snapshot.xs, snapshot.count, x);
+        if (scrubListener != null) {
+            scrubListener.onScrubbed(adapter.getItem(snapshot.getAdapterIndex(index)));
+        }
+        if (markerScrubListener != null) {
+            reportNearestMarker(x);
+        }
+        moveScrubLine(mapX(snapshot.xs[index]));
+    }
+
+    /**
+     * Removes the scrub line shown for this view's group and notifies the listeners.
+     */
+    void endGroupScrub() {
+        if (scrubLineX != scrubLineX) return; // NaN, no line shown
+        if (scrubListener != null) scrubListener.onScrubbed(null);
+        if (markerScrubListener != null) markerScrubListener.onMarkerScrubbed(null, -1);
+        scrubLinePath.reset();
+        invalidateScrubStrip(scrubLineX);
+        scrubLineX = Float.NaN;
+    }
+
+    /**
+     * Moves the scrub line to the given pixel x, invalidating only the strips it left and entered.
+     * That only limits the redrawn area in software rendering: with hardware acceleration, API 21
+     * and later ignore the dirty rect and redraw the whole view, see
+     * {@link #invalidateScrubStrip(float)}.
+     */
+    private void moveScrubLine(float x) {
+        final float oldX = scrubLineX;
+        if (x == oldX) return;
+        scrubLineX = x;
+        scrubLinePath.reset();
+        scrubLinePath.moveTo(x, getPaddingTop());
+        scrubLinePath.lineTo(x, getHeight() - getPaddingBottom());
+        if (oldX == oldX) {
+            invalidateScrubStrip(oldX);
+        }
+        invalidateScrubStrip(x);
+    }
+
+    /**
+     * Invalidates the full height strip around a scrub line at the given pixel x. Since API 21,
+     * hardware accelerated views treat this like {@link #invalidate()}, re-recording and redrawing
+     * everything, so there the strip saves nothing; it still does for software layers and older
+     * versions.
+     */
+    private void invalidateScrubStrip(float x) {
+        // round caps reach half the stroke width past the line's ends, which the strip's full
+        // height covers
+        final float halfWidth = scrubLinePaint.getStrokeWidth() / 2 + 1;
+        invalidate((int) Math.floor(x - halfWidth), 0, (int) Math.ceil(x + halfWidth), getHeight());
+    }
+
+    /**
+     * Reports the marker nearest to the given data space X across all layers.
+     */
+    private void reportNearestMarker(float x) {
+        SparkMarkers nearestLayer = null;
+        int nearestIndex = -1;
+        float nearestDistance = Float.MAX_VALUE;
+        for (int i = 0, size = markers.size(); i < size; i++) {
+            final SparkMarkers layer = markers.get(i);
+            final int index = layer.getNearestIndex(x);
+            if (index < 0) continue;
+            final float distance = Math.abs(layer.getX(index) - x);
+            if (distance < nearestDistance) {
+                nearestLayer = layer;
+                nearestIndex = index;
+                nearestDistance = distance;
+            }
+        }
+        markerScrubListener.onMarkerScrubbed(nearestLayer, nearestIndex);
+    }
+
+    @Override
+    public void onRangeScrubbed(float x1, float x2) {
+        if (adapter == null || adapter.getCount() == 0) return;
+        scrubbing = true;
+        updateGeometry();
+        if (!hasScale || snapshot.count < 2) return;
+        getParent().requestDisallowInterceptTouchEvent(true);
+
+        int start = getNearestIndex(snapshot.xs, snapshot.count, unmapX(Math.min(x1, x2)));
+        int end = getNearestIndex(snapshot.xs, snapshot.count, unmapX(Math.max(x1, x2)));
+        final int count = end - start + 1;
+        rangeStats.set(snapshot.getAdapterIndex(start), snapshot.getAdapterIndex(end),
+                snapshot.ys[start], snapshot.ys[end],
+                rangeIndex.max(start, end + 1), rangeIndex.min(start, end + 1),
+                (float) (rangeIndex.sum(start, end + 1) / count), count);
+
+        // snap the highlight to the points it summarizes
+        final float left = mapX(snapshot.xs[start]);
+        final float right = mapX(snapshot.xs[end]);
+        final float top = getPaddingTop();
+        final float bottom = getHeight() - getPaddingBottom();
+        rangeHighlight.left = left;
+        rangeHighlight.top = top;
+        rangeHighlight.right = right;
+        rangeHighlight.bottom = bottom;
+        hasRangeHighlight = true;
+        scrubLinePath.reset();
+        scrubLinePath.moveTo(left, top);
+        scrubLinePath.lineTo(left, bottom);
+        scrubLinePath.moveTo(right, top);
+        scrubLinePath.lineTo(right, bottom);
+        invalidate();
+
+        if (rangeScrubListener != null) {
+            rangeScrubListener.onRangeScrubbed(rangeStats);
+        }
+    }
+
     @Override
     public void onScrubEnded() {
+        final boolean wasRange = hasRangeHighlight;
+        hasRangeHighlight = false;
+        scrubbing = false;
+        if (pathAnimator == null || !pathAnimator.isRunning()) {
+            endInteraction();
+        }
+        if (scrubGroup != null && !wasRange) {
+            scrubGroup.endScrub();
+            return;
+        }
         scrubLinePath.reset();
-        if (scrubListener != null) scrubListener.onScrubbed(null);
+        if (wasRange) {
+            if (rangeScrubListener != null) rangeScrubListener.onRangeScrubbed(null);
+        } else if (scrubListener != null) {
+            scrubListener.onScrubbed(null);
+        }
+        if (!wasRange && markerScrubListener != null) {
+            markerScrubListener.onMarkerScrubbed(null, -1);
+        }
         invalidate();
     }
 
+    /**
+     * Get the maximum number of nodes the chart is split into for accessibility services.
+     */
+    public int getAccessibilityBucketCount() {
+        return accessibilityBucketCount;
+    }
+
+    /**
+     * Set the maximum number of nodes the chart is split into for accessibility services such as
+     * TalkBack. Each node summarizes a consecutive range of points, so exploring the chart by touch
+     * costs the same however many points it has. 20 by default.
+     */
+    public void setAccessibilityBucketCount(int accessibilityBucketCount) {
+        if (accessibilityBucketCount < 1) {
+            throw new IllegalArgumentException("accessibilityBucketCount must be at least 1");
+        }
+        this.accessibilityBucketCount = accessibilityBucketCount;
+        if (accessibilityProvider != null) {
+            accessibilityProvider.onContentChanged();
+        }
+    }
+
+    /**
+     * Get the formatter that describes each accessibility node, or null for the default.
+     */
+    public AccessibilityFormatter getAccessibilityFormatter() {
+        return accessibilityFormatter;
+    }
+
+    /**
+     * Set a formatter to describe each accessibility node's range of points, for instance as
+     * prices with dates. By default a node reads its open, high, low and close values.
+     */
+    public void setAccessibilityFormatter(AccessibilityFormatter accessibilityFormatter) {
+        this.accessibilityFormatter = accessibilityFormatter;
+    }
+
+    /**
+     * Only creates the virtual node provider once an accessibility service is running, so
+     * there is nothing to build or keep up to date otherwise.
+     */
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    @Override
+    public AccessibilityNodeProvider getAccessibilityNodeProvider() {
+        if (accessibilityProvider == null) {
+            if (accessibilityManager == null) {
+                accessibilityManager = (AccessibilityManager)
+                        getContext().getSystemService(Context.ACCESSIBILITY_SERVICE);
+            }
+            if (!accessibilityManager.isEnabled()) {
+                return super.getAccessibilityNodeProvider();
+            }
+            accessibilityProvider = new SparkAccessibilityProvider(this);
+        }
+        return accessibilityProvider;
+    }
+
+    @Override
+    protected boolean dispatchHoverEvent(MotionEvent event) {
+        if (accessibilityProvider != null && accessibilityManager.isTouchExplorationEnabled()
+                && accessibilityProvider.onHoverEvent(event)) {
+            return true;
+        }
+        return super.dispatchHoverEvent(event);
+    }
+
+    /**
+     * Brings the geometry and range index up to date for the accessibility nodes.
+     *
+     * @return the number of nodes, 0 if there is nothing to describe
+     */
+    int prepareAccessibilityBuckets() {
+        updateGeometry();
+        if (!hasScale || snapshot.count < 2) return 0;
+        if (rangeIndex.size() != snapshot.count) {
+            rangeIndex.update(snapshot.ys, snapshot.count, 0);
+        }
+        return AccessibilityBuckets.getBucketCount(snapshot.count, accessibilityBucketCount);
+    }
+
+    /**
+     * @return the node under the given pixel x, or -1 if there is none.
+     */
+    int getAccessibilityBucketAt(float x) {
+        final int buckets = prepareAccessibilityBuckets();
+        if (buckets == 0 || x < 0 || x > getWidth()) return -1;
+        final int index = getNearestIndex(snapshot.xs, snapshot.count, unmapX(x));
+        return AccessibilityBuckets.getBucket(index, buckets, snapshot.count);
+    }
+
+    /**
+     * Fills {@code out} with the strip a node covers, reaching halfway to the neighboring nodes'
+     * points so the strips tile the content area the same way scrubbing picks points.
+     */
+    void getAccessibilityBucketBounds(int bucket, Rect out) {
+        final int buckets = prepareAccessibilityBuckets();
+        final int count = snapshot.count;
+        final float[] xs = snapshot.xs;
+        final int start = AccessibilityBuckets.getStart(bucket, buckets, count);
+        final int end = AccessibilityBuckets.getStart(bucket + 1, buckets, count);
+        final float left = start == 0
+                ? contentRect.left : (mapX(xs[start - 1]) + mapX(xs[start])) / 2;
+        final float right = end == count
+                ? contentRect.right : (mapX(xs[end - 1]) + mapX(xs[end])) / 2;
+        out.set(Math.max((int) Math.floor(left), 0), getPaddingTop(),
+                Math.min((int) Math.ceil(right), getWidth()), getHeight() - getPaddingBottom());
+    }
+
+    /**
+     * @return the description of a node's range of points, or null if there is no such node.
+     */
+    CharSequence describeAccessibilityBucket(int bucket) {
+        final int buckets = prepareAccessibilityBuckets();
+        if (bucket < 0 || bucket >= buckets) return null;
+        final int start = AccessibilityBuckets.getStart(bucket, buckets, snapshot.count);
+        final int end = AccessibilityBuckets.getStart(bucket + 1, buckets, snapshot.count);
+        final int count = end - start;
+        accessibilityStats.set(snapshot.getAdapterIndex(start), snapshot.getAdapterIndex(end - 1),
+                snapshot.ys[start], snapshot.ys[end - 1],
+                rangeIndex.max(start, end), rangeIndex.min(start, end),
+                (float) (rangeIndex.sum(start, end) / count), count);
+        if (accessibilityFormatter != null) {
+            return accessibilityFormatter.format(accessibilityStats);
+        }
+        if (accessibilityNumberFormat == null) {
+            accessibilityNumberFormat = NumberFormat.getInstance();
+        }
+        final NumberFormat format = accessibilityNumberFormat;
+        return getContext().getString(R.string.spark_accessibility_range,
+                format.format(accessibilityStats.getStartValue()),
+                format.format(accessibilityStats.getHigh()),
+                format.format(accessibilityStats.getLow()),
+                format.format(accessibilityStats.getEndValue()));
+    }
+
     /**
      * Listener for a user scrubbing (dragging their finger along) the graph.
      */
@@ -721,13 +2447,74 @@ public class SparkView extends View implements ScrubGestureDetector.ScrubListene
         void onScrubbed(Object value);
     }
 
+    /**
+     * Listener for the marker nearest to a user's scrubbing finger.
+     */
+    public interface OnMarkerScrubListener {
+        /**
+         * Indicates the marker nearest to the scrubbed point, by its layer and its index within
+         * that layer. A null layer and an index of -1 indicate that there are no markers or that
+         * the user has stopped scrubbing.
+         */
+        void onMarkerScrubbed(SparkMarkers layer, int index);
+    }
+
+    /**
+     * Listener for a user range scrubbing (dragging two fingers along) the graph.
+     */
+    public interface OnRangeScrubListener {
+        /**
+         * Indicates the user is currently range scrubbing over the given range. The stats
+         * instance is reused for every call. A null value indicates that the user has stopped
+         * range scrubbing.
+         */
+        void onRangeScrubbed(RangeStats stats);
+    }
+
+    /**
+     * Describes the range of points behind one of the chart's accessibility nodes.
+     */
+    public interface AccessibilityFormatter {
+        /**
+         * @return the text read out for the given range. The stats instance is reused for every
+         * node.
+         */
+        CharSequence format(RangeStats stats);
+    }
+
+    private final ComponentCallbacks2 componentCallbacks = new ComponentCallbacks2() {
+        @Override
+        public void onTrimMemory(int level) {
+            if (level >= trimMemoryLevel) {
+                trimMemory();
+            }
+        }
+
+        @Override
+        public void onLowMemory() {
+            trimMemory();
+        }
+
+        @Override
+        public void onConfigurationChanged(Configuration newConfig) {
+        }
+    };
+
     private final DataSetObserver dataSetObserver = new DataSetObserver() {
         @Override
         public void onChanged() {
             super.onChanged();
-            populatePath();
+            // bounds are always re-read, adapters may change them without changing their points
+            requestGeometryUpdate(STAGE_DATA | STAGE_BOUNDS);
+
+            // while hidden, the changes pile up and are animated once when visible again
+            if (!visible) {
+                pendingAnimation = true;
+                return;
+            }
 
-            if (animateChanges) {
+            // the animation needs the new path right away
+            if (animateChanges && updateGeometry()) {
                 doPathAnimation();
             }
         }
@@ -0,0 +1,180 @@
+/**
+ * Copyright (C) 2016 Robinhood Markets, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.robinhood.spark;
+
+import android.graphics.RectF;
+
+/**
+ * A chain of {@link TransformStage}s that {@link SparkView} runs over its adapter's points before
+ * drawing them, for instance to normalize, smooth or thin out raw data without preprocessing it
+ * in the adapter. All stages run in one pass that reads each adapter point once and writes the
+ * result straight into the view's vertex buffer, and the bounds are tracked along the way.
+ *
+ * <p>Stages carry state from every earlier point, so any change to a point that was already
+ * processed runs everything through the stages again. That is what
+ * {@link SparkAdapter#notifyDataSetChanged()} does; to have appended points processed
+ * incrementally, announce them with {@link SparkAdapter#notifyDataRangeChanged(int, int)} from the
+ * previous count instead. A pipeline belongs to a single view, and replaces the adapter's
+ * {@link SparkAdapter#getDataBounds() data bounds} and {@link LodPyramid}.
+ */
+public final class TransformPipeline {
+    private final TransformStage[] stages;
+    private boolean invalid = true;
+    // the adapter last processed, and its change count at the time
+    private SparkAdapter source;
+    private long sourceChanges;
+    // the number of adapter points processed, and of points emitted by them for good
+    private int inputCount;
+    private int committedCount;
+
+    private DataSnapshot target;
+    // bounds of everything emitted, and of the committed points only
+    private float minX, minY, maxX, maxY;
+    private float committedMinX, committedMinY, committedMaxX, committedMaxY;
+    private boolean hasBaseLine;
+    private float baseLine;
+
+    /**
+     * @param stages the stages, in the order they are applied
+     */
+    public TransformPipeline(TransformStage... stages) {
+        this.stages = stages.clone();
+        for (int i = 0; i < this.stages.length; i++) {
+            final TransformStage stage = this.stages[i];
+            if (stage.pipeline != null) {
+                throw new IllegalArgumentException("stage " + i + " is already in a pipeline");
+            }
+            if (i < this.stages.length - 1 && stage.holdsBack()) {
+                throw new IllegalArgumentException("stage " + i + " must be the last stage");
+            }
+            stage.pipeline = this;
+            stage.next = i < this.stages.length - 1 ? this.stages[i + 1] : null;
+        }
+        resetBounds();
+    }
+
+    /**
+     * Discards all processed points, so that the next update processes the adapter from the
+     * start. Only needed when points change without the adapter notifying.
+     */
+    public void invalidate() {
+        invalid = true;
+    }
+
+    /**
+     * Runs the adapter's points through the stages into the snapshot. Only points appended since
+     * the last update are processed, unless the pipeline was invalidated, the adapter notified a
+     * change to processed points, the adapter shrank or a stage's output went stale.
+     *
+     * @return true if the snapshot changed
+     */
+    boolean update(SparkAdapter adapter, DataSnapshot snapshot) {
+        final int count = adapter.getCount();
+        // the snapshot is cleared when the view releases its data
+        boolean rebuild = invalid || count < inputCount || snapshot.count < committedCount
+                || adapter != source || adapter.getFirstChangedIndex(sourceChanges) < inputCount;
+        for (int i = 0; i < stages.length && !rebuild; i++) {
+            rebuild = stages[i].isStale(adapter);
+        }
+        source = adapter;
+        sourceChanges = adapter.getChangeCount();
+        if (!rebuild && count == inputCount) return false;
+
+        if (rebuild) {
+            for (TransformStage stage : stages) {
+                stage.reset(adapter);
+            }
+            inputCount = 0;
+            committedCount = 0;
+            resetBounds();
+        }
+
+        // drop the points that were only emitted provisionally by the last update
+        minX = committedMinX;
+        minY = committedMinY;
+        maxX = committedMaxX;
+        maxY = committedMaxY;
+        snapshot.beginAppend(committedCount);
+        final int changeStart = snapshot.count;
+
+        target = snapshot;
+        final TransformStage first = stages.length == 0 ? null : stages[0];
+        for (int i = inputCount; i < count; i++) {
+            final float x = adapter.getX(i);
+            final float y = adapter.getY(i);
+            if (first == null) {
+                output(i, x, y);
+            } else {
+                first.process(i, x, y);
+            }
+        }
+        committedCount = snapshot.count;
+        committedMinX = minX;
+        committedMinY = minY;
+        committedMaxX = maxX;
+        committedMaxY = maxY;
+        if (first != null) {
+            stages[stages.length - 1].flush();
+        }
+        target = null;
+        inputCount = count;
+        invalid = false;
+
+        hasBaseLine = adapter.hasBaseLine();
+        baseLine = 0;
+        if (hasBaseLine) {
+            baseLine = adapter.getBaseLine();
+            for (TransformStage stage : stages) {
+                baseLine = stage.transformBaseLine(baseLine);
+            }
+        }
+        snapshot.endAppend(changeStart, hasBaseLine, baseLine);
+        return true;
+    }
+
+    /**
+     * Fills {@code outBounds} with the bounds of the transformed points, and of the transformed
+     * base line if there is one.
+     */
+    void getBounds(RectF outBounds) {
+        float top = minY;
+        float bottom = maxY;
+        if (hasBaseLine) {
+            top = Math.min(top, baseLine);
+            bottom = Math.max(bottom, baseLine);
+        }
+        SparkAdapter.setRect(outBounds, minX, top, maxX, bottom);
+    }
+
+    /**
+     * Receives the output of the last stage.
+     */
+    void output(int index, float x, float y) {
+        target.appendSample(index, x, y);
+        minX = Math.min(minX, x);
+        maxX = Math.max(maxX, x);
+        minY = Math.min(minY, y);
+        maxY = Math.max(maxY, y);
+    }
+
+    private void resetBounds() {
+        committedMinX = Float.MAX_VALUE;
+        committedMinY = Float.MAX_VALUE;
+        committedMaxX = -Float.MAX_VALUE;
+        committedMaxY = -Float.MAX_VALUE;
+    }
+}
@@ -0,0 +1,408 @@
+/**
+ * Copyright (C) 2016 Robinhood Markets, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.robinhood.spark;
+
+/**
+ * One step of a {@link TransformPipeline}. Stages see the adapter's points one at a time, in
+ * order, and pass their output on to the next stage, so a whole pipeline runs in a single pass
+ * without intermediate copies. Stages keep whatever state they need from earlier points, so that
+ * appended points can be processed without revisiting the rest.
+ */
+public abstract class TransformStage {
+    TransformStage next;
+    TransformPipeline pipeline;
+
+    TransformStage() {}
+
+    /**
+     * @return a stage that expresses each Y value as the percent change from the adapter's base
+     * line, or from the first point if the adapter has no base line.
+     */
+    public static TransformStage normalizeToBaseLine() {
+        return new NormalizeStage();
+    }
+
+    /**
+     * @return a stage that replaces each Y value with the mean of the last {@code window} values,
+     * including itself.
+     */
+    public static TransformStage movingAverage(int window) {
+        return new MovingAverageStage(window);
+    }
+
+    /**
+     * @return a stage that replaces each Y value with its exponential moving average over
+     * {@code period} points, seeded with the first value.
+     */
+    public static TransformStage exponentialMovingAverage(int period) {
+        return new ExponentialMovingAverageStage(period);
+    }
+
+    /**
+     * @return a stage that replaces each Y value with the minimum of the last {@code window}
+     * values, including itself.
+     */
+    public static TransformStage rollingMin(int window) {
+        return new RollingExtremeStage(window, false);
+    }
+
+    /**
+     * @return a stage that replaces each Y value with the maximum of the last {@code window}
+     * values, including itself.
+     */
+    public static TransformStage rollingMax(int window) {
+        return new RollingExtremeStage(window, true);
+    }
+
+    /**
+     * @return a stage that replaces each Y value, taken as a price, with the volume weighted
+     * average price of all points up to and including it.
+     */
+    public static TransformStage volumeWeightedAverage(VolumeSource volumes) {
+        if (volumes == null) throw new NullPointerException("volumes must not be null");
+        return new VolumeWeightedAverageStage(volumes);
+    }
+
+    /**
+     * Supplies the traded volume of each adapter point, for
+     * {@link #volumeWeightedAverage(VolumeSource)}.
+     */
+    public interface VolumeSource {
+        /**
+         * @return the volume of the adapter point at the given index
+         */
+        float getVolume(int index);
+    }
+
+    /**
+     * @return a stage that clamps each Y value to within {@code sigmas} standard deviations of the
+     * mean of the {@code window} values before it.
+     */
+    public static TransformStage clipOutliers(int window, float sigmas) {
+        return new ClipOutliersStage(window, sigmas);
+    }
+
+    /**
+     * @return a stage that averages every {@code factor} consecutive points into one, placed at
+     * the last of them. This must be the last stage of a pipeline. The latest, partially filled
+     * group is drawn too, and replaced as more points are appended.
+     */
+    public static TransformStage downsample(int factor) {
+        return new DownsampleStage(factor);
+    }
+
+    /**
+     * Forgets all state, before the adapter's points are processed from the start.
+     */
+    abstract void reset(SparkAdapter adapter);
+
+    /**
+     * @return true if the stage's output for points it has already processed is no longer valid,
+     * for instance because the base line changed, and everything must be processed again.
+     */
+    boolean isStale(SparkAdapter adapter) {
+        return false;
+    }
+
+    abstract void process(int index, float x, float y);
+
+    /**
+     * @return true if this stage may hold points back until {@link #flush()}, which is only
+     * allowed for the last stage.
+     */
+    boolean holdsBack() {
+        return false;
+    }
+
+    /**
+     * Emits points that are still being held back, without committing to them: they are dropped
+     * again before the next points are processed. Only the last stage may hold points back.
+     */
+    void flush() {}
+
+    float transformBaseLine(float baseLine) {
+        return baseLine;
+    }
+
+    final void emit(int index, float x, float y) {
+        if (next != null) {
+            next.process(index, x, y);
+        } else {
+            pipeline.output(index, x, y);
+        }
+    }
+
+    private static final class NormalizeStage extends TransformStage {
+        private float reference;
+        private boolean hasReference;
+        // whether the reference is the adapter's base line rather than the first point
+        private boolean fromBaseLine;
+
+        @Override
+        void reset(SparkAdapter adapter) {
+            fromBaseLine = adapter.hasBaseLine();
+            hasReference = fromBaseLine;
+            reference = fromBaseLine ? adapter.getBaseLine() : 0;
+        }
+
+        @Override
+        boolean isStale(SparkAdapter adapter) {
+            return adapter.hasBaseLine() != fromBaseLine
+                    || (fromBaseLine && adapter.getBaseLine() != reference);
+        }
+
+        @Override
+        void process(int index, float x, float y) {
+            if (!hasReference) {
+                reference = y;
+                hasReference = true;
+            }
+            emit(index, x, normalize(y));
+        }
+
+        @Override
+        float transformBaseLine(float baseLine) {
+            return normalize(baseLine);
+        }
+
+        private float normalize(float y) {
+            return reference == 0 ? y : (y - reference) / Math.abs(reference) * 100;
+        }
+    }
+
+    private static final class MovingAverageStage extends TransformStage {
+        private final float[] window;
+        private int size;
+        private int position;
+        private double sum;
+
+        MovingAverageStage(int window) {
+            if (window < 1) throw new IllegalArgumentException("window must be >= 1: " + window);
+            this.window = new float[window];
+        }
+
+        @Override
+        void reset(SparkAdapter adapter) {
+            size = 0;
+            position = 0;
+            sum = 0;
+        }
+
+        @Override
+        void process(int index, float x, float y) {
+            if (size == window.length) {
+                sum -= window[position];
+            } else {
+                size++;
+            }
+            window[position] = y;
+            sum += y;
+            position = (position + 1) % window.length;
+            emit(index, x, (float) (sum / size));
+        }
+    }
+
+    private static final class ExponentialMovingAverageStage extends TransformStage {
+        private final float alpha;
+        private boolean seeded;
+        private float average;
+
+        ExponentialMovingAverageStage(int period) {
+            if (period < 1) throw new IllegalArgumentException("period must be >= 1: " + period);
+            this.alpha = 2f / (period + 1);
+        }
+
+        @Override
+        void reset(SparkAdapter adapter) {
+            seeded = false;
+        }
+
+        @Override
+        void process(int index, float x, float y) {
+            average = seeded ? average + alpha * (y - average) : y;
+            seeded = true;
+            emit(index, x, average);
+        }
+    }
+
+    /**
+     * Keeps the candidates for the window's extreme in a monotonic queue, so each point is added
+     * and removed at most once.
+     */
+    private static final class RollingExtremeStage extends TransformStage {
+        private final int window;
+        private final boolean max;
+        // ring buffer of candidate values and the sequence number they arrived at
+        private final float[] values;
+        private final int[] sequences;
+        private int head;
+        private int size;
+        private int sequence;
+
+        RollingExtremeStage(int window, boolean max) {
+            if (window < 1) throw new IllegalArgumentException("window must be >= 1: " + window);
+            this.window = window;
+            this.max = max;
+            this.values = new float[window];
+            this.sequences = new int[window];
+        }
+
+        @Override
+        void reset(SparkAdapter adapter) {
+            head = 0;
+            size = 0;
+            sequence = 0;
+        }
+
+        @Override
+        void process(int index, float x, float y) {
+            // drop the candidate that slid out of the window
+            if (size > 0 && sequences[head] <= sequence - window) {
+                head = (head + 1) % window;
+                size--;
+            }
+            // drop candidates the new value beats, they can never be the extreme again
+            while (size > 0) {
+                final float last = values[(head + size - 1) % window];
+                if (max ? last > y : last < y) break;
+                size--;
+            }
+            final int tail = (head + size) % window;
+            values[tail] = y;
+            sequences[tail] = sequence;
+            size++;
+            sequence++;
+            emit(index, x, values[head]);
+        }
+    }
+
+    private static final class VolumeWeightedAverageStage extends TransformStage {
+        private final VolumeSource volumes;
+        private double totalValue;
+        private double totalVolume;
+
+        VolumeWeightedAverageStage(VolumeSource volumes) {
+            this.volumes = volumes;
+        }
+
+        @Override
+        void reset(SparkAdapter adapter) {
+            totalValue = 0;
+            totalVolume = 0;
+        }
+
+        @Override
+        void process(int index, float x, float y) {
+            final float volume = volumes.getVolume(index);
+            totalValue += (double) y * volume;
+            totalVolume += volume;
+            emit(index, x, totalVolume == 0 ? y : (float) (totalValue / totalVolume));
+        }
+    }
+
+    private static final class ClipOutliersStage extends TransformStage {
+        private final float[] window;
+        private final float sigmas;
+        private int size;
+        private int position;
+        private double sum;
+        private double sumOfSquares;
+
+        ClipOutliersStage(int window, float sigmas) {
+            if (window < 2) throw new IllegalArgumentException("window must be >= 2: " + window);
+            this.window = new float[window];
+            this.sigmas = sigmas;
+        }
+
+        @Override
+        void reset(SparkAdapter adapter) {
+            size = 0;
+            position = 0;
+            sum = 0;
+            sumOfSquares = 0;
+        }
+
+        @Override
+        void process(int index, float x, float y) {
+            float clipped = y;
+            if (size >= 2) {
+                final double mean = sum / size;
+                final double deviation =
+                        Math.sqrt(Math.max(sumOfSquares / size - mean * mean, 0)) * sigmas;
+                clipped = (float) Math.max(mean - deviation, Math.min(mean + deviation, y));
+            }
+
+            // the window keeps the raw values, so a genuine level shift is followed quickly
+            if (size == window.length) {
+                final float old = window[position];
+                sum -= old;
+                sumOfSquares -= (double) old * old;
+            } else {
+                size++;
+            }
+            window[position] = y;
+            sum += y;
+            sumOfSquares += (double) y * y;
+            position = (position + 1) % window.length;
+            emit(index, x, clipped);
+        }
+    }
+
+    private static final class DownsampleStage extends TransformStage {
+        private final int factor;
+        private int size;
+        private double sum;
+        private int lastIndex;
+        private float lastX;
+
+        DownsampleStage(int factor) {
+            if (factor < 1) throw new IllegalArgumentException("factor must be >= 1: " + factor);
+            this.factor = factor;
+        }
+
+        @Override
+        void reset(SparkAdapter adapter) {
+            size = 0;
+            sum = 0;
+        }
+
+        @Override
+        void process(int index, float x, float y) {
+            sum += y;
+            size++;
+            lastIndex = index;
+            lastX = x;
+            if (size == factor) {
+                emit(index, x, (float) (sum / size));
+                size = 0;
+                sum = 0;
+            }
+        }
+
+        @Override
+        boolean holdsBack() {
+            return factor > 1;
+        }
+
+        @Override
+        void flush() {
+            if (size > 0) {
+                emit(lastIndex, lastX, (float) (sum / size));
+            }
+        }
+    }
+}
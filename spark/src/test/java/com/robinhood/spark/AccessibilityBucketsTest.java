@@ -0,0 +1,39 @@
+package com.robinhood.spark;
+
+import org.junit.Test;
+
+import static junit.framework.Assert.assertEquals;
+
+public class AccessibilityBucketsTest {
+
+    @Test
+    public void test_getBucketCount() {
+        assertEquals(0, AccessibilityBuckets.getBucketCount(0, 20));
+        assertEquals(5, AccessibilityBuckets.getBucketCount(5, 20));
+        assertEquals(20, AccessibilityBuckets.getBucketCount(50000, 20));
+    }
+
+    @Test
+    public void test_getStart_coversAllPoints() {
+        assertEquals(0, AccessibilityBuckets.getStart(0, 3, 10));
+        assertEquals(3, AccessibilityBuckets.getStart(1, 3, 10));
+        assertEquals(6, AccessibilityBuckets.getStart(2, 3, 10));
+        assertEquals(10, AccessibilityBuckets.getStart(3, 3, 10));
+    }
+
+    @Test
+    public void test_getBucket_matchesStarts() {
+        final int[][] cases = {{3, 10}, {20, 50000}, {7, 7}, {20, 21}, {1, 1}, {20, 39}};
+        for (int[] c : cases) {
+            final int buckets = c[0];
+            final int count = c[1];
+            for (int b = 0; b < buckets; b++) {
+                final int start = AccessibilityBuckets.getStart(b, buckets, count);
+                final int end = AccessibilityBuckets.getStart(b + 1, buckets, count);
+                for (int i = start; i < end; i++) {
+                    assertEquals(b, AccessibilityBuckets.getBucket(i, buckets, count));
+                }
+            }
+        }
+    }
+}
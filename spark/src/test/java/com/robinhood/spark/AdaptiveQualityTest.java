@@ -0,0 +1,112 @@
+package com.robinhood.spark;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+public class AdaptiveQualityTest {
+    private static final long MS = 1000000;
+    private AdaptiveQuality quality;
+    private long now;
+
+    @Before
+    public void setup() {
+        quality = new AdaptiveQuality(16);
+        now = 1000 * MS;
+    }
+
+    @Test
+    public void test_fastFrames_keepFullQuality() {
+        for (int i = 0; i < 100; i++) {
+            assertFalse(frame(16));
+        }
+        assertEquals(AdaptiveQuality.LEVEL_FULL, quality.getLevel());
+    }
+
+    @Test
+    public void test_slowFrames_dropOneLevelAtATime() {
+        frame(0);
+        for (int i = 1; i < AdaptiveQuality.SAMPLE_FRAMES; i++) {
+            assertFalse(frame(33));
+        }
+        assertTrue(frame(33));
+        assertEquals(AdaptiveQuality.LEVEL_FAST_PAINT, quality.getLevel());
+
+        for (int i = 1; i < AdaptiveQuality.SAMPLE_FRAMES; i++) {
+            assertFalse(frame(33));
+        }
+        assertTrue(frame(33));
+        assertEquals(AdaptiveQuality.LEVEL_COARSE, quality.getLevel());
+
+        // coarse is as low as it goes
+        for (int i = 0; i < 20; i++) {
+            assertFalse(frame(33));
+        }
+    }
+
+    @Test
+    public void test_idleGaps_areIgnored() {
+        for (int i = 0; i < 20; i++) {
+            assertFalse(frame(500));
+        }
+        assertEquals(AdaptiveQuality.LEVEL_FULL, quality.getLevel());
+    }
+
+    @Test
+    public void test_end_restoresFullQuality() {
+        for (int i = 0; i <= AdaptiveQuality.SAMPLE_FRAMES; i++) {
+            frame(40);
+        }
+        assertEquals(AdaptiveQuality.LEVEL_FAST_PAINT, quality.getLevel());
+
+        assertTrue(quality.end());
+        assertEquals(AdaptiveQuality.LEVEL_FULL, quality.getLevel());
+        assertFalse(quality.end());
+    }
+
+    @Test
+    public void test_decimate_keepsExtremesAndEnds() {
+        float[] xs = new float[100];
+        float[] ys = new float[100];
+        for (int i = 0; i < xs.length; i++) {
+            xs[i] = i;
+        }
+        ys[5] = 50;
+        ys[60] = -50;
+
+        float[] out = new float[4 * 4 + 4];
+        int points = AdaptiveQuality.decimate(xs, ys, xs.length, 4, out);
+
+        assertEquals(0f, out[0]);
+        assertEquals(99f, out[(points - 1) * 2]);
+        boolean foundMax = false;
+        boolean foundMin = false;
+        for (int i = 0; i < points; i++) {
+            if (i > 0) assertTrue(out[i * 2] > out[(i - 1) * 2]);
+            foundMax |= out[i * 2 + 1] == 50;
+            foundMin |= out[i * 2 + 1] == -50;
+        }
+        assertTrue(foundMax);
+        assertTrue(foundMin);
+        assertTrue(points <= 4 * 2 + 2);
+    }
+
+    @Test
+    public void test_decimate_fewPointsAreCopied() {
+        float[] xs = {0, 1, 2};
+        float[] ys = {3, 4, 5};
+        float[] out = new float[4 * 4 + 4];
+
+        assertEquals(3, AdaptiveQuality.decimate(xs, ys, 3, 4, out));
+        assertEquals(2f, out[4]);
+        assertEquals(5f, out[5]);
+    }
+
+    private boolean frame(long millis) {
+        now += millis * MS;
+        return quality.onFrame(now);
+    }
+}
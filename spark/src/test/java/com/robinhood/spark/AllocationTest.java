@@ -0,0 +1,125 @@
+package com.robinhood.spark;
+
+import android.graphics.RectF;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static junit.framework.Assert.assertEquals;
+
+/**
+ * Asserts that the pure Java stages of the steady-state update (snapshot, bounds and scale) don't
+ * allocate, using the JVM's per-thread allocation counter. Everything is warmed up first, so that
+ * buffers have grown to size and lazily resolved state has been created. The full update through
+ * SparkView, including paths, pyramids and tiles, needs the framework and is covered by
+ * SparkViewAllocationTest in androidTest.
+ */
+public class AllocationTest {
+    private static final int WARM_UP = 20000;
+    private static final int ITERATIONS = 1000;
+
+    private com.sun.management.ThreadMXBean threadBean;
+    private long threadId;
+
+    @Before
+    public void setup() {
+        final java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        threadBean = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+        threadId = Thread.currentThread().getId();
+    }
+
+    @Test
+    public void test_update_doesNotAllocate() {
+        final float[] yData = new float[500];
+        final SparkAdapter plainAdapter = new SparkAdapter() {
+            @Override
+            public int getCount() {
+                return yData.length;
+            }
+
+            @Override
+            public Object getItem(int index) {
+                return yData[index];
+            }
+
+            @Override
+            public float getY(int index) {
+                return yData[index];
+            }
+
+            @Override
+            public void getDataBounds(RectF outBounds) {
+                computeDataBounds(outBounds);
+            }
+        };
+        final DataSnapshot snapshot = new DataSnapshot();
+        final RectF bounds = TestAdapter.createMockRectF(0, 0, 0, 0);
+        final RectF contentRect = TestAdapter.createMockRectF(0, 0, 100, 100);
+        final SparkView.ScaleHelper scaleHelper = new SparkView.ScaleHelper();
+
+        for (int i = 0; i < WARM_UP; i++) {
+            update(plainAdapter, snapshot, yData, i, bounds, contentRect, scaleHelper);
+        }
+        final long before = allocatedBytes();
+        for (int i = 0; i < ITERATIONS; i++) {
+            update(plainAdapter, snapshot, yData, i, bounds, contentRect, scaleHelper);
+        }
+        assertEquals(0, allocatedBytes() - before);
+    }
+
+    @Test
+    public void test_arrayAdapterUpdate_doesNotAllocate() {
+        final float[] yData = new float[500];
+        final ArraySparkAdapter adapter = new ArraySparkAdapter() {
+            @Override
+            public float[] getYData() {
+                return yData;
+            }
+
+            @Override
+            public int getCount() {
+                return yData.length;
+            }
+
+            @Override
+            public Object getItem(int index) {
+                return yData[index];
+            }
+        };
+        final DataSnapshot snapshot = new DataSnapshot();
+        final RectF bounds = TestAdapter.createMockRectF(0, 0, 0, 0);
+        final RectF contentRect = TestAdapter.createMockRectF(0, 0, 100, 100);
+        final SparkView.ScaleHelper scaleHelper = new SparkView.ScaleHelper();
+
+        for (int i = 0; i < WARM_UP; i++) {
+            update(adapter, snapshot, yData, i, bounds, contentRect, scaleHelper);
+        }
+        final long before = allocatedBytes();
+        for (int i = 0; i < ITERATIONS; i++) {
+            update(adapter, snapshot, yData, i, bounds, contentRect, scaleHelper);
+        }
+        assertEquals(0, allocatedBytes() - before);
+    }
+
+    /**
+     * Mirrors the data, bounds and scale stages of SparkView's geometry update for a live tick.
+     */
+    private static void update(SparkAdapter adapter, DataSnapshot snapshot, float[] yData,
+            int tick, RectF bounds, RectF contentRect, SparkView.ScaleHelper scaleHelper) {
+        yData[tick % yData.length] = tick % 97;
+        snapshot.update(adapter);
+        adapter.getDataBounds(bounds);
+        scaleHelper.set(bounds, snapshot.count, contentRect, 2, false);
+    }
+
+    private long allocatedBytes() {
+        // reading the counter doesn't allocate on the current thread
+        return threadBean.getThreadAllocatedBytes(threadId);
+    }
+}
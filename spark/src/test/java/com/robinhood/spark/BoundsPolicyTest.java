@@ -0,0 +1,132 @@
+package com.robinhood.spark;
+
+import android.graphics.RectF;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static junit.framework.Assert.assertEquals;
+
+public class BoundsPolicyTest {
+    private TestAdapter testAdapter;
+    private RectF bounds;
+
+    @Before
+    public void setup() {
+        testAdapter = new TestAdapter();
+        bounds = TestAdapter.createMockRectF(0, 0, 0, 0);
+    }
+
+    @Test
+    public void test_sticky_padsFirstBounds() {
+        RectF data = TestAdapter.createMockRectF(0, 0, 100, 10);
+        BoundsPolicy.sticky(0.1f).getBounds(testAdapter, data, null, bounds);
+
+        assertBounds(-10, -1, 110, 11, bounds);
+    }
+
+    @Test
+    public void test_sticky_keepsBoundsWithinBand() {
+        RectF previous = TestAdapter.createMockRectF(-10, -1, 110, 11);
+        RectF data = TestAdapter.createMockRectF(0, 2, 105, 10.5f);
+        BoundsPolicy.sticky(0.1f).getBounds(testAdapter, data, previous, bounds);
+
+        assertBounds(-10, -1, 110, 11, bounds);
+    }
+
+    @Test
+    public void test_sticky_expandsCrossedEdge() {
+        RectF previous = TestAdapter.createMockRectF(-10, -1, 110, 11);
+        RectF data = TestAdapter.createMockRectF(0, 0, 100, 20);
+        BoundsPolicy.sticky(0.1f).getBounds(testAdapter, data, previous, bounds);
+
+        // only the top moved, padded by 10% of the new range
+        assertBounds(-10, -1, 110, 22, bounds);
+    }
+
+    @Test
+    public void test_sticky_refitsShrunkenData() {
+        RectF previous = TestAdapter.createMockRectF(-10, -1, 110, 11);
+        RectF data = TestAdapter.createMockRectF(0, 4, 100, 6);
+        BoundsPolicy.sticky(0.1f).getBounds(testAdapter, data, previous, bounds);
+
+        assertBounds(-10, 3.8f, 110, 6.2f, bounds);
+    }
+
+    @Test
+    public void test_percentile_clipsOutliers() {
+        float[] yData = new float[100];
+        for (int i = 0; i < yData.length; i++) {
+            yData[i] = i;
+        }
+        yData[40] = -1000;
+        yData[60] = 1000;
+        testAdapter.setYData(yData);
+        RectF data = testAdapter.getDataBounds();
+        BoundsPolicy.percentile(0.01f).getBounds(testAdapter, data, null, bounds);
+
+        assertBounds(0, 0, 99, 99, bounds);
+    }
+
+    @Test
+    public void test_percentile_estimatesLongSeries() {
+        float[] yData = new float[100000];
+        for (int i = 0; i < yData.length; i++) {
+            yData[i] = i;
+        }
+        testAdapter.setYData(yData);
+        RectF data = testAdapter.getDataBounds();
+        BoundsPolicy.percentile(0.01f).getBounds(testAdapter, data, null, bounds);
+
+        // within a sampling stride of the 1st and 99th percentiles
+        assertEquals(1000f, bounds.top, 50f);
+        assertEquals(99000f, bounds.bottom, 50f);
+        assertEquals(0f, bounds.left);
+        assertEquals(99999f, bounds.right);
+    }
+
+    @Test
+    public void test_percentile_ofTransformedPoints() {
+        float[] yData = new float[100];
+        for (int i = 0; i < yData.length; i++) {
+            yData[i] = 200 + i;
+        }
+        yData[40] = -1000;
+        yData[60] = 1000;
+        testAdapter.setYData(yData);
+        TransformPipeline pipeline = new TransformPipeline(TransformStage.normalizeToBaseLine());
+        DataSnapshot transformed = new DataSnapshot();
+        pipeline.update(testAdapter, transformed);
+        RectF data = TestAdapter.createMockRectF(0, 0, 0, 0);
+        pipeline.getBounds(data);
+        BoundsPolicy.percentile(0.01f).getBounds(testAdapter, transformed, data, null, bounds);
+
+        // percent changes from the first point, rather than raw prices
+        assertBounds(0, 0, 99, 49.5f, bounds);
+    }
+
+    @Test
+    public void test_fixed() {
+        RectF data = TestAdapter.createMockRectF(5, -3, 50, 300);
+        BoundsPolicy.fixed(0, 100).getBounds(testAdapter, data, null, bounds);
+
+        assertBounds(5, 0, 50, 100, bounds);
+    }
+
+    @Test
+    public void test_select() {
+        float[] values = {5, 3, 9, 1, 7, 3, 8};
+        assertEquals(1f, BoundsPolicy.select(values.clone(), values.length, 0));
+        assertEquals(3f, BoundsPolicy.select(values.clone(), values.length, 2));
+        assertEquals(5f, BoundsPolicy.select(values.clone(), values.length, 3));
+        assertEquals(9f, BoundsPolicy.select(values.clone(), values.length, 6));
+    }
+
+    private static void assertBounds(float left, float top, float right, float bottom,
+            RectF bounds) {
+        assertEquals(left, bounds.left, 0.0001f);
+        assertEquals(top, bounds.top, 0.0001f);
+        assertEquals(right, bounds.right, 0.0001f);
+        assertEquals(bottom, bounds.bottom, 0.0001f);
+    }
+}
@@ -0,0 +1,112 @@
+package com.robinhood.spark;
+
+import android.graphics.RectF;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
+
+public class CachedSparkAdapterTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private TestAdapter adapter;
+    private File file;
+
+    @Before
+    public void setup() throws IOException {
+        adapter = new TestAdapter();
+        file = new File(folder.getRoot(), "series");
+    }
+
+    @Test
+    public void test_roundTrip() throws IOException {
+        adapter.setXData(new float[] {1, 2, 4, 8});
+        adapter.setYData(new float[] {3, -1, 5, 2});
+        adapter.setDataBounds(1, -1, 8, 5);
+        adapter.notifyDataSetChanged();
+        CachedSparkAdapter.write(adapter, 100, file);
+
+        CachedSparkAdapter cached = CachedSparkAdapter.read(file);
+        assertEquals(4, cached.getCount());
+        for (int i = 0; i < 4; i++) {
+            assertEquals(adapter.getX(i), cached.getX(i));
+            assertEquals(adapter.getY(i), cached.getY(i));
+        }
+        assertFalse(cached.hasBaseLine());
+        assertEquals(adapter.getDataVersion(), cached.getDataVersion());
+
+        RectF bounds = TestAdapter.createMockRectF(0, 0, 0, 0);
+        cached.getDataBounds(bounds);
+        assertEquals(1f, bounds.left);
+        assertEquals(-1f, bounds.top);
+        assertEquals(8f, bounds.right);
+        assertEquals(5f, bounds.bottom);
+    }
+
+    @Test
+    public void test_evenX_notStored() throws IOException {
+        adapter.setYData(new float[] {3, 1, 2});
+        adapter.setDataBounds(0, 1, 2, 3);
+        CachedSparkAdapter.write(adapter, 100, file);
+
+        assertEquals(CachedSparkAdapter.HEADER_BYTES + 3 * 4, file.length());
+        CachedSparkAdapter cached = CachedSparkAdapter.read(file);
+        assertNull(cached.getXData());
+        assertEquals(2f, cached.getX(2));
+    }
+
+    @Test
+    public void test_downsample_keepsExtremes() throws IOException {
+        float[] ys = new float[1000];
+        for (int i = 0; i < ys.length; i++) {
+            ys[i] = (float) Math.sin(i / 10.0);
+        }
+        ys[517] = 50;
+        ys[733] = -50;
+        adapter.setYData(ys);
+        adapter.setDataBounds(0, -50, 999, 50);
+        CachedSparkAdapter.write(adapter, 64, file);
+
+        CachedSparkAdapter cached = CachedSparkAdapter.read(file);
+        assertTrue(cached.getCount() <= 64);
+        assertEquals(0f, cached.getX(0));
+        assertEquals(999f, cached.getX(cached.getCount() - 1));
+        boolean hasMax = false;
+        boolean hasMin = false;
+        for (int i = 0; i < cached.getCount(); i++) {
+            hasMax |= cached.getX(i) == 517 && cached.getY(i) == 50;
+            hasMin |= cached.getX(i) == 733 && cached.getY(i) == -50;
+        }
+        assertTrue(hasMax);
+        assertTrue(hasMin);
+    }
+
+    @Test
+    public void test_read_truncated() throws IOException {
+        adapter.setYData(new float[] {3, 1, 2});
+        adapter.setDataBounds(0, 1, 2, 3);
+        CachedSparkAdapter.write(adapter, 100, file);
+
+        byte[] bytes = new byte[(int) file.length() - 1];
+        FileOutputStream out = new FileOutputStream(file);
+        out.write(bytes);
+        out.close();
+        try {
+            CachedSparkAdapter.read(file);
+            fail();
+        } catch (IOException expected) {
+        }
+    }
+}
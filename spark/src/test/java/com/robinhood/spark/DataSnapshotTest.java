@@ -0,0 +1,170 @@
+package com.robinhood.spark;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+public class DataSnapshotTest {
+    private TestAdapter testAdapter;
+    private DataSnapshot snapshot;
+
+    @Before
+    public void setup() {
+        testAdapter = new TestAdapter();
+        snapshot = new DataSnapshot();
+    }
+
+    @Test
+    public void test_update_copiesPoints() {
+        testAdapter.setYData(new float[] {3, 4, 5});
+        testAdapter.setXData(new float[] {10, 20, 30});
+
+        assertTrue(snapshot.update(testAdapter));
+        assertEquals(3, snapshot.count);
+        assertEquals(20f, snapshot.xs[1]);
+        assertEquals(5f, snapshot.ys[2]);
+    }
+
+    @Test
+    public void test_update_identicalData() {
+        testAdapter.setYData(new float[] {3, 4, 5});
+        snapshot.update(testAdapter);
+
+        testAdapter.setYData(new float[] {3, 4, 5});
+        assertFalse(snapshot.update(testAdapter));
+    }
+
+    @Test
+    public void test_update_changedValue() {
+        testAdapter.setYData(new float[] {3, 4, 5});
+        snapshot.update(testAdapter);
+
+        testAdapter.setYData(new float[] {3, 4, 6});
+        assertTrue(snapshot.update(testAdapter));
+        assertEquals(6f, snapshot.ys[2]);
+        assertEquals(2, snapshot.changeStart);
+        assertEquals(3, snapshot.changeEnd);
+    }
+
+    @Test
+    public void test_update_appendedValue() {
+        testAdapter.setYData(new float[] {3, 4, 5});
+        snapshot.update(testAdapter);
+
+        testAdapter.setYData(new float[] {3, 4, 5, 6});
+        assertTrue(snapshot.update(testAdapter));
+        assertEquals(4, snapshot.count);
+        assertEquals(5f, snapshot.ys[2]);
+        assertEquals(6f, snapshot.ys[3]);
+        assertEquals(3, snapshot.changeStart);
+        assertEquals(4, snapshot.changeEnd);
+    }
+
+    @Test
+    public void test_update_removedValue() {
+        testAdapter.setYData(new float[] {3, 4, 5});
+        snapshot.update(testAdapter);
+
+        testAdapter.setYData(new float[] {3, 4});
+        assertTrue(snapshot.update(testAdapter));
+        assertEquals(2, snapshot.count);
+        assertEquals(2, snapshot.changeStart);
+        assertEquals(3, snapshot.changeEnd);
+    }
+
+    @Test
+    public void test_updateRange_readsOnlyRange() {
+        testAdapter.setYData(new float[] {3, 4, 5, 6});
+        snapshot.update(testAdapter);
+        assertTrue(snapshot.holdsAllOf(testAdapter));
+
+        testAdapter.setYData(new float[] {9, 4, 7, 6});
+        assertTrue(snapshot.updateRange(testAdapter, 1, 3));
+        // the first point is outside of the range, so it isn't read again
+        assertEquals(3f, snapshot.ys[0]);
+        assertEquals(7f, snapshot.ys[2]);
+        assertEquals(2, snapshot.changeStart);
+        assertEquals(3, snapshot.changeEnd);
+    }
+
+    @Test
+    public void test_clear() {
+        testAdapter.setYData(new float[] {3, 4, 5});
+        snapshot.update(testAdapter);
+        snapshot.clear();
+
+        assertTrue(snapshot.update(testAdapter));
+    }
+
+    @Test
+    public void test_trim_releasesBuffersAndRecovers() {
+        testAdapter.setYData(new float[1000]);
+        snapshot.update(testAdapter);
+        long fullBytes = snapshot.getApproximateBytes();
+        assertTrue(fullBytes >= 8000);
+
+        snapshot.trim();
+        assertEquals(0, snapshot.count);
+        assertTrue(snapshot.getApproximateBytes() < 100);
+
+        // the next update starts from scratch
+        assertTrue(snapshot.update(testAdapter));
+        assertEquals(1000, snapshot.count);
+        assertEquals(fullBytes, snapshot.getApproximateBytes());
+    }
+
+    @Test
+    public void test_restore_matchesUpdate() {
+        testAdapter.setYData(new float[] {3, 4, 5});
+        snapshot.restore(new float[] {0, 1, 2}, new float[] {3, 4, 5}, 3, 0, false, 0);
+        assertEquals(3, snapshot.count);
+        assertEquals(0, snapshot.changeStart);
+        assertEquals(3, snapshot.changeEnd);
+
+        // restored points are as good as copied ones
+        assertFalse(snapshot.update(testAdapter));
+    }
+
+    @Test
+    public void test_update_indexXAfterOtherX_replacesX() {
+        // a view or renderer switching from an adapter with X values to one with indices
+        testAdapter.setYData(new float[] {3, 4, 5, 6});
+        testAdapter.setXData(new float[] {1000, 1010, 1020, 1030});
+        snapshot.update(testAdapter);
+
+        assertTrue(snapshot.update(new IndexAdapter(new float[] {3, 4, 5, 6})));
+        assertEquals(0f, snapshot.xs[0]);
+        assertEquals(3f, snapshot.xs[3]);
+        assertEquals(0, snapshot.changeStart);
+        assertEquals(4, snapshot.changeEnd);
+
+        // once holding indices, the same data is unchanged
+        assertFalse(snapshot.update(new IndexAdapter(new float[] {3, 4, 5, 6})));
+    }
+
+    private static class IndexAdapter extends ArraySparkAdapter {
+        private final float[] yData;
+
+        IndexAdapter(float[] yData) {
+            this.yData = yData;
+        }
+
+        @Override
+        public float[] getYData() {
+            return yData;
+        }
+
+        @Override
+        public int getCount() {
+            return yData.length;
+        }
+
+        @Override
+        public Object getItem(int index) {
+            return yData[index];
+        }
+    }
+}
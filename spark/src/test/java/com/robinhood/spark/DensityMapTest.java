@@ -0,0 +1,66 @@
+package com.robinhood.spark;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static junit.framework.Assert.assertEquals;
+
+public class DensityMapTest {
+    private DensityMap densityMap;
+
+    @Before
+    public void setup() {
+        densityMap = new DensityMap();
+        densityMap.resize(4, 3, 8);
+    }
+
+    @Test
+    public void test_bin_countsPointsPerPixel() {
+        float[] xs = {0.5f, 0.6f, 0.7f, 3.2f, 10};
+        float[] ys = {0.5f, 0.5f, 0.5f, 2.9f, 1};
+        densityMap.bin(xs, ys, xs.length, 1, 0, 1, 0, 0, 0);
+
+        assertEquals(3, densityMap.counts[0]);
+        assertEquals(1, densityMap.counts[2 * 4 + 3]);
+        // the point outside the grid is skipped
+        assertEquals(3, densityMap.getMaxCount());
+    }
+
+    @Test
+    public void test_bin_appliesScaleAndOrigin() {
+        float[] xs = {1, 1.5f};
+        float[] ys = {1, 1.5f};
+        // x 1 maps to 12px, column 2 of a grid starting at 10px; y 1 maps to 4px, row 2
+        densityMap.bin(xs, ys, xs.length, 2, 10, -1, 5, 10, 2);
+
+        assertEquals(1, densityMap.counts[2 * 4 + 2]);
+        assertEquals(1, densityMap.counts[4 + 3]);
+    }
+
+    @Test
+    public void test_bin_clearsPreviousCounts() {
+        densityMap.bin(new float[] {0}, new float[] {0}, 1, 1, 0, 1, 0, 0, 0);
+        densityMap.bin(new float[] {1}, new float[] {0}, 1, 1, 0, 1, 0, 0, 0);
+        assertEquals(0, densityMap.counts[0]);
+        assertEquals(1, densityMap.counts[1]);
+    }
+
+    @Test
+    public void test_updateAlphas_logScale() {
+        float[] xs = new float[101];
+        float[] ys = new float[101];
+        for (int i = 0; i < 100; i++) {
+            xs[i] = 0;
+        }
+        xs[100] = 1;
+        densityMap.bin(xs, ys, xs.length, 1, 0, 1, 0, 0, 0);
+        densityMap.updateAlphas();
+
+        assertEquals(255, densityMap.alphas[0] & 0xff);
+        // a lone point is still visible next to a hundred
+        assertEquals(Math.round(255 * Math.log(2) / Math.log(101)), densityMap.alphas[1] & 0xff);
+        assertEquals(0, densityMap.alphas[2]);
+        // rows are laid out by stride
+        assertEquals(0, densityMap.alphas[8]);
+    }
+}
@@ -0,0 +1,189 @@
+package com.robinhood.spark;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+public class LodPyramidTest {
+    private TestAdapter testAdapter;
+    private LodPyramid pyramid;
+
+    @Before
+    public void setup() {
+        testAdapter = new TestAdapter();
+        pyramid = new LodPyramid();
+    }
+
+    @Test
+    public void test_sync_levels() {
+        testAdapter.setYData(new float[1000]);
+        assertTrue(pyramid.sync(testAdapter));
+
+        // buckets of 16, 64 and 256 points; a single bucket of 1024 would be pointless
+        assertEquals(3, pyramid.getLevelCount());
+        assertEquals(63, pyramid.getLevel(0).bucketCount);
+        assertEquals(16, pyramid.getLevel(1).bucketCount);
+        assertEquals(4, pyramid.getLevel(2).bucketCount);
+        assertFalse(pyramid.sync(testAdapter));
+    }
+
+    @Test
+    public void test_sync_bucketSummary() {
+        float[] data = new float[128];
+        data[0] = 5;
+        data[3] = -2;
+        data[9] = 7;
+        data[15] = 1;
+        data[40] = 9;
+        testAdapter.setYData(data);
+        pyramid.sync(testAdapter);
+
+        LodPyramid.Level level = pyramid.getLevel(0);
+        assertEquals(5f, level.first[0]);
+        assertEquals(1f, level.last[0]);
+        assertEquals(-2f, level.min[0]);
+        assertEquals(3, level.minIndex[0]);
+        assertEquals(7f, level.max[0]);
+        assertEquals(9, level.maxIndex[0]);
+
+        level = pyramid.getLevel(1);
+        assertEquals(-2f, level.min[0]);
+        assertEquals(9f, level.max[0]);
+        assertEquals(40, level.maxIndex[0]);
+        assertEquals(-2f, pyramid.getMinY());
+        assertEquals(9f, pyramid.getMaxY());
+    }
+
+    @Test
+    public void test_sync_appendMatchesRebuild() {
+        float[] data = new float[3000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (float) Math.sin(i * 0.37) * i;
+        }
+
+        // append in uneven chunks
+        for (int end : new int[] {10, 17, 500, 1023, 1024, 2999, 3000}) {
+            testAdapter.setYData(Arrays.copyOf(data, end));
+            pyramid.sync(testAdapter);
+        }
+
+        assertMatchesRebuild();
+    }
+
+    @Test
+    public void test_sync_notifiedRange_resummarizesFromRange() {
+        float[] data = new float[3000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (float) Math.sin(i * 0.37) * i;
+        }
+        final int[] reads = new int[1];
+        testAdapter = new TestAdapter() {
+            @Override
+            public float getY(int index) {
+                reads[0]++;
+                return super.getY(index);
+            }
+        };
+        testAdapter.setYData(data);
+        pyramid.sync(testAdapter);
+
+        data[1500] = 1e6f;
+        testAdapter.notifyDataRangeChanged(1500, 1501);
+        reads[0] = 0;
+        assertTrue(pyramid.sync(testAdapter));
+        // from the start of the bucket holding the changed point
+        assertEquals(3000 - 1488, reads[0]);
+        assertMatchesRebuild();
+    }
+
+    @Test
+    public void test_sync_notifyDataSetChanged_rebuilds() {
+        float[] data = new float[100];
+        testAdapter.setYData(data);
+        pyramid.sync(testAdapter);
+
+        data[3] = 8;
+        testAdapter.notifyDataSetChanged();
+        assertTrue(pyramid.sync(testAdapter));
+        assertEquals(8f, pyramid.getMaxY());
+        assertMatchesRebuild();
+    }
+
+    private void assertMatchesRebuild() {
+        LodPyramid rebuilt = new LodPyramid();
+        rebuilt.sync(testAdapter);
+        assertEquals(rebuilt.getLevelCount(), pyramid.getLevelCount());
+        for (int l = 0; l < rebuilt.getLevelCount(); l++) {
+            LodPyramid.Level expected = rebuilt.getLevel(l);
+            LodPyramid.Level actual = pyramid.getLevel(l);
+            assertEquals(expected.bucketCount, actual.bucketCount);
+            for (int b = 0; b < expected.bucketCount; b++) {
+                assertEquals(expected.first[b], actual.first[b]);
+                assertEquals(expected.last[b], actual.last[b]);
+                assertEquals(expected.min[b], actual.min[b]);
+                assertEquals(expected.max[b], actual.max[b]);
+                assertEquals(expected.minIndex[b], actual.minIndex[b]);
+                assertEquals(expected.maxIndex[b], actual.maxIndex[b]);
+            }
+        }
+    }
+
+    @Test
+    public void test_selectLevel() {
+        testAdapter.setYData(new float[100000]);
+        pyramid.sync(testAdapter);
+
+        // 100k points over 100 pixels: 256 points per bucket is 390 buckets, 1024 would be 97
+        assertEquals(2, pyramid.selectLevel(100000, 100));
+        // 1000 points over 100 pixels only fit the finest level
+        assertEquals(0, pyramid.selectLevel(1000, 50));
+        // fewer points than pixels uses the raw data
+        assertEquals(-1, pyramid.selectLevel(1000, 1000));
+    }
+
+    @Test
+    public void test_sample_keepsExtremesInOrder() {
+        float[] data = new float[32];
+        data[4] = 10;
+        data[2] = -10;
+        data[20] = -3;
+        data[25] = 3;
+        testAdapter.setYData(data);
+        pyramid.sync(testAdapter);
+
+        DataSnapshot snapshot = new DataSnapshot();
+        pyramid.sample(testAdapter, 0, 0, 32, snapshot);
+
+        assertEquals(8, snapshot.count);
+        int[] expectedIndices = {0, 2, 4, 15, 16, 20, 25, 31};
+        float[] expectedYs = {0, -10, 10, 0, 0, -3, 3, 0};
+        for (int i = 0; i < snapshot.count; i++) {
+            assertEquals(expectedIndices[i], snapshot.getAdapterIndex(i));
+            assertEquals((float) expectedIndices[i], snapshot.xs[i]);
+            assertEquals(expectedYs[i], snapshot.ys[i]);
+        }
+    }
+
+    @Test
+    public void test_lowerBound() {
+        testAdapter.setYData(new float[10]);
+        assertEquals(0, LodPyramid.lowerBound(testAdapter, 10, -5));
+        assertEquals(4, LodPyramid.lowerBound(testAdapter, 10, 3.5f));
+        assertEquals(10, LodPyramid.lowerBound(testAdapter, 10, 20));
+    }
+
+    @Test
+    public void test_approximateBytes() {
+        assertEquals(0, pyramid.getApproximateBytes());
+
+        testAdapter.setYData(new float[100000]);
+        pyramid.sync(testAdapter);
+        // 6250 buckets of 16 points on the finest level alone, at 24 bytes per bucket
+        assertTrue(pyramid.getApproximateBytes() > 6250 * 24);
+    }
+}
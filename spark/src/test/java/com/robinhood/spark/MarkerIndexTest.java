@@ -0,0 +1,71 @@
+package com.robinhood.spark;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static junit.framework.Assert.assertEquals;
+
+public class MarkerIndexTest {
+    private MarkerIndex index;
+
+    @Before
+    public void setup() {
+        index = new MarkerIndex();
+    }
+
+    @Test
+    public void test_empty() {
+        index.build(new float[0], 0);
+        assertEquals(-1, index.nearest(new float[0], 5));
+    }
+
+    @Test
+    public void test_nearest_unsorted() {
+        float[] xs = {30, 10, 20, 0};
+        index.build(xs, xs.length);
+
+        assertEquals(3, index.nearest(xs, -100));
+        assertEquals(1, index.nearest(xs, 11));
+        assertEquals(2, index.nearest(xs, 17));
+        assertEquals(0, index.nearest(xs, 1000));
+    }
+
+    @Test
+    public void test_nearest_acrossEmptyBuckets() {
+        // a cluster at each end leaves every bucket in between empty
+        float[] xs = {0, 0.1f, 0.2f, 99.8f, 99.9f, 100};
+        index.build(xs, xs.length);
+
+        assertEquals(2, index.nearest(xs, 40));
+        assertEquals(3, index.nearest(xs, 60));
+    }
+
+    @Test
+    public void test_nearest_allEqual() {
+        float[] xs = {5, 5, 5};
+        index.build(xs, xs.length);
+        assertEquals(5f, xs[index.nearest(xs, 0)]);
+    }
+
+    @Test
+    public void test_nearest_matchesScan() {
+        final Random random = new Random(0);
+        float[] xs = new float[2000];
+        for (int i = 0; i < xs.length; i++) {
+            // skewed, so buckets are unevenly filled
+            xs[i] = (float) Math.pow(random.nextFloat(), 3) * 1000;
+        }
+        index.build(xs, xs.length);
+
+        for (int n = 0; n < 1000; n++) {
+            final float x = random.nextFloat() * 1200 - 100;
+            float best = Float.MAX_VALUE;
+            for (float value : xs) {
+                best = Math.min(best, Math.abs(value - x));
+            }
+            assertEquals(best, Math.abs(xs[index.nearest(xs, x)] - x));
+        }
+    }
+}
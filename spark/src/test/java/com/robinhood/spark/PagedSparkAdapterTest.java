@@ -0,0 +1,262 @@
+package com.robinhood.spark;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+public class PagedSparkAdapterTest {
+    private static final int PAGE_SIZE = 10;
+
+    private InMemorySource source;
+    private QueuedExecutor executor;
+    private PagedSparkAdapter adapter;
+    private int notifications;
+
+    @Before
+    public void setup() {
+        source = new InMemorySource(95);
+        executor = new QueuedExecutor();
+        adapter = new PagedSparkAdapter(source, PAGE_SIZE, 3, executor, new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                command.run();
+            }
+        });
+        adapter.registerDataSetObserver(new android.database.DataSetObserver() {
+            @Override
+            public void onChanged() {
+                notifications++;
+            }
+        });
+    }
+
+    @Test
+    public void test_summaryLoadsFirst() {
+        assertEquals(0, adapter.getCount());
+        executor.runAll();
+
+        assertEquals(95, adapter.getCount());
+        assertEquals(1, notifications);
+        assertFalse(adapter.isLoaded(0));
+        // the middle of a page sits on its summary
+        assertEquals(source.summaryValue(2), adapter.getY(25), 1e-4f);
+        // points between two page middles are interpolated
+        float between = adapter.getY(30);
+        assertEquals((source.summaryValue(2) + source.summaryValue(3)) / 2, between, 1e-4f);
+    }
+
+    @Test
+    public void test_requestRange_loadsInBackground() {
+        executor.runAll();
+        adapter.requestRange(40, 50);
+
+        // nothing blocks: until the loads run, the points still follow the summary
+        assertFalse(adapter.isLoaded(45));
+        assertEquals(3, executor.size());
+
+        executor.runAll();
+        assertTrue(adapter.isLoaded(45));
+        // neighbors are prefetched
+        assertTrue(adapter.isLoaded(35));
+        assertTrue(adapter.isLoaded(55));
+        assertEquals(45f, adapter.getY(45));
+        assertEquals(4, notifications);
+    }
+
+    @Test
+    public void test_requestRange_lastPartialPage() {
+        executor.runAll();
+        adapter.requestRange(90, 95);
+        executor.runAll();
+        assertEquals(94f, adapter.getY(94));
+    }
+
+    @Test
+    public void test_evictsLeastRecentlyRequested() {
+        executor.runAll();
+        adapter.requestRange(10, 20);
+        executor.runAll();
+        assertEquals(3, adapter.getResidentPageCount());
+
+        adapter.requestRange(60, 70);
+        executor.runAll();
+        assertEquals(3, adapter.getResidentPageCount());
+        assertTrue(adapter.isLoaded(65));
+        assertFalse(adapter.isLoaded(15));
+    }
+
+    @Test
+    public void test_requestRange_morePagesThanKept_drains() {
+        executor.runAll();
+        // like SparkView, request the whole visible range again on every change
+        adapter.registerDataSetObserver(new android.database.DataSetObserver() {
+            @Override
+            public void onChanged() {
+                adapter.requestRange(0, 95);
+            }
+        });
+        adapter.requestRange(0, 95);
+
+        assertTrue(executor.runAtMost(100));
+        assertEquals(3, adapter.getResidentPageCount());
+        // the pages around the middle of the range
+        assertTrue(adapter.isLoaded(45));
+        assertFalse(adapter.isLoaded(5));
+        assertFalse(adapter.isLoaded(94));
+    }
+
+    @Test
+    public void test_pageLoaded_notifiesItsRange() {
+        executor.runAll();
+        final long changes = adapter.getChangeCount();
+        adapter.requestRange(40, 41);
+        executor.runAll();
+
+        int[] range = new int[2];
+        assertTrue(adapter.getChangedRange(changes, range));
+        assertEquals(30, range[0]);
+        assertEquals(60, range[1]);
+    }
+
+    @Test
+    public void test_reload_dropsPendingLoads() {
+        executor.runAll();
+        adapter.requestRange(40, 50);
+        adapter.reload();
+        executor.runAll();
+
+        assertEquals(95, adapter.getCount());
+        assertFalse(adapter.isLoaded(45));
+    }
+
+    @Test
+    public void test_failedLoad_isRetried() {
+        executor.runAll();
+        source.failing = true;
+        adapter.requestRange(0, 5);
+        executor.runAll();
+        assertFalse(adapter.isLoaded(0));
+
+        source.failing = false;
+        adapter.requestRange(0, 5);
+        executor.runAll();
+        assertTrue(adapter.isLoaded(0));
+    }
+
+    @Test
+    public void test_sample_readsFewPointsPerSummarizedPage() {
+        final int[] reads = new int[1];
+        adapter = new PagedSparkAdapter(new InMemorySource(100000), PAGE_SIZE, 3, executor,
+                new Executor() {
+                    @Override
+                    public void execute(Runnable command) {
+                        command.run();
+                    }
+                }) {
+            @Override
+            public float getY(int index) {
+                reads[0]++;
+                return super.getY(index);
+            }
+        };
+        executor.runAll();
+        adapter.requestRange(40, 41);
+        executor.runAll();
+
+        reads[0] = 0;
+        DataSnapshot snapshot = new DataSnapshot();
+        adapter.sample(0, 100000, snapshot);
+
+        // the first, middle and last point of each summarized page, and every loaded point
+        final int summarizedPages = 10000 - 3;
+        assertEquals(summarizedPages * 3, reads[0]);
+        assertEquals(summarizedPages * 3 + 3 * PAGE_SIZE, snapshot.count);
+        assertEquals(60, snapshot.getAdapterIndex(3 * 3 + 3 * PAGE_SIZE));
+        assertEquals(65, snapshot.getAdapterIndex(3 * 3 + 3 * PAGE_SIZE + 1));
+        assertEquals(69, snapshot.getAdapterIndex(3 * 3 + 3 * PAGE_SIZE + 2));
+        assertEquals(45f, snapshot.ys[3 * 3 + 15]);
+
+        // nor do the bounds read every point
+        reads[0] = 0;
+        android.graphics.RectF bounds = TestAdapter.createMockRectF(0, 0, 0, 0);
+        adapter.getDataBounds(bounds);
+        assertEquals(0, reads[0]);
+        assertEquals(0f, bounds.left);
+        assertEquals(99999f, bounds.right);
+        assertEquals(source.summaryValue(0), bounds.top);
+        assertEquals(source.summaryValue(9999), bounds.bottom);
+    }
+
+    /**
+     * Point i has the value i, and each page is summarized by its middle point.
+     */
+    private static class InMemorySource implements PagedSparkAdapter.PageSource {
+        private final int count;
+        boolean failing;
+
+        InMemorySource(int count) {
+            this.count = count;
+        }
+
+        float summaryValue(int page) {
+            return page * PAGE_SIZE + PAGE_SIZE / 2f - 0.5f;
+        }
+
+        @Override
+        public int loadCount() {
+            return count;
+        }
+
+        @Override
+        public void loadSummary(int pageSize, float[] out) {
+            for (int page = 0; page < out.length; page++) {
+                out[page] = summaryValue(page);
+            }
+        }
+
+        @Override
+        public void loadPage(int start, int count, float[] out) throws IOException {
+            if (failing) throw new IOException("offline");
+            for (int i = 0; i < count; i++) {
+                out[i] = start + i;
+            }
+        }
+    }
+
+    private static class QueuedExecutor implements Executor {
+        private final List<Runnable> queue = new ArrayList<>();
+
+        @Override
+        public void execute(Runnable command) {
+            queue.add(command);
+        }
+
+        int size() {
+            return queue.size();
+        }
+
+        void runAll() {
+            while (!queue.isEmpty()) {
+                queue.remove(0).run();
+            }
+        }
+
+        /**
+         * @return true if the queue drained within the given number of tasks
+         */
+        boolean runAtMost(int tasks) {
+            for (int i = 0; i < tasks && !queue.isEmpty(); i++) {
+                queue.remove(0).run();
+            }
+            return queue.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.robinhood.spark;
+
+import java.util.Random;
+
+/**
+ * Times the serial and parallel passes of {@link ParallelArrays} over growing series to find the
+ * point at which splitting across cores starts to pay off, if any. Not a unit test; run its main
+ * method on the target hardware and pass the crossover to
+ * {@link ArraySparkAdapter#setParallelThreshold(int)}, as passes are never split by default.
+ */
+public class ParallelArraysBenchmark {
+    private static final int[] SIZES = {
+            1000, 10000, 50000, 100000, 200000, 500000, 1000000, 2000000, 4000000
+    };
+
+    public static void main(String[] args) {
+        final Random random = new Random(0);
+        System.out.println("cores: " + Runtime.getRuntime().availableProcessors());
+        System.out.println(String.format("%10s %14s %14s %14s %14s", "points",
+                "bounds serial", "bounds par.", "copy serial", "copy par."));
+
+        for (int size : SIZES) {
+            final float[] src = new float[size];
+            for (int i = 0; i < size; i++) {
+                src[i] = random.nextFloat();
+            }
+            final float[] dst = new float[size];
+
+            System.out.println(String.format("%10d %12.1fus %12.1fus %12.1fus %12.1fus", size,
+                    timeMinMax(src, Integer.MAX_VALUE),
+                    timeMinMax(src, 0),
+                    timeCopy(src, dst, Integer.MAX_VALUE),
+                    timeCopy(src, dst, 0)));
+        }
+    }
+
+    private static double timeMinMax(float[] values, int threshold) {
+        final float[] out = new float[2];
+        final int iterations = iterations(values.length);
+        // warm up
+        for (int i = 0; i < iterations; i++) {
+            ParallelArrays.minMax(values, values.length, threshold, out);
+        }
+        final long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            ParallelArrays.minMax(values, values.length, threshold, out);
+        }
+        return (System.nanoTime() - start) / 1000.0 / iterations;
+    }
+
+    private static double timeCopy(float[] src, float[] dst, int threshold) {
+        final int[] changed = new int[2];
+        final int iterations = iterations(src.length);
+        for (int i = 0; i < iterations; i++) {
+            // change one value per pass so the copy isn't a no-op
+            dst[i % dst.length] = -1;
+            ParallelArrays.copyAndDiff(src, 0, dst, src.length, threshold, changed);
+        }
+        final long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            dst[i % dst.length] = -1;
+            ParallelArrays.copyAndDiff(src, 0, dst, src.length, threshold, changed);
+        }
+        return (System.nanoTime() - start) / 1000.0 / iterations;
+    }
+
+    private static int iterations(int size) {
+        return Math.max(20, 20000000 / size);
+    }
+}
@@ -0,0 +1,86 @@
+package com.robinhood.spark;
+
+import android.graphics.RectF;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static junit.framework.Assert.assertEquals;
+
+public class ParallelArraysTest {
+    private static final int SIZE = 100003;
+
+    @Test
+    public void test_minMax_parallelMatchesSerial() {
+        float[] values = randomValues();
+        float[] serial = new float[2];
+        float[] parallel = new float[2];
+        ParallelArrays.minMax(values, SIZE, Integer.MAX_VALUE, serial);
+        ParallelArrays.minMax(values, SIZE, 0, parallel);
+
+        assertEquals(serial[0], parallel[0]);
+        assertEquals(serial[1], parallel[1]);
+    }
+
+    @Test
+    public void test_copyAndDiff() {
+        float[] src = randomValues();
+        float[] dst = src.clone();
+        dst[17] = -1;
+        dst[SIZE - 2] = -1;
+
+        int[] changed = new int[2];
+        ParallelArrays.copyAndDiff(src, 0, dst, SIZE, 0, changed);
+        assertEquals(17, changed[0]);
+        assertEquals(SIZE - 1, changed[1]);
+        assertEquals(src[17], dst[17]);
+        assertEquals(src[SIZE - 2], dst[SIZE - 2]);
+
+        // a second pass finds nothing to copy
+        ParallelArrays.copyAndDiff(src, 0, dst, SIZE, 0, changed);
+        assertEquals(true, changed[1] <= changed[0]);
+    }
+
+    @Test
+    public void test_arraySparkAdapter_bounds() {
+        final float[] ys = {3, -1, 7, 2};
+        ArraySparkAdapter adapter = new ArraySparkAdapter() {
+            @Override
+            public float[] getYData() {
+                return ys;
+            }
+
+            @Override
+            public int getCount() {
+                return ys.length;
+            }
+
+            @Override
+            public Object getItem(int index) {
+                return ys[index];
+            }
+
+            @Override
+            RectF createRectF(float left, float top, float right, float bottom) {
+                return TestAdapter.createMockRectF(left, top, right, bottom);
+            }
+        };
+        adapter.setParallelThreshold(0);
+
+        RectF bounds = adapter.getDataBounds();
+        assertEquals(0f, bounds.left);
+        assertEquals(3f, bounds.right);
+        assertEquals(-1f, bounds.top);
+        assertEquals(7f, bounds.bottom);
+    }
+
+    private static float[] randomValues() {
+        Random random = new Random(0);
+        float[] values = new float[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            values[i] = random.nextFloat() * 100 - 50;
+        }
+        return values;
+    }
+}
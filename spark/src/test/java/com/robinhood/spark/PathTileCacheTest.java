@@ -0,0 +1,34 @@
+package com.robinhood.spark;
+
+import org.junit.Test;
+
+import static junit.framework.Assert.assertEquals;
+
+public class PathTileCacheTest {
+    private final float[] xs = {0, 5, 10, 15, 20, 35};
+
+    @Test
+    public void test_tileIndex() {
+        assertEquals(0, PathTileCache.tileIndex(0, 10));
+        assertEquals(0, PathTileCache.tileIndex(9.9f, 10));
+        assertEquals(1, PathTileCache.tileIndex(10, 10));
+        assertEquals(-1, PathTileCache.tileIndex(-0.1f, 10));
+    }
+
+    @Test
+    public void test_lowerBound() {
+        assertEquals(0, PathTileCache.lowerBound(xs, xs.length, -1));
+        assertEquals(2, PathTileCache.lowerBound(xs, xs.length, 10));
+        assertEquals(3, PathTileCache.lowerBound(xs, xs.length, 11));
+        assertEquals(xs.length, PathTileCache.lowerBound(xs, xs.length, 36));
+    }
+
+    @Test
+    public void test_firstIndexInTile() {
+        assertEquals(0, PathTileCache.firstIndexInTile(xs, xs.length, 0, 10));
+        assertEquals(2, PathTileCache.firstIndexInTile(xs, xs.length, 1, 10));
+        assertEquals(4, PathTileCache.firstIndexInTile(xs, xs.length, 2, 10));
+        assertEquals(5, PathTileCache.firstIndexInTile(xs, xs.length, 3, 10));
+        assertEquals(xs.length, PathTileCache.firstIndexInTile(xs, xs.length, 4, 10));
+    }
+}
@@ -0,0 +1,96 @@
+package com.robinhood.spark;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static junit.framework.Assert.assertEquals;
+
+public class RangeIndexTest {
+    private RangeIndex rangeIndex;
+    private Random random;
+
+    @Before
+    public void setup() {
+        rangeIndex = new RangeIndex();
+        random = new Random(0);
+    }
+
+    @Test
+    public void test_queries_matchScan() {
+        final float[] values = randomValues(1000);
+        rangeIndex.update(values, values.length, 0);
+        assertEquals(1000, rangeIndex.size());
+        assertRangesMatch(values, values.length);
+    }
+
+    @Test
+    public void test_singlePoint() {
+        rangeIndex.update(new float[] {3, 7, 5}, 3, 0);
+        assertEquals(7f, rangeIndex.min(1, 2));
+        assertEquals(7f, rangeIndex.max(1, 2));
+        assertEquals(7.0, rangeIndex.sum(1, 2));
+    }
+
+    @Test
+    public void test_append_extendsIndex() {
+        final float[] values = randomValues(777);
+        // a point at a time, as live data would arrive
+        for (int count = 1; count <= 100; count++) {
+            rangeIndex.update(values, count, count - 1);
+        }
+        assertRangesMatch(values, 100);
+
+        rangeIndex.update(values, values.length, 100);
+        assertRangesMatch(values, values.length);
+    }
+
+    @Test
+    public void test_changedValue_updatesIndex() {
+        final float[] values = randomValues(500);
+        rangeIndex.update(values, values.length, 0);
+
+        values[250] = 1000;
+        rangeIndex.update(values, values.length, 250);
+        assertEquals(1000f, rangeIndex.max(0, 500));
+        assertRangesMatch(values, values.length);
+    }
+
+    @Test
+    public void test_trim_rebuilds() {
+        final float[] values = randomValues(300);
+        rangeIndex.update(values, values.length, 0);
+        rangeIndex.trim();
+        assertEquals(0, rangeIndex.size());
+
+        rangeIndex.update(values, values.length, values.length);
+        assertRangesMatch(values, values.length);
+    }
+
+    private float[] randomValues(int count) {
+        final float[] values = new float[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = random.nextFloat() * 200 - 100;
+        }
+        return values;
+    }
+
+    private void assertRangesMatch(float[] values, int count) {
+        for (int n = 0; n < 500; n++) {
+            final int start = random.nextInt(count);
+            final int end = start + 1 + random.nextInt(count - start);
+            float min = Float.MAX_VALUE;
+            float max = -Float.MAX_VALUE;
+            double sum = 0;
+            for (int i = start; i < end; i++) {
+                min = Math.min(min, values[i]);
+                max = Math.max(max, values[i]);
+                sum += values[i];
+            }
+            assertEquals(min, rangeIndex.min(start, end));
+            assertEquals(max, rangeIndex.max(start, end));
+            assertEquals(sum, rangeIndex.sum(start, end), 1e-3);
+        }
+    }
+}
@@ -5,6 +5,7 @@ import android.view.MotionEvent;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
@@ -117,6 +118,62 @@ public class ScrubGestureDetectorTest {
         verifyNoMoreInteractions(scrubListener);
     }
 
+    @Test
+    public void test_cancel_removesLongPress() {
+        MotionEvent down = getMotionEvent(MotionEvent.ACTION_DOWN, 10, 10, 0, 0);
+        assertTrue(scrubGestureDetector.onTouch(null, down));
+        scrubGestureDetector.cancel();
+
+        ArgumentCaptor<Runnable> posted = ArgumentCaptor.forClass(Runnable.class);
+        verify(handler).postDelayed(posted.capture(), anyLong());
+        verify(handler).removeCallbacks(posted.getValue());
+        verifyNoMoreInteractions(scrubListener);
+    }
+
+    @Test
+    public void test_rangeScrub() {
+        scrubGestureDetector.setRangeEnabled(true);
+        final MotionEvent down = getMotionEvent(MotionEvent.ACTION_DOWN, 10, 10, 0, 0);
+        final MotionEvent pointerDown = getTwoPointerEvent(MotionEvent.ACTION_POINTER_DOWN, 10, 50);
+        final MotionEvent move = getTwoPointerEvent(MotionEvent.ACTION_MOVE, 20, 60);
+        final MotionEvent pointerUp = getTwoPointerEvent(MotionEvent.ACTION_POINTER_UP, 20, 60);
+        final MotionEvent leftoverMove = getMotionEvent(MotionEvent.ACTION_MOVE, 30, 10,
+                ScrubGestureDetector.LONG_PRESS_TIMEOUT_MS, 0);
+        final MotionEvent up = getMotionEvent(MotionEvent.ACTION_UP, 30, 10,
+                ScrubGestureDetector.LONG_PRESS_TIMEOUT_MS, 0);
+
+        assertTrue(scrubGestureDetector.onTouch(null, down));
+        assertTrue(scrubGestureDetector.onTouch(null, pointerDown));
+        assertTrue(scrubGestureDetector.onTouch(null, move));
+        assertTrue(scrubGestureDetector.onTouch(null, pointerUp));
+        assertTrue(scrubGestureDetector.onTouch(null, leftoverMove));
+        assertTrue(scrubGestureDetector.onTouch(null, up));
+
+        // the finger left over after the range doesn't scrub, and the range ends only once
+        verify(scrubListener).onRangeScrubbed(10, 50);
+        verify(scrubListener).onRangeScrubbed(20, 60);
+        verify(scrubListener).onScrubEnded();
+        verifyNoMoreInteractions(scrubListener);
+    }
+
+    @Test
+    public void test_rangeScrub_disabled() {
+        final MotionEvent down = getMotionEvent(MotionEvent.ACTION_DOWN, 10, 10, 0, 0);
+        final MotionEvent pointerDown = getTwoPointerEvent(MotionEvent.ACTION_POINTER_DOWN, 10, 50);
+
+        assertTrue(scrubGestureDetector.onTouch(null, down));
+        assertFalse(scrubGestureDetector.onTouch(null, pointerDown));
+        verifyNoMoreInteractions(scrubListener);
+    }
+
+    private MotionEvent getTwoPointerEvent(int action, float x1, float x2) {
+        MotionEvent motionEvent = getMotionEvent(action, x1, 0, 0, 0);
+        when(motionEvent.getPointerCount()).thenReturn(2);
+        when(motionEvent.getX(0)).thenReturn(x1);
+        when(motionEvent.getX(1)).thenReturn(x2);
+        return motionEvent;
+    }
+
     private MotionEvent getMotionEvent(int action, float x, float y, long eventTime, long downTime) {
         MotionEvent motionEvent = Mockito.mock(MotionEvent.class);
         when(motionEvent.getX()).thenReturn(x);
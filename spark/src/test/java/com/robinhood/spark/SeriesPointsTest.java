@@ -0,0 +1,97 @@
+package com.robinhood.spark;
+
+import org.junit.Test;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+
+public class SeriesPointsTest {
+
+    @Test
+    public void test_bounds_includesBaseLine() {
+        final float[] out = new float[4];
+        SeriesPoints.bounds(new float[] {2, 4, 6}, new float[] {3, -1, 5}, 3, Integer.MAX_VALUE,
+                true, 10, new float[2], out);
+
+        assertEquals(2f, out[SeriesPoints.MIN_X]);
+        assertEquals(-1f, out[SeriesPoints.MIN_Y]);
+        assertEquals(6f, out[SeriesPoints.MAX_X]);
+        assertEquals(10f, out[SeriesPoints.MAX_Y]);
+    }
+
+    @Test
+    public void test_bounds_nullX_spansIndices() {
+        final float[] out = new float[4];
+        // only the first count points count
+        SeriesPoints.bounds(null, new float[] {3, 1, 2, 7}, 3, Integer.MAX_VALUE, false, 0,
+                new float[2], out);
+
+        assertEquals(0f, out[SeriesPoints.MIN_X]);
+        assertEquals(1f, out[SeriesPoints.MIN_Y]);
+        assertEquals(2f, out[SeriesPoints.MAX_X]);
+        assertEquals(3f, out[SeriesPoints.MAX_Y]);
+    }
+
+    @Test
+    public void test_bounds_parallel_matchesSerial() {
+        final float[] yData = new float[10000];
+        for (int i = 0; i < yData.length; i++) {
+            yData[i] = (i * 7919) % 1013 - 500;
+        }
+        final float[] serial = new float[4];
+        final float[] parallel = new float[4];
+        SeriesPoints.bounds(null, yData, yData.length, Integer.MAX_VALUE, false, 0,
+                new float[2], serial);
+        SeriesPoints.bounds(null, yData, yData.length, 100, false, 0, new float[2], parallel);
+
+        for (int i = 0; i < 4; i++) {
+            assertEquals(serial[i], parallel[i]);
+        }
+    }
+
+    @Test
+    public void test_prepare_nullX_matchesIndices() {
+        final float[] yData = new float[1000];
+        final float[] xData = new float[yData.length];
+        for (int i = 0; i < yData.length; i++) {
+            yData[i] = i % 50;
+            xData[i] = i;
+        }
+        yData[500] = 1000;
+
+        // both copied and decimated
+        for (int columns : new int[] {10, 1000}) {
+            final SeriesPoints indexed = new SeriesPoints();
+            final SeriesPoints explicit = new SeriesPoints();
+            final int count = indexed.prepare(null, yData, yData.length, columns);
+
+            assertEquals(count, explicit.prepare(xData, yData, yData.length, columns));
+            for (int i = 0; i < count; i++) {
+                assertEquals(explicit.xs[i], indexed.xs[i]);
+                assertEquals(explicit.ys[i], indexed.ys[i]);
+            }
+        }
+    }
+
+    @Test
+    public void test_prepare_decimatesToColumns() {
+        final float[] yData = new float[1000];
+        yData[500] = 1000;
+        yData[700] = -1000;
+        final SeriesPoints points = new SeriesPoints();
+
+        final int count = points.prepare(null, yData, yData.length, 10);
+        // a min and a max per column, plus the end points
+        assertTrue(count <= 10 * 2 + 2);
+        float min = Float.MAX_VALUE;
+        float max = -Float.MAX_VALUE;
+        for (int i = 0; i < count; i++) {
+            min = Math.min(min, points.ys[i]);
+            max = Math.max(max, points.ys[i]);
+        }
+        assertEquals(-1000f, min);
+        assertEquals(1000f, max);
+        assertEquals(0f, points.xs[0]);
+        assertEquals(999f, points.xs[count - 1]);
+    }
+}
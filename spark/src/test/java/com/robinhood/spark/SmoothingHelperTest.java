@@ -0,0 +1,94 @@
+package com.robinhood.spark;
+
+import org.junit.Test;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+
+public class SmoothingHelperTest {
+    private static final float DELTA = 0.0001f;
+
+    @Test
+    public void test_monotoneCubic_straightLine() {
+        float[] xs = {0, 1, 2, 3};
+        float[] ys = {0, 2, 4, 6};
+        float[] out = new float[12];
+        SmoothingHelper.monotoneCubic(xs, ys, 4, new float[4], out);
+
+        // control points of a straight line lie on the line at 1/3 and 2/3 of each segment
+        for (int i = 0; i < 3; i++) {
+            assertEquals(i + 1 / 3f, out[i * 4], DELTA);
+            assertEquals(2 * (i + 1 / 3f), out[i * 4 + 1], DELTA);
+            assertEquals(i + 2 / 3f, out[i * 4 + 2], DELTA);
+            assertEquals(2 * (i + 2 / 3f), out[i * 4 + 3], DELTA);
+        }
+    }
+
+    @Test
+    public void test_monotoneCubic_noOvershoot() {
+        float[] xs = {0, 1, 2, 3, 4};
+        float[] ys = {0, 10, 10.5f, 0, 0};
+        float[] out = new float[16];
+        SmoothingHelper.monotoneCubic(xs, ys, 5, new float[5], out);
+
+        // every control point stays within the y range of its segment
+        for (int i = 0; i < 4; i++) {
+            float min = Math.min(ys[i], ys[i + 1]);
+            float max = Math.max(ys[i], ys[i + 1]);
+            assertTrue(out[i * 4 + 1] >= min - DELTA && out[i * 4 + 1] <= max + DELTA);
+            assertTrue(out[i * 4 + 3] >= min - DELTA && out[i * 4 + 3] <= max + DELTA);
+        }
+    }
+
+    @Test
+    public void test_monotoneCubic_flatAtExtrema() {
+        float[] xs = {0, 1, 2};
+        float[] ys = {0, 1, 0};
+        float[] out = new float[8];
+        SmoothingHelper.monotoneCubic(xs, ys, 3, new float[3], out);
+
+        // the peak's tangent is horizontal
+        assertEquals(1f, out[3], DELTA);
+        assertEquals(1f, out[5], DELTA);
+    }
+
+    @Test
+    public void test_catmullRom_straightLine() {
+        float[] xs = {0, 3, 6};
+        float[] ys = {0, 3, 6};
+        float[] out = new float[8];
+        SmoothingHelper.catmullRom(xs, ys, 3, out);
+
+        // all control points lie on the line y = x
+        for (int i = 0; i < out.length; i += 2) {
+            assertEquals(out[i], out[i + 1], DELTA);
+        }
+        assertEquals(0.5f, out[0], DELTA);
+        assertEquals(2f, out[2], DELTA);
+    }
+
+    @Test
+    public void test_curve_matchesHelpersAndReusesBuffers() {
+        float[] xs = {0, 1, 2, 3, 4};
+        float[] ys = {0, 10, 10.5f, 0, 0};
+        float[] monotone = new float[16];
+        SmoothingHelper.monotoneCubic(xs, ys, 5, new float[5], monotone);
+        float[] catmullRom = new float[16];
+        SmoothingHelper.catmullRom(xs, ys, 5, catmullRom);
+
+        SmoothingHelper.Curve curve = new SmoothingHelper.Curve();
+        curve.update(xs, ys, 5, true);
+        float[] controlPoints = curve.controlPoints;
+        for (int i = 0; i < monotone.length; i++) {
+            assertEquals(monotone[i], controlPoints[i]);
+        }
+
+        // the same number of points reuses the buffer
+        curve.update(xs, ys, 5, false);
+        assertSame(controlPoints, curve.controlPoints);
+        for (int i = 0; i < catmullRom.length; i++) {
+            assertEquals(catmullRom[i], controlPoints[i]);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.robinhood.spark;
+
+import android.view.accessibility.AccessibilityEvent;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import static org.mockito.Mockito.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class SparkAccessibilityProviderTest {
+    private SparkView host;
+    private SparkAccessibilityProvider provider;
+
+    @Before
+    public void setup() {
+        host = mock(SparkView.class);
+        provider = new SparkAccessibilityProvider(host);
+    }
+
+    @Test
+    public void test_onContentChanged_coalescesEvents() {
+        provider.onContentChanged();
+        provider.onContentChanged();
+        provider.onContentChanged();
+
+        ArgumentCaptor<Runnable> send = ArgumentCaptor.forClass(Runnable.class);
+        verify(host, times(1)).postDelayed(send.capture(), eq(100L));
+        verify(host, never()).sendAccessibilityEvent(
+                AccessibilityEvent.TYPE_WINDOW_CONTENT_CHANGED);
+
+        send.getValue().run();
+        verify(host, times(1)).sendAccessibilityEvent(
+                AccessibilityEvent.TYPE_WINDOW_CONTENT_CHANGED);
+
+        // once sent, the next change schedules another event
+        provider.onContentChanged();
+        verify(host, times(2)).postDelayed(send.getValue(), 100L);
+    }
+
+    @Test
+    public void test_cancelPendingEvents() {
+        provider.onContentChanged();
+        ArgumentCaptor<Runnable> send = ArgumentCaptor.forClass(Runnable.class);
+        verify(host).postDelayed(send.capture(), eq(100L));
+
+        provider.cancelPendingEvents();
+        verify(host).removeCallbacks(send.getValue());
+    }
+}
@@ -5,6 +5,8 @@ import android.graphics.RectF;
 import org.junit.Test;
 
 import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
 
 public class SparkAdapterUnitTest {
 
@@ -45,4 +47,86 @@ public class SparkAdapterUnitTest {
         assertEquals(Float.MAX_VALUE, bounds.top);
         assertEquals(-Float.MAX_VALUE, bounds.bottom);
     }
+
+    @Test
+    public void test_getDataBounds_fillsRect() {
+        SparkAdapter adapter = new SparkAdapter() {
+            private final float[] yData = {3, -2, 8};
+
+            @Override
+            public int getCount() {
+                return yData.length;
+            }
+
+            @Override
+            public Object getItem(int index) {
+                return yData[index];
+            }
+
+            @Override
+            public float getY(int index) {
+                return yData[index];
+            }
+
+            @Override
+            RectF createRectF(float left, float top, float right, float bottom) {
+                return TestAdapter.createMockRectF(left, top, right, bottom);
+            }
+        };
+        RectF bounds = TestAdapter.createMockRectF(0, 0, 0, 0);
+        adapter.getDataBounds(bounds);
+
+        assertEquals(0f, bounds.left);
+        assertEquals(2f, bounds.right);
+        assertEquals(-2f, bounds.top);
+        assertEquals(8f, bounds.bottom);
+    }
+
+    @Test
+    public void test_getDataBounds_fillsRectFromOverride() {
+        TestAdapter testAdapter = new TestAdapter();
+        testAdapter.setYData(new float[] {0, 500, 100});
+        testAdapter.setDataBounds(-1, -10, 10, 1000);
+        RectF bounds = TestAdapter.createMockRectF(0, 0, 0, 0);
+        testAdapter.getDataBounds(bounds);
+
+        assertEquals(-1f, bounds.left);
+        assertEquals(10f, bounds.right);
+        assertEquals(-10f, bounds.top);
+        assertEquals(1000f, bounds.bottom);
+    }
+
+    @Test
+    public void test_getDataVersion_changesOnNotify() {
+        TestAdapter testAdapter = new TestAdapter();
+        long version = testAdapter.getDataVersion();
+        testAdapter.notifyDataSetChanged();
+        assertTrue(testAdapter.getDataVersion() != version);
+    }
+
+    @Test
+    public void test_getChangedRange_unionOfNotifiedRanges() {
+        TestAdapter testAdapter = new TestAdapter();
+        long changes = testAdapter.getChangeCount();
+        testAdapter.notifyDataRangeChanged(10, 20);
+        testAdapter.notifyDataRangeChanged(40, 50);
+
+        int[] range = new int[2];
+        assertTrue(testAdapter.getChangedRange(changes, range));
+        assertEquals(10, range[0]);
+        assertEquals(50, range[1]);
+
+        testAdapter.notifyDataSetChanged();
+        assertFalse(testAdapter.getChangedRange(changes, range));
+    }
+
+    @Test
+    public void test_getDataVersion_differsBetweenAdapters() {
+        // a recreated adapter holding other data must not match the saved version
+        TestAdapter first = new TestAdapter();
+        TestAdapter second = new TestAdapter();
+        first.notifyDataSetChanged();
+        second.notifyDataSetChanged();
+        assertTrue(first.getDataVersion() != second.getDataVersion());
+    }
 }
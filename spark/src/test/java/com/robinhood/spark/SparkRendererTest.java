@@ -0,0 +1,122 @@
+package com.robinhood.spark;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Path;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class SparkRendererTest {
+    private Path dataPath;
+    private SparkRenderer renderer;
+
+    @Before
+    public void setup() {
+        dataPath = mock(Path.class);
+        renderer = new SparkRenderer(mock(Paint.class), mock(Paint.class), mock(Canvas.class),
+                mock(Matrix.class), dataPath, mock(Path.class));
+    }
+
+    @Test
+    public void test_preparePoints_keepsFewPoints() {
+        TestAdapter testAdapter = new TestAdapter();
+        testAdapter.setYData(new float[] {3, 1, 2});
+        renderer.snapshot.update(testAdapter);
+
+        assertEquals(3, renderer.preparePoints(10));
+        assertEquals(1f, renderer.points.ys[1]);
+    }
+
+    @Test
+    public void test_preparePoints_decimatesToColumns() {
+        float[] yData = new float[1000];
+        for (int i = 0; i < yData.length; i++) {
+            yData[i] = i % 50;
+        }
+        yData[500] = 1000;
+        yData[700] = -1000;
+        TestAdapter testAdapter = new TestAdapter();
+        testAdapter.setYData(yData);
+        renderer.snapshot.update(testAdapter);
+
+        final int count = renderer.preparePoints(10);
+        // a min and a max per column, plus the end points
+        assertTrue(count <= 10 * 2 + 2);
+        float min = Float.MAX_VALUE;
+        float max = -Float.MAX_VALUE;
+        for (int i = 0; i < count; i++) {
+            min = Math.min(min, renderer.points.ys[i]);
+            max = Math.max(max, renderer.points.ys[i]);
+        }
+        assertEquals(-1000f, min);
+        assertEquals(1000f, max);
+        assertEquals(0f, renderer.points.xs[0]);
+        assertEquals(999f, renderer.points.xs[count - 1]);
+    }
+
+    @Test
+    public void test_obtainBitmap_reusesMatchingSize() {
+        Bitmap small = mockBitmap(10, 10);
+        Bitmap large = mockBitmap(20, 20);
+        renderer.releaseBitmap(small);
+        renderer.releaseBitmap(large);
+
+        assertSame(small, renderer.obtainBitmap(10, 10));
+        assertSame(large, renderer.obtainBitmap(20, 20));
+    }
+
+    @Test
+    public void test_releaseBitmap_recyclesBeyondPool() {
+        renderer.setMaxPoolSize(1);
+        Bitmap pooled = mockBitmap(10, 10);
+        Bitmap extra = mockBitmap(10, 10);
+        renderer.releaseBitmap(pooled);
+        renderer.releaseBitmap(extra);
+
+        verify(pooled, never()).recycle();
+        verify(extra).recycle();
+
+        renderer.setMaxPoolSize(0);
+        verify(pooled).recycle();
+    }
+
+    @Test
+    public void test_releaseBitmap_recyclesImmutable() {
+        Bitmap immutable = mockBitmap(10, 10);
+        when(immutable.isMutable()).thenReturn(false);
+        renderer.releaseBitmap(immutable);
+
+        verify(immutable).recycle();
+    }
+
+    @Test
+    public void test_render_nullX_usesIndices() {
+        Bitmap bitmap = mockBitmap(100, 50);
+        renderer.render(null, new float[] {3, 1, 2, 7}, 3, bitmap);
+
+        verify(dataPath).moveTo(0f, 3f);
+        verify(dataPath).lineTo(1f, 1f);
+        verify(dataPath).lineTo(2f, 2f);
+        // only the first count points are drawn
+        verify(dataPath, never()).lineTo(3f, 7f);
+    }
+
+    private static Bitmap mockBitmap(int width, int height) {
+        Bitmap bitmap = mock(Bitmap.class);
+        when(bitmap.getWidth()).thenReturn(width);
+        when(bitmap.getHeight()).thenReturn(height);
+        when(bitmap.isMutable()).thenReturn(true);
+        return bitmap;
+    }
+}
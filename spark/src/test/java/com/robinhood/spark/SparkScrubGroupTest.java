@@ -0,0 +1,68 @@
+package com.robinhood.spark;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static junit.framework.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+public class SparkScrubGroupTest {
+    private SparkScrubGroup group;
+    private SparkView first;
+    private SparkView second;
+
+    @Before
+    public void setup() {
+        group = new SparkScrubGroup();
+        first = mock(SparkView.class);
+        second = mock(SparkView.class);
+        group.add(first);
+        group.add(second);
+    }
+
+    @Test
+    public void test_findIndex_empty() {
+        assertEquals(-1, group.findIndex(5));
+    }
+
+    @Test
+    public void test_onDataChanged_onlyFirstMember() {
+        group.onDataChanged(first, new float[] {0, 10, 20}, 3);
+        group.onDataChanged(second, new float[] {0, 1}, 2);
+
+        assertEquals(3, group.timelineCount);
+        assertEquals(2, group.findIndex(18));
+    }
+
+    @Test
+    public void test_scrub_snapsEveryMember() {
+        group.onDataChanged(first, new float[] {0, 10, 20}, 3);
+        group.scrub(12);
+
+        verify(first).showGroupScrub(10, 1);
+        verify(second).showGroupScrub(10, 1);
+    }
+
+    @Test
+    public void test_endScrub() {
+        group.endScrub();
+
+        verify(first).endGroupScrub();
+        verify(second).endGroupScrub();
+    }
+
+    @Test
+    public void test_remove_firstMember_handsOverTimeline() {
+        group.onDataChanged(first, new float[] {0, 10, 20}, 3);
+        group.remove(first);
+
+        assertEquals(0, group.timelineCount);
+        verify(second).updateScrubGroupTimeline();
+        assertEquals(1, group.getMembers().size());
+
+        group.scrub(12);
+        verify(first, never()).showGroupScrub(10, 1);
+    }
+}
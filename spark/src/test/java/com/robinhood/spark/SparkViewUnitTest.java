@@ -1,42 +1,61 @@
 package com.robinhood.spark;
 
-import org.junit.Test;
+import android.graphics.Path;
 
-import java.util.Arrays;
-import java.util.List;
+import org.junit.Test;
+import org.mockito.InOrder;
 
 import static junit.framework.Assert.assertEquals;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
 
 public class SparkViewUnitTest {
-    List<Float> points = Arrays.asList(0f, 1f, 2f, 3f);
+    float[] points = {0f, 1f, 2f, 3f};
 
     @Test
     public void test_getNearestIndex_exact() {
-        assertEquals(1, SparkView.getNearestIndex(points, 1f));
+        assertEquals(1, SparkView.getNearestIndex(points, points.length, 1f));
     }
 
     @Test
     public void test_getNearestIndex_first() {
-        assertEquals(0, SparkView.getNearestIndex(points, -1f));
+        assertEquals(0, SparkView.getNearestIndex(points, points.length, -1f));
     }
 
     @Test
     public void test_getNearestIndex_last() {
-        assertEquals(3, SparkView.getNearestIndex(points, 4f));
+        assertEquals(3, SparkView.getNearestIndex(points, points.length, 4f));
     }
 
     @Test
     public void test_getNearestIndex_down() {
-        assertEquals(2, SparkView.getNearestIndex(points, 2.1f));
+        assertEquals(2, SparkView.getNearestIndex(points, points.length, 2.1f));
     }
 
     @Test
     public void test_getNearestIndex_up() {
-        assertEquals(3, SparkView.getNearestIndex(points, 2.9f));
+        assertEquals(3, SparkView.getNearestIndex(points, points.length, 2.9f));
     }
 
     @Test
     public void test_getNearestIndex_halfway() {
-        assertEquals(3, SparkView.getNearestIndex(points, 2.5f));
+        assertEquals(3, SparkView.getNearestIndex(points, points.length, 2.5f));
+    }
+
+    @Test
+    public void test_getNearestIndex_partialArray() {
+        // only the first 2 points are valid
+        assertEquals(1, SparkView.getNearestIndex(points, 2, 2.9f));
+    }
+
+    @Test
+    public void test_closeFill_toGivenEdge() {
+        Path path = mock(Path.class);
+        SparkView.closeFill(path, 10f, 90f, 40f);
+
+        InOrder order = inOrder(path);
+        order.verify(path).lineTo(90f, 40f);
+        order.verify(path).lineTo(10f, 40f);
+        order.verify(path).close();
     }
 }
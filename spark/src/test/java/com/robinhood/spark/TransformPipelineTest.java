@@ -0,0 +1,305 @@
+package com.robinhood.spark;
+
+import android.graphics.RectF;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+public class TransformPipelineTest {
+    private TestAdapter testAdapter;
+    private DataSnapshot snapshot;
+
+    @Before
+    public void setup() {
+        testAdapter = new TestAdapter();
+        snapshot = new DataSnapshot();
+    }
+
+    @Test
+    public void test_emptyPipeline_copiesPoints() {
+        testAdapter.setYData(new float[] {3, 4, 5});
+        TransformPipeline pipeline = new TransformPipeline();
+
+        assertTrue(pipeline.update(testAdapter, snapshot));
+        assertEquals(3, snapshot.count);
+        assertEquals(4f, snapshot.ys[1]);
+        assertEquals(2, snapshot.getAdapterIndex(2));
+        assertFalse(pipeline.update(testAdapter, snapshot));
+    }
+
+    @Test
+    public void test_movingAverage() {
+        testAdapter.setYData(new float[] {1, 2, 3, 4, 5});
+        TransformPipeline pipeline = new TransformPipeline(TransformStage.movingAverage(3));
+        pipeline.update(testAdapter, snapshot);
+
+        assertYs(new float[] {1, 1.5f, 2, 3, 4});
+    }
+
+    @Test
+    public void test_normalizeToBaseLine() {
+        testAdapter = new TestAdapter() {
+            @Override
+            public boolean hasBaseLine() {
+                return true;
+            }
+
+            @Override
+            public float getBaseLine() {
+                return 50;
+            }
+        };
+        testAdapter.setYData(new float[] {50, 75, 25});
+        TransformPipeline pipeline = new TransformPipeline(TransformStage.normalizeToBaseLine());
+        pipeline.update(testAdapter, snapshot);
+
+        assertYs(new float[] {0, 50, -50});
+        assertTrue(snapshot.hasBaseLine);
+        assertEquals(0f, snapshot.baseLine);
+    }
+
+    @Test
+    public void test_normalizeToFirstPoint() {
+        testAdapter.setYData(new float[] {200, 210, 190});
+        TransformPipeline pipeline = new TransformPipeline(TransformStage.normalizeToBaseLine());
+        pipeline.update(testAdapter, snapshot);
+
+        assertYs(new float[] {0, 5, -5});
+    }
+
+    @Test
+    public void test_clipOutliers() {
+        testAdapter.setYData(new float[] {10, 11, 10, 11, 10, 1000, 11});
+        TransformPipeline pipeline = new TransformPipeline(TransformStage.clipOutliers(4, 2));
+        pipeline.update(testAdapter, snapshot);
+
+        // the spike is clamped to 2 standard deviations (0.5) above the mean (10.5)
+        assertEquals(11.5f, snapshot.ys[5], 0.0001f);
+        assertEquals(10f, snapshot.ys[4]);
+    }
+
+    @Test
+    public void test_clipOutliers_largeValues_keepsPrecision() {
+        // squares of prices this large are far beyond float's 24 bits of precision
+        float[] yData = new float[10001];
+        for (int i = 0; i < yData.length - 1; i++) {
+            yData[i] = 50000 + i % 2;
+        }
+        yData[yData.length - 1] = 60000;
+        testAdapter.setYData(yData);
+        TransformPipeline pipeline = new TransformPipeline(TransformStage.clipOutliers(4, 2));
+        pipeline.update(testAdapter, snapshot);
+
+        assertEquals(50001f, snapshot.ys[yData.length - 2]);
+        assertEquals(50001.5f, snapshot.ys[yData.length - 1], 0.01f);
+    }
+
+    @Test
+    public void test_downsample_replacesPartialGroupOnAppend() {
+        testAdapter.setYData(new float[] {1, 3, 5, 7, 9});
+        TransformPipeline pipeline = new TransformPipeline(TransformStage.downsample(2));
+        pipeline.update(testAdapter, snapshot);
+
+        // the trailing point is drawn on its own until its group fills up
+        assertYs(new float[] {2, 6, 9});
+        assertEquals(4, snapshot.getAdapterIndex(2));
+
+        testAdapter.setYData(new float[] {1, 3, 5, 7, 9, 11});
+        assertTrue(pipeline.update(testAdapter, snapshot));
+        assertYs(new float[] {2, 6, 10});
+        assertEquals(5, snapshot.getAdapterIndex(2));
+        assertEquals(2, snapshot.changeStart);
+        assertEquals(3, snapshot.changeEnd);
+    }
+
+    @Test
+    public void test_downsample_mustBeLast() {
+        try {
+            new TransformPipeline(TransformStage.downsample(2), TransformStage.movingAverage(2));
+            throw new AssertionError("expected an IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void test_append_matchesRebuild() {
+        float[] data = new float[500];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (float) Math.sin(i * 0.3) * 10 + (i % 37 == 0 ? 100 : 0);
+        }
+
+        TransformPipeline pipeline = new TransformPipeline(TransformStage.normalizeToBaseLine(),
+                TransformStage.clipOutliers(20, 3), TransformStage.movingAverage(5),
+                TransformStage.downsample(3));
+        for (int end : new int[] {1, 2, 10, 11, 100, 499, 500}) {
+            testAdapter.setYData(Arrays.copyOf(data, end));
+            pipeline.update(testAdapter, snapshot);
+        }
+
+        DataSnapshot rebuilt = new DataSnapshot();
+        new TransformPipeline(TransformStage.normalizeToBaseLine(),
+                TransformStage.clipOutliers(20, 3), TransformStage.movingAverage(5),
+                TransformStage.downsample(3)).update(testAdapter, rebuilt);
+        assertEquals(rebuilt.count, snapshot.count);
+        for (int i = 0; i < rebuilt.count; i++) {
+            assertEquals(rebuilt.xs[i], snapshot.xs[i]);
+            assertEquals(rebuilt.ys[i], snapshot.ys[i]);
+            assertEquals(rebuilt.getAdapterIndex(i), snapshot.getAdapterIndex(i));
+        }
+    }
+
+    @Test
+    public void test_getBounds_ofTransformedPoints() {
+        testAdapter.setYData(new float[] {0, 10, 0, 10});
+        TransformPipeline pipeline = new TransformPipeline(TransformStage.movingAverage(2));
+        pipeline.update(testAdapter, snapshot);
+
+        RectF bounds = TestAdapter.createMockRectF(0, 0, 0, 0);
+        pipeline.getBounds(bounds);
+        assertEquals(0f, bounds.left);
+        assertEquals(3f, bounds.right);
+        assertEquals(0f, bounds.top);
+        assertEquals(5f, bounds.bottom);
+    }
+
+    @Test
+    public void test_invalidate_reprocesses() {
+        testAdapter.setYData(new float[] {1, 2, 3});
+        TransformPipeline pipeline = new TransformPipeline();
+        pipeline.update(testAdapter, snapshot);
+
+        testAdapter.setYData(new float[] {4, 5, 6});
+        assertFalse(pipeline.update(testAdapter, snapshot));
+        pipeline.invalidate();
+        assertTrue(pipeline.update(testAdapter, snapshot));
+        assertYs(new float[] {4, 5, 6});
+    }
+
+    @Test
+    public void test_notifyDataSetChanged_reprocessesEditedPoints() {
+        testAdapter.setYData(new float[] {1, 2, 3});
+        TransformPipeline pipeline = new TransformPipeline(TransformStage.movingAverage(2));
+        pipeline.update(testAdapter, snapshot);
+
+        testAdapter.setYData(new float[] {1, 10, 3});
+        testAdapter.notifyDataSetChanged();
+        assertTrue(pipeline.update(testAdapter, snapshot));
+        assertYs(new float[] {1, 5.5f, 6.5f});
+        assertEquals(0, snapshot.changeStart);
+    }
+
+    @Test
+    public void test_notifyDataRangeChanged_appendedPointsOnly() {
+        final int[] reads = new int[1];
+        testAdapter = new TestAdapter() {
+            @Override
+            public float getY(int index) {
+                reads[0]++;
+                return super.getY(index);
+            }
+        };
+        testAdapter.setYData(new float[] {1, 2, 3});
+        TransformPipeline pipeline = new TransformPipeline(TransformStage.movingAverage(2));
+        pipeline.update(testAdapter, snapshot);
+
+        testAdapter.setYData(new float[] {1, 2, 3, 5});
+        testAdapter.notifyDataRangeChanged(3, 4);
+        reads[0] = 0;
+        assertTrue(pipeline.update(testAdapter, snapshot));
+        assertEquals(1, reads[0]);
+        assertYs(new float[] {1, 1.5f, 2.5f, 4});
+
+        // an edited point that was already processed runs everything again
+        testAdapter.setYData(new float[] {1, 4, 3, 5});
+        testAdapter.notifyDataRangeChanged(1, 2);
+        reads[0] = 0;
+        assertTrue(pipeline.update(testAdapter, snapshot));
+        assertEquals(4, reads[0]);
+        assertYs(new float[] {1, 2.5f, 3.5f, 4});
+    }
+
+    @Test
+    public void test_otherAdapter_reprocesses() {
+        testAdapter.setYData(new float[] {1, 2, 3});
+        TransformPipeline pipeline = new TransformPipeline();
+        pipeline.update(testAdapter, snapshot);
+
+        TestAdapter other = new TestAdapter();
+        other.setYData(new float[] {4, 5, 6});
+        assertTrue(pipeline.update(other, snapshot));
+        assertYs(new float[] {4, 5, 6});
+    }
+
+    @Test
+    public void test_exponentialMovingAverage() {
+        testAdapter.setYData(new float[] {10, 20, 20});
+        // alpha is 2 / (3 + 1)
+        TransformPipeline pipeline =
+                new TransformPipeline(TransformStage.exponentialMovingAverage(3));
+        pipeline.update(testAdapter, snapshot);
+
+        assertYs(new float[] {10, 15, 17.5f});
+    }
+
+    @Test
+    public void test_rollingExtremes_matchBruteForce() {
+        float[] data = new float[300];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (float) Math.sin(i * 0.7) * (i % 11);
+        }
+        int window = 7;
+
+        TransformPipeline minPipeline = new TransformPipeline(TransformStage.rollingMin(window));
+        TransformPipeline maxPipeline = new TransformPipeline(TransformStage.rollingMax(window));
+        DataSnapshot maxSnapshot = new DataSnapshot();
+        // appended a few points at a time, like live ticks
+        for (int end = 1; end <= data.length; end += 13) {
+            testAdapter.setYData(Arrays.copyOf(data, end));
+            minPipeline.update(testAdapter, snapshot);
+            maxPipeline.update(testAdapter, maxSnapshot);
+        }
+        testAdapter.setYData(data);
+        minPipeline.update(testAdapter, snapshot);
+        maxPipeline.update(testAdapter, maxSnapshot);
+
+        for (int i = 0; i < data.length; i++) {
+            float min = Float.MAX_VALUE;
+            float max = -Float.MAX_VALUE;
+            for (int j = Math.max(0, i - window + 1); j <= i; j++) {
+                min = Math.min(min, data[j]);
+                max = Math.max(max, data[j]);
+            }
+            assertEquals(min, snapshot.ys[i]);
+            assertEquals(max, maxSnapshot.ys[i]);
+        }
+    }
+
+    @Test
+    public void test_volumeWeightedAverage() {
+        testAdapter.setYData(new float[] {10, 20, 40});
+        final float[] volumes = {1, 3, 0};
+        TransformPipeline pipeline = new TransformPipeline(TransformStage.volumeWeightedAverage(
+                new TransformStage.VolumeSource() {
+                    @Override
+                    public float getVolume(int index) {
+                        return volumes[index];
+                    }
+                }));
+        pipeline.update(testAdapter, snapshot);
+
+        assertYs(new float[] {10, 17.5f, 17.5f});
+    }
+
+    private void assertYs(float[] expected) {
+        assertEquals(expected.length, snapshot.count);
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], snapshot.ys[i], 0.0001f);
+        }
+    }
+}